@@ -2,6 +2,8 @@ package org.molgenis.armadillo;
 
 import static java.util.Objects.requireNonNull;
 
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
 import org.molgenis.armadillo.service.ArmadilloConnectionFactory;
 import org.molgenis.r.RServerConnection;
@@ -16,7 +18,9 @@ public class ArmadilloSession {
   private final ProcessService processService;
   private final RServerConnection connection;
   final int pid;
-  private boolean busy = false;
+  // not synchronized, a virtual thread waiting for R would pin its carrier thread
+  private final Lock lock = new ReentrantLock();
+  private volatile boolean busy = false;
 
   public ArmadilloSession(
       ArmadilloConnectionFactory connectionFactory, ProcessService processService) {
@@ -28,12 +32,14 @@ public class ArmadilloSession {
     logger.debug("Created new connection with pid {}.", pid);
   }
 
-  public synchronized <T> T execute(Function<RServerConnection, T> consumer) {
-    busy = true;
+  public <T> T execute(Function<RServerConnection, T> consumer) {
+    lock.lock();
     try {
+      busy = true;
       return consumer.apply(connection);
     } finally {
       busy = false;
+      lock.unlock();
     }
   }
 
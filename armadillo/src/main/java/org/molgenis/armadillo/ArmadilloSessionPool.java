@@ -0,0 +1,163 @@
+package org.molgenis.armadillo;
+
+import static java.util.Objects.requireNonNull;
+import static org.molgenis.armadillo.security.RunAs.runAsSystem;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.molgenis.armadillo.profile.ActiveProfileNameAccessor;
+import org.molgenis.armadillo.profile.annotation.ProfileScope;
+import org.molgenis.armadillo.service.ArmadilloConnectionFactory;
+import org.molgenis.r.service.ProcessService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps a number of ready-to-use sessions for a profile, with the packages loaded and the options
+ * set, so users don't have to wait for that when they log in or select a profile. Sessions that
+ * are taken from the pool are never returned: they contain the state of a user and are discarded
+ * when the user is done with them. The pool is replenished in the background.
+ */
+@Component
+@ProfileScope
+public class ArmadilloSessionPool implements DisposableBean {
+  private static final Logger logger = LoggerFactory.getLogger(ArmadilloSessionPool.class);
+
+  private record IdleSession(ArmadilloSession session, Instant created) {}
+
+  private final ArmadilloConnectionFactory connectionFactory;
+  private final ProcessService processService;
+  private final String profileName;
+  private final int minIdle;
+  private final int maxIdle;
+  private final Duration maxIdleTime;
+  private final BlockingDeque<IdleSession> idleSessions = new LinkedBlockingDeque<>();
+  private final AtomicBoolean replenishing = new AtomicBoolean();
+  private final ExecutorService executorService;
+  private volatile boolean closed = false;
+
+  public ArmadilloSessionPool(
+      ArmadilloConnectionFactory connectionFactory,
+      ProcessService processService,
+      @Value("${armadillo.session-pool.min-idle:0}") int minIdle,
+      @Value("${armadillo.session-pool.max-idle:10}") int maxIdle,
+      @Value("${armadillo.session-pool.max-idle-time:30m}") Duration maxIdleTime) {
+    this.connectionFactory = requireNonNull(connectionFactory);
+    this.processService = requireNonNull(processService);
+    this.profileName = ActiveProfileNameAccessor.getActiveProfileName();
+    this.minIdle = Math.min(minIdle, maxIdle);
+    this.maxIdle = maxIdle;
+    this.maxIdleTime = requireNonNull(maxIdleTime);
+    this.executorService =
+        Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder()
+                .setNameFormat("session-pool-" + profileName + "-%d")
+                .setDaemon(true)
+                .build());
+    replenish();
+  }
+
+  /**
+   * Takes a ready session from the pool, or creates a new one if none is available. The caller
+   * owns the session and should discard it when done.
+   */
+  public ArmadilloSession take() {
+    IdleSession idleSession;
+    while ((idleSession = idleSessions.pollFirst()) != null) {
+      if (isExpired(idleSession)) {
+        discard(idleSession.session());
+      } else {
+        logger.debug("Took session with pid {} from the pool", idleSession.session().pid);
+        replenish();
+        return idleSession.session();
+      }
+    }
+    replenish();
+    return new ArmadilloSession(connectionFactory, processService);
+  }
+
+  /** Discards a session that is no longer needed, e.g. because it contains user state. */
+  public void discard(ArmadilloSession session) {
+    try {
+      session.sessionCleanup();
+    } catch (RuntimeException e) {
+      logger.warn("Error discarding session with pid {}", session.pid, e);
+    }
+  }
+
+  int getIdleCount() {
+    return idleSessions.size();
+  }
+
+  @Override
+  public void destroy() {
+    closed = true;
+    executorService.shutdownNow();
+    IdleSession idleSession;
+    while ((idleSession = idleSessions.pollFirst()) != null) {
+      discard(idleSession.session());
+    }
+  }
+
+  private boolean isExpired(IdleSession idleSession) {
+    return idleSession.created().plus(maxIdleTime).isBefore(Instant.now());
+  }
+
+  private void replenish() {
+    if (closed || minIdle <= 0 || !replenishing.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      executorService.execute(
+          () -> {
+            try {
+              ActiveProfileNameAccessor.setActiveProfileName(profileName);
+              runAsSystem(this::fill);
+            } finally {
+              ActiveProfileNameAccessor.resetActiveProfileName();
+              replenishing.set(false);
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      // the pool is being destroyed
+      replenishing.set(false);
+    }
+  }
+
+  private void fill() {
+    idleSessions.removeIf(
+        idleSession -> {
+          boolean expired = isExpired(idleSession);
+          if (expired) {
+            discard(idleSession.session());
+          }
+          return expired;
+        });
+    while (!closed && idleSessions.size() < minIdle) {
+      ArmadilloSession session;
+      try {
+        session = new ArmadilloSession(connectionFactory, processService);
+      } catch (RuntimeException e) {
+        // e.g. the container isn't running, try again when the next session is taken
+        logger.warn("Unable to create session for profile '{}'", profileName, e);
+        return;
+      }
+      if (closed || idleSessions.size() >= maxIdle) {
+        discard(session);
+        return;
+      }
+      idleSessions.addLast(new IdleSession(session, Instant.now()));
+      logger.debug("Added session with pid {} to the pool", session.pid);
+    }
+  }
+}
@@ -0,0 +1,28 @@
+package org.molgenis.armadillo;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Virtual threads, for when Armadillo runs on a Java runtime that has them. A thread waiting for
+ * the R server then doesn't tie up a platform thread. Virtual threads came with Java 21 and
+ * Armadillo is built for Java 17, so they are looked up when the application starts.
+ */
+public class VirtualThreads {
+
+  public static final String VIRTUAL_THREADS_ENABLED = "armadillo.virtual-threads-enabled";
+
+  private VirtualThreads() {}
+
+  /** Creates an executor that runs every task on a new virtual thread, if the runtime can. */
+  public static Optional<ExecutorService> newVirtualThreadPerTaskExecutor() {
+    try {
+      return Optional.of(
+          (ExecutorService)
+              Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null));
+    } catch (ReflectiveOperationException e) {
+      return Optional.empty();
+    }
+  }
+}
@@ -68,12 +68,21 @@ public class AuditEventPublisher implements ApplicationEventPublisherAware {
   public static final String STOP_PROFILE = "STOP_PROFILE";
   public static final String LIST_OBJECTS = "LIST_OBJECTS";
   public static final String UPLOAD_OBJECT = "UPLOAD_OBJECT";
+  public static final String UPLOAD_TABLE = "UPLOAD_TABLE";
+  public static final String START_UPLOAD = "START_UPLOAD";
+  public static final String UPLOAD_CHUNK = "UPLOAD_CHUNK";
+  public static final String GET_UPLOAD = "GET_UPLOAD";
+  public static final String COMPLETE_UPLOAD = "COMPLETE_UPLOAD";
+  public static final String ABORT_UPLOAD = "ABORT_UPLOAD";
   public static final String COPY_OBJECT = "COPY_OBJECT";
   public static final String CREATE_LINKED_OBJECT = "CREATE_LINKED_OBJECT";
   public static final String MOVE_OBJECT = "MOVE_OBJECT";
+  public static final String COMPACT_PROJECT = "COMPACT_PROJECT";
   public static final String GET_OBJECT = "GET_OBJECT";
   public static final String PREVIEW_OBJECT = "PREVIEW_OBJECT";
   public static final String GET_OBJECT_INFO = "GET_OBJECT_INFO";
+  public static final String GET_OBJECT_STATISTICS = "GET_OBJECT_STATISTICS";
+  public static final String SEARCH_VARIABLES = "SEARCH_VARIABLES";
   public static final String DELETE_OBJECT = "DELETE_OBJECT";
   public static final String DOWNLOAD_OBJECT = "DOWNLOAD_OBJECT";
   public static final String LIST_USERS = "LIST_USERS";
@@ -91,8 +100,10 @@ public class AuditEventPublisher implements ApplicationEventPublisherAware {
   public static final String PROJECT = "project";
   public static final String PROFILE = "profile";
   public static final String OBJECT = "object";
+  public static final String UPLOAD = "upload";
   public static final String EMAIL = "email";
   public static final String MESSAGE = "message";
+  public static final String FILTER = "filter";
   public static final String TABLE = "table";
   public static final String ID = "id";
   static final String ANONYMOUS = "ANONYMOUS";
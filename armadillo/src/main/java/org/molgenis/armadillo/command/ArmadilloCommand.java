@@ -1,10 +1,13 @@
 package org.molgenis.armadillo.command;
 
 import java.util.Optional;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
 public interface ArmadilloCommand<T> {
 
+  UUID getId();
+
   Optional<CompletableFuture<T>> getExecution();
 
   ArmadilloCommandDTO asDto();
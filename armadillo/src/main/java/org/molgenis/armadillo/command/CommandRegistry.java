@@ -0,0 +1,111 @@
+package org.molgenis.armadillo.command;
+
+import static java.time.Clock.systemUTC;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * The commands of a session by id, so clients can keep several asynchronous commands in flight and
+ * collect their results one by one. The registry is bounded: finished commands are evicted when
+ * they are older than the maximum age, and the oldest commands, finished ones first, when there
+ * are more than the maximum number. Evicted commands are handed to a listener, which can release
+ * their results.
+ */
+public class CommandRegistry {
+
+  private record Registration(ArmadilloCommand<?> command, Instant registered) {}
+
+  private final int maxSize;
+  private final Duration maxAge;
+  private final Consumer<ArmadilloCommand<?>> evictionListener;
+  private final Clock clock;
+  private final Map<UUID, Registration> commands = new LinkedHashMap<>();
+
+  public CommandRegistry(
+      int maxSize, Duration maxAge, Consumer<ArmadilloCommand<?>> evictionListener) {
+    this(maxSize, maxAge, evictionListener, systemUTC());
+  }
+
+  // For test purposes, allow the clock to be mocked
+  CommandRegistry(
+      int maxSize,
+      Duration maxAge,
+      Consumer<ArmadilloCommand<?>> evictionListener,
+      Clock clock) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("maxSize must be at least 1");
+    }
+    this.maxSize = maxSize;
+    this.maxAge = maxAge;
+    this.evictionListener = evictionListener;
+    this.clock = clock;
+  }
+
+  public synchronized void register(ArmadilloCommand<?> command) {
+    commands.put(command.getId(), new Registration(command, clock.instant()));
+    evict();
+  }
+
+  public synchronized Optional<ArmadilloCommand<?>> get(UUID id) {
+    evict();
+    return Optional.ofNullable(commands.get(id)).map(Registration::command);
+  }
+
+  /** Returns the registered commands, oldest first. */
+  public synchronized List<ArmadilloCommand<?>> getAll() {
+    evict();
+    return commands.values().stream().<ArmadilloCommand<?>>map(Registration::command).toList();
+  }
+
+  /** Finds the id of the command with the given execution. */
+  public synchronized Optional<UUID> findId(CompletableFuture<?> execution) {
+    return commands.values().stream()
+        .map(Registration::command)
+        .filter(command -> command.getExecution().filter(execution::equals).isPresent())
+        .map(ArmadilloCommand::getId)
+        .findFirst();
+  }
+
+  private void evict() {
+    List<ArmadilloCommand<?>> evicted = new ArrayList<>();
+    Instant expired = clock.instant().minus(maxAge);
+    Iterator<Registration> iterator = commands.values().iterator();
+    while (iterator.hasNext()) {
+      Registration registration = iterator.next();
+      if (isDone(registration.command()) && registration.registered().isBefore(expired)) {
+        iterator.remove();
+        evicted.add(registration.command());
+      }
+    }
+    evictOldest(true, evicted);
+    evictOldest(false, evicted);
+    evicted.forEach(evictionListener);
+  }
+
+  /** Evicts the oldest commands while there are too many. */
+  private void evictOldest(boolean onlyDone, List<ArmadilloCommand<?>> evicted) {
+    Iterator<Registration> iterator = commands.values().iterator();
+    while (commands.size() > maxSize && iterator.hasNext()) {
+      Registration registration = iterator.next();
+      if (!onlyDone || isDone(registration.command())) {
+        iterator.remove();
+        evicted.add(registration.command());
+      }
+    }
+  }
+
+  private static boolean isDone(ArmadilloCommand<?> command) {
+    return command.getExecution().map(CompletableFuture::isDone).orElse(false);
+  }
+}
@@ -1,9 +1,12 @@
 package org.molgenis.armadillo.command;
 
+import java.io.InputStream;
 import java.security.Principal;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import org.molgenis.armadillo.storage.RowFilter;
 import org.molgenis.r.RServerResult;
 import org.molgenis.r.model.RPackage;
 import org.springframework.core.io.Resource;
@@ -20,9 +23,22 @@ public interface Commands {
 
   CompletableFuture<RServerResult> evaluate(String expression, boolean serialized);
 
+  /**
+   * Evaluates an expression and streams its serialized result as it comes in from the R server.
+   * The result isn't kept, so the command doesn't become the last command, and the session is
+   * busy until the R server has sent the whole result.
+   */
+  CompletableFuture<InputStream> evaluateStreaming(String expression);
+
   CompletableFuture<Void> assign(String symbol, String expression);
 
-  CompletableFuture<Void> loadTable(String symbol, String table, List<String> variables);
+  /**
+   * Loads a table into the R session.
+   *
+   * @param filter a filter on the rows to load, or null to load all rows
+   */
+  CompletableFuture<Void> loadTable(
+      String symbol, String table, List<String> variables, RowFilter filter);
 
   CompletableFuture<Void> loadResource(Principal principal, String symbol, String resource);
 
@@ -38,6 +54,17 @@ public interface Commands {
 
   Optional<ArmadilloCommandDTO> getLastCommand();
 
+  /** Lists the commands of this session that are still kept, oldest first. */
+  List<ArmadilloCommandDTO> getCommands();
+
+  Optional<ArmadilloCommandDTO> getCommand(UUID id);
+
+  /** Returns the execution of a command with a result. */
+  Optional<CompletableFuture<RServerResult>> getExecution(UUID id);
+
+  /** Finds the id of the command that was scheduled with the given execution. */
+  Optional<UUID> getCommandId(CompletableFuture<?> execution);
+
   enum ArmadilloCommandStatus {
     COMPLETED,
     FAILED,
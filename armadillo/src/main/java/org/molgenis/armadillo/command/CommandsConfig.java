@@ -1,9 +1,15 @@
 package org.molgenis.armadillo.command;
 
+import static org.molgenis.armadillo.VirtualThreads.VIRTUAL_THREADS_ENABLED;
 import static org.springframework.security.core.context.SecurityContextHolder.*;
 
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import org.molgenis.armadillo.VirtualThreads;
 import org.molgenis.armadillo.profile.ActiveProfileNameAccessor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
@@ -15,15 +21,18 @@ import org.springframework.security.core.context.SecurityContextHolder;
 @Configuration
 public class CommandsConfig {
 
+  private static final Logger logger = LoggerFactory.getLogger(CommandsConfig.class);
+
   /**
    * Added TaskExecutor instead of the ExecutorService to copy the request attributes (in particular
    * the profile definition) from the request to the thread executing the R-command.
    */
   @Bean
   @Primary
-  public TaskExecutor executorService() {
+  public TaskExecutor executorService(
+      @Value("${" + VIRTUAL_THREADS_ENABLED + ":false}") boolean virtualThreadsEnabled) {
     TaskExecutorAdapter taskExecutorAdapter =
-        new TaskExecutorAdapter(Executors.newCachedThreadPool());
+        new TaskExecutorAdapter(createExecutorService(virtualThreadsEnabled));
     taskExecutorAdapter.setTaskDecorator(
         runnable -> {
           // this runs in the calling thread
@@ -49,4 +58,20 @@ public class CommandsConfig {
         });
     return taskExecutorAdapter;
   }
+
+  /**
+   * Commands spend most of their time waiting for the R server, so with many concurrent users a
+   * virtual thread per command is cheaper than a platform thread.
+   */
+  private static ExecutorService createExecutorService(boolean virtualThreadsEnabled) {
+    if (virtualThreadsEnabled) {
+      var executorService = VirtualThreads.newVirtualThreadPerTaskExecutor();
+      if (executorService.isPresent()) {
+        logger.info("Running commands on virtual threads.");
+        return executorService.get();
+      }
+      logger.warn("Virtual threads need Java 21 or newer, running commands on platform threads.");
+    }
+    return Executors.newCachedThreadPool();
+  }
 }
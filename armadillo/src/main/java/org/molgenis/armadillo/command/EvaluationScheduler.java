@@ -0,0 +1,216 @@
+package org.molgenis.armadillo.command;
+
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import org.molgenis.armadillo.exceptions.ServerBusyException;
+import org.molgenis.armadillo.profile.ActiveProfileNameAccessor;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Admits the R evaluations of a profile. At most maxConcurrency evaluations run at the same time,
+ * the others wait in a queue per user. The users take turns, so a few users with heavy analyses
+ * can't starve the others. A session runs one evaluation at a time, its commands run one after
+ * the other anyway and would only hold on to a turn while they wait. When maxQueueSize evaluations
+ * are waiting, new ones are rejected right away with a {@link ServerBusyException}. Without a
+ * maxConcurrency evaluations start right away.
+ */
+public class EvaluationScheduler {
+
+  private record Task(Object session, Runnable start, long queued) {}
+
+  private final String profileName;
+  private final int maxConcurrency;
+  private final int maxQueueSize;
+  private final Duration retryAfter;
+  private final Timer waitTime;
+  private final Counter rejected;
+  private final Map<Object, Deque<Task>> queues = new LinkedHashMap<>();
+  private final Set<Object> runningSessions = new HashSet<>();
+  private int queued = 0;
+  private int running = 0;
+
+  /**
+   * @param maxConcurrency the maximum number of evaluations that run at the same time, or 0 for no
+   *     maximum
+   */
+  public EvaluationScheduler(
+      String profileName,
+      int maxConcurrency,
+      int maxQueueSize,
+      Duration retryAfter,
+      MeterRegistry meterRegistry) {
+    this.profileName = profileName;
+    this.maxConcurrency = Math.max(maxConcurrency, 0);
+    this.maxQueueSize = maxQueueSize;
+    this.retryAfter = retryAfter;
+    Gauge.builder("armadillo.evaluations.queued", this, EvaluationScheduler::getQueued)
+        .tag("profile", profileName)
+        .description("Number of R evaluations that wait for their turn")
+        .register(meterRegistry);
+    Gauge.builder("armadillo.evaluations.running", this, EvaluationScheduler::getRunning)
+        .tag("profile", profileName)
+        .description("Number of R evaluations that are running")
+        .register(meterRegistry);
+    this.waitTime =
+        Timer.builder("armadillo.evaluations.wait")
+            .tag("profile", profileName)
+            .description("Time R evaluations waited for their turn")
+            .register(meterRegistry);
+    this.rejected =
+        Counter.builder("armadillo.evaluations.rejected")
+            .tag("profile", profileName)
+            .description("Number of R evaluations rejected because the queue was full")
+            .register(meterRegistry);
+  }
+
+  /**
+   * Queues an evaluation of a user, which runs on the executor when it's the user's turn and the
+   * session has no other evaluation running.
+   *
+   * @param user the user, or null for an anonymous user, who takes turns per session
+   * @param session the session that evaluates, e.g. the commands of an HTTP session
+   * @throws ServerBusyException if the queue is full
+   */
+  public <T> CompletableFuture<T> submit(
+      String user, Object session, Supplier<T> evaluation, Executor executor) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    Supplier<T> asSubmitter = asSubmitter(evaluation);
+    Runnable start =
+        () -> {
+          try {
+            supplyAsync(asSubmitter, executor)
+                .whenComplete(
+                    (value, throwable) -> {
+                      finished(session);
+                      if (throwable != null) {
+                        result.completeExceptionally(throwable);
+                      } else {
+                        result.complete(value);
+                      }
+                    });
+          } catch (RuntimeException e) {
+            // e.g. the executor is shut down, the evaluation never started
+            finished(session);
+            result.completeExceptionally(e);
+          }
+        };
+    if (maxConcurrency == 0) {
+      synchronized (this) {
+        running++;
+      }
+      start.run();
+      return result;
+    }
+    synchronized (this) {
+      if (queued >= maxQueueSize
+          && (running >= maxConcurrency || runningSessions.contains(session))) {
+        rejected.increment();
+        throw new ServerBusyException(profileName, retryAfter);
+      }
+      Task task = new Task(session, start, System.nanoTime());
+      queues.computeIfAbsent(user != null ? user : session, key -> new ArrayDeque<>()).add(task);
+      queued++;
+    }
+    dispatch();
+    return result;
+  }
+
+  /**
+   * Runs the evaluation with the security context and profile of the thread that submits it. A
+   * queued evaluation is started from the thread of the evaluation before it, which can belong to
+   * another user.
+   */
+  private static <T> Supplier<T> asSubmitter(Supplier<T> evaluation) {
+    final SecurityContext securityContext = SecurityContextHolder.getContext();
+    final String profile = ActiveProfileNameAccessor.getActiveProfileName();
+    return () -> {
+      final SecurityContext originalSecurityContext = SecurityContextHolder.getContext();
+      final String originalProfile = ActiveProfileNameAccessor.getActiveProfileName();
+      try {
+        SecurityContextHolder.setContext(securityContext);
+        ActiveProfileNameAccessor.setActiveProfileName(profile);
+        return evaluation.get();
+      } finally {
+        SecurityContextHolder.setContext(originalSecurityContext);
+        ActiveProfileNameAccessor.setActiveProfileName(originalProfile);
+      }
+    };
+  }
+
+  public synchronized int getQueued() {
+    return queued;
+  }
+
+  public synchronized int getRunning() {
+    return running;
+  }
+
+  private void finished(Object session) {
+    synchronized (this) {
+      running--;
+      runningSessions.remove(session);
+    }
+    dispatch();
+  }
+
+  /** Starts waiting evaluations while there is room, outside the lock. */
+  private void dispatch() {
+    List<Task> tasks = new ArrayList<>();
+    synchronized (this) {
+      Task task;
+      while (running < maxConcurrency && (task = next()) != null) {
+        tasks.add(task);
+        queued--;
+        running++;
+        runningSessions.add(task.session());
+      }
+    }
+    for (Task task : tasks) {
+      waitTime.record(System.nanoTime() - task.queued(), NANOSECONDS);
+      task.start().run();
+    }
+  }
+
+  /**
+   * Takes the first evaluation of the user whose turn it is, who then goes to the back.
+   * Evaluations of sessions that have an evaluation running are skipped.
+   *
+   * @return the evaluation, or null if none can start
+   */
+  private Task next() {
+    for (Map.Entry<Object, Deque<Task>> entry : queues.entrySet()) {
+      Iterator<Task> iterator = entry.getValue().iterator();
+      while (iterator.hasNext()) {
+        Task task = iterator.next();
+        if (!runningSessions.contains(task.session())) {
+          iterator.remove();
+          Deque<Task> queue = queues.remove(entry.getKey());
+          if (!queue.isEmpty()) {
+            queues.put(entry.getKey(), queue);
+          }
+          return task;
+        }
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,37 @@
+package org.molgenis.armadillo.command;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/** The {@link EvaluationScheduler}s of the profiles, which all get the same limits. */
+@Component
+public class EvaluationSchedulers {
+
+  private final int maxConcurrency;
+  private final int maxQueueSize;
+  private final Duration retryAfter;
+  private final MeterRegistry meterRegistry;
+  private final Map<String, EvaluationScheduler> schedulers = new ConcurrentHashMap<>();
+
+  public EvaluationSchedulers(
+      @Value("${armadillo.evaluations.max-concurrency:0}") int maxConcurrency,
+      @Value("${armadillo.evaluations.max-queue-size:100}") int maxQueueSize,
+      @Value("${armadillo.evaluations.retry-after:30s}") Duration retryAfter,
+      MeterRegistry meterRegistry) {
+    this.maxConcurrency = maxConcurrency;
+    this.maxQueueSize = maxQueueSize;
+    this.retryAfter = retryAfter;
+    this.meterRegistry = meterRegistry;
+  }
+
+  public EvaluationScheduler get(String profileName) {
+    return schedulers.computeIfAbsent(
+        profileName,
+        name ->
+            new EvaluationScheduler(name, maxConcurrency, maxQueueSize, retryAfter, meterRegistry));
+  }
+}
@@ -91,6 +91,7 @@ public abstract class ArmadilloCommandImpl<T> implements ArmadilloCommand<T> {
     return Optional.ofNullable(endDate);
   }
 
+  @Override
   public UUID getId() {
     return id;
   }
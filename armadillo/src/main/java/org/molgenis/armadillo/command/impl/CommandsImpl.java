@@ -1,36 +1,49 @@
 package org.molgenis.armadillo.command.impl;
 
 import static java.lang.String.format;
-import static java.util.concurrent.CompletableFuture.supplyAsync;
 import static org.molgenis.armadillo.controller.ArmadilloUtils.GLOBAL_ENV;
 import static org.molgenis.armadillo.security.RunAs.runAsSystem;
 import static org.molgenis.armadillo.storage.ArmadilloStorageService.PARQUET;
 import static org.molgenis.armadillo.storage.ArmadilloStorageService.RDS;
 
 import jakarta.annotation.PreDestroy;
+import java.io.Closeable;
+import java.io.IOException;
 import java.io.InputStream;
 import java.security.Principal;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import org.molgenis.armadillo.ArmadilloSession;
+import org.molgenis.armadillo.ArmadilloSessionPool;
 import org.molgenis.armadillo.command.ArmadilloCommand;
 import org.molgenis.armadillo.command.ArmadilloCommandDTO;
+import org.molgenis.armadillo.command.CommandRegistry;
 import org.molgenis.armadillo.command.Commands;
+import org.molgenis.armadillo.command.EvaluationScheduler;
+import org.molgenis.armadillo.command.EvaluationSchedulers;
+import org.molgenis.armadillo.exceptions.ServerBusyException;
 import org.molgenis.armadillo.metadata.ProfileConfig;
 import org.molgenis.armadillo.metadata.ProfileService;
 import org.molgenis.armadillo.profile.ActiveProfileNameAccessor;
-import org.molgenis.armadillo.service.ArmadilloConnectionFactory;
 import org.molgenis.armadillo.storage.ArmadilloStorageService;
+import org.molgenis.armadillo.storage.RowFilter;
 import org.molgenis.r.RServerConnection;
 import org.molgenis.r.RServerResult;
+import org.molgenis.r.exceptions.RExecutionException;
 import org.molgenis.r.model.RPackage;
 import org.molgenis.r.service.PackageService;
-import org.molgenis.r.service.ProcessService;
 import org.molgenis.r.service.RExecutorService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.task.TaskExecutor;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.context.annotation.SessionScope;
 
@@ -38,13 +51,18 @@ import org.springframework.web.context.annotation.SessionScope;
 @SessionScope
 class CommandsImpl implements Commands {
 
+  private static final Logger logger = LoggerFactory.getLogger(CommandsImpl.class);
+
   private final ArmadilloStorageService armadilloStorage;
   private final PackageService packageService;
   private final RExecutorService rExecutorService;
   private final TaskExecutor taskExecutor;
-  private final ArmadilloConnectionFactory connectionFactory;
-  private final ProcessService processService;
+  private final ArmadilloSessionPool sessionPool;
   private final ProfileService profileService;
+  private final EvaluationSchedulers evaluationSchedulers;
+  private final CommandRegistry commandRegistry;
+  private final Duration resultStreamTimeout;
+  private final Duration resultStreamMaxTime;
 
   private ArmadilloSession armadilloSession;
 
@@ -56,16 +74,24 @@ class CommandsImpl implements Commands {
       PackageService packageService,
       RExecutorService rExecutorService,
       TaskExecutor taskExecutor,
-      ArmadilloConnectionFactory connectionFactory,
-      ProcessService processService,
-      ProfileService profileService) {
+      ArmadilloSessionPool sessionPool,
+      ProfileService profileService,
+      EvaluationSchedulers evaluationSchedulers,
+      @Value("${armadillo.commands.max-size:100}") int maxCommands,
+      @Value("${armadillo.commands.max-age:1h}") Duration maxCommandAge,
+      @Value("${armadillo.commands.result-stream-timeout:1m}") Duration resultStreamTimeout,
+      @Value("${armadillo.commands.result-stream-max-time:30m}") Duration resultStreamMaxTime) {
     this.armadilloStorage = armadilloStorage;
     this.packageService = packageService;
     this.rExecutorService = rExecutorService;
     this.taskExecutor = taskExecutor;
-    this.connectionFactory = connectionFactory;
-    this.processService = processService;
+    this.sessionPool = sessionPool;
     this.profileService = profileService;
+    this.evaluationSchedulers = evaluationSchedulers;
+    this.commandRegistry =
+        new CommandRegistry(maxCommands, maxCommandAge, CommandsImpl::discardResult);
+    this.resultStreamTimeout = resultStreamTimeout;
+    this.resultStreamMaxTime = resultStreamMaxTime;
   }
 
   @Override
@@ -76,9 +102,9 @@ class CommandsImpl implements Commands {
   @Override
   public void selectProfile(String profileName) {
     runAsSystem(() -> profileService.getByName(profileName));
-    if (armadilloSession != null) armadilloSession.sessionCleanup();
+    if (armadilloSession != null) sessionPool.discard(armadilloSession);
     ActiveProfileNameAccessor.setActiveProfileName(profileName);
-    armadilloSession = new ArmadilloSession(connectionFactory, processService);
+    armadilloSession = sessionPool.take();
   }
 
   @Override
@@ -96,15 +122,82 @@ class CommandsImpl implements Commands {
     return Optional.ofNullable(lastCommand).map(ArmadilloCommand::asDto);
   }
 
-  synchronized <T> CompletableFuture<T> schedule(ArmadilloCommandImpl<T> command) {
+  @Override
+  public List<ArmadilloCommandDTO> getCommands() {
+    return commandRegistry.getAll().stream().map(ArmadilloCommand::asDto).toList();
+  }
+
+  @Override
+  public Optional<ArmadilloCommandDTO> getCommand(UUID id) {
+    return commandRegistry.get(id).map(ArmadilloCommand::asDto);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked") // commands with a result return an RServerResult
+  public Optional<CompletableFuture<RServerResult>> getExecution(UUID id) {
+    return commandRegistry
+        .get(id)
+        .filter(command -> command.asDto().withResult())
+        .flatMap(ArmadilloCommand::getExecution)
+        .map(execution -> (CompletableFuture<RServerResult>) execution);
+  }
+
+  @Override
+  public Optional<UUID> getCommandId(CompletableFuture<?> execution) {
+    return commandRegistry.findId(execution);
+  }
+
+  /** Where the R server of the active profile has the storage mounted, if it has. */
+  private Optional<String> getStorageMount() {
+    String profileName = getActiveProfileName();
+    return Optional.ofNullable(runAsSystem(() -> profileService.getByName(profileName)))
+        .map(ProfileConfig::getStorageMount)
+        .filter(mount -> !mount.isBlank());
+  }
+
+  /** The name of the user, or null for an anonymous user. */
+  private static String getUser() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    return authentication == null ? null : authentication.getName();
+  }
+
+  private static String getMountedPath(String storageMount, String location) {
+    return storageMount.endsWith("/") ? storageMount + location : storageMount + "/" + location;
+  }
+
+  /**
+   * Schedules a command on the session, it runs when it's the turn of the user on the R server of
+   * the profile and the previous command of the session is done.
+   *
+   * @throws ServerBusyException if too many commands wait for the R server already
+   */
+  <T> CompletableFuture<T> schedule(ArmadilloCommandImpl<T> command) {
+    return schedule(command, true);
+  }
+
+  /**
+   * Schedules a command on the session.
+   *
+   * @param last whether the command becomes the last command, whose result can be retrieved later
+   */
+  private synchronized <T> CompletableFuture<T> schedule(
+      ArmadilloCommandImpl<T> command, boolean last) {
+    EvaluationScheduler scheduler = evaluationSchedulers.get(getActiveProfileName());
     final ArmadilloSession session =
-        armadilloSession == null
-            ? new ArmadilloSession(connectionFactory, processService)
-            : armadilloSession;
-    lastCommand = command;
-    CompletableFuture<T> result =
-        supplyAsync(() -> session.execute(command::evaluate), taskExecutor);
+        armadilloSession == null ? sessionPool.take() : armadilloSession;
+    CompletableFuture<T> result;
+    try {
+      result =
+          scheduler.submit(getUser(), this, () -> session.execute(command::evaluate), taskExecutor);
+    } catch (ServerBusyException e) {
+      if (session != armadilloSession) sessionPool.discard(session);
+      throw e;
+    }
+    if (last) {
+      lastCommand = command;
+    }
     command.setExecution(result);
+    commandRegistry.register(command);
     return result;
   }
 
@@ -124,6 +217,49 @@ class CommandsImpl implements Commands {
         });
   }
 
+  @Override
+  public CompletableFuture<InputStream> evaluateStreaming(String expression) {
+    CompletableFuture<InputStream> result = new CompletableFuture<>();
+    CompletableFuture<Void> execution =
+        schedule(
+            new ArmadilloCommandImpl<>(expression, false) {
+              @Override
+              protected Void doWithConnection(RServerConnection connection) {
+                rExecutorService.execute(
+                    expression, connection, inputStream -> handOver(inputStream, result));
+                return null;
+              }
+            },
+            false);
+    execution.whenComplete(
+        (ignored, throwable) -> {
+          if (throwable != null) {
+            result.completeExceptionally(throwable);
+          }
+        });
+    return result;
+  }
+
+  /**
+   * Hands the result stream over to the caller and waits until the R server has sent all of it, so
+   * a slow client can hold the session for at most resultStreamMaxTime.
+   */
+  private void handOver(InputStream inputStream, CompletableFuture<InputStream> result) {
+    ResultStream resultStream = new ResultStream(inputStream);
+    result.complete(resultStream);
+    try {
+      if (!resultStream.awaitEnd(resultStreamTimeout, resultStreamMaxTime)) {
+        throw new RExecutionException(
+            format(
+                "Result stream wasn't read within %s, or completely within %s",
+                resultStreamTimeout, resultStreamMaxTime));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RExecutionException(e);
+    }
+  }
+
   @Override
   public CompletableFuture<Void> assign(String symbol, String expression) {
     String statement = format("is.null(base::assign('%s', value={%s}))", symbol, expression);
@@ -152,15 +288,30 @@ class CommandsImpl implements Commands {
   }
 
   @Override
-  public CompletableFuture<Void> loadTable(String symbol, String table, List<String> variables) {
+  public CompletableFuture<Void> loadTable(
+      String symbol, String table, List<String> variables, RowFilter filter) {
     int index = table.indexOf('/');
     String project = table.substring(0, index);
     String objectName = table.substring(index + 1);
+    // filtered rows are selected here, R can't be given the complete table
+    Optional<String> storageMount = filter == null ? getStorageMount() : Optional.empty();
     return schedule(
         new ArmadilloCommandImpl<>("Load table " + table, false) {
           @Override
           protected Void doWithConnection(RServerConnection connection) {
-            InputStream inputStream = armadilloStorage.loadTable(project, objectName);
+            // partitioned tables are read here, R only gets the parts it needs as one file
+            if (storageMount.isPresent()
+                && !armadilloStorage.isPartitionedTable(project, objectName)) {
+              String path =
+                  getMountedPath(
+                      storageMount.get(), armadilloStorage.getTableLocation(project, objectName));
+              if (rExecutorService.loadTable(connection, path, symbol, variables)) {
+                return null;
+              }
+              logger.warn("Storage isn't mounted at {}, uploading table {}", path, table);
+            }
+            InputStream inputStream =
+                armadilloStorage.loadTable(project, objectName, variables, filter);
             rExecutorService.loadTable(
                 connection,
                 new InputStreamResource(inputStream),
@@ -177,10 +328,21 @@ class CommandsImpl implements Commands {
     int index = resource.indexOf('/');
     String project = resource.substring(0, index);
     String objectName = resource.substring(index + 1);
+    Optional<String> storageMount = getStorageMount();
     return schedule(
         new ArmadilloCommandImpl<>("Load resource " + resource, false) {
           @Override
           protected Void doWithConnection(RServerConnection connection) {
+            if (storageMount.isPresent()) {
+              String path =
+                  getMountedPath(
+                      storageMount.get(),
+                      armadilloStorage.getResourceLocation(project, objectName));
+              if (rExecutorService.loadResource(principal, connection, path, symbol)) {
+                return null;
+              }
+              logger.warn("Storage isn't mounted at {}, uploading resource {}", path, resource);
+            }
             InputStream inputStream = armadilloStorage.loadResource(project, objectName);
             rExecutorService.loadResource(
                 principal,
@@ -230,8 +392,27 @@ class CommandsImpl implements Commands {
         });
   }
 
+  /**
+   * Releases the result of a command once it is done, e.g. deletes it if it was spilled to disk
+   * because it was large.
+   */
+  private static void discardResult(ArmadilloCommand<?> command) {
+    command.getExecution().ifPresent(execution -> execution.thenAccept(CommandsImpl::close));
+  }
+
+  private static void close(Object result) {
+    if (result instanceof Closeable closeable) {
+      try {
+        closeable.close();
+      } catch (IOException e) {
+        logger.warn("Unable to release command result", e);
+      }
+    }
+  }
+
   @PreDestroy
   public void preDestroy() {
-    if (armadilloSession != null) armadilloSession.sessionCleanup();
+    commandRegistry.getAll().forEach(CommandsImpl::discardResult);
+    if (armadilloSession != null) sessionPool.discard(armadilloSession);
   }
 }
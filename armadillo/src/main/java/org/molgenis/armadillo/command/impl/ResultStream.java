@@ -0,0 +1,92 @@
+package org.molgenis.armadillo.command.impl;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * The serialized result of an expression while it streams in from the R server, handed from the
+ * command that evaluates it to the request that writes it to the client. The command has to keep
+ * its R session until the R server has sent the whole result, or until the stream is closed.
+ */
+class ResultStream extends FilterInputStream {
+
+  private final CountDownLatch read = new CountDownLatch(1);
+  private final CountDownLatch done = new CountDownLatch(1);
+  private volatile boolean aborted = false;
+
+  ResultStream(InputStream in) {
+    super(in);
+  }
+
+  @Override
+  public int read() throws IOException {
+    checkNotAborted();
+    read.countDown();
+    int value = super.read();
+    if (value == -1) {
+      done.countDown();
+    }
+    return value;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    checkNotAborted();
+    read.countDown();
+    int count = super.read(b, off, len);
+    if (count == -1) {
+      done.countDown();
+    }
+    return count;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      super.close();
+    } finally {
+      read.countDown();
+      done.countDown();
+    }
+  }
+
+  /**
+   * Waits until the R server has sent the whole result or the stream is closed. If that takes too
+   * long, the stream is closed and further reads fail.
+   *
+   * @param startTimeout the time to wait for someone to start reading the stream
+   * @param timeout the time to wait in total
+   * @return false if the stream wasn't read within the timeouts
+   */
+  boolean awaitEnd(Duration startTimeout, Duration timeout) throws InterruptedException {
+    long deadline = System.nanoTime() + timeout.toNanos();
+    boolean ended =
+        read.await(Math.min(startTimeout.toMillis(), timeout.toMillis()), MILLISECONDS)
+            && done.await(Math.max(deadline - System.nanoTime(), 0), NANOSECONDS);
+    if (!ended) {
+      abort();
+    }
+    return ended;
+  }
+
+  private void abort() {
+    aborted = true;
+    try {
+      super.close();
+    } catch (IOException e) {
+      // the command fails anyway
+    }
+  }
+
+  private void checkNotAborted() throws IOException {
+    if (aborted) {
+      throw new IOException("The result stream wasn't read in time and was closed");
+    }
+  }
+}
@@ -3,14 +3,24 @@ package org.molgenis.armadillo.controller;
 import static java.lang.String.format;
 import static java.nio.charset.StandardCharsets.ISO_8859_1;
 import static java.util.function.Predicate.not;
+import static org.springframework.http.HttpStatus.GONE;
 import static org.springframework.web.servlet.support.ServletUriComponentsBuilder.fromCurrentContextPath;
 
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.nio.ByteBuffer;
+import java.nio.file.NoSuchFileException;
 import java.util.Optional;
+import java.util.UUID;
 import org.molgenis.r.RServerResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 public class ArmadilloUtils {
 
@@ -36,10 +46,48 @@ public class ArmadilloUtils {
     }
   }
 
+  /**
+   * Wraps a raw result in a resource that is streamed to the client, so large results that were
+   * spilled to disk are never read into memory.
+   *
+   * @throws ResponseStatusException with status GONE if the result was discarded
+   */
+  public static Resource createRawResource(RServerResult result) {
+    InputStream inputStream;
+    try {
+      inputStream = result.asInputStream();
+    } catch (UncheckedIOException e) {
+      if (e.getCause() instanceof NoSuchFileException) {
+        throw new ResponseStatusException(GONE, "The result was discarded");
+      }
+      throw new IllegalStateException(format("This was no 'RAW' result: [ %s ]", result));
+    } catch (Exception e) {
+      throw new IllegalStateException(format("This was no 'RAW' result: [ %s ]", result));
+    }
+    if (inputStream == null) {
+      return new ByteArrayResource(new byte[0]);
+    }
+    LOGGER.trace("RAW result of {} bytes", result.length());
+    return new InputStreamResource(inputStream);
+  }
+
+  /** Writes a raw result to the client while it is read, closing it when it's done. */
+  public static StreamingResponseBody createRawStream(InputStream inputStream) {
+    return outputStream -> {
+      try (inputStream) {
+        inputStream.transferTo(outputStream);
+      }
+    };
+  }
+
   static URI getLastCommandLocation() {
     return fromCurrentContextPath().replacePath("/lastcommand").build().toUri();
   }
 
+  static URI getCommandLocation(UUID id) {
+    return fromCurrentContextPath().replacePath("/commands/" + id).build().toUri();
+  }
+
   static String hexDump(byte[] bytes) {
     return hexDump(bytes, 16);
   }
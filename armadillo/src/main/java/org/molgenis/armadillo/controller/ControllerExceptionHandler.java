@@ -1,7 +1,10 @@
 package org.molgenis.armadillo.controller;
 
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
 
+import org.molgenis.armadillo.exceptions.ServerBusyException;
 import org.molgenis.armadillo.exceptions.StorageException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -15,4 +18,12 @@ public class ControllerExceptionHandler {
     return ResponseEntity.status(INTERNAL_SERVER_ERROR)
         .body("Something went wrong while reading/writing in the storage");
   }
+
+  /** Tells clients when it makes sense to try again. */
+  @ExceptionHandler(ServerBusyException.class)
+  protected ResponseEntity<String> handleServerBusyException(ServerBusyException e) {
+    return ResponseEntity.status(SERVICE_UNAVAILABLE)
+        .header(RETRY_AFTER, String.valueOf(e.getRetryAfter().toSeconds()))
+        .body(e.getMessage());
+  }
 }
@@ -5,7 +5,6 @@ import static java.util.Arrays.asList;
 import static java.util.Objects.requireNonNull;
 import static java.util.concurrent.CompletableFuture.completedFuture;
 import static org.molgenis.armadillo.audit.AuditEventPublisher.*;
-import static org.molgenis.armadillo.controller.ArmadilloUtils.getLastCommandLocation;
 import static org.molgenis.armadillo.security.RunAs.runAsSystem;
 import static org.molgenis.armadillo.storage.ArmadilloStorageService.LINK_FILE;
 import static org.molgenis.armadillo.storage.ArmadilloStorageService.PARQUET;
@@ -27,6 +26,7 @@ import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import java.io.InputStream;
+import java.net.URI;
 import java.security.Principal;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
@@ -42,15 +42,18 @@ import org.molgenis.armadillo.service.DSEnvironmentCache;
 import org.molgenis.armadillo.service.ExpressionRewriter;
 import org.molgenis.armadillo.storage.ArmadilloLinkFile;
 import org.molgenis.armadillo.storage.ArmadilloStorageService;
+import org.molgenis.armadillo.storage.RowFilter;
 import org.molgenis.r.RServerResult;
 import org.molgenis.r.model.RPackage;
 import org.obiba.datashield.core.DSMethod;
 import org.rosuda.REngine.REXPMismatchException;
+import org.springframework.core.io.Resource;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Tag(name = "DataSHIELD", description = "Core API that interacts with the DataSHIELD environments")
 @SecurityRequirement(name = "bearerAuth")
@@ -153,18 +156,27 @@ public class DataController {
       @Valid @Pattern(regexp = SYMBOL_RE) @RequestParam String symbol,
       @Valid @Pattern(regexp = TABLE_RESOURCE_REGEX) @RequestParam String table,
       @Valid @Pattern(regexp = SYMBOL_CSV_RE) @RequestParam(required = false) String variables,
+      @Parameter(description = "Condition on the rows to load, e.g. wave == 2 & age >= 18")
+          @RequestParam(required = false)
+          String filter,
       @RequestParam(defaultValue = "false") boolean async) {
     java.util.regex.Pattern tableResourcePattern =
         java.util.regex.Pattern.compile(TABLE_RESOURCE_REGEX);
     HashMap<String, Object> data = getMatchedData(tableResourcePattern, table, TABLE);
     data.put(SYMBOL, symbol);
+    RowFilter rowFilter = getRowFilter(filter);
+    if (rowFilter != null) {
+      data.put(FILTER, rowFilter.toString());
+    }
     String project = (String) data.get(PROJECT);
     String objectName = String.format(PATH_FORMAT, data.get(FOLDER), data.get(TABLE));
     if (storage.hasObject(project, objectName + LINK_FILE)) {
-      return loadTableFromLinkFile(project, objectName, variables, principal, data, symbol, async);
-    } else if (storage.hasObject(project, objectName + PARQUET)) {
+      return loadTableFromLinkFile(
+          project, objectName, variables, rowFilter, principal, data, symbol, async);
+    } else if (storage.hasObject(project, objectName + PARQUET)
+        || storage.isPartitionedTable(project, objectName)) {
       var variableList = getVariableList(variables);
-      return doLoadTable(symbol, table, variableList, principal, data, async);
+      return doLoadTable(symbol, table, variableList, rowFilter, principal, data, async);
     } else {
       data = new HashMap<>(data);
       data.put(MESSAGE, "Table not found");
@@ -234,11 +246,10 @@ public class DataController {
       auditEventPublisher.audit(principal, LOAD_RESOURCE_FAILURE, data);
       return completedFuture(notFound().build());
     }
-    var result =
-        auditEventPublisher.audit(
-            commands.loadResource(principal, symbol, resource), principal, LOAD_RESOURCE, data);
+    var execution = commands.loadResource(principal, symbol, resource);
+    var result = auditEventPublisher.audit(execution, principal, LOAD_RESOURCE, data);
     return async
-        ? completedFuture(created(getLastCommandLocation()).body(null))
+        ? completedFuture(created(getCommandLocation(execution)).body(null))
         : result
             .thenApply(ResponseEntity::ok)
             .exceptionally(t -> status(INTERNAL_SERVER_ERROR).build());
@@ -279,11 +290,11 @@ public class DataController {
     Map<String, Object> data = Map.of(SYMBOL, symbol, EXPRESSION, expression);
     try {
       String rewrittenExpression = expressionRewriter.rewriteAssign(expression);
+      CompletableFuture<Void> execution = commands.assign(symbol, rewrittenExpression);
       CompletableFuture<Void> result =
-          auditEventPublisher.audit(
-              commands.assign(symbol, rewrittenExpression), principal, ASSIGN1, data);
+          auditEventPublisher.audit(execution, principal, ASSIGN1, data);
       return async
-          ? completedFuture(created(getLastCommandLocation()).body(null))
+          ? completedFuture(created(getCommandLocation(execution)).body(null))
           : result
               .thenApply(ResponseEntity::ok)
               .exceptionally(t -> status(INTERNAL_SERVER_ERROR).build());
@@ -301,7 +312,7 @@ public class DataController {
       value = "/execute",
       consumes = TEXT_PLAIN_VALUE,
       produces = APPLICATION_OCTET_STREAM_VALUE)
-  public CompletableFuture<ResponseEntity<byte[]>> execute(
+  public CompletableFuture<ResponseEntity<StreamingResponseBody>> execute(
       Principal principal,
       @RequestBody String expression,
       @Parameter(description = "Indicates if the expression should be executed asynchronously")
@@ -310,15 +321,19 @@ public class DataController {
     Map<String, Object> data = Map.of(EXPRESSION, expression);
     try {
       String rewrittenExpression = expressionRewriter.rewriteAggregate(expression);
-      CompletableFuture<RServerResult> result =
+      if (async) {
+        CompletableFuture<RServerResult> execution = commands.evaluate(rewrittenExpression, true);
+        auditEventPublisher.audit(execution, principal, EXECUTE, data);
+        return completedFuture(created(getCommandLocation(execution)).body(null));
+      }
+      // the result is written to the client while it comes in from the R server
+      CompletableFuture<InputStream> result =
           auditEventPublisher.audit(
-              commands.evaluate(rewrittenExpression, true), principal, EXECUTE, data);
-      return async
-          ? completedFuture(created(getLastCommandLocation()).body(null))
-          : result
-              .thenApply(ArmadilloUtils::createRawResponse)
-              .thenApply(ResponseEntity::ok)
-              .exceptionally(t -> status(INTERNAL_SERVER_ERROR).build());
+              commands.evaluateStreaming(rewrittenExpression), principal, EXECUTE, data);
+      return result
+          .thenApply(ArmadilloUtils::createRawStream)
+          .thenApply(body -> ok().contentType(APPLICATION_OCTET_STREAM).body(body))
+          .exceptionally(t -> status(INTERNAL_SERVER_ERROR).build());
     } catch (ExpressionException ex) {
       data = new HashMap<>(data);
       data.put(MESSAGE, ex.getMessage());
@@ -337,18 +352,64 @@ public class DataController {
   @Operation(summary = "Get last result")
   @GetMapping(value = "/lastresult", produces = APPLICATION_OCTET_STREAM_VALUE)
   @ResponseStatus(OK)
-  public CompletableFuture<ResponseEntity<byte[]>> lastResult() {
+  public CompletableFuture<ResponseEntity<Resource>> lastResult() {
     return commands
         .getLastExecution()
         .map(
             execution ->
                 execution
-                    .thenApply(ArmadilloUtils::createRawResponse)
+                    .thenApply(ArmadilloUtils::createRawResource)
+                    .thenApply(ResponseEntity::ok)
+                    .exceptionally(DataController::noResult))
+        .orElse(completedFuture(notFound().build()));
+  }
+
+  @Operation(
+      summary = "Get commands",
+      description = "Lists the commands of this session that are still kept, oldest first")
+  @GetMapping(value = "/commands", produces = APPLICATION_JSON_VALUE)
+  public List<ArmadilloCommandDTO> getCommands() {
+    return commands.getCommands();
+  }
+
+  @Operation(summary = "Get command")
+  @GetMapping(value = "/commands/{id}", produces = APPLICATION_JSON_VALUE)
+  public ResponseEntity<ArmadilloCommandDTO> getCommand(@PathVariable UUID id) {
+    return ResponseEntity.of(commands.getCommand(id));
+  }
+
+  @Operation(summary = "Get result of command")
+  @GetMapping(value = "/commands/{id}/result", produces = APPLICATION_OCTET_STREAM_VALUE)
+  @ResponseStatus(OK)
+  public CompletableFuture<ResponseEntity<Resource>> getCommandResult(@PathVariable UUID id) {
+    return commands
+        .getExecution(id)
+        .map(
+            execution ->
+                execution
+                    .thenApply(ArmadilloUtils::createRawResource)
                     .thenApply(ResponseEntity::ok)
-                    .exceptionally(ex -> notFound().build()))
+                    .exceptionally(DataController::noResult))
         .orElse(completedFuture(notFound().build()));
   }
 
+  /** A result that was discarded is gone, a command that failed has no result. */
+  private static ResponseEntity<Resource> noResult(Throwable throwable) {
+    if (throwable.getCause() instanceof ResponseStatusException e
+        && GONE.equals(e.getStatusCode())) {
+      return status(GONE).build();
+    }
+    return notFound().build();
+  }
+
+  /** Where a scheduled command can be found, falling back to the last command. */
+  private URI getCommandLocation(CompletableFuture<?> execution) {
+    return commands
+        .getCommandId(execution)
+        .map(ArmadilloUtils::getCommandLocation)
+        .orElseGet(ArmadilloUtils::getLastCommandLocation);
+  }
+
   @Operation(
       summary = "Debug a command",
       description = "Debugs a command, bypassing DataSHIELD's security checks. Admin use only.")
@@ -482,18 +543,22 @@ public class DataController {
         .toList();
   }
 
+  private static RowFilter getRowFilter(String filter) {
+    return filter == null || filter.isBlank() ? null : RowFilter.parse(filter);
+  }
+
   private CompletableFuture<ResponseEntity<Void>> doLoadTable(
       String symbol,
       String table,
       List<String> variableList,
+      RowFilter rowFilter,
       Principal principal,
       Map<String, Object> data,
       Boolean async) {
-    var result =
-        auditEventPublisher.audit(
-            commands.loadTable(symbol, table, variableList), principal, LOAD_TABLE, data);
+    var execution = commands.loadTable(symbol, table, variableList, rowFilter);
+    var result = auditEventPublisher.audit(execution, principal, LOAD_TABLE, data);
     return async
-        ? completedFuture(created(getLastCommandLocation()).body(null))
+        ? completedFuture(created(getCommandLocation(execution)).body(null))
         : result
             .thenApply(ResponseEntity::ok)
             .exceptionally(t -> status(INTERNAL_SERVER_ERROR).build());
@@ -513,10 +578,28 @@ public class DataController {
         : variableList.stream().filter(allowedVariables::contains).toList();
   }
 
+  /** Checks that the filter only refers to variables the link file exposes. */
+  protected void checkLinkedFilter(ArmadilloLinkFile linkFile, RowFilter rowFilter) {
+    if (rowFilter == null) {
+      return;
+    }
+    List<String> allowedVariables = List.of(linkFile.getVariables().split(","));
+    var invalidVariables =
+        rowFilter.getColumns().stream()
+            .filter(column -> !allowedVariables.contains(column))
+            .sorted()
+            .toList();
+    if (!invalidVariables.isEmpty()) {
+      String invalid = invalidVariables.toString();
+      throw new UnknownVariableException(linkFile.getProject(), linkFile.getLinkObject(), invalid);
+    }
+  }
+
   private CompletableFuture<ResponseEntity<Void>> loadTableFromLinkFile(
       String project,
       String objectName,
       String variables,
+      RowFilter rowFilter,
       Principal principal,
       HashMap<String, Object> data,
       String symbol,
@@ -528,6 +611,13 @@ public class DataController {
     String sourceObject = linkFile.getSourceObject();
     if (runAsSystem(() -> storage.hasObject(sourceProject, sourceObject + PARQUET))) {
       List<String> variableList = getLinkedVariables(linkFile, variables);
+      checkLinkedFilter(linkFile, rowFilter);
+      // the filter of the link restricts the rows that can be loaded at all
+      RowFilter linkFilter = getRowFilter(linkFile.getFilter());
+      RowFilter combinedFilter = linkFilter;
+      if (rowFilter != null) {
+        combinedFilter = linkFilter == null ? rowFilter : linkFilter.and(rowFilter);
+      }
       HashMap<String, Object> finalData = data;
       return runAsSystem(
           () ->
@@ -535,6 +625,7 @@ public class DataController {
                   symbol,
                   sourceProject + "/" + sourceObject,
                   variableList,
+                  combinedFilter,
                   principal,
                   finalData,
                   async));
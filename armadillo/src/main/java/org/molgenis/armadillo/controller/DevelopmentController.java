@@ -129,7 +129,10 @@ public class DevelopmentController {
             currentConfig.getPort(),
             whitelist,
             currentConfig.getFunctionBlacklist(),
-            currentConfig.getOptions());
+            currentConfig.getOptions(),
+            currentConfig.getMaxConnections(),
+            currentConfig.getType(),
+            currentConfig.getStorageMount());
     auditEventPublisher.audit(
         () -> profiles.upsert(profileConfig),
         principal,
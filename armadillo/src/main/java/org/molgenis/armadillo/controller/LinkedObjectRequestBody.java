@@ -13,4 +13,5 @@ public record LinkedObjectRequestBody(
         String sourceObjectName,
     @NotNull @NotEmpty String sourceProject,
     @NotNull @NotEmpty String linkedObject,
-    @RequestParam(required = false) String variables) {}
+    @RequestParam(required = false) String variables,
+    @RequestParam(required = false) String filter) {}
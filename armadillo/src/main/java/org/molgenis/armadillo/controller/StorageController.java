@@ -3,10 +3,12 @@ package org.molgenis.armadillo.controller;
 import static org.apache.logging.log4j.util.Strings.concat;
 import static org.molgenis.armadillo.audit.AuditEventPublisher.*;
 import static org.molgenis.armadillo.storage.ArmadilloStorageService.LINK_FILE;
+import static org.springframework.http.HttpStatus.CREATED;
 import static org.springframework.http.HttpStatus.NO_CONTENT;
 import static org.springframework.http.HttpStatus.OK;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM;
+import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM_VALUE;
 import static org.springframework.http.MediaType.MULTIPART_FORM_DATA_VALUE;
 import static org.springframework.http.ResponseEntity.noContent;
 import static org.springframework.http.ResponseEntity.notFound;
@@ -22,25 +24,37 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.PositiveOrZero;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.security.Principal;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import org.molgenis.armadillo.audit.AuditEventPublisher;
 import org.molgenis.armadillo.exceptions.FileProcessingException;
+import org.molgenis.armadillo.exceptions.InvalidCsvException;
 import org.molgenis.armadillo.exceptions.UnknownObjectException;
 import org.molgenis.armadillo.exceptions.UnknownProjectException;
 import org.molgenis.armadillo.storage.ArmadilloStorageService;
+import org.molgenis.armadillo.storage.ColumnStatistics;
+import org.molgenis.armadillo.storage.CompactionResult;
+import org.molgenis.armadillo.storage.CompactionService;
 import org.molgenis.armadillo.storage.FileInfo;
-import org.springframework.core.io.InputStreamResource;
+import org.molgenis.armadillo.storage.UploadStatus;
+import org.molgenis.armadillo.storage.VariableMatch;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.*;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
@@ -59,10 +73,15 @@ import org.springframework.web.server.ResponseStatusException;
 public class StorageController {
 
   private final ArmadilloStorageService storage;
+  private final CompactionService compactionService;
   private final AuditEventPublisher auditor;
 
-  public StorageController(ArmadilloStorageService storage, AuditEventPublisher auditor) {
+  public StorageController(
+      ArmadilloStorageService storage,
+      CompactionService compactionService,
+      AuditEventPublisher auditor) {
     this.storage = storage;
+    this.compactionService = compactionService;
     this.auditor = auditor;
   }
 
@@ -124,6 +143,181 @@ public class StorageController {
     }
   }
 
+  @Operation(
+      summary = "Upload a table as CSV or TSV",
+      description =
+          "Converts the CSV or TSV in the body, optionally gzipped, to a Parquet table while it "
+              + "streams. The first line contains the column names. The column types are inferred "
+              + "from the first rows, unless they are given like 'age:integer,sex:character'.")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "201", description = "Table created"),
+        @ApiResponse(responseCode = "400", description = "Invalid CSV"),
+        @ApiResponse(responseCode = "404", description = "Unknown project"),
+        @ApiResponse(responseCode = "409", description = "Table already exists"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+      })
+  @PostMapping(
+      value = "/projects/{project}/tables",
+      consumes = {"text/csv", "text/tab-separated-values", "application/gzip"},
+      produces = {APPLICATION_JSON_VALUE})
+  @ResponseStatus(CREATED)
+  public FileInfo uploadTable(
+      Principal principal,
+      @PathVariable String project,
+      @RequestParam @NotEmpty String table,
+      @RequestParam(defaultValue = "csv") String format,
+      @RequestParam(required = false) String types,
+      InputStream body) {
+    return auditor.audit(
+        () -> storage.addTable(project, table, body, getSeparator(format), getColumnTypes(types)),
+        principal,
+        UPLOAD_TABLE,
+        Map.of(PROJECT, project, OBJECT, table));
+  }
+
+  private static char getSeparator(String format) {
+    return switch (format) {
+      case "csv" -> ',';
+      case "tsv" -> '\t';
+      default -> throw new InvalidCsvException("unknown format '" + format + "', use csv or tsv");
+    };
+  }
+
+  private static Map<String, String> getColumnTypes(String types) {
+    Map<String, String> columnTypes = new LinkedHashMap<>();
+    if (types == null || types.isBlank()) {
+      return columnTypes;
+    }
+    for (String columnType : types.split(",")) {
+      int separator = columnType.lastIndexOf(':');
+      if (separator <= 0) {
+        throw new InvalidCsvException("column types must look like 'age:integer,sex:character'");
+      }
+      columnTypes.put(
+          columnType.substring(0, separator).trim(), columnType.substring(separator + 1));
+    }
+    return columnTypes;
+  }
+
+  @Operation(
+      summary = "Start a chunked upload of an object to a project",
+      description =
+          "Returns the id of the upload. Send the chunks with PUT, in any order or in parallel, "
+              + "and complete the upload when all chunks are received. If the connection drops, "
+              + "get the upload to see which bytes were received and send the rest.")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "201", description = "Upload started"),
+        @ApiResponse(responseCode = "404", description = "Unknown project"),
+        @ApiResponse(responseCode = "409", description = "Object already exists"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+      })
+  @PostMapping(
+      value = "/projects/{project}/uploads",
+      produces = {APPLICATION_JSON_VALUE})
+  @ResponseStatus(CREATED)
+  public UploadStatus startUpload(
+      Principal principal, @PathVariable String project, @RequestParam @NotEmpty String object) {
+    return auditor.audit(
+        () -> storage.startUpload(project, object),
+        principal,
+        START_UPLOAD,
+        Map.of(PROJECT, project, OBJECT, object));
+  }
+
+  @Operation(summary = "Upload a chunk of an object, starting at the given offset")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "200", description = "Chunk received"),
+        @ApiResponse(responseCode = "404", description = "Unknown upload"),
+        @ApiResponse(responseCode = "409", description = "Upload is being completed"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+      })
+  @PutMapping(
+      value = "/projects/{project}/uploads/{upload}",
+      consumes = {APPLICATION_OCTET_STREAM_VALUE},
+      produces = {APPLICATION_JSON_VALUE})
+  @ResponseStatus(OK)
+  public UploadStatus uploadChunk(
+      Principal principal,
+      @PathVariable String project,
+      @PathVariable String upload,
+      @RequestParam @PositiveOrZero long offset,
+      InputStream chunk) {
+    return auditor.audit(
+        () -> storage.writeChunk(project, upload, offset, chunk),
+        principal,
+        UPLOAD_CHUNK,
+        Map.of(PROJECT, project, UPLOAD, upload, "offset", offset));
+  }
+
+  @Operation(summary = "Get the bytes that were received for an upload")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "200", description = "Upload found"),
+        @ApiResponse(responseCode = "404", description = "Unknown upload"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+      })
+  @GetMapping(
+      value = "/projects/{project}/uploads/{upload}",
+      produces = {APPLICATION_JSON_VALUE})
+  @ResponseStatus(OK)
+  public UploadStatus getUpload(
+      Principal principal, @PathVariable String project, @PathVariable String upload) {
+    return auditor.audit(
+        () -> storage.getUpload(project, upload),
+        principal,
+        GET_UPLOAD,
+        Map.of(PROJECT, project, UPLOAD, upload));
+  }
+
+  @Operation(
+      summary = "Complete a chunked upload",
+      description = "Creates the object if all bytes up to the given size were received")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "204", description = "Object uploaded successfully"),
+        @ApiResponse(responseCode = "400", description = "Not all bytes were received"),
+        @ApiResponse(responseCode = "404", description = "Unknown upload"),
+        @ApiResponse(
+            responseCode = "409",
+            description = "Object already exists, or a chunk is still being written"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+      })
+  @PostMapping("/projects/{project}/uploads/{upload}/complete")
+  @ResponseStatus(NO_CONTENT)
+  public void completeUpload(
+      Principal principal,
+      @PathVariable String project,
+      @PathVariable String upload,
+      @RequestParam @PositiveOrZero long size) {
+    auditor.audit(
+        () -> storage.completeUpload(project, upload, size),
+        principal,
+        COMPLETE_UPLOAD,
+        Map.of(PROJECT, project, UPLOAD, upload, "size", size));
+  }
+
+  @Operation(summary = "Abort a chunked upload")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "204", description = "Upload aborted"),
+        @ApiResponse(responseCode = "404", description = "Unknown upload"),
+        @ApiResponse(responseCode = "409", description = "Upload is being completed"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+      })
+  @DeleteMapping("/projects/{project}/uploads/{upload}")
+  @ResponseStatus(NO_CONTENT)
+  public void abortUpload(
+      Principal principal, @PathVariable String project, @PathVariable String upload) {
+    auditor.audit(
+        () -> storage.abortUpload(project, upload),
+        principal,
+        ABORT_UPLOAD,
+        Map.of(PROJECT, project, UPLOAD, upload));
+  }
+
   @Operation(
       summary = "Copy an object within a project",
       description =
@@ -184,7 +378,8 @@ public class StorageController {
                 requestBody.sourceObjectName(),
                 requestBody.linkedObject(),
                 project,
-                requestBody.variables());
+                requestBody.variables(),
+                requestBody.filter());
           } catch (IOException e) {
             throw new RuntimeException(e);
           }
@@ -284,6 +479,62 @@ public class StorageController {
         Map.of(PROJECT, project, OBJECT, object));
   }
 
+  @Operation(
+      summary = "Get statistics of the columns of a table",
+      description =
+          "Returns the type, number of missing values, minimum, maximum and estimated number of "
+              + "distinct values of each column, mostly from the metadata of the table")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "200", description = "Retrieval successful"),
+        @ApiResponse(responseCode = "404", description = "Object does not exist"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+      })
+  @GetMapping(
+      path = "/projects/{project}/objects/{object}/statistics",
+      produces = APPLICATION_JSON_VALUE)
+  public @ResponseBody List<ColumnStatistics> getObjectStatistics(
+      Principal principal, @PathVariable String project, @PathVariable String object) {
+    return auditor.audit(
+        () -> storage.getColumnStatistics(project, object),
+        principal,
+        GET_OBJECT_STATISTICS,
+        Map.of(PROJECT, project, OBJECT, object));
+  }
+
+  @Operation(
+      summary = "Search variables",
+      description =
+          "Finds the variables in the tables of all projects you have access to whose names start "
+              + "with the query, or contain it when match is substring. Case is ignored.")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "200", description = "Search successful"),
+        @ApiResponse(responseCode = "400", description = "Unknown match"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+      })
+  @GetMapping(path = "/variables", produces = APPLICATION_JSON_VALUE)
+  public @ResponseBody List<VariableMatch> searchVariables(
+      Principal principal,
+      @RequestParam @NotEmpty String query,
+      @RequestParam(defaultValue = "prefix") String match) {
+    boolean substring = isSubstringMatch(match);
+    return auditor.audit(
+        () -> storage.searchVariables(query, substring),
+        principal,
+        SEARCH_VARIABLES,
+        Map.of("query", query, "match", match));
+  }
+
+  private static boolean isSubstringMatch(String match) {
+    return switch (match) {
+      case "prefix" -> false;
+      case "substring" -> true;
+      default -> throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "Unknown match '" + match + "', use prefix or substring");
+    };
+  }
+
   @Operation(summary = "Delete an object")
   @ApiResponses(
       value = {
@@ -302,6 +553,27 @@ public class StorageController {
         Map.of(PROJECT, project, OBJECT, object));
   }
 
+  @Operation(
+      summary = "Compact the tables of a project",
+      description =
+          "Rewrites the tables with large row groups, the configured codec and dictionary "
+              + "encoding, and reports the size before and after")
+  @ApiResponses(
+      value = {
+        @ApiResponse(responseCode = "200", description = "Tables compacted"),
+        @ApiResponse(responseCode = "404", description = "Unknown project"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+      })
+  @PostMapping(value = "/projects/{project}/compact", produces = APPLICATION_JSON_VALUE)
+  public List<CompactionResult> compactProject(
+      Principal principal, @PathVariable String project) {
+    return auditor.audit(
+        () -> compactionService.compactProject(project),
+        principal,
+        COMPACT_PROJECT,
+        Map.of(PROJECT, project));
+  }
+
   @Operation(summary = "Download an object")
   @PreAuthorize("hasAnyRole('ROLE_SU', 'ROLE_' + #project.toUpperCase() + '_RESEARCHER')")
   @ApiResponses(
@@ -317,7 +589,7 @@ public class StorageController {
             content = @Content(mediaType = "application/json"))
       })
   @GetMapping(value = "/projects/{project}/objects/{object}")
-  public ResponseEntity<InputStreamResource> downloadObject(
+  public ResponseEntity<Resource> downloadObject(
       Principal principal, @PathVariable String project, @PathVariable String object) {
     try {
       return auditor.audit(
@@ -332,23 +604,25 @@ public class StorageController {
     }
   }
 
+  /**
+   * Serves the file itself instead of a stream, so Spring handles Range requests and conditional
+   * requests with the ETag and modification time.
+   */
   @PreAuthorize("hasAnyRole('ROLE_SU', 'ROLE_' + #project.toUpperCase() + '_RESEARCHER')")
-  private ResponseEntity<InputStreamResource> getObject(String project, String object) {
+  private ResponseEntity<Resource> getObject(String project, String object) {
     try {
-      var inputStream = storage.loadObject(project, object);
+      var path = storage.getObjectPath(project, object);
+      var eTag = storage.getETag(project, object);
       var objectParts = object.split("/");
       var fileName = objectParts[objectParts.length - 1];
-      InputStreamResource inputStreamResource = new InputStreamResource(inputStream);
       ContentDisposition contentDisposition =
           ContentDisposition.attachment().filename(fileName).build();
-      var fileSize =
-          storage.getFileSizeIfObjectExists(
-              ArmadilloStorageService.SHARED_PREFIX + project, object);
       HttpHeaders httpHeaders = new HttpHeaders();
       httpHeaders.setContentDisposition(contentDisposition);
-      httpHeaders.setContentLength(fileSize);
       httpHeaders.setContentType(APPLICATION_OCTET_STREAM);
-      return new ResponseEntity<>(inputStreamResource, httpHeaders, HttpStatus.OK);
+      httpHeaders.setETag('"' + eTag + '"');
+      httpHeaders.setLastModified(Files.getLastModifiedTime(path).toMillis());
+      return new ResponseEntity<>(new FileSystemResource(path), httpHeaders, HttpStatus.OK);
     } catch (IOException e) {
       throw new FileProcessingException();
     }
@@ -0,0 +1,14 @@
+package org.molgenis.armadillo.exceptions;
+
+import static java.lang.String.format;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(BAD_REQUEST)
+public class IncompleteUploadException extends RuntimeException {
+
+  public IncompleteUploadException(String uploadId, long size) {
+    super(format("Upload '%s' doesn't contain all of the %d bytes", uploadId, size));
+  }
+}
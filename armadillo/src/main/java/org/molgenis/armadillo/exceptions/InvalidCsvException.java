@@ -0,0 +1,18 @@
+package org.molgenis.armadillo.exceptions;
+
+import static java.lang.String.format;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(BAD_REQUEST)
+public class InvalidCsvException extends RuntimeException {
+
+  public InvalidCsvException(String reason) {
+    super(format("Invalid CSV: %s", reason));
+  }
+
+  public InvalidCsvException(long line, String reason) {
+    super(format("Invalid CSV at line %d: %s", line, reason));
+  }
+}
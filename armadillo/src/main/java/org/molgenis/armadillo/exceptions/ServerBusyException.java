@@ -0,0 +1,22 @@
+package org.molgenis.armadillo.exceptions;
+
+import static java.lang.String.format;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+import java.time.Duration;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(SERVICE_UNAVAILABLE)
+public class ServerBusyException extends RuntimeException {
+
+  private final Duration retryAfter;
+
+  public ServerBusyException(String profileName, Duration retryAfter) {
+    super(format("Profile '%s' is too busy to take more commands, try again later", profileName));
+    this.retryAfter = retryAfter;
+  }
+
+  public Duration getRetryAfter() {
+    return retryAfter;
+  }
+}
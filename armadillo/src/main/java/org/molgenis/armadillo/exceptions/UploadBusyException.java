@@ -0,0 +1,17 @@
+package org.molgenis.armadillo.exceptions;
+
+import static java.lang.String.format;
+import static org.springframework.http.HttpStatus.CONFLICT;
+
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(CONFLICT)
+public class UploadBusyException extends RuntimeException {
+
+  public UploadBusyException(String uploadId) {
+    super(
+        format(
+            "Upload '%s' is busy: a chunk is being written or the upload is being completed",
+            uploadId));
+  }
+}
@@ -46,16 +46,22 @@ public class RProcessEndpoint {
             .map(ProfileConfig::toEnvironmentConfigProps)
             .findFirst()
             .orElseThrow();
-    RServerConnection connection = connect(environment);
+    // the metrics call this on every scrape, so the connections of the factory are closed
+    RServerConnectionFactory connectionFactory = createConnectionFactory(environment);
     try {
-      return action.apply(connection);
+      RServerConnection connection = connectionFactory.tryCreateConnection();
+      try {
+        return action.apply(connection);
+      } finally {
+        connection.close();
+      }
     } finally {
-      connection.close();
+      connectionFactory.destroy();
     }
   }
 
-  RServerConnection connect(EnvironmentConfigProps environment) {
-    return new RServerConnectionFactory(environment).tryCreateConnection();
+  RServerConnectionFactory createConnectionFactory(EnvironmentConfigProps environment) {
+    return new RServerConnectionFactory(environment);
   }
 
   @DeleteOperation
@@ -1,8 +1,13 @@
 package org.molgenis.armadillo.interceptor;
 
+import static org.molgenis.armadillo.VirtualThreads.VIRTUAL_THREADS_ENABLED;
+
 import org.apache.tomcat.util.buf.EncodedSolidusHandling;
+import org.molgenis.armadillo.VirtualThreads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
 import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
 import org.springframework.boot.web.server.WebServerFactoryCustomizer;
 import org.springframework.context.annotation.Bean;
@@ -45,4 +50,20 @@ public class WebConfig implements WebMvcConfigurer {
             connector ->
                 connector.setEncodedSolidusHandling(EncodedSolidusHandling.DECODE.getValue()));
   }
+
+  /** Handle every request on its own virtual thread, so waiting requests don't fill the pool. */
+  @Bean
+  @ConditionalOnProperty(value = VIRTUAL_THREADS_ENABLED, havingValue = "true")
+  public TomcatProtocolHandlerCustomizer<?> virtualThreadsCustomizer() {
+    return protocolHandler ->
+        VirtualThreads.newVirtualThreadPerTaskExecutor()
+            .ifPresentOrElse(
+                executorService -> {
+                  logger.info("Configuring Tomcat to handle requests on virtual threads.");
+                  protocolHandler.setExecutor(executorService);
+                },
+                () ->
+                    logger.warn(
+                        "Virtual threads need Java 21 or newer, Tomcat uses platform threads."));
+  }
 }
@@ -2,6 +2,7 @@ package org.molgenis.armadillo.metadata;
 
 import java.util.Map;
 import java.util.Set;
+import org.molgenis.r.config.RServerType;
 
 /**
  * Profile that is passed as configuration parameters. Don't use at runtime.
@@ -17,10 +18,22 @@ public class InitialProfileConfig {
   private Set<String> packageWhitelist;
   private Set<String> functionBlacklist;
   private Map<String, String> options;
+  private Integer maxConnections;
+  private RServerType type;
+  private String storageMount;
 
   public ProfileConfig toProfileConfig() {
     return ProfileConfig.create(
-        name, image, host, port, packageWhitelist, functionBlacklist, options);
+        name,
+        image,
+        host,
+        port,
+        packageWhitelist,
+        functionBlacklist,
+        options,
+        maxConnections,
+        type,
+        storageMount);
   }
 
   public void setName(String name) {
@@ -50,4 +63,16 @@ public class InitialProfileConfig {
   public void setOptions(Map<String, String> options) {
     this.options = options;
   }
+
+  public void setMaxConnections(Integer maxConnections) {
+    this.maxConnections = maxConnections;
+  }
+
+  public void setType(RServerType type) {
+    this.type = type;
+  }
+
+  public void setStorageMount(String storageMount) {
+    this.storageMount = storageMount;
+  }
 }
@@ -12,6 +12,7 @@ import jakarta.validation.constraints.Positive;
 import java.util.Map;
 import java.util.Set;
 import org.molgenis.r.config.EnvironmentConfigProps;
+import org.molgenis.r.config.RServerType;
 
 @AutoValue
 @JsonInclude(JsonInclude.Include.NON_NULL)
@@ -42,6 +43,44 @@ public abstract class ProfileConfig {
   @JsonProperty("options")
   public abstract Map<String, String> getOptions();
 
+  @JsonProperty("maxConnections")
+  @Nullable // defaults to the default of EnvironmentConfigProps
+  @Positive
+  public abstract Integer getMaxConnections();
+
+  @JsonProperty("type")
+  @Nullable // defaults to ROCK
+  public abstract RServerType getType();
+
+  /**
+   * Where the storage root directory is mounted (read-only) in the R server container, if it is.
+   * Tables and resources are then read from the mount instead of being uploaded to the R session.
+   */
+  @JsonProperty("storageMount")
+  @Nullable
+  public abstract String getStorageMount();
+
+  public static ProfileConfig create(
+      String newName,
+      String newImage,
+      String newHost,
+      Integer newPort,
+      Set<String> newPackageWhitelist,
+      Set<String> newFunctionBlacklist,
+      Map<String, String> newOptions) {
+    return create(
+        newName,
+        newImage,
+        newHost,
+        newPort,
+        newPackageWhitelist,
+        newFunctionBlacklist,
+        newOptions,
+        null,
+        null,
+        null);
+  }
+
   @JsonCreator
   public static ProfileConfig create(
       @JsonProperty("name") String newName,
@@ -50,7 +89,10 @@ public abstract class ProfileConfig {
       @JsonProperty("port") Integer newPort,
       @JsonProperty("packageWhitelist") Set<String> newPackageWhitelist,
       @JsonProperty("functionBlacklist") Set<String> newFunctionBlacklist,
-      @JsonProperty("options") Map<String, String> newOptions) {
+      @JsonProperty("options") Map<String, String> newOptions,
+      @JsonProperty("maxConnections") Integer newMaxConnections,
+      @JsonProperty("type") RServerType newType,
+      @JsonProperty("storageMount") String newStorageMount) {
     return new AutoValue_ProfileConfig(
         newName,
         newImage,
@@ -58,7 +100,10 @@ public abstract class ProfileConfig {
         newPort,
         newPackageWhitelist,
         newFunctionBlacklist,
-        newOptions != null ? newOptions : Map.of());
+        newOptions != null ? newOptions : Map.of(),
+        newMaxConnections,
+        newType,
+        newStorageMount);
   }
 
   @JsonCreator
@@ -78,6 +123,12 @@ public abstract class ProfileConfig {
     props.setName(getName());
     props.setHost(getHost());
     props.setPort(getPort());
+    if (getMaxConnections() != null) {
+      props.setMaxConnections(getMaxConnections());
+    }
+    if (getType() != null) {
+      props.setType(getType());
+    }
     return props;
   }
 }
@@ -64,7 +64,10 @@ public class ProfileService {
                 profileConfig.getPort(),
                 profileConfig.getPackageWhitelist(),
                 profileConfig.getFunctionBlacklist(),
-                profileConfig.getOptions()));
+                profileConfig.getOptions(),
+                profileConfig.getMaxConnections(),
+                profileConfig.getType(),
+                profileConfig.getStorageMount()));
 
     flushProfileBeans(profileName);
     save();
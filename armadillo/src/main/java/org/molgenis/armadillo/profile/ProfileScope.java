@@ -13,6 +13,9 @@ public class ProfileScope implements Scope {
   private static final Logger LOGGER = LoggerFactory.getLogger(ProfileScope.class);
   /** Contains all profile scoped beans for all profiles */
   private final ConcurrentHashMap<String, Object> scopedBeans = new ConcurrentHashMap<>();
+  /** Destroys profile scoped beans, e.g. to release the connections of a connection factory */
+  private final ConcurrentHashMap<String, Runnable> destructionCallbacks =
+      new ConcurrentHashMap<>();
 
   @Override
   public Object get(String beanName, ObjectFactory<?> objectFactory) {
@@ -26,7 +29,9 @@ public class ProfileScope implements Scope {
 
   @Override
   public Object remove(@NonNull String beanName) {
-    return scopedBeans.remove(getFullyQualifiedBeanName(beanName));
+    String name = getFullyQualifiedBeanName(beanName);
+    destructionCallbacks.remove(name);
+    return scopedBeans.remove(name);
   }
 
   public void removeAllProfileBeans(String profileName) {
@@ -37,13 +42,25 @@ public class ProfileScope implements Scope {
             key -> {
               if (key.startsWith(profileName)) {
                 scopedBeans.remove(key);
+                destroy(key);
               }
             });
   }
 
   @Override
-  public void registerDestructionCallback(String beanName, Runnable runnable) {
-    // We do not use this because our set of beans is application scoped
+  public void registerDestructionCallback(@NonNull String beanName, @NonNull Runnable callback) {
+    destructionCallbacks.put(getFullyQualifiedBeanName(beanName), callback);
+  }
+
+  private void destroy(String name) {
+    Runnable callback = destructionCallbacks.remove(name);
+    if (callback != null) {
+      try {
+        callback.run();
+      } catch (RuntimeException e) {
+        LOGGER.warn("Error destroying profile bean with name {}", name, e);
+      }
+    }
   }
 
   @Override
@@ -8,6 +8,7 @@ import org.molgenis.armadillo.metadata.ProfileConfig;
 import org.molgenis.armadillo.profile.annotation.ProfileScope;
 import org.molgenis.r.Formatter;
 import org.molgenis.r.RConnectionFactory;
+import org.molgenis.r.RScript;
 import org.molgenis.r.RServerConnection;
 import org.molgenis.r.RServerException;
 import org.molgenis.r.exceptions.ConnectionCreationFailedException;
@@ -51,11 +52,16 @@ public class ArmadilloConnectionFactoryImpl implements ArmadilloConnectionFactor
   }
 
   private void setDataShieldOptions(RServerConnection connection) throws RServerException {
+    RScript script = new RScript();
     for (Entry<String, String> option : dataShieldOptions.getValue(connection).entrySet()) {
-      connection.eval(
+      script.add(
+          "option " + option.getKey(),
           format(
               "base::options(%s = %s)",
               option.getKey(), Formatter.quoteIfAlphaNumeric(option.getValue())));
     }
+    if (!script.isEmpty()) {
+      connection.eval(script);
+    }
   }
 }
@@ -18,11 +18,14 @@ public class ArmadilloLinkFile {
   private final String SOURCE_PROJECT = "sourceProject";
 
   private final String VARIABLES = "variables";
+
+  private final String FILTER = "filter";
   private final String sourceProject;
   private final String sourceObject;
   private final String variables;
   private final String linkObject;
   private final String project;
+  private final String filter;
 
   public ArmadilloLinkFile(
       String sourceProject,
@@ -30,11 +33,26 @@ public class ArmadilloLinkFile {
       String variables,
       String linkObject,
       String project) {
+    this(sourceProject, sourceObject, variables, linkObject, project, null);
+  }
+
+  /**
+   * @param filter a {@link RowFilter} that restricts the rows of the source object that can be
+   *     loaded through the link, or null
+   */
+  public ArmadilloLinkFile(
+      String sourceProject,
+      String sourceObject,
+      String variables,
+      String linkObject,
+      String project,
+      String filter) {
     this.linkObject = linkObject;
     this.sourceProject = sourceProject;
     this.sourceObject = sourceObject;
     this.variables = variables;
     this.project = project;
+    this.filter = filter;
   }
 
   public ArmadilloLinkFile(InputStream armadilloLinkStream, String linkObject, String linkProject) {
@@ -68,6 +86,7 @@ public class ArmadilloLinkFile {
       throw new NullPointerException(
           format("Variables are not defined on [%s/%s]", project, linkObject));
     }
+    this.filter = json.has(FILTER) ? json.get(FILTER).getAsString() : null;
   }
 
   public String getSourceProject() {
@@ -85,6 +104,11 @@ public class ArmadilloLinkFile {
   }
   ;
 
+  /** Returns the row filter of the link, or null if all rows can be loaded. */
+  public String getFilter() {
+    return this.filter;
+  }
+
   public String getLinkObject() {
     return this.linkObject;
   }
@@ -99,6 +123,9 @@ public class ArmadilloLinkFile {
     json.addProperty(SOURCE_OBJECT, sourceObject);
     json.addProperty(SOURCE_PROJECT, sourceProject);
     json.addProperty(VARIABLES, variables);
+    if (filter != null) {
+      json.addProperty(FILTER, filter);
+    }
     return json;
   }
 
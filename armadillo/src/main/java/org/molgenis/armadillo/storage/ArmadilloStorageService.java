@@ -9,9 +9,9 @@ import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.Principal;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Pattern;
@@ -63,6 +63,68 @@ public class ArmadilloStorageService {
     storageService.save(inputStream, SHARED_PREFIX + project, object, APPLICATION_OCTET_STREAM);
   }
 
+  /**
+   * Adds a table that is converted from CSV or TSV while it streams, and returns its info.
+   *
+   * @param object the name of the table, .parquet is added if it's missing
+   * @param separator the character that separates values, e.g. ',' or '\t'
+   * @param columnTypes the types (logical, integer, numeric or character) of some or all
+   *     columns, the others are inferred from the first rows
+   */
+  @PreAuthorize("hasRole('ROLE_SU')")
+  public FileInfo addTable(
+      String project,
+      String object,
+      InputStream inputStream,
+      char separator,
+      Map<String, String> columnTypes) {
+    String table = object.endsWith(PARQUET) ? object : object + PARQUET;
+    throwIfDuplicate(project, table);
+    Map<String, CsvConverter.ColumnType> types = new LinkedHashMap<>();
+    columnTypes.forEach((column, type) -> types.put(column, CsvConverter.ColumnType.of(type)));
+
+    CsvConverter.Conversion parquet = CsvConverter.toParquet(inputStream, separator, types);
+    try (parquet) {
+      storageService.save(parquet, SHARED_PREFIX + project, table, APPLICATION_OCTET_STREAM);
+    } catch (StorageException e) {
+      // report what is wrong with the CSV, rather than that the table couldn't be saved
+      if (parquet.getFailure() instanceof InvalidCsvException invalidCsvException) {
+        throw invalidCsvException;
+      }
+      throw e;
+    }
+    return storageService.getInfo(SHARED_PREFIX + project, table);
+  }
+
+  @PreAuthorize("hasRole('ROLE_SU')")
+  public UploadStatus startUpload(String project, String object) {
+    throwIfDuplicate(project, object);
+    return storageService.startUpload(SHARED_PREFIX + project, object);
+  }
+
+  @PreAuthorize("hasRole('ROLE_SU')")
+  public UploadStatus writeChunk(
+      String project, String uploadId, long offset, InputStream inputStream) {
+    return storageService.writeChunk(SHARED_PREFIX + project, uploadId, offset, inputStream);
+  }
+
+  @PreAuthorize("hasRole('ROLE_SU')")
+  public UploadStatus getUpload(String project, String uploadId) {
+    return storageService.getUpload(SHARED_PREFIX + project, uploadId);
+  }
+
+  @PreAuthorize("hasRole('ROLE_SU')")
+  public void completeUpload(String project, String uploadId, long size) {
+    var upload = storageService.getUpload(SHARED_PREFIX + project, uploadId);
+    throwIfDuplicate(project, upload.object());
+    storageService.completeUpload(SHARED_PREFIX + project, uploadId, size);
+  }
+
+  @PreAuthorize("hasRole('ROLE_SU')")
+  public void abortUpload(String project, String uploadId) {
+    storageService.abortUpload(SHARED_PREFIX + project, uploadId);
+  }
+
   @PreAuthorize("hasAnyRole('ROLE_SU', 'ROLE_' + #project.toUpperCase() + '_RESEARCHER')")
   public boolean hasObject(String project, String object) {
     throwIfUnknown(project);
@@ -71,16 +133,16 @@ public class ArmadilloStorageService {
 
   @PreAuthorize("hasRole('ROLE_SU')")
   public void moveObject(String project, String newObject, String oldObject) {
-    copyObject(project, newObject, oldObject);
-    storageService.delete(SHARED_PREFIX + project, oldObject);
+    throwIfUnknown(project, oldObject);
+    throwIfDuplicate(project, newObject);
+    storageService.move(SHARED_PREFIX + project, oldObject, newObject);
   }
 
   @PreAuthorize("hasRole('ROLE_SU')")
   public void copyObject(String project, String newObject, String oldObject) {
     throwIfUnknown(project, oldObject);
     throwIfDuplicate(project, newObject);
-    var inputStream = storageService.load(SHARED_PREFIX + project, oldObject);
-    storageService.save(inputStream, SHARED_PREFIX + project, newObject, APPLICATION_OCTET_STREAM);
+    storageService.copy(SHARED_PREFIX + project, oldObject, newObject);
   }
 
   @PreAuthorize("hasRole('ROLE_SU')")
@@ -91,6 +153,22 @@ public class ArmadilloStorageService {
       String linkProject,
       String variables)
       throws IOException {
+    createLinkedObject(sourceProject, sourceObject, linkName, linkProject, variables, null);
+  }
+
+  /**
+   * @param filter a {@link RowFilter} that restricts the rows that can be loaded through the link,
+   *     or null
+   */
+  @PreAuthorize("hasRole('ROLE_SU')")
+  public void createLinkedObject(
+      String sourceProject,
+      String sourceObject,
+      String linkName,
+      String linkProject,
+      String variables,
+      String filter)
+      throws IOException {
     throwIfUnknown(sourceProject, sourceObject + PARQUET);
     throwIfUnknown(linkProject);
     throwIfDuplicate(linkProject, linkName + LINK_FILE);
@@ -102,8 +180,20 @@ public class ArmadilloStorageService {
       throw new UnknownVariableException(
           sourceProject, sourceObject, unavailableVariables.toString());
     }
+    if (filter != null) {
+      List<String> unavailableColumns =
+          storageService.getUnavailableVariables(
+              SHARED_PREFIX + sourceProject,
+              sourceObject,
+              String.join(",", RowFilter.parse(filter).getColumns()));
+      if (!unavailableColumns.isEmpty()) {
+        throw new UnknownVariableException(
+            sourceProject, sourceObject, unavailableColumns.toString());
+      }
+    }
     ArmadilloLinkFile armadilloLinkFile =
-        createLinkFileFromSource(sourceProject, sourceObject, variables, linkName, linkProject);
+        createLinkFileFromSource(
+            sourceProject, sourceObject, variables, linkName, linkProject, filter);
     InputStream is = armadilloLinkFile.toStream();
     storageService.save(
         is, SHARED_PREFIX + linkProject, armadilloLinkFile.getFileName(), APPLICATION_JSON);
@@ -120,7 +210,19 @@ public class ArmadilloStorageService {
       String variables,
       String linkName,
       String linkProject) {
-    return new ArmadilloLinkFile(sourceProject, sourceObject, variables, linkName, linkProject);
+    return createLinkFileFromSource(
+        sourceProject, sourceObject, variables, linkName, linkProject, null);
+  }
+
+  public ArmadilloLinkFile createLinkFileFromSource(
+      String sourceProject,
+      String sourceObject,
+      String variables,
+      String linkName,
+      String linkProject,
+      String filter) {
+    return new ArmadilloLinkFile(
+        sourceProject, sourceObject, variables, linkName, linkProject, filter);
   }
 
   @PreAuthorize("hasRole('ROLE_SU')")
@@ -144,6 +246,27 @@ public class ArmadilloStorageService {
         .collect(toList());
   }
 
+  /**
+   * Finds the variables in the tables of all projects whose names start with, or contain, the
+   * query, ignoring case. Only the variables in projects the user has access to are returned.
+   */
+  @PostFilter(
+      "hasAnyRole('ROLE_SU', 'ROLE_' + filterObject.project().toUpperCase() + '_RESEARCHER')")
+  @SuppressWarnings("java:S6204") // result of method can't be unmodifiable because of @PostFilter
+  public List<VariableMatch> searchVariables(String query, boolean substring) {
+    return storageService.searchVariables(query, substring).stream()
+        .filter(it -> it.bucketName().startsWith(SHARED_PREFIX))
+        .map(
+            it ->
+                new VariableMatch(
+                    it.bucketName().substring(SHARED_PREFIX.length()),
+                    getTableName(it.objectName()),
+                    it.name(),
+                    it.type()))
+        .distinct()
+        .collect(toList());
+  }
+
   @PreAuthorize("hasAnyRole('ROLE_SU', 'ROLE_' + #project.toUpperCase() + '_RESEARCHER')")
   public List<String> listObjects(String project) {
     throwIfUnknown(project);
@@ -157,20 +280,59 @@ public class ArmadilloStorageService {
   public List<String> listTables(String project) {
     return listObjects(project).stream()
         .filter(it -> it.endsWith(PARQUET))
-        .map(FilenameUtils::removeExtension)
+        .map(ArmadilloStorageService::getTableName)
+        .distinct()
         .toList();
   }
 
+  /**
+   * Returns the name of the table that a Parquet object belongs to. The parts of a partitioned
+   * table, e.g. core/nonrep.parquet/wave=1/part-0.parquet, all belong to one table (core/nonrep).
+   */
+  static String getTableName(String object) {
+    int partitionedTable = object.indexOf(PARQUET + "/");
+    return partitionedTable == -1
+        ? removeExtension(object)
+        : object.substring(0, partitionedTable);
+  }
+
   @PreAuthorize("hasAnyRole('ROLE_SU', 'ROLE_' + #project.toUpperCase() + '_RESEARCHER')")
   public boolean tableExists(String project, String objectName) {
-    return storageService.objectExists(SHARED_PREFIX + project, objectName + PARQUET);
+    return storageService.objectExists(SHARED_PREFIX + project, objectName + PARQUET)
+        || storageService.isPartitionedTable(SHARED_PREFIX + project, objectName + PARQUET);
+  }
+
+  /**
+   * Tells whether a table is partitioned: a directory of Parquet files instead of a single file.
+   */
+  @PreAuthorize("hasAnyRole('ROLE_SU', 'ROLE_' + #project.toUpperCase() + '_RESEARCHER')")
+  public boolean isPartitionedTable(String project, String objectName) {
+    return storageService.isPartitionedTable(SHARED_PREFIX + project, objectName + PARQUET);
   }
 
   @PreAuthorize("hasAnyRole('ROLE_SU', 'ROLE_' + #project.toUpperCase() + '_RESEARCHER')")
   public InputStream loadTable(String project, String objectName) {
+    if (isPartitionedTable(project, objectName)) {
+      return loadTable(project, objectName, List.of());
+    }
     return storageService.load(SHARED_PREFIX + project, objectName + PARQUET);
   }
 
+  @PreAuthorize("hasAnyRole('ROLE_SU', 'ROLE_' + #project.toUpperCase() + '_RESEARCHER')")
+  public InputStream loadTable(String project, String objectName, List<String> variables) {
+    return storageService.loadColumns(SHARED_PREFIX + project, objectName + PARQUET, variables);
+  }
+
+  @PreAuthorize("hasAnyRole('ROLE_SU', 'ROLE_' + #project.toUpperCase() + '_RESEARCHER')")
+  public InputStream loadTable(
+      String project, String objectName, List<String> variables, RowFilter filter) {
+    if (filter == null) {
+      return loadTable(project, objectName, variables);
+    }
+    return storageService.loadRows(
+        SHARED_PREFIX + project, objectName + PARQUET, variables, filter);
+  }
+
   @PreAuthorize("hasAnyRole('ROLE_SU', 'ROLE_' + #project.toUpperCase() + '_RESEARCHER')")
   public boolean resourceExists(String project, String objectName) {
     return storageService.objectExists(SHARED_PREFIX + project, objectName + RDS);
@@ -181,6 +343,31 @@ public class ArmadilloStorageService {
     return storageService.load(SHARED_PREFIX + project, objectName + RDS);
   }
 
+  /**
+   * Returns the location of a table relative to the storage root directory, for R servers that
+   * have the storage mounted.
+   */
+  @PreAuthorize("hasAnyRole('ROLE_SU', 'ROLE_' + #project.toUpperCase() + '_RESEARCHER')")
+  public String getTableLocation(String project, String objectName) {
+    return getSharedObjectLocation(project, objectName + PARQUET);
+  }
+
+  /**
+   * Returns the location of a resource relative to the storage root directory, for R servers that
+   * have the storage mounted.
+   */
+  @PreAuthorize("hasAnyRole('ROLE_SU', 'ROLE_' + #project.toUpperCase() + '_RESEARCHER')")
+  public String getResourceLocation(String project, String objectName) {
+    return getSharedObjectLocation(project, objectName + RDS);
+  }
+
+  private String getSharedObjectLocation(String project, String object) {
+    String bucketName = SHARED_PREFIX + project;
+    // checks that the object exists and doesn't point outside of the bucket
+    storageService.getPathIfObjectExists(bucketName, object);
+    return bucketName + "/" + object;
+  }
+
   @PreAuthorize("hasAnyRole('ROLE_SU', 'ROLE_' + #project.toUpperCase() + '_RESEARCHER')")
   public List<String> listResources(String project) {
     return listObjects(project).stream()
@@ -271,9 +458,16 @@ public class ArmadilloStorageService {
     }
   }
 
-  public long getFileSizeIfObjectExists(String bucketName, String objectName) throws IOException {
-    Path filePath = storageService.getPathIfObjectExists(bucketName, objectName);
-    return Files.size(filePath);
+  @PreAuthorize("hasAnyRole('ROLE_SU', 'ROLE_' + #project.toUpperCase() + '_RESEARCHER')")
+  public Path getObjectPath(String project, String object) {
+    throwIfUnknown(project, object);
+    return storageService.getPathIfObjectExists(SHARED_PREFIX + project, object);
+  }
+
+  @PreAuthorize("hasAnyRole('ROLE_SU', 'ROLE_' + #project.toUpperCase() + '_RESEARCHER')")
+  public String getETag(String project, String object) {
+    throwIfUnknown(project, object);
+    return storageService.getETag(SHARED_PREFIX + project, object);
   }
 
   @PreAuthorize("hasRole('ROLE_SU')")
@@ -282,6 +476,12 @@ public class ArmadilloStorageService {
     return storageService.preview(SHARED_PREFIX + project, object, 10, 10);
   }
 
+  @PreAuthorize("hasRole('ROLE_SU')")
+  public List<ColumnStatistics> getColumnStatistics(String project, String object) {
+    throwIfUnknown(project, object);
+    return storageService.getColumnStatistics(SHARED_PREFIX + project, object);
+  }
+
   @PreAuthorize("hasRole('ROLE_SU')")
   public FileInfo getInfo(String project, String object) {
     throwIfUnknown(project, object);
@@ -0,0 +1,94 @@
+package org.molgenis.armadillo.storage;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Edits the Arrow schema that Arrow writers (e.g. R's arrow package) store in the {@value KEY}
+ * metadata of a Parquet file. Arrow matches the fields of this schema to the Parquet columns by
+ * position, and uses it to restore R types such as factors, so it has to be projected together
+ * with the columns.
+ *
+ * <p>The schema is a flatbuffer encoded IPC message. Projecting only rewrites the vector of field
+ * offsets in place, the field tables themselves stay where they are.
+ */
+final class ArrowSchema {
+
+  static final String KEY = "ARROW:schema";
+
+  private static final int CONTINUATION_MARKER = 0xFFFFFFFF;
+  private static final int MESSAGE_HEADER = 2;
+  private static final int SCHEMA_FIELDS = 1;
+  private static final int FIELD_NAME = 0;
+
+  private ArrowSchema() {}
+
+  /**
+   * @param encoded the base64 encoded schema
+   * @param fieldNames the names of the (top level) fields to keep, in schema order
+   * @return the encoded schema with only the given fields, or empty if the schema can't be
+   *     projected, e.g. because its fields don't match the fields that should be kept
+   */
+  static Optional<String> project(String encoded, List<String> fieldNames) {
+    try {
+      ByteBuffer buffer = ByteBuffer.wrap(Base64.getDecoder().decode(encoded));
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+      int start = buffer.getInt(0) == CONTINUATION_MARKER ? 8 : 4;
+      int message = start + buffer.getInt(start);
+      int schema = getTable(buffer, message, MESSAGE_HEADER);
+      int fields = getTable(buffer, schema, SCHEMA_FIELDS);
+
+      int fieldCount = buffer.getInt(fields);
+      List<Integer> keep = new ArrayList<>();
+      List<String> keptNames = new ArrayList<>();
+      for (int i = 0; i < fieldCount; i++) {
+        int slot = fields + 4 + 4 * i;
+        String name = getString(buffer, getTable(buffer, slot + buffer.getInt(slot), FIELD_NAME));
+        if (fieldNames.contains(name)) {
+          keep.add(slot + buffer.getInt(slot));
+          keptNames.add(name);
+        }
+      }
+      if (!keptNames.equals(fieldNames)) {
+        return Optional.empty();
+      }
+
+      // offsets are relative to their own position and the kept fields move forward in the
+      // vector, so the new offsets stay positive
+      buffer.putInt(fields, keep.size());
+      for (int i = 0; i < keep.size(); i++) {
+        int slot = fields + 4 + 4 * i;
+        buffer.putInt(slot, keep.get(i) - slot);
+      }
+      return Optional.of(Base64.getEncoder().encodeToString(buffer.array()));
+    } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+      return Optional.empty();
+    }
+  }
+
+  /** Follows the offset stored in the given field of a table. */
+  private static int getTable(ByteBuffer buffer, int table, int field) {
+    int vtable = table - buffer.getInt(table);
+    int vtableSize = Short.toUnsignedInt(buffer.getShort(vtable));
+    int entry = 4 + 2 * field;
+    int fieldOffset = entry < vtableSize ? Short.toUnsignedInt(buffer.getShort(vtable + entry)) : 0;
+    if (fieldOffset == 0) {
+      throw new IllegalArgumentException("Missing field " + field);
+    }
+    int position = table + fieldOffset;
+    return position + buffer.getInt(position);
+  }
+
+  private static String getString(ByteBuffer buffer, int position) {
+    byte[] bytes = new byte[buffer.getInt(position)];
+    buffer.get(position + 4, bytes);
+    return new String(bytes, UTF_8);
+  }
+}
@@ -0,0 +1,331 @@
+package org.molgenis.armadillo.storage;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.time.Clock.systemUTC;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.molgenis.armadillo.exceptions.IncompleteUploadException;
+import org.molgenis.armadillo.exceptions.UnknownUploadException;
+import org.molgenis.armadillo.exceptions.UploadBusyException;
+import org.molgenis.armadillo.storage.UploadStatus.ByteRange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps track of uploads that are sent in chunks. The chunks are written straight into a staging
+ * file in the bucket, at their offset, so they can be sent in parallel and sent again after a
+ * failure. When the upload is complete the staging file is moved into place, so the object
+ * appears at once. Uploads are kept in memory: they don't survive a restart. Uploads that aren't
+ * used for longer than the idle timeout are discarded, so abandoned ones don't keep their staging
+ * file.
+ */
+class ChunkedUploads implements Closeable {
+
+  /** Directory in a bucket that contains the staging files, it isn't part of the listings. */
+  static final String STAGING_DIR = ".uploads";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ChunkedUploads.class);
+  private static final int BUFFER_SIZE = 1024 * 1024;
+
+  private static final class Upload {
+    private final String id;
+    private final String bucketName;
+    private final String objectName;
+    private final Path stagingPath;
+    private final Path objectPath;
+    private final FileChannel channel;
+    private final RangeSet<Long> received = TreeRangeSet.create();
+    private Instant lastUsed;
+    private int writers = 0;
+    private boolean completing = false;
+    private boolean closed = false;
+
+    private Upload(
+        String id,
+        String bucketName,
+        String objectName,
+        Path stagingPath,
+        Path objectPath,
+        Instant now)
+        throws IOException {
+      this.id = id;
+      this.bucketName = bucketName;
+      this.objectName = objectName;
+      this.stagingPath = stagingPath;
+      this.objectPath = objectPath;
+      this.lastUsed = now;
+      this.channel = FileChannel.open(stagingPath, CREATE_NEW, WRITE);
+    }
+
+    private synchronized void touch(Instant now) {
+      lastUsed = now;
+    }
+
+    private synchronized void startWrite() {
+      if (closed) {
+        throw new UnknownUploadException(id);
+      }
+      if (completing) {
+        throw new UploadBusyException(id);
+      }
+      writers++;
+    }
+
+    private synchronized void endWrite(long start, long end, Instant now) {
+      writers--;
+      lastUsed = now;
+      if (end > start) {
+        received.add(Range.closedOpen(start, end));
+      }
+    }
+
+    /** Claims the upload to move it into place, no chunks can be written until it's released. */
+    private synchronized void startComplete(long size) {
+      if (closed) {
+        throw new UnknownUploadException(id);
+      }
+      if (completing || writers > 0) {
+        throw new UploadBusyException(id);
+      }
+      if (!isComplete(size)) {
+        throw new IncompleteUploadException(id, size);
+      }
+      completing = true;
+    }
+
+    /** Releases the upload after it couldn't be moved into place, so it can be completed again. */
+    private synchronized void cancelComplete(Instant now) {
+      completing = false;
+      lastUsed = now;
+    }
+
+    /** Closes the upload, unless it is in use. */
+    private synchronized boolean closeIfIdleSince(Instant limit) {
+      if (writers > 0 || completing || !lastUsed.isBefore(limit)) {
+        return false;
+      }
+      closed = true;
+      return true;
+    }
+
+    private synchronized void abort() {
+      if (completing) {
+        throw new UploadBusyException(id);
+      }
+      closed = true;
+    }
+
+    private synchronized void markClosed() {
+      closed = true;
+    }
+
+    private synchronized boolean isClosed() {
+      return closed;
+    }
+
+    private synchronized UploadStatus getStatus() {
+      List<ByteRange> ranges =
+          received.asRanges().stream()
+              .map(range -> new ByteRange(range.lowerEndpoint(), range.upperEndpoint()))
+              .toList();
+      return new UploadStatus(id, objectName, ranges);
+    }
+
+    private synchronized boolean isComplete(long size) {
+      Range<Long> all = Range.closedOpen(0L, size);
+      return size == 0 || (received.encloses(all) && received.span().upperEndpoint() == size);
+    }
+  }
+
+  private final Map<String, Upload> uploads = new ConcurrentHashMap<>();
+  private final Duration idleTimeout;
+  private final Clock clock;
+
+  ChunkedUploads(Duration idleTimeout) {
+    this(idleTimeout, systemUTC());
+  }
+
+  // For test purposes, allow the clock to be mocked
+  ChunkedUploads(Duration idleTimeout, Clock clock) {
+    this.idleTimeout = idleTimeout;
+    this.clock = clock;
+  }
+
+  /** Removes the staging files that were left behind by a previous run. */
+  static void deleteStagingFiles(Path bucketPath) {
+    Path stagingDir = bucketPath.resolve(STAGING_DIR);
+    if (!Files.isDirectory(stagingDir)) {
+      return;
+    }
+    try (var files = Files.walk(stagingDir)) {
+      files.sorted(Comparator.reverseOrder()).forEach(ChunkedUploads::deleteQuietly);
+    } catch (IOException e) {
+      LOGGER.warn("Unable to delete staging files in {}", stagingDir, e);
+    }
+  }
+
+  UploadStatus start(String bucketName, String objectName, Path bucketPath, Path objectPath)
+      throws IOException {
+    discardIdle();
+    String id = UUID.randomUUID().toString();
+    Path stagingDir = Files.createDirectories(bucketPath.resolve(STAGING_DIR));
+    Upload upload =
+        new Upload(
+            id, bucketName, objectName, stagingDir.resolve(id), objectPath, clock.instant());
+    uploads.put(id, upload);
+    return upload.getStatus();
+  }
+
+  UploadStatus getStatus(String bucketName, String uploadId) {
+    return get(bucketName, uploadId).getStatus();
+  }
+
+  /**
+   * Writes a chunk at the given offset. If the chunk is cut off, the bytes that arrived are kept,
+   * so the client only has to send the rest.
+   */
+  UploadStatus write(String bucketName, String uploadId, long offset, InputStream chunk)
+      throws IOException {
+    Upload upload = get(bucketName, uploadId);
+    upload.startWrite();
+    byte[] bytes = new byte[BUFFER_SIZE];
+    long position = offset;
+    try {
+      int read;
+      while ((read = chunk.read(bytes)) != -1) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, read);
+        while (buffer.hasRemaining()) {
+          position += upload.channel.write(buffer, position);
+        }
+      }
+    } catch (ClosedChannelException e) {
+      if (upload.isClosed()) {
+        // aborted while the chunk was written
+        throw new UnknownUploadException(uploadId);
+      }
+      throw e;
+    } finally {
+      upload.endWrite(offset, position, clock.instant());
+    }
+    return upload.getStatus();
+  }
+
+  /**
+   * Moves the staging file into place and returns the path of the object. If that fails, the
+   * upload is kept, so completing it can be tried again.
+   */
+  Path complete(String bucketName, String uploadId, long size) throws IOException {
+    Upload upload = get(bucketName, uploadId);
+    upload.startComplete(size);
+    try {
+      upload.channel.force(true);
+      Files.createDirectories(upload.objectPath.getParent());
+      Files.move(upload.stagingPath, upload.objectPath, ATOMIC_MOVE);
+    } catch (IOException | RuntimeException e) {
+      upload.cancelComplete(clock.instant());
+      throw e;
+    }
+    uploads.remove(uploadId);
+    closeQuietly(upload);
+    return upload.objectPath;
+  }
+
+  void abort(String bucketName, String uploadId) {
+    Upload upload = get(bucketName, uploadId);
+    upload.abort();
+    uploads.remove(uploadId);
+    discard(upload);
+  }
+
+  /** Aborts all uploads to a bucket, e.g. because it is deleted. */
+  void abortAll(String bucketName) {
+    uploads
+        .values()
+        .removeIf(
+            upload -> {
+              boolean inBucket = upload.bucketName.equals(bucketName);
+              if (inBucket) {
+                discard(upload);
+              }
+              return inBucket;
+            });
+  }
+
+  @Override
+  public void close() {
+    uploads.values().forEach(ChunkedUploads::discard);
+    uploads.clear();
+  }
+
+  private Upload get(String bucketName, String uploadId) {
+    discardIdle();
+    Upload upload = uploads.get(uploadId);
+    if (upload == null || !upload.bucketName.equals(bucketName)) {
+      throw new UnknownUploadException(uploadId);
+    }
+    upload.touch(clock.instant());
+    return upload;
+  }
+
+  private void discardIdle() {
+    Instant limit = clock.instant().minus(idleTimeout);
+    uploads
+        .values()
+        .removeIf(
+            upload -> {
+              boolean idle = upload.closeIfIdleSince(limit);
+              if (idle) {
+                LOGGER.info(
+                    "Discarding upload {} of {}/{}, it was idle for more than {}",
+                    upload.id,
+                    upload.bucketName,
+                    upload.objectName,
+                    idleTimeout);
+                discard(upload);
+              }
+              return idle;
+            });
+  }
+
+  private static void discard(Upload upload) {
+    upload.markClosed();
+    closeQuietly(upload);
+    deleteQuietly(upload.stagingPath);
+  }
+
+  private static void closeQuietly(Upload upload) {
+    try {
+      upload.channel.close();
+    } catch (IOException e) {
+      LOGGER.warn("Unable to close staging file {}", upload.stagingPath, e);
+    }
+  }
+
+  private static void deleteQuietly(Path path) {
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      LOGGER.warn("Unable to delete {}", path, e);
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package org.molgenis.armadillo.storage;
+
+/**
+ * Summary of a top level column of a table. The values are null if they aren't known, e.g. for a
+ * nested column.
+ *
+ * @param name The name of the column
+ * @param type The type of the column, e.g. integer, numeric, character or logical
+ * @param nullCount The number of missing values
+ * @param min The smallest value, formatted like the type of the column
+ * @param max The largest value, formatted like the type of the column
+ * @param distinctCount An estimate of the number of distinct values, which is exact for small
+ *     counts and otherwise off by a few percent
+ */
+public record ColumnStatistics(
+    String name, String type, Long nullCount, String min, String max, Long distinctCount) {}
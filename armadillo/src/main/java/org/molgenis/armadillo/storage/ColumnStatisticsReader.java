@@ -0,0 +1,214 @@
+package org.molgenis.armadillo.storage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.parquet.column.ColumnDescriptor;
+import org.apache.parquet.column.ColumnReader;
+import org.apache.parquet.column.Dictionary;
+import org.apache.parquet.column.EncodingStats;
+import org.apache.parquet.column.impl.ColumnReadStoreImpl;
+import org.apache.parquet.column.page.DictionaryPage;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.column.statistics.Statistics;
+import org.apache.parquet.example.data.simple.convert.GroupRecordConverter;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnPath;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
+
+/**
+ * Computes the statistics of the top level columns of a Parquet file while reading as little of it
+ * as possible. Null counts, minimums and maximums come from the footer when every row group has
+ * them, and distinct counts from the dictionaries when all pages of a column are dictionary
+ * encoded. The other columns are read in a single pass over their column chunks, without
+ * assembling records.
+ */
+class ColumnStatisticsReader {
+
+  private record Summary(Statistics<?> statistics, DistinctCounter distinct) {}
+
+  private ColumnStatisticsReader() {}
+
+  static List<ColumnStatistics> read(
+      Path path, ParquetMetadata footer, InputFileFactory inputFiles) throws IOException {
+    MessageType schema = footer.getFileMetaData().getSchema();
+    List<BlockMetaData> blocks = footer.getBlocks();
+    Map<String, Summary> summaries = new LinkedHashMap<>();
+    List<Type> unsummarized = new ArrayList<>();
+    try (ParquetFileReader reader = ParquetFileReader.open(inputFiles.open(path))) {
+      for (Type field : schema.getFields()) {
+        if (!field.isPrimitive() || field.isRepetition(Type.Repetition.REPEATED)) {
+          continue;
+        }
+        ColumnDescriptor column = schema.getColumnDescription(new String[] {field.getName()});
+        Statistics<?> statistics = mergeStatistics(blocks, column);
+        DistinctCounter distinct = countDictionaries(reader, blocks, column);
+        if (statistics != null && distinct != null) {
+          summaries.put(field.getName(), new Summary(statistics, distinct));
+        } else {
+          unsummarized.add(field);
+        }
+      }
+      if (!unsummarized.isEmpty()) {
+        MessageType projection = new MessageType(schema.getName(), unsummarized);
+        summaries.putAll(scan(reader, projection, footer.getFileMetaData().getCreatedBy()));
+      }
+    }
+
+    List<ColumnStatistics> result = new ArrayList<>();
+    for (Type field : schema.getFields()) {
+      Summary summary = summaries.get(field.getName());
+      if (summary == null) {
+        result.add(new ColumnStatistics(field.getName(), "nested", null, null, null, null));
+        continue;
+      }
+      Statistics<?> statistics = summary.statistics();
+      boolean hasValues = statistics.hasNonNullValue();
+      result.add(
+          new ColumnStatistics(
+              field.getName(),
+              ParquetUtils.getTypeName(field),
+              statistics.getNumNulls(),
+              hasValues ? statistics.minAsString() : null,
+              hasValues ? statistics.maxAsString() : null,
+              summary.distinct().estimate()));
+    }
+    return result;
+  }
+
+  /** Merges the statistics of a column in all row groups, or returns null if any are missing. */
+  private static Statistics<?> mergeStatistics(
+      List<BlockMetaData> blocks, ColumnDescriptor column) {
+    Statistics<?> merged = Statistics.createStats(column.getPrimitiveType());
+    for (BlockMetaData block : blocks) {
+      ColumnChunkMetaData chunk = getColumnChunk(block, column);
+      Statistics<?> statistics = chunk.getStatistics();
+      if (statistics == null
+          || !statistics.isNumNullsSet()
+          || (!statistics.hasNonNullValue() && statistics.getNumNulls() < chunk.getValueCount())) {
+        return null;
+      }
+      merged.mergeStatistics(statistics);
+    }
+    return merged;
+  }
+
+  /**
+   * Counts the distinct values in the dictionaries of a column, or returns null if any of its pages
+   * aren't dictionary encoded. A dictionary only contains values that occur in its column chunk.
+   */
+  private static DistinctCounter countDictionaries(
+      ParquetFileReader reader, List<BlockMetaData> blocks, ColumnDescriptor column)
+      throws IOException {
+    DistinctCounter distinct = new DistinctCounter();
+    for (BlockMetaData block : blocks) {
+      EncodingStats encodingStats = getColumnChunk(block, column).getEncodingStats();
+      if (encodingStats == null
+          || !encodingStats.hasDictionaryPages()
+          || encodingStats.hasNonDictionaryEncodedPages()) {
+        return null;
+      }
+      DictionaryPage page = reader.getDictionaryReader(block).readDictionaryPage(column);
+      if (page == null) {
+        return null;
+      }
+      Dictionary dictionary = page.getEncoding().initDictionary(column, page);
+      for (int id = 0; id <= dictionary.getMaxId(); id++) {
+        switch (column.getPrimitiveType().getPrimitiveTypeName()) {
+          case INT32 -> distinct.add(dictionary.decodeToInt(id));
+          case INT64 -> distinct.add(dictionary.decodeToLong(id));
+          case FLOAT -> distinct.add(dictionary.decodeToFloat(id));
+          case DOUBLE -> distinct.add(dictionary.decodeToDouble(id));
+          case BOOLEAN -> distinct.add(dictionary.decodeToBoolean(id));
+          default -> distinct.add(dictionary.decodeToBinary(id));
+        }
+      }
+    }
+    return distinct;
+  }
+
+  /** Reads the values of the columns of the projection in all row groups. */
+  private static Map<String, Summary> scan(
+      ParquetFileReader reader, MessageType projection, String createdBy) throws IOException {
+    Map<String, Summary> summaries = new LinkedHashMap<>();
+    for (ColumnDescriptor column : projection.getColumns()) {
+      summaries.put(
+          column.getPath()[0],
+          new Summary(Statistics.createStats(column.getPrimitiveType()), new DistinctCounter()));
+    }
+    reader.setRequestedSchema(projection);
+    GroupRecordConverter converter = new GroupRecordConverter(projection);
+    PageReadStore rowGroup;
+    while ((rowGroup = reader.readNextRowGroup()) != null) {
+      var store =
+          new ColumnReadStoreImpl(rowGroup, converter.getRootConverter(), projection, createdBy);
+      for (ColumnDescriptor column : projection.getColumns()) {
+        Summary summary = summaries.get(column.getPath()[0]);
+        scan(store.getColumnReader(column), column, summary.statistics(), summary.distinct());
+      }
+    }
+    return summaries;
+  }
+
+  private static void scan(
+      ColumnReader columnReader,
+      ColumnDescriptor column,
+      Statistics<?> statistics,
+      DistinctCounter distinct) {
+    int maxDefinitionLevel = column.getMaxDefinitionLevel();
+    for (long i = 0; i < columnReader.getTotalValueCount(); i++) {
+      if (columnReader.getCurrentDefinitionLevel() < maxDefinitionLevel) {
+        statistics.incrementNumNulls();
+      } else {
+        switch (column.getPrimitiveType().getPrimitiveTypeName()) {
+          case INT32 -> {
+            int value = columnReader.getInteger();
+            statistics.updateStats(value);
+            distinct.add(value);
+          }
+          case INT64 -> {
+            long value = columnReader.getLong();
+            statistics.updateStats(value);
+            distinct.add(value);
+          }
+          case FLOAT -> {
+            float value = columnReader.getFloat();
+            statistics.updateStats(value);
+            distinct.add(value);
+          }
+          case DOUBLE -> {
+            double value = columnReader.getDouble();
+            statistics.updateStats(value);
+            distinct.add(value);
+          }
+          case BOOLEAN -> {
+            boolean value = columnReader.getBoolean();
+            statistics.updateStats(value);
+            distinct.add(value);
+          }
+          default -> {
+            var value = columnReader.getBinary();
+            statistics.updateStats(value);
+            distinct.add(value);
+          }
+        }
+      }
+      columnReader.consume();
+    }
+  }
+
+  private static ColumnChunkMetaData getColumnChunk(BlockMetaData block, ColumnDescriptor column) {
+    ColumnPath path = ColumnPath.get(column.getPath());
+    return block.getColumns().stream()
+        .filter(chunk -> chunk.getPath().equals(path))
+        .findFirst()
+        .orElseThrow();
+  }
+}
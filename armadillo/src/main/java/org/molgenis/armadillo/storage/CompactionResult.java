@@ -0,0 +1,19 @@
+package org.molgenis.armadillo.storage;
+
+/**
+ * The outcome of compacting a Parquet object.
+ *
+ * @param object the name of the object
+ * @param sizeBefore the size in bytes before compaction
+ * @param sizeAfter the size in bytes after compaction, the same as before if it was skipped
+ * @param millis how long compacting the object took
+ * @param compacted false if the object was already compact, or was replaced while it was
+ *     compacted
+ */
+public record CompactionResult(
+    String object, long sizeBefore, long sizeAfter, long millis, boolean compacted) {
+
+  static CompactionResult skipped(String object, long size, long millis) {
+    return new CompactionResult(object, size, size, millis, false);
+  }
+}
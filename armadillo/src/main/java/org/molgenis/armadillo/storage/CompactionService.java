@@ -0,0 +1,116 @@
+package org.molgenis.armadillo.storage;
+
+import static org.molgenis.armadillo.storage.ArmadilloStorageService.PARQUET;
+import static org.molgenis.armadillo.storage.ArmadilloStorageService.SHARED_PREFIX;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.molgenis.armadillo.exceptions.StorageException;
+import org.molgenis.armadillo.exceptions.UnknownProjectException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Rewrites the tables of projects with large row groups, one compression codec and dictionary
+ * encoding, because tables uploaded from different tools often have tiny row groups or aren't
+ * compressed well, which makes them larger and slower to load. Tables that are already compact
+ * are skipped. Compaction is started by an admin, and optionally runs periodically for all
+ * projects.
+ */
+@Service
+public class CompactionService implements DisposableBean {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(CompactionService.class);
+
+  private final StorageService storageService;
+  private final CompressionCodecName codec;
+  private final int rowGroupSize;
+  private final ScheduledExecutorService scheduler;
+
+  public CompactionService(
+      StorageService storageService,
+      @Value("${storage.compaction.codec:ZSTD}") CompressionCodecName codec,
+      @Value("${storage.compaction.row-group-size:128MB}") DataSize rowGroupSize,
+      @Value("${storage.compaction.interval:0}") Duration interval) {
+    this.storageService = storageService;
+    this.codec = codec;
+    this.rowGroupSize = Math.toIntExact(rowGroupSize.toBytes());
+    if (interval.isZero() || interval.isNegative()) {
+      this.scheduler = null;
+    } else {
+      this.scheduler =
+          Executors.newSingleThreadScheduledExecutor(
+              new ThreadFactoryBuilder()
+                  .setNameFormat("storage-compaction-%d")
+                  .setDaemon(true)
+                  .build());
+      scheduler.scheduleWithFixedDelay(
+          this::compactAll, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /** Compacts the tables of a project, including the parts of its partitioned tables. */
+  @PreAuthorize("hasRole('ROLE_SU')")
+  public List<CompactionResult> compactProject(String project) {
+    String bucketName = SHARED_PREFIX + project;
+    if (!storageService.listBuckets().contains(bucketName)) {
+      throw new UnknownProjectException(project);
+    }
+    return compact(bucketName);
+  }
+
+  /** Compacts the tables of all projects, logging instead of throwing errors. */
+  void compactAll() {
+    try {
+      storageService.listBuckets().stream()
+          .filter(bucketName -> bucketName.startsWith(SHARED_PREFIX))
+          .forEach(this::compact);
+    } catch (RuntimeException e) {
+      LOGGER.error("Unable to compact tables", e);
+    }
+  }
+
+  /** Compacts one object at a time, so compaction doesn't compete much with loading tables. */
+  synchronized List<CompactionResult> compact(String bucketName) {
+    List<CompactionResult> results = new ArrayList<>();
+    for (ObjectMetadata object : storageService.listObjects(bucketName)) {
+      if (!object.name().endsWith(PARQUET)) {
+        continue;
+      }
+      try {
+        results.add(storageService.compact(bucketName, object.name(), codec, rowGroupSize));
+      } catch (StorageException e) {
+        LOGGER.warn("Unable to compact {}/{}", bucketName, object.name(), e);
+      }
+    }
+    List<CompactionResult> compacted =
+        results.stream().filter(CompactionResult::compacted).toList();
+    LOGGER.info(
+        "Compacted {} of {} tables in {} from {} to {} bytes in {} ms",
+        compacted.size(),
+        results.size(),
+        bucketName,
+        compacted.stream().mapToLong(CompactionResult::sizeBefore).sum(),
+        compacted.stream().mapToLong(CompactionResult::sizeAfter).sum(),
+        results.stream().mapToLong(CompactionResult::millis).sum());
+    return results;
+  }
+
+  @Override
+  public void destroy() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,351 @@
+package org.molgenis.armadillo.storage;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.BINARY;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.BOOLEAN;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.DOUBLE;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.INT32;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadFactory;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.OutputFile;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
+import org.apache.parquet.schema.Types;
+import org.molgenis.armadillo.exceptions.InvalidCsvException;
+import org.molgenis.armadillo.exceptions.StorageException;
+
+/**
+ * Converts CSV or TSV text, optionally gzipped, to a Parquet table while it streams, so large
+ * exports are neither held in memory nor stored twice. Only the first rows and one row group are
+ * kept in memory. The column types are inferred from the first rows unless they are given, and a
+ * value further on that doesn't fit the type of its column fails the conversion. Like in R, empty
+ * values and NA are missing.
+ */
+class CsvConverter {
+
+  /** The types of columns, named like the R types they are loaded as. */
+  enum ColumnType {
+    LOGICAL,
+    INTEGER,
+    NUMERIC,
+    CHARACTER;
+
+    /**
+     * @throws InvalidCsvException if the name isn't a column type
+     */
+    static ColumnType of(String name) {
+      try {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException e) {
+        throw new InvalidCsvException(
+            "unknown column type '" + name + "', use logical, integer, numeric or character");
+      }
+    }
+
+    private String getName() {
+      return name().toLowerCase(Locale.ROOT);
+    }
+  }
+
+  static final int SAMPLE_SIZE = 1000;
+  private static final int ROW_GROUP_SIZE = 64 * 1024 * 1024;
+  private static final int PIPE_SIZE = 1024 * 1024;
+  private static final Set<String> MISSING = Set.of("", "NA");
+  private static final Set<String> TRUE = Set.of("TRUE", "True", "true", "T");
+  private static final Set<String> FALSE = Set.of("FALSE", "False", "false", "F");
+  private static final Pattern INTEGER = Pattern.compile("[-+]?\\d{1,10}");
+  private static final Pattern NUMERIC =
+      Pattern.compile("[-+]?(\\d+\\.?\\d*|\\.\\d+)([eE][-+]?\\d+)?|[-+]?Inf|NaN");
+  private static final ThreadFactory THREADS =
+      new ThreadFactoryBuilder().setNameFormat("csv-converter-%d").setDaemon(true).build();
+
+  private record Row(long line, List<String> values) {}
+
+  private CsvConverter() {}
+
+  /**
+   * Converts CSV to Parquet in a background thread, and returns a stream of the Parquet file. The
+   * stream fails at its end if the conversion failed, so a reader never mistakes part of a table
+   * for a whole one.
+   *
+   * @param columnTypes the types of some or all columns, the others are inferred
+   */
+  static Conversion toParquet(
+      InputStream csv, char separator, Map<String, ColumnType> columnTypes) {
+    return new Conversion(csv, separator, columnTypes);
+  }
+
+  /** A stream of the Parquet file that is written by a conversion. */
+  static class Conversion extends InputStream {
+    private final PipedInputStream pipe = new PipedInputStream(PIPE_SIZE);
+    private volatile boolean complete = false;
+    private volatile Exception failure;
+
+    private Conversion(InputStream csv, char separator, Map<String, ColumnType> columnTypes) {
+      PipedOutputStream outputStream;
+      try {
+        outputStream = new PipedOutputStream(pipe);
+      } catch (IOException e) {
+        throw new StorageException(e);
+      }
+      THREADS
+          .newThread(
+              () -> {
+                try {
+                  convert(csv, separator, columnTypes, new StreamOutputFile(outputStream));
+                  complete = true;
+                } catch (Exception e) {
+                  failure = e;
+                } finally {
+                  // only closed now, so the reader can tell a failure from the end of the file
+                  closeQuietly(outputStream);
+                }
+              })
+          .start();
+    }
+
+    /** The exception that failed the conversion, or null. */
+    Exception getFailure() {
+      return failure;
+    }
+
+    @Override
+    public int read() throws IOException {
+      return checkComplete(pipe.read());
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      return checkComplete(pipe.read(b, off, len));
+    }
+
+    @Override
+    public int available() throws IOException {
+      return pipe.available();
+    }
+
+    /** Stops the conversion if it is still running. */
+    @Override
+    public void close() {
+      closeQuietly(pipe);
+    }
+
+    private int checkComplete(int result) throws IOException {
+      if (result == -1 && !complete) {
+        throw new IOException("Conversion from CSV failed", failure);
+      }
+      return result;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+      try {
+        closeable.close();
+      } catch (IOException e) {
+        // nothing left to do
+      }
+    }
+  }
+
+  /**
+   * Converts CSV to Parquet. The first line contains the column names.
+   *
+   * @param columnTypes the types of some or all columns, the others are inferred
+   * @throws InvalidCsvException if the CSV isn't valid, or a value doesn't fit its column type
+   */
+  static void convert(
+      InputStream csv, char separator, Map<String, ColumnType> columnTypes, OutputFile outputFile)
+      throws IOException {
+    CsvReader reader = new CsvReader(new InputStreamReader(decompress(csv), UTF_8), separator);
+    List<String> names = reader.readRecord();
+    if (names == null) {
+      throw new InvalidCsvException("the file is empty");
+    }
+    checkNames(names, columnTypes);
+
+    List<Row> sample = new ArrayList<>();
+    Row row;
+    while (sample.size() < SAMPLE_SIZE && (row = readRow(reader, names)) != null) {
+      sample.add(row);
+    }
+    List<ColumnType> types = new ArrayList<>();
+    for (int i = 0; i < names.size(); i++) {
+      ColumnType type = columnTypes.get(names.get(i));
+      types.add(type != null ? type : inferType(sample, i));
+    }
+
+    MessageType schema = getSchema(names, types);
+    SimpleGroupFactory groups = new SimpleGroupFactory(schema);
+    try (ParquetWriter<Group> writer =
+        ExampleParquetWriter.builder(outputFile)
+            .withType(schema)
+            .withCompressionCodec(CompressionCodecName.ZSTD)
+            .withRowGroupSize(ROW_GROUP_SIZE)
+            .withDictionaryEncoding(true)
+            .build()) {
+      for (Row sampled : sample) {
+        writer.write(toGroup(groups.newGroup(), sampled, names, types));
+      }
+      sample.clear();
+      while ((row = readRow(reader, names)) != null) {
+        writer.write(toGroup(groups.newGroup(), row, names, types));
+      }
+    }
+  }
+
+  private static InputStream decompress(InputStream inputStream) throws IOException {
+    InputStream buffered = new BufferedInputStream(inputStream, PIPE_SIZE);
+    buffered.mark(2);
+    boolean gzipped = buffered.read() == 0x1f && buffered.read() == 0x8b;
+    buffered.reset();
+    return gzipped ? new GZIPInputStream(buffered, PIPE_SIZE) : buffered;
+  }
+
+  private static void checkNames(List<String> names, Map<String, ColumnType> columnTypes) {
+    Set<String> unique = new HashSet<>();
+    for (String name : names) {
+      if (name.isBlank()) {
+        throw new InvalidCsvException(1, "a column has no name");
+      }
+      if (!unique.add(name)) {
+        throw new InvalidCsvException(1, "column '" + name + "' occurs more than once");
+      }
+    }
+    for (String name : columnTypes.keySet()) {
+      if (!unique.contains(name)) {
+        throw new InvalidCsvException("a type is given for unknown column '" + name + "'");
+      }
+    }
+  }
+
+  private static Row readRow(CsvReader reader, List<String> names) throws IOException {
+    List<String> values = reader.readRecord();
+    if (values == null) {
+      return null;
+    }
+    if (values.size() != names.size()) {
+      throw new InvalidCsvException(
+          reader.getRecordLine(),
+          "expected " + names.size() + " values instead of " + values.size());
+    }
+    return new Row(reader.getRecordLine(), values);
+  }
+
+  /** Infers the narrowest type that fits all values of a column, or character if none do. */
+  private static ColumnType inferType(List<Row> sample, int column) {
+    List<String> values =
+        sample.stream()
+            .map(row -> row.values().get(column))
+            .filter(value -> !MISSING.contains(value))
+            .toList();
+    if (values.isEmpty()) {
+      return ColumnType.CHARACTER;
+    } else if (values.stream().allMatch(value -> TRUE.contains(value) || FALSE.contains(value))) {
+      return ColumnType.LOGICAL;
+    } else if (values.stream().allMatch(CsvConverter::isInteger)) {
+      return ColumnType.INTEGER;
+    } else if (values.stream().allMatch(value -> NUMERIC.matcher(value).matches())) {
+      return ColumnType.NUMERIC;
+    } else {
+      return ColumnType.CHARACTER;
+    }
+  }
+
+  private static boolean isInteger(String value) {
+    if (!INTEGER.matcher(value).matches()) {
+      return false;
+    }
+    long number = Long.parseLong(value);
+    return number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE;
+  }
+
+  private static MessageType getSchema(List<String> names, List<ColumnType> types) {
+    List<Type> fields = new ArrayList<>();
+    for (int i = 0; i < names.size(); i++) {
+      String name = names.get(i);
+      fields.add(
+          switch (types.get(i)) {
+            case LOGICAL -> Types.optional(BOOLEAN).named(name);
+            case INTEGER -> Types.optional(INT32)
+                .as(LogicalTypeAnnotation.intType(32, true))
+                .named(name);
+            case NUMERIC -> Types.optional(DOUBLE).named(name);
+            case CHARACTER -> Types.optional(BINARY)
+                .as(LogicalTypeAnnotation.stringType())
+                .named(name);
+          });
+    }
+    return new MessageType("schema", fields);
+  }
+
+  private static Group toGroup(Group group, Row row, List<String> names, List<ColumnType> types) {
+    for (int i = 0; i < names.size(); i++) {
+      String value = row.values().get(i);
+      if (MISSING.contains(value)) {
+        continue;
+      }
+      ColumnType type = types.get(i);
+      switch (type) {
+        case LOGICAL -> {
+          if (!TRUE.contains(value) && !FALSE.contains(value)) {
+            throw invalidValue(row, names.get(i), type, value);
+          }
+          group.add(i, TRUE.contains(value));
+        }
+        case INTEGER -> {
+          if (!isInteger(value)) {
+            throw invalidValue(row, names.get(i), type, value);
+          }
+          group.add(i, Integer.parseInt(value));
+        }
+        case NUMERIC -> {
+          if (!NUMERIC.matcher(value).matches()) {
+            throw invalidValue(row, names.get(i), type, value);
+          }
+          group.add(i, toDouble(value));
+        }
+        case CHARACTER -> group.add(i, value);
+      }
+    }
+    return group;
+  }
+
+  private static double toDouble(String value) {
+    return switch (value) {
+      case "Inf", "+Inf" -> Double.POSITIVE_INFINITY;
+      case "-Inf" -> Double.NEGATIVE_INFINITY;
+      default -> Double.parseDouble(value);
+    };
+  }
+
+  private static InvalidCsvException invalidValue(
+      Row row, String column, ColumnType type, String value) {
+    return new InvalidCsvException(
+        row.line(),
+        String.format(
+            "value '%s' of column '%s' isn't %s, give the column type if it was inferred "
+                + "wrongly from the first %d rows",
+            value, column, type.getName(), SAMPLE_SIZE));
+  }
+}
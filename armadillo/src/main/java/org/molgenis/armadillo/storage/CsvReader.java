@@ -0,0 +1,113 @@
+package org.molgenis.armadillo.storage;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import org.molgenis.armadillo.exceptions.InvalidCsvException;
+
+/**
+ * Reads the records of CSV or TSV text one at a time, as described in RFC 4180: fields can be
+ * quoted with double quotes, and quoted fields can contain separators, line breaks and doubled
+ * quotes. Lines can end with LF or CRLF, and empty lines are skipped.
+ */
+class CsvReader {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+  private final Reader reader;
+  private final char separator;
+  private final char[] buffer = new char[BUFFER_SIZE];
+  private int position = 0;
+  private int limit = 0;
+  private long line = 1;
+  private long recordLine = 0;
+
+  CsvReader(Reader reader, char separator) {
+    this.reader = reader;
+    this.separator = separator;
+  }
+
+  /** The line on which the last record that was read starts. */
+  long getRecordLine() {
+    return recordLine;
+  }
+
+  /**
+   * Returns the fields of the next record, or null at the end of the input.
+   *
+   * @throws InvalidCsvException if a quoted field isn't closed
+   */
+  List<String> readRecord() throws IOException {
+    int c = read();
+    if (recordLine == 0 && c == BYTE_ORDER_MARK) {
+      c = read();
+    }
+    while (c == '\n' || c == '\r') {
+      skipLineBreak(c);
+      c = read();
+    }
+    if (c == -1) {
+      return null;
+    }
+    recordLine = line;
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    while (true) {
+      if (quoted) {
+        if (c == -1) {
+          throw new InvalidCsvException(recordLine, "a quoted field isn't closed");
+        } else if (c == '"') {
+          c = read();
+          if (c != '"') {
+            quoted = false;
+            continue;
+          }
+          field.append('"');
+        } else {
+          if (c == '\n') {
+            line++;
+          }
+          field.append((char) c);
+        }
+      } else if (c == '"' && field.isEmpty()) {
+        quoted = true;
+      } else if (c == separator) {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else if (c == '\n' || c == '\r' || c == -1) {
+        if (c != -1) {
+          skipLineBreak(c);
+        }
+        fields.add(field.toString());
+        return fields;
+      } else {
+        field.append((char) c);
+      }
+      c = read();
+    }
+  }
+
+  /** Skips the rest of a line break that starts with c. */
+  private void skipLineBreak(int c) throws IOException {
+    line++;
+    if (c == '\r' && read() != '\n' && limit > 0) {
+      // the character after a lone CR was just read from the buffer, so it can be put back
+      position--;
+    }
+  }
+
+  private int read() throws IOException {
+    if (position == limit) {
+      limit = reader.read(buffer);
+      position = 0;
+      if (limit <= 0) {
+        limit = 0;
+        return -1;
+      }
+    }
+    return buffer[position++];
+  }
+}
@@ -0,0 +1,61 @@
+package org.molgenis.armadillo.storage;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import java.util.TreeSet;
+import org.apache.parquet.io.api.Binary;
+
+/**
+ * Estimates the number of distinct values with a k minimum values sketch: the values are hashed
+ * and only the k smallest hashes are kept. The hashes are spread evenly, so the k-th smallest hash
+ * tells how densely the distinct values cover the range of hashes. The estimate is exact up to k
+ * distinct values, apart from hash collisions, and has a relative error of about 1/sqrt(k) above.
+ */
+class DistinctCounter {
+
+  private static final int K = 1024;
+  private static final HashFunction HASH = Hashing.murmur3_128();
+
+  private final TreeSet<Long> smallest = new TreeSet<>();
+
+  void add(int value) {
+    addHash(HASH.hashInt(value).asLong());
+  }
+
+  void add(long value) {
+    addHash(HASH.hashLong(value).asLong());
+  }
+
+  void add(float value) {
+    add(Float.floatToIntBits(value));
+  }
+
+  void add(double value) {
+    add(Double.doubleToLongBits(value));
+  }
+
+  void add(boolean value) {
+    add(value ? 1 : 0);
+  }
+
+  void add(Binary value) {
+    addHash(HASH.hashBytes(value.toByteBuffer()).asLong());
+  }
+
+  long estimate() {
+    if (smallest.size() < K) {
+      return smallest.size();
+    }
+    // the fraction of the range of hashes up to the k-th smallest hash
+    double fraction = (smallest.last() - (double) Long.MIN_VALUE) / 0x1p64;
+    return Math.round((K - 1) / fraction);
+  }
+
+  private void addHash(long hash) {
+    if (smallest.size() < K) {
+      smallest.add(hash);
+    } else if (hash < smallest.last() && smallest.add(hash)) {
+      smallest.pollLast();
+    }
+  }
+}
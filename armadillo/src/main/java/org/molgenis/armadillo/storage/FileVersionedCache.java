@@ -0,0 +1,112 @@
+package org.molgenis.armadillo.storage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded cache for values that are derived from the contents of a file, e.g. a Parquet footer.
+ * Entries are keyed by path and are only served as long as the size and modification time of the
+ * file are unchanged. When the total weight of the entries exceeds the maximum weight, the least
+ * recently used entries are evicted.
+ *
+ * @param <V> the type of the cached values
+ */
+class FileVersionedCache<V> {
+
+  @FunctionalInterface
+  interface Loader<V> {
+    V load(Path path) throws IOException;
+  }
+
+  private record Entry<V>(long size, long lastModified, V value, long weight) {
+    boolean isVersion(long otherSize, long otherLastModified) {
+      return size == otherSize && lastModified == otherLastModified;
+    }
+  }
+
+  private final long maxWeight;
+  private final ToLongFunction<V> weigher;
+  private final LinkedHashMap<Path, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long totalWeight = 0;
+
+  FileVersionedCache(long maxWeight, ToLongFunction<V> weigher) {
+    this.maxWeight = maxWeight;
+    this.weigher = weigher;
+  }
+
+  V get(Path path, Loader<V> loader) throws IOException {
+    Path key = toKey(path);
+    BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+    long size = attributes.size();
+    long lastModified = attributes.lastModifiedTime().toMillis();
+
+    synchronized (this) {
+      Entry<V> entry = entries.get(key);
+      if (entry != null && entry.isVersion(size, lastModified)) {
+        return entry.value();
+      }
+    }
+
+    // load outside the lock, so that a slow file doesn't block lookups of other files
+    V value = loader.load(key);
+    put(key, new Entry<>(size, lastModified, value, weigher.applyAsLong(value)));
+    return value;
+  }
+
+  synchronized void invalidate(Path path) {
+    remove(toKey(path));
+  }
+
+  /** Invalidates the entries of all files in a directory and its subdirectories. */
+  synchronized void invalidateAll(Path directory) {
+    Path prefix = toKey(directory);
+    Iterator<Map.Entry<Path, Entry<V>>> iterator = entries.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<Path, Entry<V>> entry = iterator.next();
+      if (entry.getKey().startsWith(prefix)) {
+        totalWeight -= entry.getValue().weight();
+        iterator.remove();
+      }
+    }
+  }
+
+  synchronized int size() {
+    return entries.size();
+  }
+
+  synchronized long weight() {
+    return totalWeight;
+  }
+
+  private synchronized void put(Path key, Entry<V> entry) {
+    remove(key);
+    if (entry.weight() > maxWeight) {
+      return;
+    }
+    entries.put(key, entry);
+    totalWeight += entry.weight();
+
+    Iterator<Entry<V>> leastRecentlyUsed = entries.values().iterator();
+    while (totalWeight > maxWeight && leastRecentlyUsed.hasNext()) {
+      totalWeight -= leastRecentlyUsed.next().weight();
+      leastRecentlyUsed.remove();
+    }
+  }
+
+  private void remove(Path key) {
+    Entry<V> removed = entries.remove(key);
+    if (removed != null) {
+      totalWeight -= removed.weight();
+    }
+  }
+
+  private static Path toKey(Path path) {
+    return path.toAbsolutePath().normalize();
+  }
+}
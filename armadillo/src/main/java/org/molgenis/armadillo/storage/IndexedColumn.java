@@ -0,0 +1,11 @@
+package org.molgenis.armadillo.storage;
+
+/**
+ * A column of a Parquet object, as found in the variable index.
+ *
+ * @param bucketName The bucket of the object
+ * @param objectName The name of the object (e.g. core/nonrep.parquet)
+ * @param name The name of the column
+ * @param type The type of the column, e.g. integer, numeric, character or logical
+ */
+public record IndexedColumn(String bucketName, String objectName, String name, String type) {}
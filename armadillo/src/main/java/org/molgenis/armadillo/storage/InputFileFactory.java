@@ -0,0 +1,26 @@
+package org.molgenis.armadillo.storage;
+
+import java.io.FileNotFoundException;
+import java.nio.file.Path;
+
+/**
+ * Opens Parquet files to read their rows. The storage service owns one, configured with its
+ * mapping threshold, and passes it to {@link ParquetUtils}.
+ */
+@FunctionalInterface
+public interface InputFileFactory {
+
+  /** Opens files without memory-mapping them. */
+  InputFileFactory UNMAPPED = LocalInputFile::new;
+
+  LocalInputFile open(Path path) throws FileNotFoundException;
+
+  /**
+   * Memory-maps files up to the given size, see {@link LocalInputFile}.
+   *
+   * @param threshold the size in bytes, 0 disables mapping
+   */
+  static InputFileFactory mapping(long threshold) {
+    return path -> new LocalInputFile(path, threshold);
+  }
+}
@@ -15,11 +15,15 @@
  */
 package org.molgenis.armadillo.storage;
 
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+
 import java.io.EOFException;
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import org.apache.parquet.io.InputFile;
 import org.apache.parquet.io.SeekableInputStream;
@@ -27,164 +31,248 @@ import org.apache.parquet.io.SeekableInputStream;
 /**
  * Modified version of
  * https://github.com/tideworks/arvo2parquet/blob/master/src/main/java/com/tideworks/data_load/io/InputFile.java
+ *
+ * <p>Every stream reads through its own {@link FileChannel} with positional reads, so streams
+ * don't share a file pointer and can be used concurrently. Byte buffers are filled by the channel
+ * directly, without copying through an intermediate array. Files up to the mapping threshold are
+ * memory-mapped once and shared by all streams.
  */
 public class LocalInputFile implements InputFile {
 
-  private static final int COPY_BUFFER_SIZE = 8192;
-  private final RandomAccessFile input;
+  private final Path path;
+  private final long length;
+  private final long mappingThreshold;
+  private ByteBuffer mapping;
 
   public LocalInputFile(Path path) throws FileNotFoundException {
-    this.input = new RandomAccessFile(path.toFile(), "r");
+    this(path, 0);
   }
 
-  private static int readDirectBuffer(ByteBuffer byteBufr, byte[] tmpBuf, ByteBufReader rdr)
-      throws IOException {
-    // copy all the bytes that return immediately, stopping at the first
-    // read that doesn't return a full buffer.
-    int nextReadLength = Math.min(byteBufr.remaining(), tmpBuf.length);
-    int totalBytesRead = 0;
-    int bytesRead;
-
-    while ((bytesRead = rdr.read(tmpBuf, 0, nextReadLength)) == tmpBuf.length) {
-      byteBufr.put(tmpBuf);
-      totalBytesRead += bytesRead;
-      nextReadLength = Math.min(byteBufr.remaining(), tmpBuf.length);
-    }
-
-    if (bytesRead < 0) {
-      // return -1 if nothing was read
-      return totalBytesRead == 0 ? -1 : totalBytesRead;
-    } else {
-      // copy the last partial buffer
-      byteBufr.put(tmpBuf, 0, bytesRead);
-      totalBytesRead += bytesRead;
-      return totalBytesRead;
+  /**
+   * @param path the file to read
+   * @param mappingThreshold files up to this size (in bytes) are memory-mapped, 0 disables
+   *     mapping
+   */
+  public LocalInputFile(Path path, long mappingThreshold) throws FileNotFoundException {
+    File file = path.toFile();
+    if (!file.isFile()) {
+      throw new FileNotFoundException(path.toString());
     }
+    this.path = path;
+    this.length = file.length();
+    this.mappingThreshold = Math.min(mappingThreshold, Integer.MAX_VALUE);
   }
 
-  private static void readFullyDirectBuffer(ByteBuffer byteBufr, byte[] tmpBuf, ByteBufReader rdr)
-      throws IOException {
-    int nextReadLength = Math.min(byteBufr.remaining(), tmpBuf.length);
-    int bytesRead = 0;
-
-    while (nextReadLength > 0 && (bytesRead = rdr.read(tmpBuf, 0, nextReadLength)) >= 0) {
-      byteBufr.put(tmpBuf, 0, bytesRead);
-      nextReadLength = Math.min(byteBufr.remaining(), tmpBuf.length);
-    }
-
-    if (bytesRead < 0 && byteBufr.remaining() > 0) {
-      throw new EOFException(
-          "Reached the end of stream with " + byteBufr.remaining() + " bytes left to read");
-    }
+  @Override
+  public long getLength() {
+    return length;
   }
 
   @Override
-  public long getLength() throws IOException {
-    return input.length();
+  public String toString() {
+    return path.toString();
   }
 
   @Override
-  public SeekableInputStream newStream() {
-    return new SeekableInputStream() {
-      private final byte[] tmpBuf = new byte[COPY_BUFFER_SIZE];
-      private long markPos = 0;
-
-      @Override
-      public int read() throws IOException {
-        return input.read();
-      }
+  public SeekableInputStream newStream() throws IOException {
+    if (length > 0 && length <= mappingThreshold) {
+      return new MappedInputStream(getMapping().duplicate());
+    }
+    return new ChannelInputStream(FileChannel.open(path, READ));
+  }
 
-      @SuppressWarnings("NullableProblems")
-      @Override
-      public int read(byte[] b) throws IOException {
-        return input.read(b);
+  private synchronized ByteBuffer getMapping() throws IOException {
+    if (mapping == null) {
+      try (FileChannel channel = FileChannel.open(path, READ)) {
+        mapping = channel.map(READ_ONLY, 0, length);
       }
+    }
+    return mapping;
+  }
 
-      @SuppressWarnings("NullableProblems")
-      @Override
-      public int read(byte[] b, int off, int len) throws IOException {
-        return input.read(b, off, len);
-      }
+  private abstract static class PositionedInputStream extends SeekableInputStream {
+    private long markPos = 0;
 
-      @Override
-      public long skip(long n) throws IOException {
-        final long savPos = input.getFilePointer();
-        final long amtLeft = input.length() - savPos;
-        n = Math.min(n, amtLeft);
-        final long newPos = savPos + n;
-        input.seek(newPos);
-        final long curPos = input.getFilePointer();
-        return curPos - savPos;
+    @Override
+    public synchronized void mark(int readlimit) {
+      try {
+        markPos = getPos();
+      } catch (IOException e) {
+        throw new IllegalStateException(e);
       }
+    }
 
-      @Override
-      public int available() throws IOException {
-        return 0;
-      }
+    @Override
+    public synchronized void reset() throws IOException {
+      seek(markPos);
+    }
 
-      @Override
-      public void close() throws IOException {
-        input.close();
-      }
+    @Override
+    public boolean markSupported() {
+      return true;
+    }
+
+    @Override
+    public void readFully(byte[] bytes) throws IOException {
+      readFully(ByteBuffer.wrap(bytes));
+    }
+
+    @Override
+    public void readFully(byte[] bytes, int start, int len) throws IOException {
+      readFully(ByteBuffer.wrap(bytes, start, len));
+    }
+
+    @SuppressWarnings("NullableProblems")
+    @Override
+    public int read(byte[] b) throws IOException {
+      return read(b, 0, b.length);
+    }
+
+    @SuppressWarnings("NullableProblems")
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      return read(ByteBuffer.wrap(b, off, len));
+    }
+
+    static EOFException eof(ByteBuffer byteBuffer) {
+      return new EOFException(
+          "Reached the end of stream with " + byteBuffer.remaining() + " bytes left to read");
+    }
+  }
+
+  private static class ChannelInputStream extends PositionedInputStream {
+    private final FileChannel channel;
+    private final ByteBuffer singleByte = ByteBuffer.allocate(1);
+    private long pos = 0;
+
+    ChannelInputStream(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    @Override
+    public int read() throws IOException {
+      singleByte.clear();
+      return read(singleByte) == 1 ? singleByte.get(0) & 0xff : -1;
+    }
 
-      @SuppressWarnings({"unchecked", "unused", "UnusedReturnValue"})
-      private <T extends Throwable, R> R uncheckedExceptionThrow(Throwable t) throws T {
-        throw (T) t;
+    @Override
+    public int read(ByteBuffer byteBuffer) throws IOException {
+      if (!byteBuffer.hasRemaining()) {
+        return 0;
+      }
+      int bytesRead = channel.read(byteBuffer, pos);
+      if (bytesRead > 0) {
+        pos += bytesRead;
       }
+      return bytesRead;
+    }
 
-      @Override
-      public synchronized void mark(int readlimit) {
-        try {
-          markPos = input.getFilePointer();
-        } catch (IOException e) {
-          uncheckedExceptionThrow(e);
+    @Override
+    public void readFully(ByteBuffer byteBuffer) throws IOException {
+      while (byteBuffer.hasRemaining()) {
+        if (read(byteBuffer) < 0) {
+          throw eof(byteBuffer);
         }
       }
+    }
 
-      @Override
-      public synchronized void reset() throws IOException {
-        input.seek(markPos);
+    @Override
+    public long skip(long n) throws IOException {
+      if (n <= 0) {
+        return 0;
       }
+      long newPos = Math.min(pos + n, channel.size());
+      long skipped = newPos - pos;
+      pos = newPos;
+      return skipped;
+    }
 
-      @Override
-      public boolean markSupported() {
-        return true;
-      }
+    @Override
+    public int available() throws IOException {
+      return (int) Math.min(Math.max(channel.size() - pos, 0), Integer.MAX_VALUE);
+    }
 
-      @Override
-      public long getPos() throws IOException {
-        return input.getFilePointer();
-      }
+    @Override
+    public long getPos() {
+      return pos;
+    }
 
-      @Override
-      public void seek(long l) throws IOException {
-        input.seek(l);
-      }
+    @Override
+    public void seek(long newPos) {
+      pos = newPos;
+    }
 
-      @Override
-      public void readFully(byte[] bytes) throws IOException {
-        input.readFully(bytes);
-      }
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+
+  private static class MappedInputStream extends PositionedInputStream {
+    private final ByteBuffer buffer;
+
+    MappedInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+    }
 
-      @Override
-      public void readFully(byte[] bytes, int i, int i1) throws IOException {
-        input.readFully(bytes, i, i1);
+    @Override
+    public int read(ByteBuffer byteBuffer) {
+      if (!byteBuffer.hasRemaining()) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
       }
+      int length = Math.min(byteBuffer.remaining(), buffer.remaining());
+      byteBuffer.put(buffer.slice(buffer.position(), length));
+      buffer.position(buffer.position() + length);
+      return length;
+    }
 
-      @Override
-      public int read(ByteBuffer byteBuffer) throws IOException {
-        return readDirectBuffer(byteBuffer, tmpBuf, input::read);
+    @Override
+    public void readFully(ByteBuffer byteBuffer) throws IOException {
+      if (byteBuffer.remaining() > buffer.remaining()) {
+        throw eof(byteBuffer);
       }
+      read(byteBuffer);
+    }
 
-      @Override
-      public void readFully(ByteBuffer byteBuffer) throws IOException {
-        readFullyDirectBuffer(byteBuffer, tmpBuf, input::read);
+    @Override
+    public long skip(long n) {
+      if (n <= 0) {
+        return 0;
       }
-    };
-  }
+      int skipped = (int) Math.min(n, buffer.remaining());
+      buffer.position(buffer.position() + skipped);
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+
+    @Override
+    public long getPos() {
+      return buffer.position();
+    }
 
-  private interface ByteBufReader {
+    @Override
+    public void seek(long newPos) throws IOException {
+      if (newPos > buffer.limit()) {
+        throw new EOFException("Cannot seek past the end of the file: " + newPos);
+      }
+      buffer.position((int) newPos);
+    }
 
-    int read(byte[] b, int off, int len) throws IOException;
+    @Override
+    public void close() {
+      // the mapping is shared with the other streams of the file and released by the GC
+    }
   }
 }
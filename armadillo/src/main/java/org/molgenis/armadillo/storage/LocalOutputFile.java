@@ -0,0 +1,101 @@
+package org.molgenis.armadillo.storage;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import org.apache.parquet.io.OutputFile;
+import org.apache.parquet.io.PositionOutputStream;
+
+/**
+ * Writes Parquet files to the local file system without going through Hadoop. Closing the output
+ * file closes the stream it created, which the Parquet writers only do when they complete
+ * successfully.
+ */
+class LocalOutputFile implements OutputFile, Closeable {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final Path path;
+  private PositionOutputStream stream;
+
+  LocalOutputFile(Path path) {
+    this.path = path;
+  }
+
+  @Override
+  public PositionOutputStream create(long blockSizeHint) throws IOException {
+    return open(CREATE_NEW, WRITE);
+  }
+
+  @Override
+  public PositionOutputStream createOrOverwrite(long blockSizeHint) throws IOException {
+    return open(CREATE, TRUNCATE_EXISTING, WRITE);
+  }
+
+  @Override
+  public boolean supportsBlockSize() {
+    return false;
+  }
+
+  @Override
+  public long defaultBlockSize() {
+    return 0;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (stream != null) {
+      stream.close();
+    }
+  }
+
+  private PositionOutputStream open(OpenOption... options) throws IOException {
+    stream = new LocalPositionOutputStream(Files.newOutputStream(path, options));
+    return stream;
+  }
+
+  static class LocalPositionOutputStream extends PositionOutputStream {
+    private final OutputStream outputStream;
+    private long pos = 0;
+
+    LocalPositionOutputStream(OutputStream outputStream) {
+      this.outputStream = new BufferedOutputStream(outputStream, BUFFER_SIZE);
+    }
+
+    @Override
+    public long getPos() {
+      return pos;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      outputStream.write(b);
+      pos++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      outputStream.write(b, off, len);
+      pos += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+      outputStream.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      outputStream.close();
+    }
+  }
+}
@@ -1,32 +1,103 @@
 package org.molgenis.armadillo.storage;
 
 import static java.lang.String.format;
-import static java.util.Collections.emptyList;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardOpenOption.DELETE_ON_CLOSE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
 import static org.molgenis.armadillo.storage.ArmadilloStorageService.PARQUET;
 
+import com.google.common.util.concurrent.Striped;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.annotation.PreDestroy;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.zip.CRC32C;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
 import org.molgenis.armadillo.exceptions.IllegalPathException;
 import org.molgenis.armadillo.exceptions.StorageException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 
 @Service
 public class LocalStorageService implements StorageService {
 
   static final String ROOT_DIR_PROPERTY = "storage.root-dir";
+  static final String FSYNC_PROPERTY = "storage.fsync";
+  static final String MMAP_THRESHOLD_PROPERTY = "storage.mmap-threshold";
+  static final String UPLOAD_IDLE_TIMEOUT_PROPERTY = "storage.upload-idle-timeout";
+  private static final int CONTENT_HASH_CACHE_SIZE = 10_000;
+  private static final int UNLOCKED_READ_ATTEMPTS = 2;
+
+  /** Hive writes a missing value of a partition key as this directory name. */
+  static final String HIVE_DEFAULT_PARTITION = "__HIVE_DEFAULT_PARTITION__";
 
   private static final Logger LOGGER = LoggerFactory.getLogger(LocalStorageService.class);
 
   final String rootDir;
+  private final ObjectCatalog catalog;
+  private final ChunkedUploads uploads;
+  private final boolean fsync;
+
+  /** Opens tables to read their rows, memory-mapped up to the configured size. */
+  private final InputFileFactory inputFiles;
+
+  /**
+   * Guards replacing and deleting objects, so reads that look at an object more than once (e.g.
+   * its size and its footer) see one version of it. Objects are striped over a fixed number of
+   * locks, so writing one object doesn't block reads of others.
+   */
+  private final Striped<ReadWriteLock> locks = Striped.readWriteLock(64);
+
+  /** Hashes of the contents of objects, which are only valid as long as an object is unchanged. */
+  private final FileVersionedCache<String> contentHashes =
+      new FileVersionedCache<>(CONTENT_HASH_CACHE_SIZE, hash -> 1);
+
+  /** The columns of the Parquet objects, to find variables without opening every footer. */
+  private final VariableIndex variableIndex = new VariableIndex();
+
+  /** Reads the parts of partitioned tables, and the footers that are indexed, in parallel. */
+  private final ExecutorService partReaders =
+      Executors.newFixedThreadPool(
+          Runtime.getRuntime().availableProcessors(),
+          new ThreadFactoryBuilder()
+              .setNameFormat("storage-part-reader-%d")
+              .setDaemon(true)
+              .build());
+
+  public LocalStorageService(String rootDir) {
+    this(rootDir, true, DataSize.ofBytes(0), Duration.ofHours(1));
+  }
 
-  public LocalStorageService(@Value("${" + ROOT_DIR_PROPERTY + "}") String rootDir) {
+  /**
+   * @param mmapThreshold tables up to this size are memory-mapped while their rows are read, 0
+   *     disables mapping
+   * @param uploadIdleTimeout chunked uploads that aren't used for this long are discarded
+   */
+  @Autowired
+  public LocalStorageService(
+      @Value("${" + ROOT_DIR_PROPERTY + "}") String rootDir,
+      @Value("${" + FSYNC_PROPERTY + ":true}") boolean fsync,
+      @Value("${" + MMAP_THRESHOLD_PROPERTY + ":0}") DataSize mmapThreshold,
+      @Value("${" + UPLOAD_IDLE_TIMEOUT_PROPERTY + ":1h}") Duration uploadIdleTimeout) {
     var dir = new File(rootDir);
     if (!dir.isDirectory()) {
       throw new StorageException(
@@ -36,6 +107,15 @@ public class LocalStorageService implements StorageService {
     }
 
     this.rootDir = rootDir;
+    this.fsync = fsync;
+    this.uploads = new ChunkedUploads(uploadIdleTimeout);
+    this.inputFiles = InputFileFactory.mapping(mmapThreshold.toBytes());
+    this.catalog = new ObjectCatalog(dir.toPath());
+    catalog
+        .listBuckets()
+        .forEach(bucket -> ChunkedUploads.deleteStagingFiles(dir.toPath().resolve(bucket)));
+    catalog.listBuckets().forEach(this::syncVariables);
+    catalog.setChangeListener(this::syncVariables);
 
     LOGGER.info("Using local storage at {}", dir.getAbsolutePath());
   }
@@ -44,9 +124,13 @@ public class LocalStorageService implements StorageService {
   public List<String> getUnavailableVariables(
       String bucketName, String objectName, String variables) throws IOException {
     Path objectPath = getPathIfObjectExists(bucketName, objectName + PARQUET);
-    List<String> availableColumns = ParquetUtils.getColumns(objectPath);
+    List<String> availableColumns = variableIndex.getColumnNames(bucketName, objectName + PARQUET);
+    if (availableColumns == null) {
+      availableColumns = ParquetUtils.getColumns(objectPath);
+    }
+    List<String> columns = availableColumns;
     return Arrays.stream(variables.split(","))
-        .filter(variable -> !availableColumns.contains(variable))
+        .filter(variable -> !columns.contains(variable))
         .toList();
   }
 
@@ -55,14 +139,19 @@ public class LocalStorageService implements StorageService {
     Objects.requireNonNull(objectName);
 
     try {
-      // check bucket
-      Path dir = Paths.get(rootDir, bucketName);
-      if (!Files.exists(dir)) {
-        return false;
-      }
-      // check object
       Path object = getObjectPathSafely(bucketName, objectName);
-      return Files.exists(object);
+      return catalog.objectExists(bucketName, object);
+    } catch (Exception e) {
+      throw new StorageException(e);
+    }
+  }
+
+  @Override
+  public boolean isPartitionedTable(String bucketName, String objectName) {
+    Objects.requireNonNull(objectName);
+
+    try {
+      return objectName.endsWith(PARQUET) && !getParts(bucketName, objectName).isEmpty();
     } catch (Exception e) {
       throw new StorageException(e);
     }
@@ -75,6 +164,7 @@ public class LocalStorageService implements StorageService {
       if (!Files.exists(path)) {
         Files.createDirectory(path);
       }
+      catalog.addBucket(bucketName);
     } catch (Exception e) {
       throw new StorageException(e);
     }
@@ -83,42 +173,202 @@ public class LocalStorageService implements StorageService {
   @Override
   public void deleteBucket(String bucketName) {
     Path path = Paths.get(rootDir, bucketName);
+    uploads.abortAll(bucketName);
     try (var folder = Files.walk(path)) {
       //noinspection ResultOfMethodCallIgnored
       folder.map(Path::toFile).sorted(Comparator.reverseOrder()).forEach(File::delete);
     } catch (Exception e) {
       throw new StorageException(e);
+    } finally {
+      catalog.rescan(bucketName);
+      ParquetUtils.evictFooters(path);
+      syncVariables(bucketName);
     }
   }
 
   @Override
   public List<String> listBuckets() {
-    var files = new File(rootDir).listFiles();
-    if (files == null) {
-      return emptyList();
-    }
-    return Arrays.stream(files).filter(File::isDirectory).map(File::getName).toList();
+    return catalog.listBuckets();
   }
 
   @Override
   public void save(
       InputStream inputStream, String bucketName, String objectName, MediaType mediaType) {
     Path path = getObjectPathSafely(bucketName, objectName);
+    Path tempFile = null;
     try {
       createBucketIfNotExists(bucketName);
 
-      // create parent dirs if needed
-      //noinspection ResultOfMethodCallIgnored
-      path.toFile().getParentFile().mkdirs();
-
-      try (FileOutputStream outputStream = new FileOutputStream(path.toFile(), false)) {
-        inputStream.transferTo(outputStream);
+      // write next to the object and move it into place, so readers never see half an object
+      tempFile = createStagingFile(bucketName);
+      try (FileChannel channel = FileChannel.open(tempFile, WRITE)) {
+        inputStream.transferTo(Channels.newOutputStream(channel));
+        if (fsync) {
+          channel.force(true);
+        }
       }
+      moveIntoPlace(bucketName, tempFile, path);
     } catch (Exception e) {
+      deleteQuietly(tempFile);
+      throw new StorageException(e);
+    }
+  }
+
+  @Override
+  public void copy(String bucketName, String sourceObjectName, String targetObjectName) {
+    Path source = getPathIfObjectExists(bucketName, sourceObjectName);
+    Path target = getObjectPathSafely(bucketName, targetObjectName);
+    Path tempFile = null;
+    try {
+      tempFile = createStagingFile(bucketName);
+      Lock lock = locks.get(source).readLock();
+      lock.lock();
+      try (FileChannel in = FileChannel.open(source, READ);
+          FileChannel out = FileChannel.open(tempFile, WRITE)) {
+        // lets the kernel copy the bytes, they don't pass through the application
+        long size = in.size();
+        long position = 0;
+        while (position < size) {
+          position += in.transferTo(position, size - position, out);
+        }
+        if (fsync) {
+          out.force(true);
+        }
+      } finally {
+        lock.unlock();
+      }
+      moveIntoPlace(bucketName, tempFile, target);
+    } catch (IOException e) {
+      deleteQuietly(tempFile);
+      throw new StorageException(e);
+    }
+  }
+
+  @Override
+  public void move(String bucketName, String sourceObjectName, String targetObjectName) {
+    Path source = getPathIfObjectExists(bucketName, sourceObjectName);
+    Path target = getObjectPathSafely(bucketName, targetObjectName);
+    try {
+      Files.createDirectories(target.getParent());
+      // bulkGet returns the stripes in a fixed order, so two moves can't deadlock
+      List<Lock> held = new ArrayList<>();
+      for (ReadWriteLock stripe : locks.bulkGet(List.of(source, target))) {
+        Lock lock = stripe.writeLock();
+        lock.lock();
+        held.add(lock);
+      }
+      try {
+        Files.move(source, target, ATOMIC_MOVE);
+        catalog.remove(bucketName, source);
+        catalog.update(bucketName, target);
+        ParquetUtils.evictFooter(source);
+        ParquetUtils.evictFooter(target);
+        variableIndex.remove(bucketName, sourceObjectName);
+        indexVariables(bucketName, target);
+      } finally {
+        held.forEach(Lock::unlock);
+      }
+    } catch (IOException e) {
+      throw new StorageException(e);
+    }
+  }
+
+  /** Creates a file in the staging directory of the bucket, which isn't part of the listings. */
+  private Path createStagingFile(String bucketName) throws IOException {
+    Path stagingDir =
+        Files.createDirectories(Paths.get(rootDir, bucketName, ChunkedUploads.STAGING_DIR));
+    return Files.createTempFile(stagingDir, "save-", ".tmp");
+  }
+
+  /** Atomically replaces the object at the given path with a staged file. */
+  private void moveIntoPlace(String bucketName, Path stagedFile, Path path) throws IOException {
+    // create parent dirs if needed
+    Files.createDirectories(path.getParent());
+
+    Lock lock = locks.get(path).writeLock();
+    lock.lock();
+    try {
+      Files.move(stagedFile, path, ATOMIC_MOVE);
+      catalog.update(bucketName, path);
+      ParquetUtils.evictFooter(path);
+      indexVariables(bucketName, path);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Indexes the columns of an object that was just written. */
+  private void indexVariables(String bucketName, Path path) {
+    Path bucketPath = Paths.get(rootDir, bucketName).toAbsolutePath().normalize();
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+      variableIndex.update(bucketName, ObjectMetadata.of(bucketPath, path, attributes), path);
+    } catch (IOException e) {
+      LOGGER.warn("Unable to index the variables of {}", path, e);
+    }
+  }
+
+  /** Brings the indexed columns of a bucket up to date with the catalog. */
+  private void syncVariables(String bucketName) {
+    Path bucketPath = Paths.get(rootDir, bucketName).toAbsolutePath().normalize();
+    variableIndex.sync(bucketPath, bucketName, catalog.listObjects(bucketName), partReaders);
+  }
+
+  @Override
+  public List<IndexedColumn> searchVariables(String query, boolean substring) {
+    Objects.requireNonNull(query);
+    return variableIndex.search(query, substring);
+  }
+
+  @Override
+  public UploadStatus startUpload(String bucketName, String objectName) {
+    Path path = getObjectPathSafely(bucketName, objectName);
+    try {
+      createBucketIfNotExists(bucketName);
+      return uploads.start(bucketName, objectName, Paths.get(rootDir, bucketName), path);
+    } catch (IOException e) {
       throw new StorageException(e);
     }
   }
 
+  @Override
+  public UploadStatus writeChunk(
+      String bucketName, String uploadId, long offset, InputStream chunk) {
+    try {
+      return uploads.write(bucketName, uploadId, offset, chunk);
+    } catch (IOException e) {
+      throw new StorageException(e);
+    }
+  }
+
+  @Override
+  public UploadStatus getUpload(String bucketName, String uploadId) {
+    return uploads.getStatus(bucketName, uploadId);
+  }
+
+  @Override
+  public void completeUpload(String bucketName, String uploadId, long size) {
+    UploadStatus upload = uploads.getStatus(bucketName, uploadId);
+    Path path = getObjectPathSafely(bucketName, upload.object());
+    Lock lock = locks.get(path).writeLock();
+    lock.lock();
+    try {
+      uploads.complete(bucketName, uploadId, size);
+      catalog.update(bucketName, path);
+      ParquetUtils.evictFooter(path);
+      indexVariables(bucketName, path);
+    } catch (IOException e) {
+      throw new StorageException(e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void abortUpload(String bucketName, String uploadId) {
+    uploads.abort(bucketName, uploadId);
+  }
+
   /** Detects path traversal attacks. */
   Path getObjectPathSafely(String bucketName, String objectName) {
     Path path = Paths.get(rootDir, bucketName, objectName).toAbsolutePath().normalize();
@@ -133,21 +383,7 @@ public class LocalStorageService implements StorageService {
 
   @Override
   public List<ObjectMetadata> listObjects(String bucketName) {
-    try {
-      Path bucketPath = Paths.get(rootDir, bucketName);
-      if (!Files.exists(bucketPath)) {
-        return emptyList();
-      } else {
-        try (var files = Files.walk(bucketPath)) {
-          return files
-              .filter(Files::isRegularFile)
-              .map(objectPath -> ObjectMetadata.of(bucketPath, objectPath))
-              .toList();
-        }
-      }
-    } catch (IOException e) {
-      throw new StorageException(e);
-    }
+    return catalog.listObjects(bucketName);
   }
 
   @Override
@@ -163,6 +399,121 @@ public class LocalStorageService implements StorageService {
     }
   }
 
+  @Override
+  public InputStream loadColumns(String bucketName, String objectName, List<String> columns) {
+    Objects.requireNonNull(bucketName);
+    Objects.requireNonNull(objectName);
+
+    Path objectPath = getPathIfObjectExists(bucketName, objectName);
+    if (Files.isDirectory(objectPath)) {
+      return loadPartitionedTable(bucketName, objectName, columns, null);
+    }
+    if (columns.isEmpty()) {
+      return load(bucketName, objectName);
+    }
+    Path projectionPath = null;
+    try {
+      projectionPath = Files.createTempFile("armadillo-projection-", PARQUET);
+      if (ParquetUtils.writeColumns(objectPath, columns, projectionPath, inputFiles)) {
+        LOGGER.debug("Projected {} columns of {}/{}", columns.size(), bucketName, objectName);
+        return Files.newInputStream(projectionPath, DELETE_ON_CLOSE);
+      }
+    } catch (IOException e) {
+      LOGGER.warn("Unable to project columns of {}/{}", bucketName, objectName, e);
+    }
+    deleteQuietly(projectionPath);
+    return load(bucketName, objectName);
+  }
+
+  @Override
+  public InputStream loadRows(
+      String bucketName, String objectName, List<String> columns, RowFilter filter) {
+    Objects.requireNonNull(bucketName);
+    Objects.requireNonNull(objectName);
+    Objects.requireNonNull(filter);
+
+    Path objectPath = getPathIfObjectExists(bucketName, objectName);
+    if (Files.isDirectory(objectPath)) {
+      return loadPartitionedTable(bucketName, objectName, columns, filter);
+    }
+    Path filteredPath = null;
+    try {
+      filteredPath = Files.createTempFile("armadillo-filtered-", PARQUET);
+      ParquetUtils.writeRows(objectPath, columns, filter, filteredPath, inputFiles);
+      LOGGER.debug("Filtered {}/{} on {}", bucketName, objectName, filter);
+      return Files.newInputStream(filteredPath, DELETE_ON_CLOSE);
+    } catch (IOException e) {
+      // never fall back to the complete object, the filter may be restricting access
+      deleteQuietly(filteredPath);
+      throw new StorageException(e);
+    } catch (RuntimeException e) {
+      deleteQuietly(filteredPath);
+      throw e;
+    }
+  }
+
+  /**
+   * Loads a partitioned table as one Parquet file. Parts that can't match the filter are skipped,
+   * the other parts are read in parallel.
+   *
+   * @param filter a filter on the rows, or null to load all rows
+   */
+  private InputStream loadPartitionedTable(
+      String bucketName, String objectName, List<String> columns, RowFilter filter) {
+    Path tablePath = null;
+    try {
+      List<ParquetUtils.Part> parts = getParts(bucketName, objectName);
+      tablePath = Files.createTempFile("armadillo-table-", PARQUET);
+      ParquetUtils.writeParts(parts, columns, filter, tablePath, partReaders, inputFiles);
+      LOGGER.debug("Loaded {} parts of {}/{}", parts.size(), bucketName, objectName);
+      return Files.newInputStream(tablePath, DELETE_ON_CLOSE);
+    } catch (IOException e) {
+      deleteQuietly(tablePath);
+      throw new StorageException(e);
+    } catch (RuntimeException e) {
+      deleteQuietly(tablePath);
+      throw e;
+    }
+  }
+
+  /**
+   * Returns the Parquet files in the directory of a partitioned table, with the partition values
+   * from their key=value directories.
+   */
+  private List<ParquetUtils.Part> getParts(String bucketName, String objectName) {
+    Path bucketPath = Paths.get(rootDir, bucketName).toAbsolutePath().normalize();
+    Path tablePath = getObjectPathSafely(bucketName, objectName);
+    return catalog.listObjects(bucketName, tablePath).stream()
+        .map(object -> bucketPath.resolve(object.name()))
+        .filter(path -> path.getFileName().toString().endsWith(PARQUET))
+        .map(path -> new ParquetUtils.Part(path, getPartitionValues(tablePath.relativize(path))))
+        .toList();
+  }
+
+  private static Map<String, String> getPartitionValues(Path partPath) {
+    Map<String, String> values = new LinkedHashMap<>();
+    for (int i = 0; i < partPath.getNameCount() - 1; i++) {
+      String directory = partPath.getName(i).toString();
+      int separator = directory.indexOf('=');
+      if (separator > 0) {
+        String value = directory.substring(separator + 1);
+        values.put(
+            directory.substring(0, separator), value.equals(HIVE_DEFAULT_PARTITION) ? null : value);
+      }
+    }
+    return values;
+  }
+
+  private static void deleteQuietly(Path path) {
+    if (path != null) {
+      try {
+        Files.deleteIfExists(path);
+      } catch (IOException e) {
+        LOGGER.warn("Unable to delete {}", path, e);
+      }
+    }
+  }
+
   String getFileSizeInUnit(long fileSize) {
     int sizeOfUnit = 1024;
     String[] units = new String[] {"bytes", "KB", "MB", "GB"};
@@ -183,24 +534,126 @@ public class LocalStorageService implements StorageService {
       Objects.requireNonNull(objectName);
 
       Path objectPath = getPathIfObjectExists(bucketName, objectName);
-      String objectPathString = objectPath.toString().toLowerCase();
-      long fileSize = Files.size(objectPath);
-      String fileSizeWithUnit = getFileSizeInUnit(fileSize);
-      if (objectPathString.endsWith(".parquet")) {
-        Map<String, String> tableDimensions = ParquetUtils.retrieveDimensions(objectPath);
-        return new FileInfo(
-            objectName,
-            fileSizeWithUnit,
-            tableDimensions.get("rows"),
-            tableDimensions.get("columns"));
-      } else {
-        return FileInfo.of(objectName, fileSizeWithUnit);
+      Lock lock = locks.get(objectPath).readLock();
+      lock.lock();
+      try {
+        return getInfo(objectName, objectPath);
+      } finally {
+        lock.unlock();
       }
     } catch (IOException e) {
       throw new StorageException(e);
     }
   }
 
+  @Override
+  public String getETag(String bucketName, String objectName) {
+    Objects.requireNonNull(bucketName);
+    Objects.requireNonNull(objectName);
+
+    Path objectPath = getPathIfObjectExists(bucketName, objectName);
+    try {
+      return readUnlocked(
+          objectPath,
+          attributes ->
+              toETag(attributes, contentHashes.get(objectPath, LocalStorageService::hashContents)));
+    } catch (IOException e) {
+      throw new StorageException(e);
+    }
+  }
+
+  @FunctionalInterface
+  private interface ObjectReader<T> {
+    T read(BasicFileAttributes attributes) throws IOException;
+  }
+
+  /**
+   * Reads an object without its lock, so reading a large object doesn't hold up writing it.
+   * Objects are replaced by moving a file into place, so what was read fits the version that was
+   * current before reading if that version didn't change meanwhile. If the object keeps changing,
+   * the writers have to wait.
+   */
+  private <T> T readUnlocked(Path objectPath, ObjectReader<T> reader) throws IOException {
+    for (int attempt = 0; attempt < UNLOCKED_READ_ATTEMPTS; attempt++) {
+      BasicFileAttributes attributes = readAttributes(objectPath);
+      try {
+        T result = reader.read(attributes);
+        if (isSameVersion(attributes, readAttributes(objectPath))) {
+          return result;
+        }
+      } catch (IOException | RuntimeException e) {
+        if (isSameVersion(attributes, readAttributes(objectPath))) {
+          throw e;
+        }
+        // the object was replaced while it was read
+      }
+    }
+    Lock lock = locks.get(objectPath).readLock();
+    lock.lock();
+    try {
+      return reader.read(readAttributes(objectPath));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static BasicFileAttributes readAttributes(Path path) throws IOException {
+    return Files.readAttributes(path, BasicFileAttributes.class);
+  }
+
+  private static boolean isSameVersion(BasicFileAttributes first, BasicFileAttributes second) {
+    return first.size() == second.size()
+        && first.lastModifiedTime().equals(second.lastModifiedTime());
+  }
+
+  private static String toETag(BasicFileAttributes attributes, String hash) {
+    return format("%x-%x-%s", attributes.size(), attributes.lastModifiedTime().toMillis(), hash);
+  }
+
+  /** CRC32C is computed in hardware on most CPUs, so hashing is bound by reading the file. */
+  private static String hashContents(Path path) throws IOException {
+    CRC32C crc = new CRC32C();
+    ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+    try (FileChannel channel = FileChannel.open(path, READ)) {
+      while (channel.read(buffer) != -1) {
+        buffer.flip();
+        crc.update(buffer);
+        buffer.clear();
+      }
+    }
+    return Long.toHexString(crc.getValue());
+  }
+
+  private FileInfo getInfo(String objectName, Path objectPath) throws IOException {
+    String objectPathString = objectPath.toString().toLowerCase();
+    long fileSize = Files.size(objectPath);
+    String fileSizeWithUnit = getFileSizeInUnit(fileSize);
+    if (objectPathString.endsWith(".parquet")) {
+      Map<String, String> tableDimensions = ParquetUtils.retrieveDimensions(objectPath);
+      return new FileInfo(
+          objectName,
+          fileSizeWithUnit,
+          tableDimensions.get("rows"),
+          tableDimensions.get("columns"));
+    } else {
+      return FileInfo.of(objectName, fileSizeWithUnit);
+    }
+  }
+
+  @Override
+  public List<ColumnStatistics> getColumnStatistics(String bucketName, String objectName) {
+    Objects.requireNonNull(bucketName);
+    Objects.requireNonNull(objectName);
+
+    Path objectPath = getPathIfObjectExists(bucketName, objectName);
+    try {
+      return readUnlocked(
+          objectPath, attributes -> ParquetUtils.getColumnStatistics(objectPath, inputFiles));
+    } catch (IOException e) {
+      throw new StorageException(e);
+    }
+  }
+
   @Override
   public List<Map<String, String>> preview(
       String bucketName, String objectName, int rowLimit, int columnLimit) {
@@ -209,7 +662,13 @@ public class LocalStorageService implements StorageService {
       Objects.requireNonNull(objectName);
 
       Path objectPath = getPathIfObjectExists(bucketName, objectName);
-      return ParquetUtils.previewRecords(objectPath, rowLimit, columnLimit);
+      Lock lock = locks.get(objectPath).readLock();
+      lock.lock();
+      try {
+        return ParquetUtils.previewRecords(objectPath, rowLimit, columnLimit, inputFiles);
+      } finally {
+        lock.unlock();
+      }
     } catch (Exception e) {
       throw new StorageException(e);
     }
@@ -228,6 +687,69 @@ public class LocalStorageService implements StorageService {
     return objectPath;
   }
 
+  @Override
+  public CompactionResult compact(
+      String bucketName, String objectName, CompressionCodecName codec, int rowGroupSize) {
+    Objects.requireNonNull(bucketName);
+    Objects.requireNonNull(objectName);
+
+    long start = System.nanoTime();
+    Path path = getPathIfObjectExists(bucketName, objectName);
+    Path tempFile = null;
+    try {
+      BasicFileAttributes before = Files.readAttributes(path, BasicFileAttributes.class);
+      if (!ParquetUtils.needsCompaction(path, codec, rowGroupSize)) {
+        return CompactionResult.skipped(objectName, before.size(), millisSince(start));
+      }
+      tempFile = createStagingFile(bucketName);
+      ParquetUtils.rewrite(path, tempFile, codec, rowGroupSize, inputFiles);
+      if (fsync) {
+        try (FileChannel channel = FileChannel.open(tempFile, WRITE)) {
+          channel.force(true);
+        }
+      }
+
+      Lock lock = locks.get(path).writeLock();
+      lock.lock();
+      try {
+        BasicFileAttributes current = Files.readAttributes(path, BasicFileAttributes.class);
+        if (current.size() != before.size()
+            || !current.lastModifiedTime().equals(before.lastModifiedTime())) {
+          // replaced while it was compacted, the new version wins
+          deleteQuietly(tempFile);
+          return CompactionResult.skipped(objectName, current.size(), millisSince(start));
+        }
+        Files.move(tempFile, path, ATOMIC_MOVE);
+        catalog.update(bucketName, path);
+        ParquetUtils.evictFooter(path);
+        indexVariables(bucketName, path);
+      } finally {
+        lock.unlock();
+      }
+      long sizeAfter = Files.size(path);
+      LOGGER.debug(
+          "Compacted {}/{} from {} to {} bytes", bucketName, objectName, before.size(), sizeAfter);
+      return new CompactionResult(objectName, before.size(), sizeAfter, millisSince(start), true);
+    } catch (IOException e) {
+      deleteQuietly(tempFile);
+      throw new StorageException(e);
+    } catch (RuntimeException e) {
+      deleteQuietly(tempFile);
+      throw e;
+    }
+  }
+
+  private static long millisSince(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - nanos);
+  }
+
+  @PreDestroy
+  public void close() {
+    partReaders.shutdownNow();
+    uploads.close();
+    catalog.close();
+  }
+
   @Override
   public void delete(String bucketName, String objectName) {
     Objects.requireNonNull(bucketName);
@@ -235,7 +757,16 @@ public class LocalStorageService implements StorageService {
 
     try {
       Path objectPath = getPathIfObjectExists(bucketName, objectName);
-      Files.delete(objectPath);
+      Lock lock = locks.get(objectPath).writeLock();
+      lock.lock();
+      try {
+        Files.delete(objectPath);
+        catalog.remove(bucketName, objectPath);
+        ParquetUtils.evictFooter(objectPath);
+        variableIndex.remove(bucketName, objectName);
+      } finally {
+        lock.unlock();
+      }
     } catch (Exception e) {
       throw new StorageException(e);
     }
@@ -0,0 +1,336 @@
+package org.molgenis.armadillo.storage;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static java.util.Collections.emptyList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory index of the buckets in the storage root and the objects in them, so that listings
+ * and existence checks don't have to walk the file system. The catalog is built once, updated by
+ * the storage service when it writes or deletes, and rescans a bucket when a {@link WatchService}
+ * reports that it was changed by someone else. Events for paths that the catalog is up to date
+ * with, e.g. because the storage service wrote them itself, don't cause a rescan.
+ */
+class ObjectCatalog implements Closeable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ObjectCatalog.class);
+  private static final long MAX_BURST_NANOS = SECONDS.toNanos(1);
+
+  private final Path rootPath;
+  private final Map<String, NavigableMap<String, ObjectMetadata>> buckets =
+      new ConcurrentHashMap<>();
+  private final WatchService watchService;
+  private final Set<Path> watchedDirs = ConcurrentHashMap.newKeySet();
+  private volatile Consumer<String> changeListener = bucketName -> {};
+
+  ObjectCatalog(Path rootPath) {
+    this.rootPath = rootPath.toAbsolutePath().normalize();
+    this.watchService = createWatchService();
+    rescan();
+    if (watchService != null) {
+      Thread watcher = new Thread(this::watch, "storage-catalog-watcher");
+      watcher.setDaemon(true);
+      watcher.start();
+    }
+  }
+
+  List<String> listBuckets() {
+    return buckets.keySet().stream().sorted().toList();
+  }
+
+  /**
+   * Sets the listener that is called with the name of a bucket after it was rescanned because it
+   * was changed by someone else.
+   */
+  void setChangeListener(Consumer<String> changeListener) {
+    this.changeListener = changeListener;
+  }
+
+  boolean bucketExists(String bucketName) {
+    return buckets.containsKey(bucketName);
+  }
+
+  List<ObjectMetadata> listObjects(String bucketName) {
+    NavigableMap<String, ObjectMetadata> objects = buckets.get(bucketName);
+    if (objects == null) {
+      return emptyList();
+    }
+    return List.copyOf(objects.values());
+  }
+
+  /** Lists the objects in a directory of a bucket, including the objects in its subdirectories. */
+  List<ObjectMetadata> listObjects(String bucketName, Path directory) {
+    NavigableMap<String, ObjectMetadata> objects = buckets.get(bucketName);
+    if (objects == null) {
+      return emptyList();
+    }
+    String prefix = getObjectName(bucketName, directory) + "/";
+    return List.copyOf(objects.subMap(prefix, prefix + Character.MAX_VALUE).values());
+  }
+
+  boolean objectExists(String bucketName, Path objectPath) {
+    NavigableMap<String, ObjectMetadata> objects = buckets.get(bucketName);
+    return objects != null && objects.containsKey(getObjectName(bucketName, objectPath));
+  }
+
+  synchronized void addBucket(String bucketName) {
+    buckets.computeIfAbsent(bucketName, name -> new ConcurrentSkipListMap<>());
+    register(rootPath.resolve(bucketName));
+  }
+
+  synchronized void removeBucket(String bucketName) {
+    buckets.remove(bucketName);
+  }
+
+  /** Adds or updates the object at the given path, which must be a file in the bucket. */
+  synchronized void update(String bucketName, Path objectPath) {
+    Path bucketPath = rootPath.resolve(bucketName);
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(objectPath, BasicFileAttributes.class);
+      buckets
+          .computeIfAbsent(bucketName, name -> new ConcurrentSkipListMap<>())
+          .put(
+              getObjectName(bucketName, objectPath),
+              ObjectMetadata.of(bucketPath, objectPath, attributes));
+      register(objectPath.getParent());
+    } catch (NoSuchFileException e) {
+      remove(bucketName, objectPath);
+    } catch (IOException e) {
+      LOGGER.warn("Unable to update storage catalog for {}", objectPath, e);
+      rescan(bucketName);
+    }
+  }
+
+  synchronized void remove(String bucketName, Path objectPath) {
+    NavigableMap<String, ObjectMetadata> objects = buckets.get(bucketName);
+    if (objects != null) {
+      objects.remove(getObjectName(bucketName, objectPath));
+    }
+  }
+
+  /** Rebuilds the whole catalog from the file system. */
+  synchronized void rescan() {
+    Set<String> found = new HashSet<>();
+    try (var files = Files.list(rootPath)) {
+      files.filter(Files::isDirectory).forEach(dir -> found.add(dir.getFileName().toString()));
+    } catch (IOException e) {
+      LOGGER.error("Unable to list buckets in {}", rootPath, e);
+      return;
+    }
+    register(rootPath);
+    buckets.keySet().retainAll(found);
+    found.forEach(this::rescan);
+  }
+
+  /** Rebuilds the objects of one bucket from the file system. */
+  synchronized void rescan(String bucketName) {
+    Path bucketPath = rootPath.resolve(bucketName);
+    if (!Files.isDirectory(bucketPath)) {
+      buckets.remove(bucketName);
+      return;
+    }
+    NavigableMap<String, ObjectMetadata> objects = new ConcurrentSkipListMap<>();
+    try {
+      Files.walkFileTree(
+          bucketPath,
+          new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+              if (dir.equals(bucketPath.resolve(ChunkedUploads.STAGING_DIR))) {
+                // uploads in progress aren't objects yet
+                return FileVisitResult.SKIP_SUBTREE;
+              }
+              register(dir);
+              return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes)
+                throws IOException {
+              if (attributes.isSymbolicLink()) {
+                attributes = Files.readAttributes(file, BasicFileAttributes.class);
+              }
+              if (attributes.isRegularFile()) {
+                objects.put(
+                    bucketPath.relativize(file).toString(),
+                    ObjectMetadata.of(bucketPath, file, attributes));
+              }
+              return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+              // the file was removed while walking the bucket
+              return FileVisitResult.CONTINUE;
+            }
+          });
+    } catch (IOException e) {
+      LOGGER.error("Unable to scan bucket {}", bucketPath, e);
+      return;
+    }
+    buckets.put(bucketName, objects);
+  }
+
+  @Override
+  public void close() {
+    if (watchService != null) {
+      try {
+        watchService.close();
+      } catch (IOException e) {
+        LOGGER.warn("Unable to close storage watch service", e);
+      }
+    }
+  }
+
+  private String getObjectName(String bucketName, Path objectPath) {
+    Path bucketPath = rootPath.resolve(bucketName);
+    return bucketPath.relativize(objectPath.toAbsolutePath().normalize()).toString();
+  }
+
+  private WatchService createWatchService() {
+    try {
+      return rootPath.getFileSystem().newWatchService();
+    } catch (IOException | UnsupportedOperationException e) {
+      LOGGER.warn(
+          "Unable to watch {}, changes made outside of Armadillo won't be picked up", rootPath, e);
+      return null;
+    }
+  }
+
+  private void register(Path dir) {
+    if (watchService == null) {
+      return;
+    }
+    try {
+      // events are matched to the catalog by their absolute path
+      Path absoluteDir = dir.toAbsolutePath().normalize();
+      absoluteDir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+      watchedDirs.add(absoluteDir);
+    } catch (ClosedWatchServiceException | NoSuchFileException e) {
+      // shutting down or the directory was removed in the meantime
+    } catch (IOException e) {
+      LOGGER.warn("Unable to watch {}", dir, e);
+    }
+  }
+
+  private void watch() {
+    try {
+      while (true) {
+        WatchKey key = watchService.take();
+        // collect what happens in the same burst, so e.g. a large upload causes a single rescan
+        long deadline = System.nanoTime() + MAX_BURST_NANOS;
+        List<WatchKey> keys = new ArrayList<>();
+        while (key != null) {
+          keys.add(key);
+          key = System.nanoTime() < deadline ? watchService.poll(100, MILLISECONDS) : null;
+        }
+        processEvents(keys);
+      }
+    } catch (ClosedWatchServiceException e) {
+      // closed
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void processEvents(List<WatchKey> keys) {
+    boolean rescanAll = false;
+    Set<String> changedBuckets = new HashSet<>();
+    for (WatchKey key : keys) {
+      Path dir = (Path) key.watchable();
+      for (var event : key.pollEvents()) {
+        if (event.kind() == OVERFLOW) {
+          rescanAll = true;
+        } else if (dir.equals(rootPath)) {
+          String bucketName = event.context().toString();
+          if (!isBucketUpToDate(bucketName)) {
+            changedBuckets.add(bucketName);
+          }
+        } else if (dir.startsWith(rootPath)) {
+          String bucketName = rootPath.relativize(dir).getName(0).toString();
+          if (!isUpToDate(bucketName, dir.resolve((Path) event.context()))) {
+            changedBuckets.add(bucketName);
+          }
+        }
+      }
+      if (!key.reset()) {
+        // the directory is gone
+        watchedDirs.remove(dir);
+      }
+    }
+    try {
+      if (rescanAll) {
+        changedBuckets.addAll(buckets.keySet());
+        rescan();
+        changedBuckets.addAll(buckets.keySet());
+      } else {
+        changedBuckets.forEach(this::rescan);
+      }
+      changedBuckets.forEach(changeListener);
+    } catch (RuntimeException e) {
+      LOGGER.error("Unable to update storage catalog", e);
+    }
+  }
+
+  private boolean isBucketUpToDate(String bucketName) {
+    return buckets.containsKey(bucketName) == Files.isDirectory(rootPath.resolve(bucketName));
+  }
+
+  /** Tells whether the catalog matches what is at the path in a bucket now. */
+  private boolean isUpToDate(String bucketName, Path path) {
+    Path bucketPath = rootPath.resolve(bucketName);
+    NavigableMap<String, ObjectMetadata> objects = buckets.get(bucketName);
+    if (objects == null) {
+      return false;
+    }
+    if (path.startsWith(bucketPath.resolve(ChunkedUploads.STAGING_DIR))) {
+      // uploads in progress and staged files aren't objects
+      return true;
+    }
+    String name = getObjectName(bucketName, path);
+    BasicFileAttributes attributes;
+    try {
+      attributes = Files.readAttributes(path, BasicFileAttributes.class);
+    } catch (NoSuchFileException e) {
+      return !objects.containsKey(name)
+          && objects.subMap(name + "/", name + "/" + Character.MAX_VALUE).isEmpty();
+    } catch (IOException e) {
+      return false;
+    }
+    if (attributes.isDirectory()) {
+      // a directory that is watched already had its contents scanned
+      return watchedDirs.contains(path);
+    }
+    ObjectMetadata object = objects.get(name);
+    return object != null
+        && object.size() == attributes.size()
+        && object.lastModified().toInstant().equals(attributes.lastModifiedTime().toInstant());
+  }
+}
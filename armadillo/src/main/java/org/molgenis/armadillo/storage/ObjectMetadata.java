@@ -1,6 +1,7 @@
 package org.molgenis.armadillo.storage;
 
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
@@ -23,4 +24,17 @@ public record ObjectMetadata(String name, ZonedDateTime lastModified, long size)
     return new ObjectMetadata(
         name, ZonedDateTime.ofInstant(instant, ZoneId.systemDefault()), file.length());
   }
+
+  /**
+   * @param projectPath The path to the project folder (e.g. data/lifecycle)
+   * @param objectPath The path to the object (e.g. data/lifecycle/core/nonrep.parquet)
+   * @param attributes The attributes of the object, as read while walking the project folder
+   */
+  public static ObjectMetadata of(
+      Path projectPath, Path objectPath, BasicFileAttributes attributes) {
+    var name = projectPath.relativize(objectPath).toString();
+    var instant = attributes.lastModifiedTime().toInstant();
+    return new ObjectMetadata(
+        name, ZonedDateTime.ofInstant(instant, ZoneId.systemDefault()), attributes.size());
+  }
 }
@@ -1,38 +1,94 @@
 package org.molgenis.armadillo.storage;
 
 import static java.lang.Math.min;
+import static java.lang.String.format;
+import static org.apache.parquet.hadoop.ParquetFileWriter.Mode.OVERWRITE;
+import static org.apache.parquet.hadoop.ParquetWriter.DEFAULT_BLOCK_SIZE;
+import static org.apache.parquet.hadoop.metadata.CompressionCodecName.SNAPPY;
+import static org.apache.parquet.schema.LogicalTypeAnnotation.stringType;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.BINARY;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.INT32;
+import static org.molgenis.armadillo.storage.ArmadilloStorageService.PARQUET;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.stream.IntStream;
+import org.apache.parquet.ParquetReadOptions;
+import org.apache.parquet.column.Encoding;
 import org.apache.parquet.column.page.PageReadStore;
 import org.apache.parquet.example.data.Group;
 import org.apache.parquet.example.data.simple.SimpleGroup;
 import org.apache.parquet.example.data.simple.convert.GroupRecordConverter;
+import org.apache.parquet.filter2.compat.FilterCompat;
 import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
 import org.apache.parquet.io.ColumnIOFactory;
 import org.apache.parquet.io.MessageColumnIO;
 import org.apache.parquet.io.RecordReader;
+import org.apache.parquet.io.SeekableInputStream;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.LogicalTypeAnnotation.DecimalLogicalTypeAnnotation;
+import org.apache.parquet.schema.LogicalTypeAnnotation.EnumLogicalTypeAnnotation;
+import org.apache.parquet.schema.LogicalTypeAnnotation.IntLogicalTypeAnnotation;
+import org.apache.parquet.schema.LogicalTypeAnnotation.StringLogicalTypeAnnotation;
 import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+import org.apache.parquet.schema.Types;
+import org.molgenis.armadillo.exceptions.InvalidRowFilterException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class ParquetUtils {
-  public static List<Map<String, String>> previewRecords(Path path, int rowLimit, int columnLimit)
-      throws IOException {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ParquetUtils.class);
+
+  static final long FOOTER_CACHE_MAX_WEIGHT = 64L * 1024 * 1024;
+
+  private static final FileVersionedCache<ParquetMetadata> FOOTER_CACHE =
+      new FileVersionedCache<>(FOOTER_CACHE_MAX_WEIGHT, ParquetUtils::estimateFooterWeight);
+
+  private static final FileVersionedCache<List<ColumnStatistics>> STATISTICS_CACHE =
+      new FileVersionedCache<>(8L * 1024 * 1024, statistics -> 256L * statistics.size());
+
+  public static List<Map<String, String>> previewRecords(
+      Path path, int rowLimit, int columnLimit, InputFileFactory inputFiles) throws IOException {
     List<Map<String, String>> result = new ArrayList<>();
-    LocalInputFile file = new LocalInputFile(path);
+    LocalInputFile file = inputFiles.open(path);
     try (ParquetFileReader reader = ParquetFileReader.open(file)) {
-      MessageType schema = reader.getFooter().getFileMetaData().getSchema();
-      MessageColumnIO columnIO = new ColumnIOFactory().getColumnIO(schema);
+      MessageType fileSchema = reader.getFooter().getFileMetaData().getSchema();
+      // only read the columns that end up in the preview
+      MessageType schema =
+          new MessageType(
+              fileSchema.getName(),
+              fileSchema.getFields().subList(0, min(fileSchema.getFieldCount(), columnLimit)));
+      reader.setRequestedSchema(schema);
+      MessageColumnIO columnIO = new ColumnIOFactory().getColumnIO(schema, fileSchema);
       PageReadStore store = reader.readNextRowGroup();
+      if (store == null) {
+        return result;
+      }
       RecordReader<Group> recordReader =
           columnIO.getRecordReader(store, new GroupRecordConverter(schema));
       int fieldSize = schema.getFields().size();
-      for (int i = 0; i < rowLimit; i++) {
+      for (int i = 0; i < min(rowLimit, store.getRowCount()); i++) {
         SimpleGroup group = (SimpleGroup) recordReader.read();
         Map<String, String> row = new LinkedHashMap<>();
-        for (int fieldIndex = 0; fieldIndex < min(fieldSize, columnLimit); fieldIndex++) {
+        for (int fieldIndex = 0; fieldIndex < fieldSize; fieldIndex++) {
           try {
             row.put(schema.getFieldName(fieldIndex), group.getValueToString(fieldIndex, 0));
           } catch (Exception e) {
@@ -46,22 +102,47 @@ public class ParquetUtils {
   }
 
   public static List<String> getColumns(Path path) throws IOException {
-    LocalInputFile file = new LocalInputFile(path);
-    try (ParquetFileReader reader = ParquetFileReader.open(file)) {
-      var schema = reader.getFooter().getFileMetaData().getSchema();
+    try {
+      var schema = getFooter(path).getFileMetaData().getSchema();
       return IntStream.range(0, schema.getFieldCount()).mapToObj(schema::getFieldName).toList();
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
   }
 
+  /**
+   * Names the type of a top level column like the R type it is loaded as, where there is one.
+   * Columns that aren't primitive or are repeated are nested.
+   */
+  static String getTypeName(Type field) {
+    if (!field.isPrimitive() || field.isRepetition(Type.Repetition.REPEATED)) {
+      return "nested";
+    }
+    PrimitiveType type = field.asPrimitiveType();
+    LogicalTypeAnnotation logicalType = type.getLogicalTypeAnnotation();
+    if (logicalType instanceof StringLogicalTypeAnnotation
+        || logicalType instanceof EnumLogicalTypeAnnotation) {
+      return "character";
+    } else if (logicalType instanceof DecimalLogicalTypeAnnotation) {
+      return "numeric";
+    } else if (logicalType != null && !(logicalType instanceof IntLogicalTypeAnnotation)) {
+      return logicalType.toString().toLowerCase(Locale.ROOT);
+    }
+    return switch (type.getPrimitiveTypeName()) {
+      case BOOLEAN -> "logical";
+      case INT32, INT64 -> "integer";
+      case FLOAT, DOUBLE -> "numeric";
+      default -> type.getPrimitiveTypeName().name().toLowerCase(Locale.ROOT);
+    };
+  }
+
   public static Map<String, String> retrieveDimensions(Path path) throws FileNotFoundException {
-    LocalInputFile file = new LocalInputFile(path);
-    try (ParquetFileReader reader = ParquetFileReader.open(file)) {
-      MessageType schema = reader.getFooter().getFileMetaData().getSchema();
+    try {
+      ParquetMetadata footer = getFooter(path);
+      MessageType schema = footer.getFileMetaData().getSchema();
       int numberOfColumns = schema.getFields().size();
-      long numberOfRows = reader.getRecordCount();
-      Map<String, String> dimensions = new HashMap();
+      long numberOfRows = footer.getBlocks().stream().mapToLong(BlockMetaData::getRowCount).sum();
+      Map<String, String> dimensions = new HashMap<>();
       dimensions.put("rows", Long.toString(numberOfRows));
       dimensions.put("columns", Integer.toString(numberOfColumns));
       return dimensions;
@@ -69,4 +150,561 @@ public class ParquetUtils {
       throw new RuntimeException(e);
     }
   }
+
+  /**
+   * Writes the given top level columns of a Parquet file to another Parquet file. The column chunks
+   * are copied as they are, without decoding and encoding the values.
+   *
+   * @return false, without writing anything, if the projection would contain all or none of the
+   *     columns or if the Arrow schema in the metadata can't be projected along
+   */
+  public static boolean writeColumns(
+      Path source, Collection<String> columns, Path target, InputFileFactory inputFiles)
+      throws IOException {
+    ParquetMetadata footer = getFooter(source);
+    MessageType schema = footer.getFileMetaData().getSchema();
+    List<Type> fields =
+        schema.getFields().stream().filter(field -> columns.contains(field.getName())).toList();
+    if (fields.isEmpty() || fields.size() == schema.getFieldCount()) {
+      return false;
+    }
+
+    Map<String, String> keyValueMetaData =
+        new HashMap<>(footer.getFileMetaData().getKeyValueMetaData());
+    String arrowSchema = keyValueMetaData.get(ArrowSchema.KEY);
+    if (arrowSchema != null) {
+      var projectedArrowSchema =
+          ArrowSchema.project(arrowSchema, fields.stream().map(Type::getName).toList());
+      if (projectedArrowSchema.isEmpty()) {
+        return false;
+      }
+      keyValueMetaData.put(ArrowSchema.KEY, projectedArrowSchema.get());
+    }
+
+    MessageType projection = new MessageType(schema.getName(), fields);
+    try (LocalOutputFile outputFile = new LocalOutputFile(target);
+        SeekableInputStream inputStream = inputFiles.open(source).newStream()) {
+      ParquetFileWriter writer =
+          new ParquetFileWriter(outputFile, projection, OVERWRITE, DEFAULT_BLOCK_SIZE, 0);
+      writer.start();
+      for (BlockMetaData block : footer.getBlocks()) {
+        writer.appendRowGroup(inputStream, block, true);
+      }
+      writer.end(keyValueMetaData);
+    }
+    return true;
+  }
+
+  /**
+   * Writes the rows of a Parquet file that match a filter to another Parquet file, with only the
+   * given top level columns (or all columns if none are given). Row groups whose column
+   * statistics show that no row can match are skipped without being read, the rows of the other
+   * row groups are filtered one by one.
+   *
+   * @throws InvalidRowFilterException if the filter doesn't fit the schema of the file
+   */
+  public static void writeRows(
+      Path source,
+      Collection<String> columns,
+      RowFilter filter,
+      Path target,
+      InputFileFactory inputFiles)
+      throws IOException {
+    ParquetMetadata footer = getFooter(source);
+    MessageType schema = footer.getFileMetaData().getSchema();
+    FilterCompat.Filter recordFilter = FilterCompat.get(filter.toPredicate(schema));
+
+    List<Type> fields =
+        schema.getFields().stream().filter(field -> columns.contains(field.getName())).toList();
+    if (fields.isEmpty()) {
+      fields = schema.getFields();
+    }
+    MessageType projection = new MessageType(schema.getName(), fields);
+    Map<String, String> keyValueMetaData =
+        projectMetaData(footer, fields.size() < schema.getFieldCount() ? fields : null);
+
+    try (ParquetWriter<Group> writer =
+        ExampleParquetWriter.builder(new LocalOutputFile(target))
+            .withType(projection)
+            .withExtraMetaData(keyValueMetaData)
+            .withCompressionCodec(SNAPPY)
+            .withWriteMode(OVERWRITE)
+            .build()) {
+      writeRecords(
+          inputFiles.open(source),
+          schema,
+          projection,
+          filter.getColumns(),
+          recordFilter,
+          Map.of(),
+          writer);
+    }
+  }
+
+  /**
+   * A Parquet file that is part of a partitioned table.
+   *
+   * @param partitionValues the values of the partition keys of the file, taken from its Hive style
+   *     key=value directories; a value is null if it is missing
+   */
+  record Part(Path path, Map<String, String> partitionValues) {}
+
+  /**
+   * Writes the rows of a partitioned table to one Parquet file, with only the given top level
+   * columns (or all columns if none are given). The partition keys become columns: integer
+   * columns if all their values are integers, string columns otherwise. A key that is also a
+   * column in the parts isn't added, the values in the parts are used. The parts may have
+   * different columns, a column that a part lacks is null in its rows.
+   *
+   * <p>Parts whose partition values don't match the filter are skipped without being opened, the
+   * rest of the filter is applied to the rows of the remaining parts like {@link #writeRows}. The
+   * parts are read in parallel, each into a file next to the target, and these files are then
+   * concatenated by copying their row groups.
+   *
+   * @param parts the parts of the table
+   * @param filter a filter on the rows, or null to write all rows
+   * @throws InvalidRowFilterException if the filter doesn't fit the schema of the table
+   * @throws IOException if the parts don't fit together, see {@link #mergeSchemas}
+   */
+  static void writeParts(
+      List<Part> parts,
+      Collection<String> columns,
+      RowFilter filter,
+      Path target,
+      Executor executor,
+      InputFileFactory inputFiles)
+      throws IOException {
+    if (parts.isEmpty()) {
+      throw new IOException("Partitioned table " + target + " has no parts");
+    }
+    MessageType firstSchema = getFooter(parts.get(0).path()).getFileMetaData().getSchema();
+    Map<String, PrimitiveType> partitionFields = getPartitionFields(parts, firstSchema);
+    List<Part> selectedParts =
+        filter == null
+            ? parts
+            : parts.stream()
+                .filter(part -> filter.mayMatch(withKeys(part, partitionFields.keySet())))
+                .toList();
+    ParquetMetadata footer =
+        getFooter((selectedParts.isEmpty() ? parts : selectedParts).get(0).path());
+    MessageType schema = mergeSchemas(selectedParts, footer.getFileMetaData().getSchema());
+    partitionFields.keySet().removeIf(schema::containsField);
+    RowFilter partFilter = filter == null ? null : filter.without(partitionFields.keySet());
+    FilterCompat.Filter recordFilter =
+        partFilter == null ? FilterCompat.NOOP : FilterCompat.get(partFilter.toPredicate(schema));
+    Set<String> filterColumns = partFilter == null ? Set.of() : partFilter.getColumns();
+
+    List<Type> fields = new ArrayList<>(schema.getFields());
+    fields.addAll(partitionFields.values());
+    List<Type> selectedFields =
+        fields.stream().filter(field -> columns.contains(field.getName())).toList();
+    if (!selectedFields.isEmpty()) {
+      fields = selectedFields;
+    }
+    MessageType projection = new MessageType(schema.getName(), fields);
+    boolean withPartitionKeys = fields.stream().anyMatch(partitionFields.values()::contains);
+    boolean projected =
+        fields.size() < schema.getFieldCount()
+            || !schema.equals(footer.getFileMetaData().getSchema());
+    // R falls back to the Parquet types for the partition keys
+    Map<String, String> keyValueMetaData =
+        withPartitionKeys ? new HashMap<>() : projectMetaData(footer, projected ? fields : null);
+    LOGGER.debug("Reading {} of {} parts of {}", selectedParts.size(), parts.size(), target);
+
+    List<Path> partTargets = new ArrayList<>();
+    try {
+      List<CompletableFuture<Void>> reads = new ArrayList<>();
+      for (Part part : selectedParts) {
+        Path partTarget = Files.createTempFile(target.getParent(), "part-", PARQUET);
+        partTargets.add(partTarget);
+        Map<String, Object> constants = getConstants(part, partitionFields);
+        reads.add(
+            CompletableFuture.runAsync(
+                () ->
+                    writePart(
+                        part,
+                        projection,
+                        filterColumns,
+                        recordFilter,
+                        constants,
+                        partTarget,
+                        inputFiles),
+                executor));
+      }
+      join(reads);
+
+      try (LocalOutputFile outputFile = new LocalOutputFile(target)) {
+        ParquetFileWriter writer =
+            new ParquetFileWriter(outputFile, projection, OVERWRITE, DEFAULT_BLOCK_SIZE, 0);
+        writer.start();
+        for (Path partTarget : partTargets) {
+          writer.appendFile(new LocalInputFile(partTarget));
+        }
+        writer.end(keyValueMetaData);
+      }
+    } finally {
+      for (Path partTarget : partTargets) {
+        Files.deleteIfExists(partTarget);
+      }
+    }
+  }
+
+  /**
+   * Merges the schemas of the parts of a table, the columns are in the order in which they first
+   * appear. A column that some parts lack must be optional.
+   *
+   * @param schema the schema to use if there are no parts
+   * @throws IOException if a column has a different type in different parts, or if a part lacks a
+   *     required column
+   */
+  private static MessageType mergeSchemas(List<Part> parts, MessageType schema)
+      throws IOException {
+    if (parts.isEmpty()) {
+      return schema;
+    }
+    Map<String, Type> fields = new LinkedHashMap<>();
+    Map<Part, MessageType> partSchemas = new LinkedHashMap<>();
+    for (Part part : parts) {
+      MessageType partSchema = getFooter(part.path()).getFileMetaData().getSchema();
+      partSchemas.put(part, partSchema);
+      for (Type field : partSchema.getFields()) {
+        Type other = fields.putIfAbsent(field.getName(), field);
+        if (other != null && !other.equals(field)) {
+          throw new IOException(
+              format(
+                  "Part %s doesn't match the other parts of the table: '%s' instead of '%s'",
+                  part.path(), field, other));
+        }
+      }
+    }
+    for (var partSchema : partSchemas.entrySet()) {
+      for (Type field : fields.values()) {
+        if (field.isRepetition(Type.Repetition.REQUIRED)
+            && !partSchema.getValue().containsField(field.getName())) {
+          throw new IOException(
+              format(
+                  "Part %s lacks column '%s', which is required in the other parts",
+                  partSchema.getKey().path(), field.getName()));
+        }
+      }
+    }
+    MessageType firstSchema = partSchemas.values().iterator().next();
+    return new MessageType(firstSchema.getName(), new ArrayList<>(fields.values()));
+  }
+
+  private static Map<String, PrimitiveType> getPartitionFields(
+      List<Part> parts, MessageType schema) {
+    Map<String, Boolean> integerKeys = new LinkedHashMap<>();
+    for (Part part : parts) {
+      part.partitionValues()
+          .forEach(
+              (key, value) ->
+                  integerKeys.merge(key, value == null || isInteger(value), Boolean::logicalAnd));
+    }
+    Map<String, PrimitiveType> fields = new LinkedHashMap<>();
+    integerKeys.entrySet().stream()
+        .filter(key -> !schema.containsField(key.getKey()))
+        .forEach(
+            key ->
+                fields.put(
+                    key.getKey(),
+                    key.getValue()
+                        ? Types.optional(INT32).named(key.getKey())
+                        : Types.optional(BINARY).as(stringType()).named(key.getKey())));
+    return fields;
+  }
+
+  private static boolean isInteger(String value) {
+    try {
+      Integer.parseInt(value);
+      return true;
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  private static Map<String, String> withKeys(Part part, Set<String> keys) {
+    Map<String, String> values = new HashMap<>();
+    keys.forEach(key -> values.put(key, part.partitionValues().get(key)));
+    return values;
+  }
+
+  private static Map<String, Object> getConstants(
+      Part part, Map<String, PrimitiveType> partitionFields) {
+    Map<String, Object> constants = new HashMap<>();
+    partitionFields.forEach(
+        (key, field) -> {
+          String value = part.partitionValues().get(key);
+          if (value == null) {
+            constants.put(key, null);
+          } else if (field.getPrimitiveTypeName() == INT32) {
+            constants.put(key, Integer.parseInt(value));
+          } else {
+            constants.put(key, Binary.fromString(value));
+          }
+        });
+    return constants;
+  }
+
+  /**
+   * Writes the rows of a part that match the filter. The columns that the part lacks are null, so
+   * if the filter needs one of them no row matches.
+   */
+  private static void writePart(
+      Part part,
+      MessageType projection,
+      Set<String> filterColumns,
+      FilterCompat.Filter recordFilter,
+      Map<String, Object> constants,
+      Path target,
+      InputFileFactory inputFiles) {
+    try {
+      MessageType schema = getFooter(part.path()).getFileMetaData().getSchema();
+      Map<String, Object> partConstants = new HashMap<>(constants);
+      projection.getFields().stream()
+          .map(Type::getName)
+          .filter(name -> !constants.containsKey(name) && !schema.containsField(name))
+          .forEach(name -> partConstants.put(name, null));
+      try (ParquetWriter<Group> writer =
+          ExampleParquetWriter.builder(new LocalOutputFile(target))
+              .withType(projection)
+              .withCompressionCodec(SNAPPY)
+              .withWriteMode(OVERWRITE)
+              .build()) {
+        if (filterColumns.stream().allMatch(schema::containsField)) {
+          writeRecords(
+              inputFiles.open(part.path()),
+              schema,
+              projection,
+              filterColumns,
+              recordFilter,
+              partConstants,
+              writer);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static void join(List<CompletableFuture<Void>> futures) throws IOException {
+    try {
+      CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+    } catch (CompletionException e) {
+      futures.forEach(future -> future.cancel(false));
+      if (e.getCause() instanceof UncheckedIOException ioException) {
+        throw ioException.getCause();
+      }
+      if (e.getCause() instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Tells whether rewriting a Parquet file with the given codec and row group size would change its
+   * layout: when a column chunk uses another codec, a string column isn't dictionary encoded, or
+   * more than one row group is smaller than half the row group size.
+   */
+  static boolean needsCompaction(Path path, CompressionCodecName codec, int rowGroupSize)
+      throws IOException {
+    List<BlockMetaData> blocks = getFooter(path).getBlocks();
+    List<ColumnChunkMetaData> columnChunks =
+        blocks.stream().flatMap(block -> block.getColumns().stream()).toList();
+    boolean otherCodec = columnChunks.stream().anyMatch(chunk -> chunk.getCodec() != codec);
+    // a writer that falls back from a dictionary keeps the dictionary encoding in the list
+    boolean withoutDictionary =
+        columnChunks.stream()
+            .filter(chunk -> chunk.getPrimitiveType().getPrimitiveTypeName() == BINARY)
+            .anyMatch(chunk -> chunk.getEncodings().stream().noneMatch(Encoding::usesDictionary));
+    long smallBlocks =
+        blocks.stream().filter(block -> block.getTotalByteSize() < rowGroupSize / 2).count();
+    return otherCodec || withoutDictionary || smallBlocks > 1;
+  }
+
+  /**
+   * Rewrites a Parquet file with the given codec and row group size, and with dictionary encoding.
+   * The values are decoded and encoded again, the metadata (e.g. the Arrow schema) is kept.
+   */
+  static void rewrite(
+      Path source,
+      Path target,
+      CompressionCodecName codec,
+      int rowGroupSize,
+      InputFileFactory inputFiles)
+      throws IOException {
+    ParquetMetadata footer = getFooter(source);
+    MessageType schema = footer.getFileMetaData().getSchema();
+    try (ParquetWriter<Group> writer =
+        ExampleParquetWriter.builder(new LocalOutputFile(target))
+            .withType(schema)
+            .withExtraMetaData(footer.getFileMetaData().getKeyValueMetaData())
+            .withCompressionCodec(codec)
+            .withRowGroupSize(rowGroupSize)
+            .withDictionaryEncoding(true)
+            .withWriteMode(OVERWRITE)
+            .build()) {
+      writeRecords(
+          inputFiles.open(source), schema, schema, Set.of(), FilterCompat.NOOP, Map.of(), writer);
+    }
+  }
+
+  /**
+   * Copies the key-value metadata of a file, with the Arrow schema projected to the given fields.
+   * The Arrow schema is removed if it can't be projected, so R falls back to the Parquet types.
+   *
+   * @param fields the fields to project to, or null to keep the Arrow schema as it is
+   */
+  private static Map<String, String> projectMetaData(ParquetMetadata footer, List<Type> fields) {
+    Map<String, String> keyValueMetaData =
+        new HashMap<>(footer.getFileMetaData().getKeyValueMetaData());
+    String arrowSchema = keyValueMetaData.get(ArrowSchema.KEY);
+    if (arrowSchema != null && fields != null) {
+      var projectedArrowSchema =
+          ArrowSchema.project(arrowSchema, fields.stream().map(Type::getName).toList());
+      if (projectedArrowSchema.isPresent()) {
+        keyValueMetaData.put(ArrowSchema.KEY, projectedArrowSchema.get());
+      } else {
+        keyValueMetaData.remove(ArrowSchema.KEY);
+      }
+    }
+    return keyValueMetaData;
+  }
+
+  /**
+   * Writes the records of a Parquet file that match a filter, with the fields of the projection.
+   * Fields of the projection that are in the constants get the constant value in every record.
+   *
+   * @param filterColumns the columns that the filter needs, they are read even if they aren't
+   *     written
+   */
+  private static void writeRecords(
+      LocalInputFile source,
+      MessageType schema,
+      MessageType projection,
+      Set<String> filterColumns,
+      FilterCompat.Filter recordFilter,
+      Map<String, Object> constants,
+      ParquetWriter<Group> writer)
+      throws IOException {
+    Set<String> readColumns = new HashSet<>(filterColumns);
+    projection.getFields().forEach(field -> readColumns.add(field.getName()));
+    MessageType readSchema =
+        new MessageType(
+            schema.getName(),
+            schema.getFields().stream()
+                .filter(field -> readColumns.contains(field.getName()))
+                .toList());
+
+    // the record filter is also used to drop row groups based on their statistics
+    ParquetReadOptions options =
+        ParquetReadOptions.builder().withRecordFilter(recordFilter).useStatsFilter(true).build();
+    try (ParquetFileReader reader = ParquetFileReader.open(source, options)) {
+      LOGGER.debug(
+          "Filtering {} of {} row groups of {}",
+          reader.getRowGroups().size(),
+          reader.getFooter().getBlocks().size(),
+          source);
+      reader.setRequestedSchema(readSchema);
+      MessageColumnIO columnIO = new ColumnIOFactory().getColumnIO(readSchema, schema);
+      PageReadStore rowGroup;
+      while ((rowGroup = reader.readNextRowGroup()) != null) {
+        RecordReader<Group> recordReader =
+            columnIO.getRecordReader(rowGroup, new GroupRecordConverter(readSchema), recordFilter);
+        for (long i = 0; i < rowGroup.getRowCount(); i++) {
+          Group record = recordReader.read();
+          // the filtering record reader returns null for rows that don't match
+          if (record != null && !recordReader.shouldSkipCurrentRecord()) {
+            writer.write(
+                readSchema.equals(projection) ? record : project(record, projection, constants));
+          }
+        }
+      }
+    }
+  }
+
+  private static Group project(
+      Group record, MessageType projection, Map<String, Object> constants) {
+    Group projected = new SimpleGroup(projection);
+    for (int field = 0; field < projection.getFieldCount(); field++) {
+      Type type = projection.getType(field);
+      if (constants.containsKey(type.getName())) {
+        Object constant = constants.get(type.getName());
+        if (constant instanceof Integer integer) {
+          projected.add(field, integer);
+        } else if (constant instanceof Binary binary) {
+          projected.add(field, binary);
+        }
+        continue;
+      }
+      int index = record.getType().getFieldIndex(type.getName());
+      for (int i = 0; i < record.getFieldRepetitionCount(index); i++) {
+        if (!type.isPrimitive()) {
+          projected.add(field, record.getGroup(index, i));
+          continue;
+        }
+        switch (type.asPrimitiveType().getPrimitiveTypeName()) {
+          case INT32 -> projected.add(field, record.getInteger(index, i));
+          case INT64 -> projected.add(field, record.getLong(index, i));
+          case FLOAT -> projected.add(field, record.getFloat(index, i));
+          case DOUBLE -> projected.add(field, record.getDouble(index, i));
+          case BOOLEAN -> projected.add(field, record.getBoolean(index, i));
+          case INT96 -> projected.add(field, record.getInt96(index, i));
+          case BINARY, FIXED_LEN_BYTE_ARRAY -> projected.add(field, record.getBinary(index, i));
+        }
+      }
+    }
+    return projected;
+  }
+
+  /**
+   * Returns the footer of a Parquet file. Footers are cached until the file changes, so repeated
+   * schema and dimension lookups don't have to read and decode the footer again.
+   */
+  public static ParquetMetadata getFooter(Path path) throws IOException {
+    return FOOTER_CACHE.get(path, ParquetUtils::readFooter);
+  }
+
+  /**
+   * Returns the statistics of the top level columns of a Parquet file, see {@link
+   * ColumnStatisticsReader}. They are cached until the file changes.
+   */
+  public static List<ColumnStatistics> getColumnStatistics(Path path, InputFileFactory inputFiles)
+      throws IOException {
+    return STATISTICS_CACHE.get(
+        path, file -> ColumnStatisticsReader.read(file, getFooter(file), inputFiles));
+  }
+
+  /**
+   * Removes the cached footer and column statistics of a file, e.g. because it is overwritten or
+   * deleted.
+   */
+  public static void evictFooter(Path path) {
+    FOOTER_CACHE.invalidate(path);
+    STATISTICS_CACHE.invalidate(path);
+  }
+
+  /** Removes the cached footers of all files in a directory, e.g. because it is deleted. */
+  public static void evictFooters(Path directory) {
+    FOOTER_CACHE.invalidateAll(directory);
+    STATISTICS_CACHE.invalidateAll(directory);
+  }
+
+  private static ParquetMetadata readFooter(Path path) throws IOException {
+    try (ParquetFileReader reader = ParquetFileReader.open(new LocalInputFile(path))) {
+      return reader.getFooter();
+    }
+  }
+
+  /**
+   * Rough estimate of the heap used by a decoded footer, dominated by the column chunk metadata
+   * (including statistics) of every row group.
+   */
+  static long estimateFooterWeight(ParquetMetadata footer) {
+    long columnChunks =
+        footer.getBlocks().stream().mapToLong(block -> block.getColumns().size()).sum();
+    int fields = footer.getFileMetaData().getSchema().getColumns().size();
+    return 1024 + 512 * columnChunks + 256L * fields;
+  }
 }
@@ -0,0 +1,358 @@
+package org.molgenis.armadillo.storage;
+
+import static org.apache.parquet.filter2.predicate.FilterApi.and;
+import static org.apache.parquet.filter2.predicate.FilterApi.binaryColumn;
+import static org.apache.parquet.filter2.predicate.FilterApi.booleanColumn;
+import static org.apache.parquet.filter2.predicate.FilterApi.doubleColumn;
+import static org.apache.parquet.filter2.predicate.FilterApi.eq;
+import static org.apache.parquet.filter2.predicate.FilterApi.floatColumn;
+import static org.apache.parquet.filter2.predicate.FilterApi.gt;
+import static org.apache.parquet.filter2.predicate.FilterApi.gtEq;
+import static org.apache.parquet.filter2.predicate.FilterApi.intColumn;
+import static org.apache.parquet.filter2.predicate.FilterApi.longColumn;
+import static org.apache.parquet.filter2.predicate.FilterApi.lt;
+import static org.apache.parquet.filter2.predicate.FilterApi.ltEq;
+import static org.apache.parquet.filter2.predicate.FilterApi.notEq;
+import static org.apache.parquet.filter2.predicate.FilterApi.or;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.parquet.filter2.predicate.FilterPredicate;
+import org.apache.parquet.filter2.predicate.Operators.Column;
+import org.apache.parquet.filter2.predicate.Operators.SupportsLtGt;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+import org.molgenis.armadillo.exceptions.InvalidRowFilterException;
+
+/**
+ * A filter on the rows of a table, written like an R condition, e.g. {@code wave == 2 & sex ==
+ * "female"}. Only comparisons of a column with a literal value, combined with {@code &}, are
+ * allowed, so a filter can be evaluated while reading the Parquet file and can't run any code.
+ * Like in R, rows where a compared value is missing don't match.
+ */
+public final class RowFilter {
+
+  enum Operator {
+    EQ("=="),
+    NE("!="),
+    LT("<"),
+    LE("<="),
+    GT(">"),
+    GE(">=");
+
+    private final String symbol;
+
+    Operator(String symbol) {
+      this.symbol = symbol;
+    }
+
+    static Operator of(String symbol) {
+      for (Operator operator : values()) {
+        if (operator.symbol.equals(symbol)) {
+          return operator;
+        }
+      }
+      throw new IllegalArgumentException(symbol);
+    }
+
+    boolean matches(int comparison) {
+      return switch (this) {
+        case EQ -> comparison == 0;
+        case NE -> comparison != 0;
+        case LT -> comparison < 0;
+        case LE -> comparison <= 0;
+        case GT -> comparison > 0;
+        case GE -> comparison >= 0;
+      };
+    }
+  }
+
+  /**
+   * @param value a String, a BigDecimal or a Boolean
+   */
+  record Condition(String column, Operator operator, Object value) {
+
+    @Override
+    public String toString() {
+      String literal;
+      if (value instanceof String string) {
+        literal = string.contains("\"") ? "'" + string + "'" : "\"" + string + "\"";
+      } else if (value instanceof Boolean bool) {
+        literal = bool ? "TRUE" : "FALSE";
+      } else {
+        literal = value.toString();
+      }
+      return column + " " + operator.symbol + " " + literal;
+    }
+  }
+
+  private static final Pattern TOKEN =
+      Pattern.compile(
+          "\\s*(?:(?<name>[A-Za-z.][\\w.]*)"
+              + "|(?<number>-?\\d+(?:\\.\\d+)?(?:[eE][+-]?\\d+)?)"
+              + "|(?<string>\"[^\"\\\\]*\"|'[^'\\\\]*')"
+              + "|(?<operator>==|!=|<=|>=|<|>)"
+              + "|(?<and>&&?))");
+
+  private final String expression;
+  private final List<Condition> conditions;
+
+  private RowFilter(String expression, List<Condition> conditions) {
+    this.expression = expression;
+    this.conditions = List.copyOf(conditions);
+  }
+
+  /**
+   * @throws InvalidRowFilterException if the expression isn't a valid filter
+   */
+  public static RowFilter parse(String expression) {
+    List<String[]> tokens = tokenize(expression);
+    List<Condition> conditions = new ArrayList<>();
+    int i = 0;
+    while (true) {
+      if (i + 3 > tokens.size()
+          || !tokens.get(i)[0].equals("name")
+          || !tokens.get(i + 1)[0].equals("operator")) {
+        throw new InvalidRowFilterException(expression, "expected <column> <operator> <value>");
+      }
+      String column = tokens.get(i)[1];
+      Operator operator = Operator.of(tokens.get(i + 1)[1]);
+      Object value = toValue(expression, tokens.get(i + 2));
+      conditions.add(new Condition(column, operator, value));
+      i += 3;
+      if (i == tokens.size()) {
+        return new RowFilter(expression, conditions);
+      }
+      if (!tokens.get(i)[0].equals("and")) {
+        throw new InvalidRowFilterException(expression, "conditions must be combined with &");
+      }
+      i++;
+    }
+  }
+
+  /** Returns a filter that matches the rows that match both filters. */
+  public RowFilter and(RowFilter other) {
+    List<Condition> combined = new ArrayList<>(conditions);
+    combined.addAll(other.conditions);
+    return new RowFilter("(" + expression + ") & (" + other.expression + ")", combined);
+  }
+
+  /** The columns that are used in the filter. */
+  public Set<String> getColumns() {
+    Set<String> columns = new LinkedHashSet<>();
+    conditions.forEach(condition -> columns.add(condition.column()));
+    return columns;
+  }
+
+  /**
+   * Returns the filter without the conditions on the given columns, or null if no condition is
+   * left.
+   */
+  RowFilter without(Set<String> columns) {
+    List<Condition> remaining =
+        conditions.stream().filter(condition -> !columns.contains(condition.column())).toList();
+    if (remaining.isEmpty()) {
+      return null;
+    }
+    if (remaining.size() == conditions.size()) {
+      return this;
+    }
+    List<String> expressions = remaining.stream().map(Condition::toString).toList();
+    return new RowFilter(String.join(" & ", expressions), remaining);
+  }
+
+  /**
+   * Tells whether rows with the given values can match, e.g. the values of the partition keys of
+   * a part of a table. Conditions on other columns are ignored. Numbers are compared as numbers,
+   * strings as strings, and a missing (null) value never matches.
+   *
+   * @throws InvalidRowFilterException if a value can't be compared with the filter
+   */
+  boolean mayMatch(Map<String, String> values) {
+    for (Condition condition : conditions) {
+      if (!values.containsKey(condition.column())) {
+        continue;
+      }
+      String value = values.get(condition.column());
+      if (value == null || !condition.operator().matches(compare(condition, value))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int compare(Condition condition, String value) {
+    if (condition.value() instanceof BigDecimal number) {
+      try {
+        return new BigDecimal(value).compareTo(number);
+      } catch (NumberFormatException e) {
+        throw invalid(condition, "partition value '" + value + "' isn't a number");
+      }
+    } else if (condition.value() instanceof Boolean bool) {
+      if (condition.operator() != Operator.EQ && condition.operator() != Operator.NE) {
+        throw invalid(condition, "logical columns can only be tested with == or !=");
+      }
+      return Boolean.parseBoolean(value) == bool ? 0 : 1;
+    } else {
+      return value.compareTo((String) condition.value());
+    }
+  }
+
+  /**
+   * Translates the filter to a Parquet predicate for a file with the given schema.
+   *
+   * @throws InvalidRowFilterException if a column doesn't exist, or can't be compared with the
+   *     value
+   */
+  FilterPredicate toPredicate(MessageType schema) {
+    FilterPredicate predicate = null;
+    for (Condition condition : conditions) {
+      FilterPredicate next = toPredicate(condition, schema);
+      predicate = predicate == null ? next : and(predicate, next);
+    }
+    return predicate;
+  }
+
+  @Override
+  public String toString() {
+    return expression;
+  }
+
+  private FilterPredicate toPredicate(Condition condition, MessageType schema) {
+    if (!schema.containsField(condition.column())) {
+      throw invalid(condition, "unknown column");
+    }
+    Type type = schema.getType(condition.column());
+    if (!type.isPrimitive() || type.isRepetition(Type.Repetition.REPEATED)) {
+      throw invalid(condition, "column can't be filtered on");
+    }
+    String column = condition.column();
+    Object value = condition.value();
+    PrimitiveType.PrimitiveTypeName typeName = type.asPrimitiveType().getPrimitiveTypeName();
+    try {
+      return switch (typeName) {
+        case INT32 -> compareInteger(intColumn(column), condition, BigDecimal::intValueExact);
+        case INT64 -> compareInteger(longColumn(column), condition, BigDecimal::longValueExact);
+        case FLOAT -> compare(
+            floatColumn(column), condition.operator(), toNumber(condition).floatValue());
+        case DOUBLE -> compare(
+            doubleColumn(column), condition.operator(), toNumber(condition).doubleValue());
+        case BINARY -> {
+          if (!(value instanceof String string)) {
+            throw invalid(condition, "value must be a string");
+          }
+          yield compare(binaryColumn(column), condition.operator(), Binary.fromString(string));
+        }
+        case BOOLEAN -> {
+          if (!(value instanceof Boolean bool)) {
+            throw invalid(condition, "value must be TRUE or FALSE");
+          }
+          yield switch (condition.operator()) {
+            case EQ -> eq(booleanColumn(column), bool);
+            case NE -> and(notEq(booleanColumn(column), bool), notEq(booleanColumn(column), null));
+            default -> throw invalid(condition, "logical columns can only be tested with == or !=");
+          };
+        }
+        default -> throw invalid(condition, "column type " + typeName + " isn't supported");
+      };
+    } catch (ArithmeticException e) {
+      throw invalid(condition, "value is out of range");
+    }
+  }
+
+  /**
+   * Compares an integer column with a number. A number with a fraction is rounded so that the same
+   * rows match, e.g. {@code age > 17.5} becomes {@code age > 17} and {@code age < 17.5} becomes
+   * {@code age < 18}.
+   *
+   * @throws ArithmeticException if the number doesn't fit the type of the column
+   */
+  private <T extends Comparable<T>, C extends Column<T> & SupportsLtGt>
+      FilterPredicate compareInteger(
+          C column, Condition condition, Function<BigDecimal, T> toInteger) {
+    BigDecimal number = toNumber(condition);
+    Operator operator = condition.operator();
+    if (number.stripTrailingZeros().scale() <= 0) {
+      return compare(column, operator, toInteger.apply(number));
+    }
+    T floor = toInteger.apply(number.setScale(0, RoundingMode.FLOOR));
+    T ceiling = toInteger.apply(number.setScale(0, RoundingMode.CEILING));
+    // no integer lies between the floor and the ceiling, so none equals the number
+    return switch (operator) {
+      case EQ -> and(gt(column, floor), lt(column, ceiling));
+      case NE -> or(ltEq(column, floor), gtEq(column, ceiling));
+      case LT, GE -> compare(column, operator, ceiling);
+      case LE, GT -> compare(column, operator, floor);
+    };
+  }
+
+  private static <T extends Comparable<T>, C extends Column<T> & SupportsLtGt>
+      FilterPredicate compare(C column, Operator operator, T value) {
+    return switch (operator) {
+      case EQ -> eq(column, value);
+      // notEq matches missing values, which R doesn't
+      case NE -> and(notEq(column, value), notEq(column, null));
+      case LT -> lt(column, value);
+      case LE -> ltEq(column, value);
+      case GT -> gt(column, value);
+      case GE -> gtEq(column, value);
+    };
+  }
+
+  private BigDecimal toNumber(Condition condition) {
+    if (!(condition.value() instanceof BigDecimal number)) {
+      throw invalid(condition, "value must be a number");
+    }
+    return number;
+  }
+
+  private InvalidRowFilterException invalid(Condition condition, String reason) {
+    return new InvalidRowFilterException(expression, condition.column() + ": " + reason);
+  }
+
+  private static List<String[]> tokenize(String expression) {
+    List<String[]> tokens = new ArrayList<>();
+    Matcher matcher = TOKEN.matcher(expression);
+    int position = 0;
+    while (position < expression.length()) {
+      if (!matcher.find(position) || matcher.start() != position) {
+        throw new InvalidRowFilterException(expression, "unexpected input at " + position);
+      }
+      for (String group : List.of("name", "number", "string", "operator", "and")) {
+        if (matcher.group(group) != null) {
+          tokens.add(new String[] {group, matcher.group(group)});
+        }
+      }
+      position = matcher.end();
+      if (expression.substring(position).isBlank()) {
+        break;
+      }
+    }
+    return tokens;
+  }
+
+  private static Object toValue(String expression, String[] token) {
+    return switch (token[0]) {
+      case "number" -> new BigDecimal(token[1]);
+      case "string" -> token[1].substring(1, token[1].length() - 1);
+      case "name" -> switch (token[1]) {
+        case "TRUE" -> true;
+        case "FALSE" -> false;
+        default -> throw new InvalidRowFilterException(
+            expression, "expected a value instead of '" + token[1] + "'");
+      };
+      default -> throw new InvalidRowFilterException(
+          expression, "expected a value instead of '" + token[1] + "'");
+    };
+  }
+}
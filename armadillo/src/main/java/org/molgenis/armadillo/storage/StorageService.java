@@ -5,11 +5,19 @@ import java.io.InputStream;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
 import org.springframework.http.MediaType;
 
 public interface StorageService {
   boolean objectExists(String bucket, String objectName);
 
+  /**
+   * Tells whether an object is a partitioned table: a directory with Parquet files, optionally in
+   * Hive style key=value subdirectories. Such tables are loaded with {@link #loadColumns} and
+   * {@link #loadRows} like a single Parquet object.
+   */
+  boolean isPartitionedTable(String bucketName, String objectName);
+
   List<String> getUnavailableVariables(String bucketName, String objectName, String variables)
       throws IOException;
 
@@ -21,16 +29,76 @@ public interface StorageService {
 
   void save(InputStream is, String bucketName, String objectName, MediaType mediaType);
 
+  /** Copies an object within a bucket, without streaming it through the application. */
+  void copy(String bucketName, String sourceObjectName, String targetObjectName);
+
+  /** Moves an object within a bucket, which doesn't copy its contents. */
+  void move(String bucketName, String sourceObjectName, String targetObjectName);
+
+  /**
+   * Starts an upload of an object in chunks. The chunks are written with {@link #writeChunk} and
+   * the object is created by {@link #completeUpload}.
+   */
+  UploadStatus startUpload(String bucketName, String objectName);
+
+  /**
+   * Writes a chunk of an upload at the given offset. Chunks can be written in any order, in
+   * parallel, and again after a failure.
+   */
+  UploadStatus writeChunk(String bucketName, String uploadId, long offset, InputStream chunk);
+
+  UploadStatus getUpload(String bucketName, String uploadId);
+
+  /** Creates the object, if the chunks contain all bytes of an object of the given size. */
+  void completeUpload(String bucketName, String uploadId, long size);
+
+  void abortUpload(String bucketName, String uploadId);
+
   List<ObjectMetadata> listObjects(String bucketName);
 
   InputStream load(String bucketName, String objectName);
 
+  /**
+   * Loads a Parquet object with only the given columns. Falls back to the complete object when
+   * projecting doesn't make it smaller.
+   */
+  InputStream loadColumns(String bucketName, String objectName, List<String> columns);
+
+  /**
+   * Loads the rows of a Parquet object that match a filter, with only the given columns or all
+   * columns if none are given.
+   */
+  InputStream loadRows(
+      String bucketName, String objectName, List<String> columns, RowFilter filter);
+
   FileInfo getInfo(String bucketName, String objectName);
 
+  /**
+   * Returns a tag that changes when the object changes, derived from its size, modification time
+   * and a hash of its contents.
+   */
+  String getETag(String bucketName, String objectName);
+
+  /** Summarizes the columns of a Parquet object, without reading more of it than necessary. */
+  List<ColumnStatistics> getColumnStatistics(String bucketName, String objectName);
+
+  /**
+   * Finds the columns of Parquet objects in all buckets whose names start with, or contain, the
+   * query, ignoring case.
+   */
+  List<IndexedColumn> searchVariables(String query, boolean substring);
+
   List<Map<String, String>> preview(
       String bucketName, String objectName, int rowLimit, int columnLimit);
 
   void delete(String bucketName, String objectName);
 
+  /**
+   * Rewrites a Parquet object with the given codec and row group size and with dictionary
+   * encoding, and replaces it atomically. Objects that already have that layout are skipped.
+   */
+  CompactionResult compact(
+      String bucketName, String objectName, CompressionCodecName codec, int rowGroupSize);
+
   public Path getPathIfObjectExists(String bucketName, String objectName);
 }
@@ -0,0 +1,46 @@
+package org.molgenis.armadillo.storage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import org.apache.parquet.io.OutputFile;
+import org.apache.parquet.io.PositionOutputStream;
+import org.molgenis.armadillo.storage.LocalOutputFile.LocalPositionOutputStream;
+
+/**
+ * Writes a Parquet file to a stream. The Parquet writers only append, so the file doesn't have to
+ * be seekable and can be sent on while it is written. The stream is flushed but not closed when the
+ * file is complete, that is up to the owner of the stream.
+ */
+class StreamOutputFile implements OutputFile {
+
+  private final OutputStream outputStream;
+
+  StreamOutputFile(OutputStream outputStream) {
+    this.outputStream = outputStream;
+  }
+
+  @Override
+  public PositionOutputStream create(long blockSizeHint) {
+    return new LocalPositionOutputStream(outputStream) {
+      @Override
+      public void close() throws IOException {
+        flush();
+      }
+    };
+  }
+
+  @Override
+  public PositionOutputStream createOrOverwrite(long blockSizeHint) {
+    return create(blockSizeHint);
+  }
+
+  @Override
+  public boolean supportsBlockSize() {
+    return false;
+  }
+
+  @Override
+  public long defaultBlockSize() {
+    return 0;
+  }
+}
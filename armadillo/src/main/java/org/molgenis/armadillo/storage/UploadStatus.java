@@ -0,0 +1,17 @@
+package org.molgenis.armadillo.storage;
+
+import java.util.List;
+
+/**
+ * @param id The id of the upload
+ * @param object The name of the object that is uploaded (e.g. core/nonrep.parquet)
+ * @param received The ranges of bytes that were received so far, in order
+ */
+public record UploadStatus(String id, String object, List<ByteRange> received) {
+
+  /**
+   * @param start The offset of the first byte
+   * @param end The offset after the last byte
+   */
+  public record ByteRange(long start, long end) {}
+}
@@ -0,0 +1,188 @@
+package org.molgenis.armadillo.storage;
+
+import static org.molgenis.armadillo.storage.ArmadilloStorageService.PARQUET;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory inverted index of the columns of the Parquet objects in the storage, so finding the
+ * tables that contain a variable doesn't have to open every footer. The index is built from the
+ * footers at startup and kept current by the storage service, which updates an object when it
+ * writes it and syncs a whole bucket when the {@link ObjectCatalog} rescans it. A footer is only
+ * read again when the size or modification time of its object changed.
+ */
+class VariableIndex {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(VariableIndex.class);
+
+  /** The columns of a version of an object, which are empty if its footer couldn't be read. */
+  private record Indexed(ObjectMetadata version, List<IndexedColumn> columns, boolean readable) {}
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<String, Map<String, Indexed>> buckets = new HashMap<>();
+  private final NavigableMap<String, Set<IndexedColumn>> columnsByName = new TreeMap<>();
+
+  /**
+   * Brings the index of a bucket up to date with its objects. Objects that are gone are removed,
+   * and only the footers of new and changed objects are read, in parallel.
+   */
+  void sync(Path bucketPath, String bucketName, List<ObjectMetadata> objects, Executor executor) {
+    Map<String, Indexed> current;
+    lock.readLock().lock();
+    try {
+      current = Map.copyOf(buckets.getOrDefault(bucketName, Map.of()));
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    Set<String> names = new HashSet<>();
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (ObjectMetadata object : objects) {
+      if (!object.name().endsWith(PARQUET)) {
+        continue;
+      }
+      names.add(object.name());
+      Indexed indexed = current.get(object.name());
+      if (indexed == null || !indexed.version().equals(object)) {
+        Path path = bucketPath.resolve(object.name());
+        futures.add(CompletableFuture.runAsync(() -> update(bucketName, object, path), executor));
+      }
+    }
+    CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+    current.keySet().stream()
+        .filter(name -> !names.contains(name))
+        .forEach(name -> remove(bucketName, name));
+  }
+
+  /** Indexes the columns of an object, if it is a Parquet object. */
+  void update(String bucketName, ObjectMetadata object, Path path) {
+    if (!object.name().endsWith(PARQUET)) {
+      return;
+    }
+    List<IndexedColumn> columns = new ArrayList<>();
+    boolean readable = true;
+    try {
+      MessageType schema = ParquetUtils.getFooter(path).getFileMetaData().getSchema();
+      for (Type field : schema.getFields()) {
+        String type = ParquetUtils.getTypeName(field);
+        columns.add(new IndexedColumn(bucketName, object.name(), field.getName(), type));
+      }
+    } catch (IOException | RuntimeException e) {
+      // e.g. not a valid Parquet file, it can't be loaded as a table either
+      LOGGER.debug("Unable to index the columns of {}/{}", bucketName, object.name(), e);
+      columns.clear();
+      readable = false;
+    }
+
+    lock.writeLock().lock();
+    try {
+      Map<String, Indexed> objects = buckets.computeIfAbsent(bucketName, name -> new HashMap<>());
+      Indexed indexed = objects.get(object.name());
+      if (indexed != null && indexed.version().lastModified().isAfter(object.lastModified())) {
+        // a newer version was indexed in the meantime
+        return;
+      }
+      removeColumns(bucketName, object.name());
+      objects.put(object.name(), new Indexed(object, columns, readable));
+      for (IndexedColumn column : columns) {
+        columnsByName.computeIfAbsent(toKey(column.name()), key -> new HashSet<>()).add(column);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  void remove(String bucketName, String objectName) {
+    lock.writeLock().lock();
+    try {
+      removeColumns(bucketName, objectName);
+      Map<String, Indexed> objects = buckets.get(bucketName);
+      if (objects != null) {
+        objects.remove(objectName);
+        if (objects.isEmpty()) {
+          buckets.remove(bucketName);
+        }
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** The names of the columns of an object, or null if it isn't indexed or couldn't be read. */
+  List<String> getColumnNames(String bucketName, String objectName) {
+    lock.readLock().lock();
+    try {
+      Indexed indexed = buckets.getOrDefault(bucketName, Map.of()).get(objectName);
+      return indexed == null || !indexed.readable()
+          ? null
+          : indexed.columns().stream().map(IndexedColumn::name).toList();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Finds the columns whose names start with, or contain, the query. Names are matched case
+   * insensitively, and the columns are ordered by name.
+   */
+  List<IndexedColumn> search(String query, boolean substring) {
+    String key = toKey(query);
+    Set<IndexedColumn> found = new LinkedHashSet<>();
+    lock.readLock().lock();
+    try {
+      if (substring) {
+        columnsByName.forEach(
+            (name, columns) -> {
+              if (name.contains(key)) {
+                found.addAll(columns);
+              }
+            });
+      } else {
+        columnsByName.subMap(key, key + Character.MAX_VALUE).values().forEach(found::addAll);
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    return List.copyOf(found);
+  }
+
+  private void removeColumns(String bucketName, String objectName) {
+    Indexed indexed = buckets.getOrDefault(bucketName, Map.of()).get(objectName);
+    if (indexed == null) {
+      return;
+    }
+    for (IndexedColumn column : indexed.columns()) {
+      String key = toKey(column.name());
+      Set<IndexedColumn> columns = columnsByName.get(key);
+      if (columns != null) {
+        columns.remove(column);
+        if (columns.isEmpty()) {
+          columnsByName.remove(key);
+        }
+      }
+    }
+  }
+
+  private static String toKey(String name) {
+    return name.toLowerCase(Locale.ROOT);
+  }
+}
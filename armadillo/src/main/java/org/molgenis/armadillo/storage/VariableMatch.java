@@ -0,0 +1,11 @@
+package org.molgenis.armadillo.storage;
+
+/**
+ * A variable that was found in a table.
+ *
+ * @param project The project of the table
+ * @param table The name of the table (e.g. core/nonrep)
+ * @param variable The name of the variable
+ * @param type The type of the variable, e.g. integer, numeric, character or logical
+ */
+public record VariableMatch(String project, String table, String variable, String type) {}
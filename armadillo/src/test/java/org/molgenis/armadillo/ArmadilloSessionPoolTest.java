@@ -0,0 +1,101 @@
+package org.molgenis.armadillo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.molgenis.armadillo.service.ArmadilloConnectionFactory;
+import org.molgenis.r.RServerConnection;
+import org.molgenis.r.service.ProcessService;
+
+@ExtendWith(MockitoExtension.class)
+class ArmadilloSessionPoolTest {
+
+  @Mock private ArmadilloConnectionFactory connectionFactory;
+  @Mock private ProcessService processService;
+  @Mock private RServerConnection rConnection;
+
+  private ArmadilloSessionPool sessionPool;
+
+  @AfterEach
+  void afterEach() {
+    sessionPool.destroy();
+  }
+
+  private void awaitIdleCount(int count) throws InterruptedException {
+    for (int i = 0; i < 50 && sessionPool.getIdleCount() < count; i++) {
+      Thread.sleep(100);
+    }
+    assertEquals(count, sessionPool.getIdleCount());
+  }
+
+  @Test
+  void testFillsPoolInBackground() {
+    when(connectionFactory.createConnection()).thenReturn(rConnection);
+
+    sessionPool =
+        new ArmadilloSessionPool(connectionFactory, processService, 2, 10, Duration.ofMinutes(5));
+
+    verify(connectionFactory, timeout(5000).times(2)).createConnection();
+    verify(connectionFactory, after(100).times(2)).createConnection();
+  }
+
+  @Test
+  void testTakeReplenishes() throws InterruptedException {
+    when(connectionFactory.createConnection()).thenReturn(rConnection);
+    sessionPool =
+        new ArmadilloSessionPool(connectionFactory, processService, 1, 10, Duration.ofMinutes(5));
+    awaitIdleCount(1);
+
+    ArmadilloSession session = sessionPool.take();
+
+    awaitIdleCount(1);
+    verify(connectionFactory, times(2)).createConnection();
+    assertNotSame(session, sessionPool.take());
+  }
+
+  @Test
+  void testTakeCreatesSessionWhenPoolIsDisabled() {
+    when(connectionFactory.createConnection()).thenReturn(rConnection);
+    sessionPool = new ArmadilloSessionPool(connectionFactory, processService, 0, 0, Duration.ZERO);
+
+    sessionPool.take();
+
+    verify(connectionFactory, times(1)).createConnection();
+    assertEquals(0, sessionPool.getIdleCount());
+  }
+
+  @Test
+  void testDiscardClosesConnection() {
+    when(connectionFactory.createConnection()).thenReturn(rConnection);
+    sessionPool = new ArmadilloSessionPool(connectionFactory, processService, 0, 0, Duration.ZERO);
+
+    sessionPool.discard(sessionPool.take());
+
+    verify(rConnection).close();
+  }
+
+  @Test
+  void testDestroyClosesIdleSessions() throws InterruptedException {
+    when(connectionFactory.createConnection()).thenReturn(rConnection);
+    sessionPool =
+        new ArmadilloSessionPool(connectionFactory, processService, 1, 10, Duration.ofMinutes(5));
+    awaitIdleCount(1);
+    verify(rConnection, never()).close();
+
+    sessionPool.destroy();
+
+    verify(rConnection).close();
+  }
+}
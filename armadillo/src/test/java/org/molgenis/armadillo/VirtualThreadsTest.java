@@ -0,0 +1,19 @@
+package org.molgenis.armadillo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.ExecutorService;
+import org.junit.jupiter.api.Test;
+
+class VirtualThreadsTest {
+
+  @Test
+  void testNewVirtualThreadPerTaskExecutor() {
+    boolean supported = Runtime.version().feature() >= 21;
+
+    var executorService = VirtualThreads.newVirtualThreadPerTaskExecutor();
+
+    assertEquals(supported, executorService.isPresent());
+    executorService.ifPresent(ExecutorService::shutdown);
+  }
+}
@@ -0,0 +1,138 @@
+package org.molgenis.armadillo.command;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class CommandRegistryTest {
+
+  @Mock Clock clock;
+  @Mock Consumer<ArmadilloCommand<?>> evictionListener;
+  private final Instant now = Instant.parse("2023-11-01T12:00:00Z");
+  private CommandRegistry registry;
+
+  @BeforeEach
+  void beforeEach() {
+    lenient().when(clock.instant()).thenReturn(now);
+    registry = new CommandRegistry(2, Duration.ofMinutes(10), evictionListener, clock);
+  }
+
+  @Test
+  void testGet() {
+    TestCommand command = new TestCommand(new CompletableFuture<>());
+    registry.register(command);
+
+    assertEquals(Optional.of(command), registry.get(command.getId()));
+    assertEquals(Optional.empty(), registry.get(UUID.randomUUID()));
+  }
+
+  @Test
+  void testFindId() {
+    CompletableFuture<Void> execution = new CompletableFuture<>();
+    TestCommand command = new TestCommand(execution);
+    registry.register(new TestCommand(new CompletableFuture<>()));
+    registry.register(command);
+
+    assertEquals(Optional.of(command.getId()), registry.findId(execution));
+    assertEquals(Optional.empty(), registry.findId(new CompletableFuture<>()));
+  }
+
+  @Test
+  void testEvictsFinishedCommandsFirst() {
+    TestCommand running = new TestCommand(new CompletableFuture<>());
+    TestCommand finished = new TestCommand(completedFuture(null));
+    TestCommand latest = new TestCommand(new CompletableFuture<>());
+
+    registry.register(running);
+    registry.register(finished);
+    registry.register(latest);
+
+    assertEquals(List.of(running, latest), registry.getAll());
+    verify(evictionListener).accept(finished);
+  }
+
+  @Test
+  void testEvictsOldestCommandsWhenNoneFinished() {
+    TestCommand oldest = new TestCommand(new CompletableFuture<>());
+    TestCommand older = new TestCommand(new CompletableFuture<>());
+    TestCommand latest = new TestCommand(new CompletableFuture<>());
+
+    registry.register(oldest);
+    registry.register(older);
+    registry.register(latest);
+
+    assertEquals(List.of(older, latest), registry.getAll());
+  }
+
+  @Test
+  void testEvictsExpiredFinishedCommands() {
+    TestCommand running = new TestCommand(new CompletableFuture<>());
+    TestCommand finished = new TestCommand(completedFuture(null));
+    registry.register(running);
+    registry.register(finished);
+
+    when(clock.instant()).thenReturn(now.plus(Duration.ofMinutes(11)));
+
+    assertEquals(List.of(running), registry.getAll());
+    verify(evictionListener).accept(finished);
+  }
+
+  @Test
+  void testDoesNotEvictWithinBounds() {
+    registry.register(new TestCommand(completedFuture(null)));
+    registry.register(new TestCommand(new CompletableFuture<>()));
+
+    assertEquals(2, registry.getAll().size());
+    verifyNoInteractions(evictionListener);
+  }
+
+  @Test
+  void testMaxSizeMustBePositive() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new CommandRegistry(0, Duration.ZERO, evictionListener, clock));
+  }
+
+  private static class TestCommand implements ArmadilloCommand<Void> {
+    private final UUID id = UUID.randomUUID();
+    private final CompletableFuture<Void> execution;
+
+    TestCommand(CompletableFuture<Void> execution) {
+      this.execution = execution;
+    }
+
+    @Override
+    public UUID getId() {
+      return id;
+    }
+
+    @Override
+    public Optional<CompletableFuture<Void>> getExecution() {
+      return Optional.of(execution);
+    }
+
+    @Override
+    public ArmadilloCommandDTO asDto() {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -0,0 +1,238 @@
+package org.molgenis.armadillo.command;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.molgenis.armadillo.exceptions.ServerBusyException;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+
+class EvaluationSchedulerTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final List<Runnable> started = new ArrayList<>();
+  private final Executor executor = started::add;
+  private final List<String> evaluated = new ArrayList<>();
+
+  @AfterEach
+  void clearSecurityContext() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  void testRunsAtMostMaxConcurrency() {
+    EvaluationScheduler scheduler = createScheduler(2, 10);
+
+    submit(scheduler, "henk", "1");
+    submit(scheduler, "anna", "2");
+    submit(scheduler, "bofke", "3");
+
+    assertEquals(2, started.size());
+    assertEquals(2, scheduler.getRunning());
+    assertEquals(1, scheduler.getQueued());
+    assertEquals(1.0, getGauge("armadillo.evaluations.queued"));
+
+    runNext();
+
+    assertEquals(List.of("1"), evaluated);
+    assertEquals(2, started.size());
+    assertEquals(2, scheduler.getRunning());
+    assertEquals(0, scheduler.getQueued());
+  }
+
+  @Test
+  void testUsersTakeTurns() {
+    EvaluationScheduler scheduler = createScheduler(1, 10);
+
+    submit(scheduler, "henk", "henk-1");
+    submit(scheduler, "henk", "henk-2");
+    submit(scheduler, "henk", "henk-3");
+    submit(scheduler, "henk", "henk-4");
+    submit(scheduler, "anna", "anna-1");
+    while (!started.isEmpty()) {
+      runNext();
+    }
+
+    assertEquals(List.of("henk-1", "henk-2", "anna-1", "henk-3", "henk-4"), evaluated);
+    assertEquals(0, scheduler.getRunning());
+  }
+
+  @Test
+  void testRunsOneEvaluationPerSession() {
+    EvaluationScheduler scheduler = createScheduler(2, 10);
+
+    submit(scheduler, "henk", "henk-1");
+    submit(scheduler, "henk", "henk-2");
+
+    assertEquals(1, started.size());
+    assertEquals(1, scheduler.getRunning());
+    assertEquals(1, scheduler.getQueued());
+
+    submit(scheduler, "anna", "anna-1");
+
+    assertEquals(2, started.size());
+    runNext();
+    runNext();
+    runNext();
+    assertEquals(List.of("henk-1", "anna-1", "henk-2"), evaluated);
+    assertEquals(0, scheduler.getRunning());
+  }
+
+  @Test
+  void testSessionsOfOneUserRunAtTheSameTime() {
+    EvaluationScheduler scheduler = createScheduler(2, 10);
+
+    submit(scheduler, "henk", "table-1", "1");
+    submit(scheduler, "henk", "table-2", "2");
+
+    assertEquals(2, started.size());
+    assertEquals(2, scheduler.getRunning());
+    assertEquals(0, scheduler.getQueued());
+  }
+
+  @Test
+  void testStartsRightAwayWithoutMaxConcurrency() {
+    EvaluationScheduler scheduler = createScheduler(0, 1);
+
+    submit(scheduler, "henk", "1");
+    submit(scheduler, "henk", "2");
+    submit(scheduler, "henk", "3");
+
+    assertEquals(3, started.size());
+    assertEquals(3, scheduler.getRunning());
+    assertEquals(0, scheduler.getQueued());
+    runNext();
+    assertEquals(2, scheduler.getRunning());
+  }
+
+  @Test
+  void testRejectsWhenQueueIsFull() {
+    EvaluationScheduler scheduler = createScheduler(1, 1);
+    submit(scheduler, "henk", "1");
+    submit(scheduler, "anna", "2");
+
+    ServerBusyException exception =
+        assertThrows(ServerBusyException.class, () -> submit(scheduler, "anna", "3"));
+
+    assertEquals(Duration.ofSeconds(30), exception.getRetryAfter());
+    assertEquals(
+        1.0,
+        meterRegistry
+            .get("armadillo.evaluations.rejected")
+            .tag("profile", "default")
+            .counter()
+            .count());
+  }
+
+  @Test
+  void testFailedEvaluationFreesItsTurn() {
+    EvaluationScheduler scheduler = createScheduler(1, 10);
+    CompletableFuture<String> failing =
+        scheduler.submit(
+            "henk",
+            "henk",
+            () -> {
+              throw new IllegalStateException("object 'D' not found");
+            },
+            executor);
+    submit(scheduler, "henk", "2");
+
+    runNext();
+
+    assertTrue(failing.isCompletedExceptionally());
+    assertThrows(ExecutionException.class, failing::get);
+    runNext();
+    assertEquals(List.of("2"), evaluated);
+    assertEquals(0, scheduler.getRunning());
+    assertEquals(2, meterRegistry.get("armadillo.evaluations.wait").timer().count());
+  }
+
+  @Test
+  void testQueuedEvaluationRunsAsItsOwnUser() throws Exception {
+    EvaluationScheduler scheduler = createScheduler(1, 10);
+    TaskExecutor taskExecutor = new CommandsConfig().executorService(false);
+    CountDownLatch henkRunning = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    setUser("henk");
+    CompletableFuture<String> henk =
+        scheduler.submit(
+            "henk",
+            "henk",
+            () -> {
+              henkRunning.countDown();
+              await(release);
+              return getPrincipal();
+            },
+            taskExecutor);
+    henkRunning.await();
+    setUser("anna");
+    CompletableFuture<String> anna =
+        scheduler.submit("anna", "anna", this::getPrincipal, taskExecutor);
+    release.countDown();
+
+    assertEquals("henk", henk.get());
+    assertEquals("anna", anna.get());
+  }
+
+  private void setUser(String user) {
+    SecurityContextHolder.setContext(
+        new SecurityContextImpl(new TestingAuthenticationToken(user, null)));
+  }
+
+  private String getPrincipal() {
+    return SecurityContextHolder.getContext().getAuthentication().getName();
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private EvaluationScheduler createScheduler(int maxConcurrency, int maxQueueSize) {
+    return new EvaluationScheduler(
+        "default", maxConcurrency, maxQueueSize, Duration.ofSeconds(30), meterRegistry);
+  }
+
+  private CompletableFuture<String> submit(
+      EvaluationScheduler scheduler, String user, String expression) {
+    return submit(scheduler, user, user, expression);
+  }
+
+  private CompletableFuture<String> submit(
+      EvaluationScheduler scheduler, String user, String session, String expression) {
+    return scheduler.submit(
+        user,
+        session,
+        () -> {
+          evaluated.add(expression);
+          return expression;
+        },
+        executor);
+  }
+
+  private void runNext() {
+    started.remove(0).run();
+  }
+
+  private double getGauge(String name) {
+    return meterRegistry.get(name).tag("profile", "default").gauge().value();
+  }
+}
@@ -7,8 +7,11 @@ import static org.mockito.Mockito.*;
 import static org.molgenis.armadillo.controller.ArmadilloUtils.GLOBAL_ENV;
 import static org.springframework.web.context.request.RequestAttributes.SCOPE_SESSION;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.security.Principal;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
@@ -19,14 +22,18 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.molgenis.armadillo.ArmadilloSessionPool;
+import org.molgenis.armadillo.command.EvaluationSchedulers;
 import org.molgenis.armadillo.exceptions.UnknownProfileException;
 import org.molgenis.armadillo.metadata.ProfileConfig;
 import org.molgenis.armadillo.metadata.ProfileService;
 import org.molgenis.armadillo.profile.ActiveProfileNameAccessor;
 import org.molgenis.armadillo.service.ArmadilloConnectionFactory;
 import org.molgenis.armadillo.storage.ArmadilloStorageService;
+import org.molgenis.armadillo.storage.RowFilter;
 import org.molgenis.r.RServerConnection;
 import org.molgenis.r.RServerResult;
+import org.molgenis.r.exceptions.RExecutionException;
 import org.molgenis.r.model.RPackage;
 import org.molgenis.r.service.PackageService;
 import org.molgenis.r.service.ProcessService;
@@ -70,9 +77,13 @@ class CommandsImplTest {
             packageService,
             rExecutorService,
             taskExecutor,
-            connectionFactory,
-            processService,
-            profileService);
+            new ArmadilloSessionPool(connectionFactory, processService, 0, 0, Duration.ZERO),
+            profileService,
+            new EvaluationSchedulers(0, 100, Duration.ofSeconds(30), new SimpleMeterRegistry()),
+            100,
+            Duration.ofHours(1),
+            Duration.ofMinutes(1),
+            Duration.ofMinutes(30));
   }
 
   @Test
@@ -91,6 +102,9 @@ class CommandsImplTest {
     assertSame(rexp, result.get());
     assertEquals(Optional.of(command.asDto()), commands.getLastCommand());
     assertSame(result, commands.getLastExecution().get());
+    assertEquals(Optional.of(command.getId()), commands.getCommandId(result));
+    assertEquals(Optional.of(command.asDto()), commands.getCommand(command.getId()));
+    assertSame(result, commands.getExecution(command.getId()).get());
   }
 
   @Test
@@ -130,6 +144,41 @@ class CommandsImplTest {
     assertSame(rexp, commands.evaluate("ls()", false).get());
   }
 
+  @Test
+  void testEvaluateStreaming() throws Exception {
+    when(connectionFactory.createConnection()).thenReturn(rConnection);
+    when(processService.getPid(rConnection)).thenReturn(218);
+    doAnswer(
+            invocation -> {
+              invocation
+                  .getArgument(2, Consumer.class)
+                  .accept(new ByteArrayInputStream(new byte[] {1, 2, 3}));
+              return null;
+            })
+        .when(rExecutorService)
+        .execute(eq("ls()"), eq(rConnection), any(Consumer.class));
+
+    try (InputStream result = commands.evaluateStreaming("ls()").get()) {
+      assertArrayEquals(new byte[] {1, 2, 3}, result.readAllBytes());
+    }
+
+    // the streamed result isn't kept, so the command doesn't replace the last command
+    assertEquals(Optional.empty(), commands.getLastCommand());
+  }
+
+  @Test
+  void testEvaluateStreamingFails() throws Exception {
+    when(connectionFactory.createConnection()).thenReturn(rConnection);
+    when(processService.getPid(rConnection)).thenReturn(218);
+    doThrow(new RExecutionException("object 'x' not found"))
+        .when(rExecutorService)
+        .execute(eq("x"), eq(rConnection), any(Consumer.class));
+
+    CompletableFuture<InputStream> result = commands.evaluateStreaming("x");
+
+    assertThrows(ExecutionException.class, result::get);
+  }
+
   @Test
   void testSaveWorkspace() throws Exception {
     when(connectionFactory.createConnection()).thenReturn(rConnection);
@@ -161,11 +210,12 @@ class CommandsImplTest {
 
   @Test
   void testLoadTable() throws Exception {
-    when(armadilloStorage.loadTable("project", "folder/table")).thenReturn(inputStream);
+    when(armadilloStorage.loadTable("project", "folder/table", List.of("col1", "col2"), null))
+        .thenReturn(inputStream);
     when(connectionFactory.createConnection()).thenReturn(rConnection);
     when(processService.getPid(rConnection)).thenReturn(218);
 
-    commands.loadTable("D", "project/folder/table", List.of("col1", "col2")).get();
+    commands.loadTable("D", "project/folder/table", List.of("col1", "col2"), null).get();
 
     verify(rExecutorService)
         .loadTable(
@@ -176,6 +226,66 @@ class CommandsImplTest {
             eq(List.of("col1", "col2")));
   }
 
+  @Test
+  void testLoadTableFromStorageMount() throws Exception {
+    when(profileService.getByName("default")).thenReturn(createProfileWithStorageMount());
+    when(armadilloStorage.getTableLocation("project", "folder/table"))
+        .thenReturn("shared-project/folder/table.parquet");
+    when(connectionFactory.createConnection()).thenReturn(rConnection);
+    when(processService.getPid(rConnection)).thenReturn(218);
+    when(rExecutorService.loadTable(
+            rConnection, "/storage/shared-project/folder/table.parquet", "D", List.of("col1")))
+        .thenReturn(true);
+
+    commands.loadTable("D", "project/folder/table", List.of("col1"), null).get();
+
+    verify(armadilloStorage, never()).loadTable("project", "folder/table", List.of("col1"), null);
+  }
+
+  @Test
+  void testLoadTableFromUnavailableStorageMount() throws Exception {
+    when(profileService.getByName("default")).thenReturn(createProfileWithStorageMount());
+    when(armadilloStorage.getTableLocation("project", "folder/table"))
+        .thenReturn("shared-project/folder/table.parquet");
+    when(armadilloStorage.loadTable("project", "folder/table", List.of(), null))
+        .thenReturn(inputStream);
+    when(connectionFactory.createConnection()).thenReturn(rConnection);
+    when(processService.getPid(rConnection)).thenReturn(218);
+    when(rExecutorService.loadTable(
+            rConnection, "/storage/shared-project/folder/table.parquet", "D", List.of()))
+        .thenReturn(false);
+
+    commands.loadTable("D", "project/folder/table", List.of(), null).get();
+
+    verify(rExecutorService)
+        .loadTable(
+            eq(rConnection),
+            any(InputStreamResource.class),
+            eq("project/folder/table.parquet"),
+            eq("D"),
+            eq(List.of()));
+  }
+
+  @Test
+  void testLoadFilteredTableIgnoresStorageMount() throws Exception {
+    RowFilter filter = RowFilter.parse("wave == 2");
+    when(armadilloStorage.loadTable("project", "folder/table", List.of(), filter))
+        .thenReturn(inputStream);
+    when(connectionFactory.createConnection()).thenReturn(rConnection);
+    when(processService.getPid(rConnection)).thenReturn(218);
+
+    commands.loadTable("D", "project/folder/table", List.of(), filter).get();
+
+    verify(profileService, never()).getByName(anyString());
+    verify(rExecutorService)
+        .loadTable(
+            eq(rConnection),
+            any(InputStreamResource.class),
+            eq("project/folder/table.parquet"),
+            eq("D"),
+            eq(List.of()));
+  }
+
   @Test
   void testInstallPackage() throws Exception {
     ArmadilloCommandImpl<REXP> command =
@@ -221,6 +331,22 @@ class CommandsImplTest {
             eq("core_nonrep"));
   }
 
+  @Test
+  void testLoadResourceFromStorageMount() throws Exception {
+    when(profileService.getByName("default")).thenReturn(createProfileWithStorageMount());
+    when(armadilloStorage.getResourceLocation("project", "folder/resource"))
+        .thenReturn("shared-project/folder/resource.rds");
+    when(connectionFactory.createConnection()).thenReturn(rConnection);
+    when(processService.getPid(rConnection)).thenReturn(218);
+    when(rExecutorService.loadResource(
+            principal, rConnection, "/storage/shared-project/folder/resource.rds", "D"))
+        .thenReturn(true);
+
+    commands.loadResource(principal, "D", "project/folder/resource").get();
+
+    verify(armadilloStorage, never()).loadResource("project", "folder/resource");
+  }
+
   @Test
   void testGetActiveProfileDefault() {
     ActiveProfileNameAccessor.resetActiveProfileName();
@@ -252,4 +378,18 @@ class CommandsImplTest {
     when(profileService.getByName("unknown")).thenThrow(new UnknownProfileException("unknown"));
     assertThrows(UnknownProfileException.class, () -> commands.selectProfile("unknown"));
   }
+
+  private static ProfileConfig createProfileWithStorageMount() {
+    return ProfileConfig.create(
+        "default",
+        "datashield/armadillo-rserver",
+        "localhost",
+        6311,
+        Set.of("dsBase"),
+        Set.of(),
+        Map.of(),
+        null,
+        null,
+        "/storage");
+  }
 }
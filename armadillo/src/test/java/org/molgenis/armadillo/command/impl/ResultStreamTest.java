@@ -0,0 +1,57 @@
+package org.molgenis.armadillo.command.impl;
+
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+
+class ResultStreamTest {
+
+  @Test
+  void testEndsWhenRead() throws Exception {
+    ResultStream stream = new ResultStream(new ByteArrayInputStream(new byte[] {1, 2, 3}));
+
+    CompletableFuture<byte[]> read =
+        supplyAsync(
+            () -> {
+              try {
+                // the stream is left open, the end of the data is enough
+                return stream.readAllBytes();
+              } catch (IOException e) {
+                throw new IllegalStateException(e);
+              }
+            });
+
+    assertTrue(stream.awaitEnd(Duration.ofSeconds(10), Duration.ofSeconds(10)));
+    assertArrayEquals(new byte[] {1, 2, 3}, read.get());
+  }
+
+  @Test
+  void testEndsWhenClosed() throws Exception {
+    ResultStream stream = new ResultStream(new ByteArrayInputStream(new byte[] {1, 2, 3}));
+    stream.close();
+
+    assertTrue(stream.awaitEnd(Duration.ofSeconds(10), Duration.ofSeconds(10)));
+  }
+
+  @Test
+  void testAbortsWhenNotRead() throws Exception {
+    ResultStream stream = new ResultStream(new ByteArrayInputStream(new byte[] {1, 2, 3}));
+
+    assertFalse(stream.awaitEnd(Duration.ofMillis(10), Duration.ofSeconds(10)));
+    assertThrows(IOException.class, stream::read);
+  }
+
+  @Test
+  void testAbortsWhenNotReadCompletely() throws Exception {
+    ResultStream stream = new ResultStream(new ByteArrayInputStream(new byte[] {1, 2, 3}));
+    assertEquals(1, stream.read());
+
+    assertFalse(stream.awaitEnd(Duration.ofSeconds(10), Duration.ofMillis(10)));
+    assertThrows(IOException.class, () -> stream.read(new byte[2], 0, 2));
+  }
+}
@@ -2,9 +2,13 @@ package org.molgenis.armadillo.controller;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.when;
+import static org.molgenis.armadillo.controller.ArmadilloUtils.createRawResource;
 import static org.molgenis.armadillo.controller.ArmadilloUtils.createRawResponse;
 
+import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
+import java.nio.file.NoSuchFileException;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -14,6 +18,8 @@ import org.molgenis.r.RServerResult;
 import org.molgenis.r.exceptions.RExecutionException;
 import org.molgenis.r.rock.RockResult;
 import org.rosuda.REngine.REXPRaw;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
 
 @ExtendWith(MockitoExtension.class)
 class ArmadilloUtilsTest {
@@ -48,6 +54,15 @@ class ArmadilloUtilsTest {
     assertThrows(IllegalStateException.class, () -> createRawResponse(rexp));
   }
 
+  @Test
+  void testCreateRawResourceDiscardedResult() {
+    when(rexp.asInputStream())
+        .thenThrow(new UncheckedIOException(new NoSuchFileException("result.rds")));
+    ResponseStatusException exception =
+        assertThrows(ResponseStatusException.class, () -> createRawResource(rexp));
+    assertEquals(HttpStatus.GONE, exception.getStatusCode());
+  }
+
   @Test
   void testHexDumpHelloWorld() {
     byte[] bytes = "Hello World!".getBytes(Charset.defaultCharset());
@@ -20,8 +20,10 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import com.github.dockerjava.api.DockerClient;
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.security.Principal;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import org.junit.jupiter.api.Disabled;
@@ -36,6 +38,7 @@ import org.molgenis.armadillo.command.ArmadilloCommandDTO;
 import org.molgenis.armadillo.command.Commands;
 import org.molgenis.armadillo.command.Commands.ArmadilloCommandStatus;
 import org.molgenis.armadillo.exceptions.ExpressionException;
+import org.molgenis.armadillo.exceptions.ServerBusyException;
 import org.molgenis.armadillo.exceptions.UnknownProfileException;
 import org.molgenis.armadillo.exceptions.UnknownVariableException;
 import org.molgenis.armadillo.model.Workspace;
@@ -43,6 +46,8 @@ import org.molgenis.armadillo.service.DSEnvironmentCache;
 import org.molgenis.armadillo.service.ExpressionRewriter;
 import org.molgenis.armadillo.storage.ArmadilloLinkFile;
 import org.molgenis.armadillo.storage.ArmadilloStorageService;
+import org.molgenis.armadillo.storage.RowFilter;
+import org.molgenis.r.RServerResult;
 import org.molgenis.r.model.RPackage;
 import org.molgenis.r.rock.RockResult;
 import org.obiba.datashield.core.DSEnvironment;
@@ -316,6 +321,55 @@ class DataControllerTest extends ArmadilloControllerTestBase {
     verifyNoInteractions(applicationEventPublisher);
   }
 
+  @Test
+  @WithMockUser
+  void testGetCommand() throws Exception {
+    UUID id = UUID.randomUUID();
+    ArmadilloCommandDTO command =
+        ArmadilloCommandDTO.builder()
+            .createDate(now())
+            .status(ArmadilloCommandStatus.IN_PROGRESS)
+            .expression("expression")
+            .id(id)
+            .withResult(true)
+            .build();
+    when(commands.getCommand(id)).thenReturn(Optional.of(command));
+
+    mockMvc
+        .perform(get("/commands/" + id).accept(APPLICATION_JSON))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(APPLICATION_JSON))
+        .andExpect(jsonPath("status").value("IN_PROGRESS"));
+
+    verifyNoInteractions(applicationEventPublisher);
+  }
+
+  @Test
+  @WithMockUser
+  void testGetCommandNotFound() throws Exception {
+    mockMvc
+        .perform(get("/commands/" + UUID.randomUUID()).accept(APPLICATION_JSON))
+        .andExpect(status().isNotFound());
+  }
+
+  @Test
+  @WithMockUser
+  void testGetCommandResult() throws Exception {
+    UUID id = UUID.randomUUID();
+    byte[] bytes = {0x0, 0x1, 0x2};
+    when(commands.getExecution(id))
+        .thenReturn(Optional.of(completedFuture(new RockResult(new REXPRaw(bytes)))));
+
+    MvcResult result =
+        mockMvc
+            .perform(get("/commands/" + id + "/result").accept(APPLICATION_OCTET_STREAM))
+            .andReturn();
+    mockMvc
+        .perform(asyncDispatch(result))
+        .andExpect(status().isOk())
+        .andExpect(content().bytes(bytes));
+  }
+
   @Test
   @WithMockUser
   void testGetLastCommandNotFound() throws Exception {
@@ -416,17 +470,27 @@ class DataControllerTest extends ArmadilloControllerTestBase {
     String rewrittenExpression = "dsBase::meanDS(D$age)";
     when(expressionRewriter.rewriteAggregate(expression)).thenReturn(rewrittenExpression);
 
-    when(commands.evaluate(rewrittenExpression, true))
-        .thenReturn(completedFuture(new RockResult(new REXPRaw(new byte[0]))));
+    byte[] serialized = {88, 10, 0, 0, 0, 3};
+    when(commands.evaluateStreaming(rewrittenExpression))
+        .thenReturn(completedFuture(new ByteArrayInputStream(serialized)));
 
+    MvcResult result =
+        mockMvc
+            .perform(
+                post("/execute")
+                    .session(session)
+                    .accept(APPLICATION_OCTET_STREAM)
+                    .contentType(TEXT_PLAIN)
+                    .content(expression))
+            .andReturn();
+    // the result is streamed in a second asynchronous step
+    MvcResult streaming = mockMvc.perform(asyncDispatch(result)).andReturn();
+    streaming.getAsyncResult();
     mockMvc
-        .perform(
-            post("/execute")
-                .session(session)
-                .accept(APPLICATION_OCTET_STREAM)
-                .contentType(TEXT_PLAIN)
-                .content(expression))
-        .andExpect(status().isOk());
+        .perform(asyncDispatch(streaming))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(APPLICATION_OCTET_STREAM))
+        .andExpect(content().bytes(serialized));
 
     auditEventValidator.validateAuditEvent(
         new AuditEvent(
@@ -442,12 +506,52 @@ class DataControllerTest extends ArmadilloControllerTestBase {
                 "meanDS(D$age)")));
   }
 
+  @Test
+  @WithMockUser
+  void testExecuteFails() throws Exception {
+    when(expressionRewriter.rewriteAggregate("meanDS(D$age)")).thenReturn("dsBase::meanDS(D$age)");
+    when(commands.evaluateStreaming("dsBase::meanDS(D$age)"))
+        .thenReturn(failedFuture(new IllegalStateException("object 'D' not found")));
+
+    MvcResult result =
+        mockMvc
+            .perform(
+                post("/execute")
+                    .session(session)
+                    .accept(APPLICATION_OCTET_STREAM)
+                    .contentType(TEXT_PLAIN)
+                    .content("meanDS(D$age)"))
+            .andReturn();
+    mockMvc.perform(asyncDispatch(result)).andExpect(status().isInternalServerError());
+  }
+
+  @Test
+  @WithMockUser
+  void testExecuteServerBusy() throws Exception {
+    when(expressionRewriter.rewriteAggregate("meanDS(D$age)")).thenReturn("dsBase::meanDS(D$age)");
+    when(commands.evaluateStreaming("dsBase::meanDS(D$age)"))
+        .thenThrow(new ServerBusyException("default", Duration.ofSeconds(30)));
+
+    mockMvc
+        .perform(
+            post("/execute")
+                .session(session)
+                .accept(APPLICATION_OCTET_STREAM)
+                .contentType(TEXT_PLAIN)
+                .content("meanDS(D$age)"))
+        .andExpect(status().isServiceUnavailable())
+        .andExpect(header().string("Retry-After", "30"));
+  }
+
   @Test
   @WithMockUser
   void testExecuteAsync() throws Exception {
     when(expressionRewriter.rewriteAggregate("meanDS(D$age)")).thenReturn("dsBase::meanDS(D$age)");
-    when(commands.evaluate("dsBase::meanDS(D$age)", true))
-        .thenReturn(completedFuture(new RockResult(new REXPDouble(36.6))));
+    CompletableFuture<RServerResult> execution =
+        completedFuture(new RockResult(new REXPDouble(36.6)));
+    when(commands.evaluate("dsBase::meanDS(D$age)", true)).thenReturn(execution);
+    UUID id = UUID.fromString("6a0b1c8e-2f1d-4d6e-9a43-0e8f3c5b7d21");
+    when(commands.getCommandId(execution)).thenReturn(Optional.of(id));
 
     MvcResult result =
         mockMvc
@@ -461,7 +565,7 @@ class DataControllerTest extends ArmadilloControllerTestBase {
     mockMvc
         .perform(asyncDispatch(result))
         .andExpect(status().isCreated())
-        .andExpect(header().string("Location", "http://localhost/lastcommand"))
+        .andExpect(header().string("Location", "http://localhost/commands/" + id))
         .andExpect(content().string(""));
 
     auditEventValidator.validateAuditEvent(
@@ -709,7 +813,7 @@ class DataControllerTest extends ArmadilloControllerTestBase {
   void testLoadTable() throws Exception {
     when(armadilloStorage.hasObject("project", "folder/table.alf")).thenReturn(false);
     when(armadilloStorage.hasObject("project", "folder/table.parquet")).thenReturn(true);
-    when(commands.loadTable("D", "project/folder/table", emptyList()))
+    when(commands.loadTable("D", "project/folder/table", emptyList(), null))
         .thenReturn(completedFuture(null));
 
     mockMvc
@@ -758,7 +862,8 @@ class DataControllerTest extends ArmadilloControllerTestBase {
     when(commands.loadTable(
             "D",
             sourceProject + "/" + sourceObject,
-            new ArrayList<>(Arrays.asList(variables.split(",")))))
+            new ArrayList<>(Arrays.asList(variables.split(","))),
+            null))
         .thenReturn(completedFuture(null));
     mockMvc
         .perform(
@@ -807,7 +912,7 @@ class DataControllerTest extends ArmadilloControllerTestBase {
     when(alfMock.getSourceProject()).thenReturn(sourceProject);
     when(alfMock.getVariables()).thenReturn(variables);
     when(armadilloStorage.hasObject(sourceProject, sourceObject + PARQUET)).thenReturn(true);
-    when(commands.loadTable("D", sourceProject + "/" + sourceObject, selectedVariables))
+    when(commands.loadTable("D", sourceProject + "/" + sourceObject, selectedVariables, null))
         .thenReturn(completedFuture(null));
     mockMvc
         .perform(
@@ -835,6 +940,58 @@ class DataControllerTest extends ArmadilloControllerTestBase {
                 "table-view")));
   }
 
+  @Test
+  @WithMockUser
+  void testLoadTableLinkFileWithFilterOnHiddenVariable() throws Exception {
+    ArmadilloLinkFile alfMock = mock(ArmadilloLinkFile.class);
+    InputStream isMock = mock(InputStream.class);
+    String project = "project";
+    String sourceProject = "source-project";
+    String sourceObject = "source/object";
+    String linkObject = "folder/table-view";
+    when(armadilloStorage.hasObject(project, linkObject + LINK_FILE)).thenReturn(true);
+    when(armadilloStorage.loadObject(project, linkObject + LINK_FILE)).thenReturn(isMock);
+    when(armadilloStorage.createArmadilloLinkFileFromStream(isMock, project, linkObject))
+        .thenReturn(alfMock);
+    when(alfMock.getSourceObject()).thenReturn(sourceObject);
+    when(alfMock.getSourceProject()).thenReturn(sourceProject);
+    when(alfMock.getVariables()).thenReturn("childId,rowId,age,weight");
+    when(armadilloStorage.hasObject(sourceProject, sourceObject + PARQUET)).thenReturn(true);
+
+    mockMvc
+        .perform(
+            post("/load-table")
+                .param("symbol", "D")
+                .param("table", "project/folder/table-view")
+                .param("variables", "age")
+                .param("filter", "income > 1000")
+                .session(session))
+        .andExpect(status().isNotFound());
+
+    verifyNoInteractions(commands);
+  }
+
+  @Test
+  void testCheckLinkedFilter() {
+    DataController dataController =
+        new DataController(
+            commands, armadilloStorage, auditEventPublisher, expressionRewriter, environments);
+    ArmadilloLinkFile alfMock = mock(ArmadilloLinkFile.class);
+    when(alfMock.getVariables()).thenReturn("childId,rowId,age,weight");
+    when(alfMock.getProject()).thenReturn("project");
+    when(alfMock.getLinkObject()).thenReturn("object");
+
+    dataController.checkLinkedFilter(alfMock, RowFilter.parse("age >= 18 & weight < 80"));
+    UnknownVariableException exception =
+        assertThrows(
+            UnknownVariableException.class,
+            () ->
+                dataController.checkLinkedFilter(
+                    alfMock, RowFilter.parse("age >= 18 & income > 1000")));
+    assertEquals(
+        "Variables '[income]' do not exist in object 'project/object'", exception.getMessage());
+  }
+
   @Test
   void testGetLinkedVariables() {
     DataController dataController =
@@ -880,7 +1037,7 @@ class DataControllerTest extends ArmadilloControllerTestBase {
   void testLoadTableWithVariables() throws Exception {
     when(armadilloStorage.hasObject("project", "folder/table.alf")).thenReturn(false);
     when(armadilloStorage.hasObject("project", "folder/table.parquet")).thenReturn(true);
-    when(commands.loadTable("D", "project/folder/table", List.of("age", "weight")))
+    when(commands.loadTable("D", "project/folder/table", List.of("age", "weight"), null))
         .thenReturn(completedFuture(null));
 
     mockMvc
@@ -909,6 +1066,64 @@ class DataControllerTest extends ArmadilloControllerTestBase {
                 "table")));
   }
 
+  @Test
+  @WithMockUser
+  void testLoadTableWithFilter() throws Exception {
+    when(armadilloStorage.hasObject("project", "folder/table.alf")).thenReturn(false);
+    when(armadilloStorage.hasObject("project", "folder/table.parquet")).thenReturn(true);
+    when(commands.loadTable(
+            eq("D"),
+            eq("project/folder/table"),
+            eq(emptyList()),
+            argThat(filter -> filter.toString().equals("wave == 2"))))
+        .thenReturn(completedFuture(null));
+
+    mockMvc
+        .perform(
+            post("/load-table")
+                .param("symbol", "D")
+                .param("table", "project/folder/table")
+                .param("filter", "wave == 2")
+                .session(session))
+        .andExpect(status().isOk());
+
+    auditEventValidator.validateAuditEvent(
+        new AuditEvent(
+            instant,
+            "user",
+            "LOAD_TABLE",
+            Map.of(
+                "symbol",
+                "D",
+                "sessionId",
+                sessionId,
+                "roles",
+                List.of("ROLE_USER"),
+                "project",
+                "project",
+                "folder",
+                "folder",
+                "table",
+                "table",
+                "filter",
+                "wave == 2")));
+  }
+
+  @Test
+  @WithMockUser
+  void testLoadTableWithInvalidFilter() throws Exception {
+    mockMvc
+        .perform(
+            post("/load-table")
+                .param("symbol", "D")
+                .param("table", "project/folder/table")
+                .param("filter", "system('rm -rf /')")
+                .session(session))
+        .andExpect(status().isBadRequest());
+
+    verifyNoInteractions(commands);
+  }
+
   @ParameterizedTest
   @ValueSource(
       strings = {
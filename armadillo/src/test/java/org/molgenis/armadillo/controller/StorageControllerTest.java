@@ -9,6 +9,7 @@ import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.github.dockerjava.api.DockerClient;
@@ -16,6 +17,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
@@ -25,10 +27,16 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.molgenis.armadillo.TestSecurityConfig;
 import org.molgenis.armadillo.exceptions.DuplicateObjectException;
+import org.molgenis.armadillo.exceptions.IncompleteUploadException;
 import org.molgenis.armadillo.exceptions.UnknownObjectException;
 import org.molgenis.armadillo.exceptions.UnknownProjectException;
 import org.molgenis.armadillo.storage.ArmadilloStorageService;
+import org.molgenis.armadillo.storage.ColumnStatistics;
+import org.molgenis.armadillo.storage.CompactionResult;
+import org.molgenis.armadillo.storage.CompactionService;
 import org.molgenis.armadillo.storage.FileInfo;
+import org.molgenis.armadillo.storage.UploadStatus;
+import org.molgenis.armadillo.storage.VariableMatch;
 import org.springframework.boot.actuate.audit.AuditEvent;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -45,6 +53,7 @@ class StorageControllerTest extends ArmadilloControllerTestBase {
 
   @MockBean DockerClient dockerClient;
   @MockBean ArmadilloStorageService storage;
+  @MockBean CompactionService compactionService;
 
   @Captor protected ArgumentCaptor<InputStream> inputStreamCaptor;
 
@@ -153,6 +162,122 @@ class StorageControllerTest extends ArmadilloControllerTestBase {
                     "org.molgenis.armadillo.exceptions.DuplicateObjectException"))));
   }
 
+  @Test
+  void startUpload() throws Exception {
+    when(storage.startUpload("lifecycle", "core/nonrep2.parquet"))
+        .thenReturn(new UploadStatus("abc", "core/nonrep2.parquet", List.of()));
+
+    mockMvc
+        .perform(
+            post("/storage/projects/lifecycle/uploads")
+                .param("object", "core/nonrep2.parquet")
+                .session(session))
+        .andExpect(status().isCreated())
+        .andExpect(
+            content().json("{\"id\": \"abc\", \"object\": \"core/nonrep2.parquet\"}"));
+
+    auditEventValidator.validateAuditEvent(
+        new AuditEvent(
+            instant,
+            "user",
+            START_UPLOAD,
+            mockSuAuditMap(Map.of(PROJECT, "lifecycle", OBJECT, "core/nonrep2.parquet"))));
+  }
+
+  @Test
+  void uploadTable() throws Exception {
+    var contents = "id,age\n1,24\n".getBytes();
+    when(storage.addTable(
+            eq("lifecycle"),
+            eq("core/patients"),
+            inputStreamCaptor.capture(),
+            eq('\t'),
+            eq(Map.of("id", "character"))))
+        .thenReturn(new FileInfo("core/patients.parquet", "1 KB", "1", "2"));
+
+    mockMvc
+        .perform(
+            post("/storage/projects/lifecycle/tables")
+                .param("table", "core/patients")
+                .param("format", "tsv")
+                .param("types", "id:character")
+                .content(contents)
+                .contentType("text/tab-separated-values")
+                .session(session))
+        .andExpect(status().isCreated())
+        .andExpect(content().json("{\"rows\": \"1\", \"columns\": \"2\"}"));
+
+    assertArrayEquals(contents, inputStreamCaptor.getValue().readAllBytes());
+    auditEventValidator.validateAuditEvent(
+        new AuditEvent(
+            instant,
+            "user",
+            UPLOAD_TABLE,
+            mockSuAuditMap(Map.of(PROJECT, "lifecycle", OBJECT, "core/patients"))));
+  }
+
+  @Test
+  void uploadTableUnknownFormat() throws Exception {
+    mockMvc
+        .perform(
+            post("/storage/projects/lifecycle/tables")
+                .param("table", "core/patients")
+                .param("format", "xlsx")
+                .content("id\n1\n".getBytes())
+                .contentType("text/csv")
+                .session(session))
+        .andExpect(status().isBadRequest());
+
+    verifyNoInteractions(storage);
+  }
+
+  @Test
+  void uploadChunk() throws Exception {
+    var contents = "contents".getBytes();
+    when(storage.writeChunk(eq("lifecycle"), eq("abc"), eq(16L), inputStreamCaptor.capture()))
+        .thenReturn(
+            new UploadStatus(
+                "abc", "core/nonrep2.parquet", List.of(new UploadStatus.ByteRange(16, 24))));
+
+    mockMvc
+        .perform(
+            put("/storage/projects/lifecycle/uploads/abc")
+                .param("offset", "16")
+                .content(contents)
+                .contentType(APPLICATION_OCTET_STREAM)
+                .session(session))
+        .andExpect(status().isOk())
+        .andExpect(content().json("{\"received\": [{\"start\": 16, \"end\": 24}]}"));
+
+    assertArrayEquals(contents, inputStreamCaptor.getValue().readAllBytes());
+  }
+
+  @Test
+  void completeUpload() throws Exception {
+    mockMvc
+        .perform(
+            post("/storage/projects/lifecycle/uploads/abc/complete")
+                .param("size", "24")
+                .session(session))
+        .andExpect(status().isNoContent());
+
+    verify(storage).completeUpload("lifecycle", "abc", 24);
+  }
+
+  @Test
+  void completeUploadIncomplete() throws Exception {
+    doThrow(new IncompleteUploadException("abc", 24))
+        .when(storage)
+        .completeUpload("lifecycle", "abc", 24);
+
+    mockMvc
+        .perform(
+            post("/storage/projects/lifecycle/uploads/abc/complete")
+                .param("size", "24")
+                .session(session))
+        .andExpect(status().isBadRequest());
+  }
+
   @Test
   void copyObject() throws Exception {
     mockMvc.perform(copyRequest()).andExpect(status().isNoContent());
@@ -251,6 +376,25 @@ class StorageControllerTest extends ArmadilloControllerTestBase {
                     PROJECT, "lifecycle", "from", "test.parquet", "to", "test_renamed.parquet"))));
   }
 
+  @Test
+  void compactProject() throws Exception {
+    when(compactionService.compactProject("lifecycle"))
+        .thenReturn(List.of(new CompactionResult("core/nonrep.parquet", 2048, 1024, 15, true)));
+
+    mockMvc
+        .perform(post("/storage/projects/lifecycle/compact").session(session))
+        .andExpect(status().isOk())
+        .andExpect(
+            content()
+                .json(
+                    "[{\"object\": \"core/nonrep.parquet\", \"sizeBefore\": 2048,"
+                        + " \"sizeAfter\": 1024, \"millis\": 15, \"compacted\": true}]"));
+
+    auditEventValidator.validateAuditEvent(
+        new AuditEvent(
+            instant, "user", COMPACT_PROJECT, mockSuAuditMap(Map.of(PROJECT, "lifecycle"))));
+  }
+
   private MockHttpServletRequestBuilder moveRequest() {
     return post("/storage/projects/lifecycle/objects/test.parquet/move")
         .content("{\"name\": \"test_renamed.parquet\"}")
@@ -391,15 +535,14 @@ class StorageControllerTest extends ArmadilloControllerTestBase {
   @Test
   void downloadObject() throws Exception {
     var content = "content".getBytes();
-    var inputStream = new ByteArrayInputStream(content);
-    Path mockPath = mock(Path.class);
-    when(storage.loadObject("lifecycle", "test.parquet")).thenReturn(inputStream);
-    when(storage.getFileSizeIfObjectExists("shared-lifecycle", "test.parquet")).thenReturn(12345L);
+    mockObjectFile(content);
 
     mockMvc
         .perform(get("/storage/projects/lifecycle/objects/test.parquet").session(session))
         .andExpect(status().isOk())
         .andExpect(content().contentType(APPLICATION_OCTET_STREAM))
+        .andExpect(header().string("ETag", "\"abc\""))
+        .andExpect(header().string("Accept-Ranges", "bytes"))
         .andExpect(content().bytes(content));
 
     auditEventValidator.validateAuditEvent(
@@ -410,6 +553,41 @@ class StorageControllerTest extends ArmadilloControllerTestBase {
             mockSuAuditMap(Map.of(PROJECT, "lifecycle", OBJECT, "test.parquet"))));
   }
 
+  @Test
+  void downloadObjectRange() throws Exception {
+    mockObjectFile("content".getBytes());
+
+    mockMvc
+        .perform(
+            get("/storage/projects/lifecycle/objects/test.parquet")
+                .header("Range", "bytes=3-5")
+                .session(session))
+        .andExpect(status().isPartialContent())
+        .andExpect(header().string("Content-Range", "bytes 3-5/7"))
+        .andExpect(content().bytes("ten".getBytes()));
+  }
+
+  @Test
+  void downloadObjectNotModified() throws Exception {
+    mockObjectFile("content".getBytes());
+
+    mockMvc
+        .perform(
+            get("/storage/projects/lifecycle/objects/test.parquet")
+                .header("If-None-Match", "\"abc\"")
+                .session(session))
+        .andExpect(status().isNotModified())
+        .andExpect(content().bytes(new byte[0]));
+  }
+
+  private void mockObjectFile(byte[] content) throws IOException {
+    Path path = Files.createTempFile("object", ".parquet");
+    path.toFile().deleteOnExit();
+    Files.write(path, content);
+    when(storage.getObjectPath("lifecycle", "test.parquet")).thenReturn(path);
+    when(storage.getETag("lifecycle", "test.parquet")).thenReturn("abc");
+  }
+
   @Test
   void previewObject() throws Exception {
     when(storage.getPreview("lifecycle", "test.parquet")).thenReturn(List.of(Map.of("foo", "bar")));
@@ -432,7 +610,7 @@ class StorageControllerTest extends ArmadilloControllerTestBase {
   void createLinkedObject() throws Exception {
     doNothing()
         .when(storage)
-        .createLinkedObject("lifecycle", "test", "my-link", "lifecycle", "a,b,c");
+        .createLinkedObject("lifecycle", "test", "my-link", "lifecycle", "a,b,c", null);
     mockMvc
         .perform(
             post("/storage/projects/lifecycle/objects/link")
@@ -481,11 +659,67 @@ class StorageControllerTest extends ArmadilloControllerTestBase {
             mockSuAuditMap(Map.of(PROJECT, "lifecycle", OBJECT, "test.parquet"))));
   }
 
+  @Test
+  void getObjectStatistics() throws Exception {
+    when(storage.getColumnStatistics("lifecycle", "test.parquet"))
+        .thenReturn(List.of(new ColumnStatistics("age", "integer", 2L, "13", "93", 9L)));
+
+    mockMvc
+        .perform(
+            get("/storage/projects/lifecycle/objects/test.parquet/statistics").session(session))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(APPLICATION_JSON))
+        .andExpect(
+            content()
+                .json(
+                    "[{\"name\": \"age\", \"type\": \"integer\", \"nullCount\": 2,"
+                        + " \"min\": \"13\", \"max\": \"93\", \"distinctCount\": 9}]"));
+
+    auditEventValidator.validateAuditEvent(
+        new AuditEvent(
+            instant,
+            "user",
+            GET_OBJECT_STATISTICS,
+            mockSuAuditMap(Map.of(PROJECT, "lifecycle", OBJECT, "test.parquet"))));
+  }
+
+  @Test
+  void searchVariables() throws Exception {
+    when(storage.searchVariables("ag", true))
+        .thenReturn(List.of(new VariableMatch("lifecycle", "core/nonrep", "age", "integer")));
+
+    mockMvc
+        .perform(get("/storage/variables?query=ag&match=substring").session(session))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(APPLICATION_JSON))
+        .andExpect(
+            content()
+                .json(
+                    "[{\"project\": \"lifecycle\", \"table\": \"core/nonrep\","
+                        + " \"variable\": \"age\", \"type\": \"integer\"}]"));
+
+    auditEventValidator.validateAuditEvent(
+        new AuditEvent(
+            instant,
+            "user",
+            SEARCH_VARIABLES,
+            mockSuAuditMap(Map.of("query", "ag", "match", "substring"))));
+  }
+
+  @Test
+  void searchVariablesUnknownMatch() throws Exception {
+    mockMvc
+        .perform(get("/storage/variables?query=ag&match=regex").session(session))
+        .andExpect(status().isBadRequest());
+
+    verify(storage, never()).searchVariables(any(), anyBoolean());
+  }
+
   @Test
   void downloadObjectNotExists() throws Exception {
     doThrow(new UnknownObjectException("lifecycle", "test.parquet"))
         .when(storage)
-        .loadObject("lifecycle", "test.parquet");
+        .getObjectPath("lifecycle", "test.parquet");
 
     mockMvc
         .perform(get("/storage/projects/lifecycle/objects/test.parquet").session(session))
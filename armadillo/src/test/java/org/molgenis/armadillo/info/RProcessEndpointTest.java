@@ -2,6 +2,7 @@ package org.molgenis.armadillo.info;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.List;
@@ -12,6 +13,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.molgenis.armadillo.metadata.ProfileConfig;
 import org.molgenis.armadillo.metadata.ProfileService;
 import org.molgenis.r.RServerConnection;
+import org.molgenis.r.RServerConnectionFactory;
 import org.molgenis.r.config.EnvironmentConfigProps;
 import org.molgenis.r.service.ProcessService;
 
@@ -23,6 +25,7 @@ class RProcessEndpointTest {
   @Mock private ProcessService processService;
   @Mock private ProfileService profileService;
   @Mock private RServerConnection connection;
+  @Mock private RServerConnectionFactory connectionFactory;
 
   @Test
   void testDoWithConnection() {
@@ -31,9 +34,9 @@ class RProcessEndpointTest {
           EnvironmentConfigProps selectedEnvironment = null;
 
           @Override
-          RServerConnection connect(EnvironmentConfigProps environment) {
+          RServerConnectionFactory createConnectionFactory(EnvironmentConfigProps environment) {
             selectedEnvironment = environment;
-            return connection;
+            return connectionFactory;
           }
         };
 
@@ -42,8 +45,11 @@ class RProcessEndpointTest {
     when(profile2.getName()).thenReturn("windsock");
     when(profile2.toEnvironmentConfigProps()).thenReturn(environment2);
     when(environment2.getName()).thenReturn("windsock");
+    when(connectionFactory.tryCreateConnection()).thenReturn(connection);
 
     assertSame(connection, endpoint.doWithConnection("windsock", connection -> connection));
     assertEquals(profile2.getName(), endpoint.selectedEnvironment.getName());
+    verify(connection).close();
+    verify(connectionFactory).destroy();
   }
 }
@@ -0,0 +1,53 @@
+package org.molgenis.armadillo.profile;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ProfileScopeTest {
+
+  private final ProfileScope profileScope = new ProfileScope();
+
+  @AfterEach
+  void afterEach() {
+    ActiveProfileNameAccessor.resetActiveProfileName();
+  }
+
+  @Test
+  void testGetCreatesBeanPerProfile() {
+    Object bean = profileScope.get("bean", Object::new);
+    assertSame(bean, profileScope.get("bean", Object::new));
+
+    ActiveProfileNameAccessor.setActiveProfileName("other");
+    assertNotSame(bean, profileScope.get("bean", Object::new));
+  }
+
+  @Test
+  void testRemoveAllProfileBeansDestroysBeans() {
+    Runnable callback = mock(Runnable.class);
+    Object bean = profileScope.get("bean", Object::new);
+    profileScope.registerDestructionCallback("bean", callback);
+
+    profileScope.removeAllProfileBeans("default");
+
+    verify(callback).run();
+    assertNotSame(bean, profileScope.get("bean", Object::new));
+  }
+
+  @Test
+  void testRemoveDoesNotDestroyBean() {
+    Runnable callback = mock(Runnable.class);
+    profileScope.get("bean", Object::new);
+    profileScope.registerDestructionCallback("bean", callback);
+
+    profileScope.remove("bean");
+    profileScope.removeAllProfileBeans("default");
+
+    verify(callback, never()).run();
+  }
+}
@@ -13,12 +13,11 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.molgenis.armadillo.DataShieldOptions;
 import org.molgenis.armadillo.metadata.ProfileConfig;
 import org.molgenis.r.RConnectionFactory;
+import org.molgenis.r.RScript;
 import org.molgenis.r.RServerConnection;
 import org.molgenis.r.RServerException;
 import org.molgenis.r.exceptions.ConnectionCreationFailedException;
-import org.molgenis.r.rock.RockResult;
 import org.molgenis.r.service.PackageService;
-import org.rosuda.REngine.REXPNull;
 
 @ExtendWith(MockitoExtension.class)
 class ArmadilloConnectionFactoryImplTest {
@@ -44,9 +43,10 @@ class ArmadilloConnectionFactoryImplTest {
     doReturn(rConnection).when(rConnectionFactory).tryCreateConnection();
     when(dataShieldOptions.getValue(rConnectionFactory.tryCreateConnection()))
         .thenReturn(ImmutableMap.of("a", "80.0"));
-    when(rConnection.eval("base::options(a = 80.0)")).thenReturn(new RockResult(new REXPNull()));
 
     assertEquals(rConnection, armadilloConnectionFactory.createConnection());
+    verify(rConnection)
+        .eval(argThat((RScript script) -> script.getScript().contains("base::options(a = 80.0)")));
   }
 
   @Test
@@ -54,10 +54,13 @@ class ArmadilloConnectionFactoryImplTest {
     doReturn(rConnection).when(rConnectionFactory).tryCreateConnection();
     when(dataShieldOptions.getValue(rConnectionFactory.tryCreateConnection()))
         .thenReturn(ImmutableMap.of("b", "permissive"));
-    when(rConnection.eval("base::options(b = \"permissive\")"))
-        .thenReturn(new RockResult(new REXPNull()));
 
     assertEquals(rConnection, armadilloConnectionFactory.createConnection());
+    verify(rConnection)
+        .eval(
+            argThat(
+                (RScript script) ->
+                    script.getScript().contains("base::options(b = \"permissive\")")));
   }
 
   @Test
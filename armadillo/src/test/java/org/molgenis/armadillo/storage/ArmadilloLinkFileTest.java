@@ -2,6 +2,7 @@ package org.molgenis.armadillo.storage;
 
 import static java.lang.String.format;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParseException;
@@ -57,6 +58,16 @@ public class ArmadilloLinkFileTest {
     assertEquals(vars, jsonFromStream.get("variables").getAsString());
   }
 
+  @Test
+  public void testLoadLinkFileWithFilter() {
+    ArmadilloLinkFile filtered =
+        new ArmadilloLinkFile(srcProject, srcObj, vars, linkObj, linkProject, "wave == 2");
+    InputStream inputStream = new ByteArrayInputStream(filtered.toString().getBytes());
+    ArmadilloLinkFile alfFromStream = new ArmadilloLinkFile(inputStream, linkObj, linkProject);
+    assertEquals("wave == 2", alfFromStream.getFilter());
+    assertNull(alf.getFilter());
+  }
+
   @Test
   public void testLoadLinkFileFromStreamInvalidJson() {
     String testData =
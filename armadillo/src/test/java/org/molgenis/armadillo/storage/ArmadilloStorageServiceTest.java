@@ -10,6 +10,7 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -26,6 +27,7 @@ import java.security.Principal;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.util.List;
+import java.util.Map;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
@@ -152,6 +154,45 @@ class ArmadilloStorageServiceTest {
     verifyNoObjectSaved();
   }
 
+  @Test
+  @WithMockUser(roles = "SU")
+  void testAddTable() {
+    when(storageService.listBuckets()).thenReturn(List.of("shared-test"));
+    var info = new FileInfo("core/test.parquet", "1 KB", "2", "2");
+    when(storageService.getInfo("shared-test", "core/test.parquet")).thenReturn(info);
+    doAnswer(invocation -> readAll(invocation.getArgument(0)))
+        .when(storageService)
+        .save(any(InputStream.class), eq("shared-test"), eq("core/test.parquet"), any());
+    var csv = new ByteArrayInputStream("id,age\n1,24\n2,40\n".getBytes());
+
+    assertSame(info, armadilloStorage.addTable("test", "core/test", csv, ',', Map.of()));
+  }
+
+  @Test
+  @WithMockUser(roles = "SU")
+  void testAddTableInvalidCsv() {
+    when(storageService.listBuckets()).thenReturn(List.of("shared-test"));
+    doAnswer(invocation -> readAll(invocation.getArgument(0)))
+        .when(storageService)
+        .save(any(InputStream.class), eq("shared-test"), eq("core/test.parquet"), any());
+    var csv = new ByteArrayInputStream("id,age\n1,unknown\n".getBytes());
+    var columnTypes = Map.of("age", "integer");
+
+    assertThrows(
+        InvalidCsvException.class,
+        () -> armadilloStorage.addTable("test", "core/test.parquet", csv, ',', columnTypes));
+  }
+
+  /** Reads a stream like {@link StorageService#save} does. */
+  private static Object readAll(InputStream inputStream) {
+    try {
+      inputStream.readAllBytes();
+      return null;
+    } catch (IOException e) {
+      throw new StorageException(e);
+    }
+  }
+
   @Test
   @WithMockUser(roles = "GECKO_RESEARCHER")
   void testAddObjectDenied() {
@@ -194,15 +235,13 @@ class ArmadilloStorageServiceTest {
   @Test
   @WithMockUser(roles = "SU")
   void testMoveObject() {
-    var inputStream = mock(InputStream.class);
     mockExistingObject("shared-test", "test.parquet");
-    when(storageService.load("shared-test", "test.parquet")).thenReturn(inputStream);
 
     armadilloStorage.moveObject("test", "renamed.parquet", "test.parquet");
 
-    verify(storageService)
-        .save(inputStream, "shared-test", "renamed.parquet", APPLICATION_OCTET_STREAM);
-    verify(storageService).delete("shared-test", "test.parquet");
+    verify(storageService).move("shared-test", "test.parquet", "renamed.parquet");
+    verifyNoObjectLoaded();
+    verifyNoObjectSaved();
   }
 
   @Test
@@ -262,14 +301,13 @@ class ArmadilloStorageServiceTest {
   @Test
   @WithMockUser(roles = "SU")
   void testCopyObject() {
-    var inputStream = mock(InputStream.class);
     mockExistingObject("shared-test", "test.parquet");
-    when(storageService.load("shared-test", "test.parquet")).thenReturn(inputStream);
 
     armadilloStorage.copyObject("test", "copy.parquet", "test.parquet");
 
-    verify(storageService)
-        .save(inputStream, "shared-test", "copy.parquet", APPLICATION_OCTET_STREAM);
+    verify(storageService).copy("shared-test", "test.parquet", "copy.parquet");
+    verifyNoObjectLoaded();
+    verifyNoObjectSaved();
     verifyNoObjectDeleted();
   }
 
@@ -381,6 +419,25 @@ class ArmadilloStorageServiceTest {
     assertEquals(List.of("gecko"), armadilloStorage.listProjects());
   }
 
+  @Test
+  @WithMockUser(roles = "GECKO_RESEARCHER")
+  void testSearchVariables() {
+    when(storageService.searchVariables("age", false))
+        .thenReturn(
+            List.of(
+                new IndexedColumn(SHARED_GECKO, "core/nonrep.parquet", "age", "integer"),
+                new IndexedColumn(SHARED_GECKO, "rep.parquet/wave=1/0.parquet", "age", "integer"),
+                new IndexedColumn(SHARED_GECKO, "rep.parquet/wave=2/0.parquet", "age", "integer"),
+                new IndexedColumn(SHARED_DIABETES, "core/nonrep.parquet", "age", "integer"),
+                new IndexedColumn("user-admin", "tables.parquet", "age", "integer")));
+
+    assertEquals(
+        List.of(
+            new VariableMatch("gecko", "core/nonrep", "age", "integer"),
+            new VariableMatch("gecko", "rep", "age", "integer")),
+        armadilloStorage.searchVariables("age", false));
+  }
+
   @Test
   @WithMockUser
   void testListTablesChecksPermission() {
@@ -410,6 +467,16 @@ class ArmadilloStorageServiceTest {
     assertEquals(List.of("gecko/1_0_release_1_1/gecko"), armadilloStorage.listTables("gecko"));
   }
 
+  @Test
+  @WithMockUser(roles = "GECKO_RESEARCHER")
+  void testListTablesListsPartitionedTableOnce() {
+    when(storageService.listBuckets()).thenReturn(singletonList(SHARED_GECKO));
+    ObjectMetadata part1 = new ObjectMetadata("core/nonrep.parquet/wave=1/part-0.parquet", null, 1);
+    ObjectMetadata part2 = new ObjectMetadata("core/nonrep.parquet/wave=2/part-0.parquet", null, 1);
+    when(storageService.listObjects(SHARED_GECKO)).thenReturn(List.of(part1, part2));
+    assertEquals(List.of("gecko/core/nonrep"), armadilloStorage.listTables("gecko"));
+  }
+
   @Test
   @WithMockUser
   void testTableExistsChecksPermission() {
@@ -438,6 +505,13 @@ class ArmadilloStorageServiceTest {
     assertTrue(armadilloStorage.tableExists("gecko", "1_0_release_1_1/gecko"));
   }
 
+  @Test
+  @WithMockUser(roles = "GECKO_RESEARCHER")
+  void testTableExistsChecksPartitionedTable() {
+    when(storageService.isPartitionedTable(SHARED_GECKO, "core/nonrep.parquet")).thenReturn(true);
+    assertTrue(armadilloStorage.tableExists("gecko", "core/nonrep"));
+  }
+
   @Test
   @WithMockUser
   void testLoadTableChecksPermission() {
@@ -465,6 +539,24 @@ class ArmadilloStorageServiceTest {
     assertSame(is, armadilloStorage.loadTable("gecko", "1_0_release_1_1/gecko"));
   }
 
+  @Test
+  @WithMockUser
+  void testLoadTableColumnsChecksPermission() {
+    List<String> variables = List.of("age");
+    assertThrows(
+        AccessDeniedException.class,
+        () -> armadilloStorage.loadTable("gecko", "1_0_release_1_1/gecko", variables));
+  }
+
+  @Test
+  @WithMockUser(roles = "GECKO_RESEARCHER")
+  void testLoadTableColumnsLoadsColumns() {
+    List<String> variables = List.of("age");
+    when(storageService.loadColumns(SHARED_GECKO, "1_0_release_1_1/gecko.parquet", variables))
+        .thenReturn(is);
+    assertSame(is, armadilloStorage.loadTable("gecko", "1_0_release_1_1/gecko", variables));
+  }
+
   @Test
   @WithMockUser
   void testListWorkspaces() {
@@ -0,0 +1,169 @@
+package org.molgenis.armadillo.storage;
+
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.lenient;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.molgenis.armadillo.exceptions.UnknownUploadException;
+import org.molgenis.armadillo.exceptions.UploadBusyException;
+import org.molgenis.armadillo.storage.UploadStatus.ByteRange;
+
+@ExtendWith(MockitoExtension.class)
+class ChunkedUploadsTest {
+
+  @TempDir Path bucketPath;
+  @Mock Clock clock;
+  private Instant now = Instant.parse("2023-11-01T12:00:00Z");
+  private ChunkedUploads uploads;
+
+  @BeforeEach
+  void beforeEach() {
+    lenient().when(clock.instant()).thenAnswer(invocation -> now);
+    uploads = new ChunkedUploads(Duration.ofHours(1), clock);
+  }
+
+  @AfterEach
+  void afterEach() {
+    uploads.close();
+  }
+
+  @Test
+  void testDiscardsIdleUploads() throws IOException {
+    String id = start("object.parquet");
+    uploads.write("bucket", id, 0, new ByteArrayInputStream(new byte[] {1, 2, 3}));
+
+    now = now.plus(Duration.ofMinutes(61));
+
+    assertThrows(UnknownUploadException.class, () -> uploads.getStatus("bucket", id));
+    assertFalse(Files.exists(bucketPath.resolve(ChunkedUploads.STAGING_DIR).resolve(id)));
+  }
+
+  @Test
+  void testKeepsUploadsInUse() throws IOException {
+    String id = start("object.parquet");
+    now = now.plus(Duration.ofMinutes(50));
+    uploads.write("bucket", id, 0, new ByteArrayInputStream(new byte[] {1, 2, 3}));
+    now = now.plus(Duration.ofMinutes(50));
+
+    assertEquals(List.of(new ByteRange(0, 3)), uploads.getStatus("bucket", id).received());
+  }
+
+  @Test
+  void testCompleteCanBeRetried() throws IOException {
+    String id = start("dir/object.parquet");
+    uploads.write("bucket", id, 0, new ByteArrayInputStream(new byte[] {1, 2, 3}));
+    // a file where the directory of the object should be makes the move fail
+    Files.createFile(bucketPath.resolve("dir"));
+
+    assertThrows(IOException.class, () -> uploads.complete("bucket", id, 3));
+
+    Files.delete(bucketPath.resolve("dir"));
+    Path object = uploads.complete("bucket", id, 3);
+
+    assertArrayEquals(new byte[] {1, 2, 3}, Files.readAllBytes(object));
+  }
+
+  @Test
+  void testCompleteWhileWriting() throws Exception {
+    String id = start("object.parquet");
+    BlockingStream chunk = new BlockingStream();
+    CompletableFuture<UploadStatus> write = writeAsync(id, chunk);
+    chunk.reading.await();
+
+    assertThrows(UploadBusyException.class, () -> uploads.complete("bucket", id, 3));
+
+    chunk.release.countDown();
+    assertEquals(List.of(new ByteRange(0, 6)), write.get().received());
+  }
+
+  @Test
+  void testAbortWhileWriting() throws Exception {
+    String id = start("object.parquet");
+    BlockingStream chunk = new BlockingStream();
+    CompletableFuture<UploadStatus> write = writeAsync(id, chunk);
+    chunk.reading.await();
+
+    uploads.abort("bucket", id);
+    chunk.release.countDown();
+
+    ExecutionException exception = assertThrows(ExecutionException.class, write::get);
+    assertInstanceOf(UnknownUploadException.class, exception.getCause());
+  }
+
+  private String start(String objectName) throws IOException {
+    return uploads.start("bucket", objectName, bucketPath, bucketPath.resolve(objectName)).id();
+  }
+
+  private CompletableFuture<UploadStatus> writeAsync(String id, InputStream chunk) {
+    return supplyAsync(
+        () -> {
+          try {
+            return uploads.write("bucket", id, 0, chunk);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+  }
+
+  /** Sends three bytes, blocks until it is released and then sends three more. */
+  private static class BlockingStream extends InputStream {
+    private final CountDownLatch reading = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private int position = 0;
+
+    @Override
+    public int read() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (position == 0) {
+        b[off] = 1;
+        b[off + 1] = 2;
+        b[off + 2] = 3;
+        position = 3;
+        return 3;
+      }
+      if (position == 6) {
+        return -1;
+      }
+      reading.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException(e);
+      }
+      b[off] = 4;
+      b[off + 1] = 5;
+      b[off + 2] = 6;
+      position = 6;
+      return 3;
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package org.molgenis.armadillo.storage;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.BINARY;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.BOOLEAN;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.DOUBLE;
+import static org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName.INT32;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.molgenis.armadillo.storage.InputFileFactory.UNMAPPED;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import org.apache.parquet.schema.MessageType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.molgenis.armadillo.exceptions.InvalidCsvException;
+import org.molgenis.armadillo.storage.CsvConverter.ColumnType;
+
+class CsvConverterTest {
+
+  private static final String CSV =
+      "id,age,weight,smoker,name\n"
+          + "1,24,70.5,TRUE,Ann\n"
+          + "2,NA,81,FALSE,\"Smith, John\"\n"
+          + "3,40,,T,\"Say \"\"hi\"\"\"\n";
+
+  @TempDir Path tempDir;
+
+  @Test
+  void testConvertInfersTypes() throws IOException {
+    Path path = convert(CSV.getBytes(UTF_8), ',', Map.of());
+
+    MessageType schema = ParquetUtils.getFooter(path).getFileMetaData().getSchema();
+    assertEquals(INT32, schema.getType("id").asPrimitiveType().getPrimitiveTypeName());
+    assertEquals(INT32, schema.getType("age").asPrimitiveType().getPrimitiveTypeName());
+    assertEquals(DOUBLE, schema.getType("weight").asPrimitiveType().getPrimitiveTypeName());
+    assertEquals(BOOLEAN, schema.getType("smoker").asPrimitiveType().getPrimitiveTypeName());
+    assertEquals(BINARY, schema.getType("name").asPrimitiveType().getPrimitiveTypeName());
+    assertEquals(Map.of("rows", "3", "columns", "5"), ParquetUtils.retrieveDimensions(path));
+    List<Map<String, String>> rows = ParquetUtils.previewRecords(path, 10, 10, UNMAPPED);
+    assertEquals("24", rows.get(0).get("age"));
+    assertEquals("Smith, John", rows.get(1).get("name"));
+    assertEquals("Say \"hi\"", rows.get(2).get("name"));
+  }
+
+  @Test
+  void testConvertWithColumnTypes() throws IOException {
+    Path path = convert(CSV.getBytes(UTF_8), ',', Map.of("id", ColumnType.CHARACTER));
+
+    MessageType schema = ParquetUtils.getFooter(path).getFileMetaData().getSchema();
+    assertEquals(BINARY, schema.getType("id").asPrimitiveType().getPrimitiveTypeName());
+  }
+
+  @Test
+  void testConvertTsvGzipped() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+      gzip.write("id\tname\r\n1\tAnn\r\n\r\n2\tBob\r\n".getBytes(UTF_8));
+    }
+
+    Path path = convert(bytes.toByteArray(), '\t', Map.of());
+
+    assertEquals(Map.of("rows", "2", "columns", "2"), ParquetUtils.retrieveDimensions(path));
+  }
+
+  @Test
+  void testConvertValueDoesNotFitType() {
+    String csv = "id,age\n1,24\n2,unknown\n";
+
+    InvalidCsvException exception =
+        assertThrows(
+            InvalidCsvException.class,
+            () -> convert(csv.getBytes(UTF_8), ',', Map.of("age", ColumnType.INTEGER)));
+    assertTrue(exception.getMessage().contains("line 3"));
+  }
+
+  @Test
+  void testConvertWrongNumberOfValues() {
+    String csv = "id,age\n1,24,3\n";
+
+    assertThrows(InvalidCsvException.class, () -> convert(csv.getBytes(UTF_8), ',', Map.of()));
+  }
+
+  @Test
+  void testConvertDuplicateColumn() {
+    String csv = "id,id\n1,2\n";
+
+    assertThrows(InvalidCsvException.class, () -> convert(csv.getBytes(UTF_8), ',', Map.of()));
+  }
+
+  @Test
+  void testUnknownColumnType() {
+    assertThrows(InvalidCsvException.class, () -> ColumnType.of("date"));
+  }
+
+  @Test
+  void testToParquet() throws IOException {
+    Path path = tempDir.resolve("table.parquet");
+    try (InputStream parquet =
+        CsvConverter.toParquet(new ByteArrayInputStream(CSV.getBytes(UTF_8)), ',', Map.of())) {
+      Files.copy(parquet, path);
+    }
+
+    assertEquals(Map.of("rows", "3", "columns", "5"), ParquetUtils.retrieveDimensions(path));
+  }
+
+  @Test
+  void testToParquetFailsAtEnd() {
+    String csv = "id,age\n1,24,3\n";
+    CsvConverter.Conversion parquet =
+        CsvConverter.toParquet(new ByteArrayInputStream(csv.getBytes(UTF_8)), ',', Map.of());
+
+    assertThrows(IOException.class, parquet::readAllBytes);
+    assertInstanceOf(InvalidCsvException.class, parquet.getFailure());
+    parquet.close();
+  }
+
+  private Path convert(byte[] csv, char separator, Map<String, ColumnType> columnTypes)
+      throws IOException {
+    Path path = tempDir.resolve("table.parquet");
+    try (LocalOutputFile outputFile = new LocalOutputFile(path)) {
+      CsvConverter.convert(new ByteArrayInputStream(csv), separator, columnTypes, outputFile);
+    }
+    return path;
+  }
+}
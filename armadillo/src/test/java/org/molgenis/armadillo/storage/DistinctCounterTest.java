@@ -0,0 +1,29 @@
+package org.molgenis.armadillo.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.apache.parquet.io.api.Binary;
+import org.junit.jupiter.api.Test;
+
+class DistinctCounterTest {
+
+  @Test
+  void testEstimateIsExactForFewValues() {
+    DistinctCounter counter = new DistinctCounter();
+    for (int i = 0; i < 1000; i++) {
+      counter.add(Binary.fromString("value" + i % 500));
+    }
+
+    assertEquals(500, counter.estimate());
+  }
+
+  @Test
+  void testEstimateForManyValues() {
+    DistinctCounter counter = new DistinctCounter();
+    for (long i = 0; i < 200_000; i++) {
+      counter.add(i % 100_000);
+    }
+
+    assertEquals(100_000, counter.estimate(), 10_000);
+  }
+}
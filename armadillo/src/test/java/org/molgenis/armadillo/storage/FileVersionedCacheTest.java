@@ -0,0 +1,110 @@
+package org.molgenis.armadillo.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileVersionedCacheTest {
+
+  @TempDir Path tempDir;
+
+  private final AtomicInteger loads = new AtomicInteger();
+  private FileVersionedCache<String> cache;
+
+  @BeforeEach
+  void beforeEach() {
+    cache = new FileVersionedCache<>(10, String::length);
+  }
+
+  private String load(Path path) throws IOException {
+    loads.incrementAndGet();
+    return Files.readString(path);
+  }
+
+  @Test
+  void testGetLoadsOnce() throws IOException {
+    Path file = Files.writeString(tempDir.resolve("a.txt"), "abc");
+
+    String first = cache.get(file, this::load);
+    String second = cache.get(file, this::load);
+
+    assertSame(first, second);
+    assertEquals(1, loads.get());
+    assertEquals(3, cache.weight());
+  }
+
+  @Test
+  void testGetReloadsChangedFile() throws IOException {
+    Path file = Files.writeString(tempDir.resolve("a.txt"), "abc");
+    cache.get(file, this::load);
+
+    Files.writeString(file, "abcd");
+    Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+
+    assertEquals("abcd", cache.get(file, this::load));
+    assertEquals(2, loads.get());
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  void testEvictsLeastRecentlyUsed() throws IOException {
+    Path a = Files.writeString(tempDir.resolve("a.txt"), "aaaa");
+    Path b = Files.writeString(tempDir.resolve("b.txt"), "bbbb");
+    Path c = Files.writeString(tempDir.resolve("c.txt"), "cccc");
+
+    cache.get(a, this::load);
+    cache.get(b, this::load);
+    cache.get(a, this::load);
+    cache.get(c, this::load);
+
+    assertEquals(2, cache.size());
+    assertEquals(8, cache.weight());
+    cache.get(a, this::load);
+    assertEquals(3, loads.get());
+    cache.get(b, this::load);
+    assertEquals(4, loads.get());
+  }
+
+  @Test
+  void testDoesNotCacheValuesHeavierThanMaximum() throws IOException {
+    Path file = Files.writeString(tempDir.resolve("big.txt"), "too big to cache");
+
+    cache.get(file, this::load);
+
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.weight());
+  }
+
+  @Test
+  void testInvalidate() throws IOException {
+    Path file = Files.writeString(tempDir.resolve("a.txt"), "abc");
+    cache.get(file, this::load);
+
+    cache.invalidate(file);
+    cache.get(file, this::load);
+
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  void testInvalidateAll() throws IOException {
+    Path dir = Files.createDirectories(tempDir.resolve("bucket/core"));
+    Path inside = Files.writeString(dir.resolve("a.txt"), "abc");
+    Path outside = Files.writeString(tempDir.resolve("b.txt"), "abc");
+    cache.get(inside, this::load);
+    cache.get(outside, this::load);
+
+    cache.invalidateAll(tempDir.resolve("bucket"));
+
+    assertEquals(1, cache.size());
+    assertEquals(3, cache.weight());
+  }
+}
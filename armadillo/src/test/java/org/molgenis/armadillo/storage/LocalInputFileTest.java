@@ -0,0 +1,95 @@
+package org.molgenis.armadillo.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.parquet.io.SeekableInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class LocalInputFileTest {
+
+  @TempDir Path tempDir;
+
+  private Path createFile() throws IOException {
+    byte[] bytes = new byte[100];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) i;
+    }
+    return Files.write(tempDir.resolve("file.bin"), bytes);
+  }
+
+  @Test
+  void testMissingFile() {
+    Path missing = tempDir.resolve("missing.bin");
+    assertThrows(FileNotFoundException.class, () -> new LocalInputFile(missing));
+  }
+
+  @ParameterizedTest
+  @ValueSource(longs = {0, 1024})
+  void testStreamsHaveTheirOwnPosition(long mappingThreshold) throws IOException {
+    LocalInputFile file = new LocalInputFile(createFile(), mappingThreshold);
+    assertEquals(100, file.getLength());
+
+    try (SeekableInputStream first = file.newStream();
+        SeekableInputStream second = file.newStream()) {
+      first.seek(10);
+      assertEquals(10, first.read());
+      assertEquals(0, second.read());
+      assertEquals(11, first.getPos());
+      assertEquals(1, second.getPos());
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(longs = {0, 1024})
+  void testReadFullyIntoDirectBuffer(long mappingThreshold) throws IOException {
+    LocalInputFile file = new LocalInputFile(createFile(), mappingThreshold);
+
+    try (SeekableInputStream stream = file.newStream()) {
+      stream.seek(95);
+      ByteBuffer buffer = ByteBuffer.allocateDirect(5);
+      stream.readFully(buffer);
+      buffer.flip();
+      byte[] bytes = new byte[5];
+      buffer.get(bytes);
+
+      assertArrayEquals(new byte[] {95, 96, 97, 98, 99}, bytes);
+      assertEquals(-1, stream.read());
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(longs = {0, 1024})
+  void testReadFullyPastEnd(long mappingThreshold) throws IOException {
+    LocalInputFile file = new LocalInputFile(createFile(), mappingThreshold);
+
+    try (SeekableInputStream stream = file.newStream()) {
+      stream.seek(98);
+      assertThrows(EOFException.class, () -> stream.readFully(new byte[5]));
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(longs = {0, 1024})
+  void testSkipAndReset(long mappingThreshold) throws IOException {
+    LocalInputFile file = new LocalInputFile(createFile(), mappingThreshold);
+
+    try (SeekableInputStream stream = file.newStream()) {
+      stream.mark(0);
+      assertEquals(90, stream.skip(90));
+      assertEquals(10, stream.skip(20));
+      stream.reset();
+      assertEquals(0, stream.getPos());
+    }
+  }
+}
@@ -4,27 +4,36 @@ import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import org.molgenis.armadillo.exceptions.IllegalPathException;
+import org.molgenis.armadillo.exceptions.IncompleteUploadException;
 import org.molgenis.armadillo.exceptions.StorageException;
+import org.molgenis.armadillo.exceptions.UnknownUploadException;
 import org.springframework.http.MediaType;
 
 class LocalStorageServiceTest {
@@ -40,6 +49,11 @@ class LocalStorageServiceTest {
     localStorageService = new LocalStorageService(tmpDir);
   }
 
+  @AfterEach
+  void afterEach() {
+    localStorageService.close();
+  }
+
   @Test
   void testCheckProjectExistsCreatesProjectIfNotFound() {
     localStorageService.createBucketIfNotExists(SOME_PROJECT);
@@ -102,6 +116,58 @@ class LocalStorageServiceTest {
         localStorageService.load("user-admin", "blah.RData").readAllBytes());
   }
 
+  @Test
+  void testLoadColumns() throws Exception {
+    byte[] table;
+    try (InputStream inputStream = getClass().getResourceAsStream("/patient.parquet")) {
+      table = inputStream.readAllBytes();
+    }
+    localStorageService.save(
+        new ByteArrayInputStream(table), SOME_PROJECT, "core/patient.parquet", MediaType.ALL);
+
+    assertArrayEquals(
+        table,
+        localStorageService
+            .loadColumns(SOME_PROJECT, "core/patient.parquet", List.of())
+            .readAllBytes());
+    try (InputStream projection =
+        localStorageService.loadColumns(SOME_PROJECT, "core/patient.parquet", List.of("age"))) {
+      byte[] bytes = projection.readAllBytes();
+      assertTrue(bytes.length < table.length);
+      assertArrayEquals("PAR1".getBytes(), Arrays.copyOf(bytes, 4));
+    }
+  }
+
+  @Test
+  void testLoadPartitionedTable() throws Exception {
+    byte[] table;
+    try (InputStream inputStream = getClass().getResourceAsStream("/patient.parquet")) {
+      table = inputStream.readAllBytes();
+    }
+    for (String part : List.of("wave=1/part-0.parquet", "wave=2/part-0.parquet")) {
+      localStorageService.save(
+          new ByteArrayInputStream(table),
+          SOME_PROJECT,
+          "core/patient.parquet/" + part,
+          MediaType.ALL);
+    }
+
+    assertTrue(localStorageService.isPartitionedTable(SOME_PROJECT, "core/patient.parquet"));
+    assertFalse(localStorageService.isPartitionedTable(SOME_PROJECT, "core/other.parquet"));
+    Path loaded = Files.createTempFile("partitioned", ".parquet");
+    try (InputStream inputStream =
+        localStorageService.loadRows(
+            SOME_PROJECT,
+            "core/patient.parquet",
+            List.of("age", "wave"),
+            RowFilter.parse("wave == 2 & age >= 40"))) {
+      Files.copy(inputStream, loaded, StandardCopyOption.REPLACE_EXISTING);
+    }
+    assertEquals(List.of("age", "wave"), ParquetUtils.getColumns(loaded));
+    assertEquals("6", ParquetUtils.retrieveDimensions(loaded).get("rows"));
+    Files.delete(loaded);
+  }
+
   @Test
   void testDelete() {
     // write a file
@@ -119,6 +185,7 @@ class LocalStorageServiceTest {
 
     // check removed
     assertFalse(localStorageService.objectExists("user-admin", "blah.RData"));
+    assertEquals(Collections.emptyList(), localStorageService.listObjects("user-admin"));
   }
 
   @Test
@@ -321,4 +388,239 @@ class LocalStorageServiceTest {
     mockedFiles.close();
     mockedParquetUtils.close();
   }
+
+  @Test
+  void testSaveReplacesObject() throws IOException {
+    localStorageService.save(
+        new ByteArrayInputStream("old".getBytes()),
+        SOME_PROJECT,
+        SOME_OBJECT_PATH,
+        MediaType.TEXT_PLAIN);
+    InputStream oldContents = localStorageService.load(SOME_PROJECT, SOME_OBJECT_PATH);
+
+    localStorageService.save(
+        new ByteArrayInputStream("new".getBytes()),
+        SOME_PROJECT,
+        SOME_OBJECT_PATH,
+        MediaType.TEXT_PLAIN);
+
+    // a reader that opened the object before it was replaced still reads the old version
+    try (oldContents) {
+      assertArrayEquals("old".getBytes(), oldContents.readAllBytes());
+    }
+    try (InputStream newContents = localStorageService.load(SOME_PROJECT, SOME_OBJECT_PATH)) {
+      assertArrayEquals("new".getBytes(), newContents.readAllBytes());
+    }
+    assertEquals(List.of(SOME_OBJECT_PATH), objectNames());
+  }
+
+  @Test
+  void testSaveFailureKeepsObject() throws IOException {
+    localStorageService.save(
+        new ByteArrayInputStream("old".getBytes()),
+        SOME_PROJECT,
+        SOME_OBJECT_PATH,
+        MediaType.TEXT_PLAIN);
+    InputStream failingStream = mock(InputStream.class);
+    when(failingStream.transferTo(any())).thenThrow(new IOException("connection reset"));
+
+    assertThrows(
+        StorageException.class,
+        () ->
+            localStorageService.save(
+                failingStream, SOME_PROJECT, SOME_OBJECT_PATH, MediaType.TEXT_PLAIN));
+
+    try (InputStream contents = localStorageService.load(SOME_PROJECT, SOME_OBJECT_PATH)) {
+      assertArrayEquals("old".getBytes(), contents.readAllBytes());
+    }
+    assertEquals(List.of(SOME_OBJECT_PATH), objectNames());
+  }
+
+  @Test
+  void testGetETag() {
+    localStorageService.save(
+        new ByteArrayInputStream("old".getBytes()),
+        SOME_PROJECT,
+        SOME_OBJECT_PATH,
+        MediaType.TEXT_PLAIN);
+    String eTag = localStorageService.getETag(SOME_PROJECT, SOME_OBJECT_PATH);
+    assertEquals(eTag, localStorageService.getETag(SOME_PROJECT, SOME_OBJECT_PATH));
+
+    localStorageService.save(
+        new ByteArrayInputStream("new".getBytes()),
+        SOME_PROJECT,
+        SOME_OBJECT_PATH,
+        MediaType.TEXT_PLAIN);
+
+    assertNotEquals(eTag, localStorageService.getETag(SOME_PROJECT, SOME_OBJECT_PATH));
+  }
+
+  @Test
+  void testGetColumnStatistics() throws IOException {
+    try (InputStream inputStream = getClass().getResourceAsStream("/patient.parquet")) {
+      localStorageService.save(inputStream, SOME_PROJECT, "core/patient.parquet", MediaType.ALL);
+    }
+
+    List<ColumnStatistics> statistics =
+        localStorageService.getColumnStatistics(SOME_PROJECT, "core/patient.parquet");
+
+    assertEquals(
+        List.of("id", "age", "name"), statistics.stream().map(ColumnStatistics::name).toList());
+  }
+
+  @Test
+  void testCopy() throws IOException {
+    localStorageService.save(
+        new ByteArrayInputStream("test".getBytes()),
+        SOME_PROJECT,
+        SOME_OBJECT_PATH,
+        MediaType.TEXT_PLAIN);
+
+    localStorageService.copy(SOME_PROJECT, SOME_OBJECT_PATH, "copies/copy");
+
+    try (InputStream contents = localStorageService.load(SOME_PROJECT, "copies/copy")) {
+      assertArrayEquals("test".getBytes(), contents.readAllBytes());
+    }
+    assertEquals(List.of("copies/copy", SOME_OBJECT_PATH), objectNames());
+  }
+
+  @Test
+  void testMove() throws IOException {
+    localStorageService.save(
+        new ByteArrayInputStream("test".getBytes()),
+        SOME_PROJECT,
+        SOME_OBJECT_PATH,
+        MediaType.TEXT_PLAIN);
+
+    localStorageService.move(SOME_PROJECT, SOME_OBJECT_PATH, "moved/object");
+
+    try (InputStream contents = localStorageService.load(SOME_PROJECT, "moved/object")) {
+      assertArrayEquals("test".getBytes(), contents.readAllBytes());
+    }
+    assertEquals(List.of("moved/object"), objectNames());
+  }
+
+  @Test
+  void testSearchVariables() throws IOException {
+    try (InputStream inputStream = getClass().getResourceAsStream("/patient.parquet")) {
+      localStorageService.save(inputStream, SOME_PROJECT, "core/patient.parquet", MediaType.ALL);
+    }
+    assertEquals(
+        List.of(new IndexedColumn(SOME_PROJECT, "core/patient.parquet", "age", "integer")),
+        localStorageService.searchVariables("age", false));
+
+    localStorageService.move(SOME_PROJECT, "core/patient.parquet", "outcome/patient.parquet");
+    assertEquals(
+        List.of("outcome/patient.parquet"),
+        localStorageService.searchVariables("age", false).stream()
+            .map(IndexedColumn::objectName)
+            .toList());
+
+    localStorageService.delete(SOME_PROJECT, "outcome/patient.parquet");
+    assertTrue(localStorageService.searchVariables("age", false).isEmpty());
+  }
+
+  @Test
+  void testMoveUnknownObject() {
+    localStorageService.createBucketIfNotExists(SOME_PROJECT);
+
+    assertThrows(
+        StorageException.class,
+        () -> localStorageService.move(SOME_PROJECT, SOME_OBJECT_PATH, "moved/object"));
+  }
+
+  @Test
+  void testCompact() throws IOException {
+    try (InputStream inputStream = getClass().getResourceAsStream("/patient.parquet")) {
+      localStorageService.save(inputStream, SOME_PROJECT, "core/patient.parquet", MediaType.ALL);
+    }
+    Path path = localStorageService.getPathIfObjectExists(SOME_PROJECT, "core/patient.parquet");
+    Map<String, String> dimensions = ParquetUtils.retrieveDimensions(path);
+
+    CompactionResult result =
+        localStorageService.compact(
+            SOME_PROJECT, "core/patient.parquet", CompressionCodecName.ZSTD, 1024 * 1024);
+
+    assertTrue(result.compacted());
+    assertEquals(Files.size(path), result.sizeAfter());
+    assertEquals(dimensions, ParquetUtils.retrieveDimensions(path));
+    assertFalse(ParquetUtils.needsCompaction(path, CompressionCodecName.ZSTD, 1024 * 1024));
+    assertFalse(
+        localStorageService
+            .compact(SOME_PROJECT, "core/patient.parquet", CompressionCodecName.ZSTD, 1024 * 1024)
+            .compacted());
+  }
+
+  @Test
+  void testChunkedUpload() {
+    UploadStatus upload = localStorageService.startUpload(SOME_PROJECT, SOME_OBJECT_PATH);
+    // chunks arrive out of order
+    localStorageService.writeChunk(
+        SOME_PROJECT, upload.id(), 5, new ByteArrayInputStream("world".getBytes()));
+    localStorageService.writeChunk(
+        SOME_PROJECT, upload.id(), 0, new ByteArrayInputStream("hello".getBytes()));
+
+    assertEquals(
+        List.of(new UploadStatus.ByteRange(0, 10)),
+        localStorageService.getUpload(SOME_PROJECT, upload.id()).received());
+    assertFalse(localStorageService.objectExists(SOME_PROJECT, SOME_OBJECT_PATH));
+
+    localStorageService.completeUpload(SOME_PROJECT, upload.id(), 10);
+
+    assertTrue(localStorageService.objectExists(SOME_PROJECT, SOME_OBJECT_PATH));
+    assertEquals(List.of(SOME_OBJECT_PATH), objectNames());
+    assertDoesNotThrow(
+        () ->
+            assertArrayEquals(
+                "helloworld".getBytes(),
+                localStorageService.load(SOME_PROJECT, SOME_OBJECT_PATH).readAllBytes()));
+    assertThrows(
+        UnknownUploadException.class,
+        () -> localStorageService.getUpload(SOME_PROJECT, upload.id()));
+  }
+
+  @Test
+  void testChunkedUploadIncomplete() {
+    UploadStatus upload = localStorageService.startUpload(SOME_PROJECT, SOME_OBJECT_PATH);
+    localStorageService.writeChunk(
+        SOME_PROJECT, upload.id(), 0, new ByteArrayInputStream("hello".getBytes()));
+    localStorageService.writeChunk(
+        SOME_PROJECT, upload.id(), 7, new ByteArrayInputStream("rld".getBytes()));
+
+    assertEquals(
+        List.of(new UploadStatus.ByteRange(0, 5), new UploadStatus.ByteRange(7, 10)),
+        localStorageService.getUpload(SOME_PROJECT, upload.id()).received());
+    assertThrows(
+        IncompleteUploadException.class,
+        () -> localStorageService.completeUpload(SOME_PROJECT, upload.id(), 10));
+    assertFalse(localStorageService.objectExists(SOME_PROJECT, SOME_OBJECT_PATH));
+  }
+
+  @Test
+  void testChunkedUploadOtherBucket() {
+    UploadStatus upload = localStorageService.startUpload(SOME_PROJECT, SOME_OBJECT_PATH);
+
+    assertThrows(
+        UnknownUploadException.class, () -> localStorageService.getUpload("other", upload.id()));
+  }
+
+  @Test
+  void testAbortChunkedUpload() {
+    UploadStatus upload = localStorageService.startUpload(SOME_PROJECT, SOME_OBJECT_PATH);
+    localStorageService.writeChunk(
+        SOME_PROJECT, upload.id(), 0, new ByteArrayInputStream("hello".getBytes()));
+
+    localStorageService.abortUpload(SOME_PROJECT, upload.id());
+
+    assertThrows(
+        UnknownUploadException.class,
+        () -> localStorageService.completeUpload(SOME_PROJECT, upload.id(), 5));
+    assertTrue(objectNames().isEmpty());
+  }
+
+  private List<String> objectNames() {
+    return localStorageService.listObjects(SOME_PROJECT).stream()
+        .map(ObjectMetadata::name)
+        .toList();
+  }
 }
@@ -0,0 +1,97 @@
+package org.molgenis.armadillo.storage;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ObjectCatalogTest {
+
+  @TempDir Path rootDir;
+
+  private ObjectCatalog catalog;
+
+  @AfterEach
+  void afterEach() {
+    if (catalog != null) {
+      catalog.close();
+    }
+  }
+
+  @Test
+  void testBuildsCatalogFromFileSystem() throws IOException {
+    Files.createDirectories(rootDir.resolve("shared-lifecycle/core"));
+    Files.createDirectories(rootDir.resolve("shared-empty"));
+    Files.writeString(rootDir.resolve("shared-lifecycle/core/nonrep.parquet"), "abc");
+    Files.writeString(rootDir.resolve("shared-lifecycle/core/yearlyrep.parquet"), "abcd");
+
+    catalog = new ObjectCatalog(rootDir);
+
+    assertEquals(List.of("shared-empty", "shared-lifecycle"), catalog.listBuckets());
+    List<ObjectMetadata> objects = catalog.listObjects("shared-lifecycle");
+    assertEquals(
+        List.of("core/nonrep.parquet", "core/yearlyrep.parquet"),
+        objects.stream().map(ObjectMetadata::name).toList());
+    assertEquals(3, objects.get(0).size());
+    assertEquals(List.of(), catalog.listObjects("shared-empty"));
+    assertEquals(List.of(), catalog.listObjects("shared-unknown"));
+  }
+
+  @Test
+  void testUpdateAndRemove() throws IOException {
+    catalog = new ObjectCatalog(rootDir);
+    Path object = rootDir.resolve("shared-lifecycle/core/nonrep.parquet");
+    Files.createDirectories(object.getParent());
+    Files.writeString(object, "abc");
+
+    catalog.update("shared-lifecycle", object);
+    assertTrue(catalog.bucketExists("shared-lifecycle"));
+    assertTrue(catalog.objectExists("shared-lifecycle", object));
+
+    catalog.remove("shared-lifecycle", object);
+    assertFalse(catalog.objectExists("shared-lifecycle", object));
+  }
+
+  @Test
+  void testRescanPicksUpChangesMadeElsewhere() throws IOException {
+    Files.createDirectories(rootDir.resolve("shared-lifecycle"));
+    catalog = new ObjectCatalog(rootDir);
+    Path object = Files.writeString(rootDir.resolve("shared-lifecycle/nonrep.parquet"), "abc");
+
+    catalog.rescan("shared-lifecycle");
+    assertTrue(catalog.objectExists("shared-lifecycle", object));
+
+    Files.delete(object);
+    Files.delete(rootDir.resolve("shared-lifecycle"));
+    catalog.rescan();
+    assertEquals(List.of(), catalog.listBuckets());
+  }
+
+  @Test
+  void testWatcherIgnoresOwnWrites() throws Exception {
+    Files.createDirectories(rootDir.resolve("shared-lifecycle"));
+    Files.createDirectories(rootDir.resolve("shared-other"));
+    catalog = new ObjectCatalog(rootDir);
+    BlockingQueue<String> changedBuckets = new LinkedBlockingQueue<>();
+    catalog.setChangeListener(changedBuckets::add);
+
+    Path own = Files.writeString(rootDir.resolve("shared-lifecycle/nonrep.parquet"), "abc");
+    catalog.update("shared-lifecycle", own);
+    Path other = Files.writeString(rootDir.resolve("shared-other/nonrep.parquet"), "abc");
+
+    assertEquals("shared-other", changedBuckets.poll(10, SECONDS));
+    assertTrue(catalog.objectExists("shared-other", other));
+    assertNull(changedBuckets.poll(2, SECONDS));
+  }
+}
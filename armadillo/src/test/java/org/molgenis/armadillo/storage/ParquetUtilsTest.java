@@ -1,20 +1,33 @@
 package org.molgenis.armadillo.storage;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.molgenis.armadillo.storage.InputFileFactory.UNMAPPED;
 
+import java.io.ByteArrayInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.molgenis.armadillo.exceptions.InvalidRowFilterException;
 
 public class ParquetUtilsTest {
   @Test
   public void testParquetPreview() throws IOException, URISyntaxException {
     Path path = Path.of(this.getClass().getClassLoader().getResource("patient.parquet").toURI());
-    List<Map<String, String>> preview = ParquetUtils.previewRecords(path, 10, 10);
+    List<Map<String, String>> preview = ParquetUtils.previewRecords(path, 10, 10, UNMAPPED);
     assertEquals("Patient1", preview.get(0).get("name"));
   }
 
@@ -31,4 +44,224 @@ public class ParquetUtilsTest {
     Path path = Path.of(this.getClass().getClassLoader().getResource("patient.parquet").toURI());
     assertEquals(List.of("id", "age", "name"), ParquetUtils.getColumns(path));
   }
+
+  @Test
+  void testGetFooterIsCached() throws URISyntaxException, IOException {
+    Path path = Path.of(this.getClass().getClassLoader().getResource("patient.parquet").toURI());
+    assertSame(ParquetUtils.getFooter(path), ParquetUtils.getFooter(path));
+  }
+
+  @Test
+  void testEvictFooter() throws URISyntaxException, IOException {
+    Path path = Path.of(this.getClass().getClassLoader().getResource("patient.parquet").toURI());
+    ParquetMetadata footer = ParquetUtils.getFooter(path);
+    ParquetUtils.evictFooter(path);
+    assertNotSame(footer, ParquetUtils.getFooter(path));
+  }
+
+  @Test
+  void testPreviewRecordsLimitsColumns() throws URISyntaxException, IOException {
+    Path path = Path.of(this.getClass().getClassLoader().getResource("patient.parquet").toURI());
+    List<Map<String, String>> preview = ParquetUtils.previewRecords(path, 20, 2, UNMAPPED);
+    assertEquals(11, preview.size());
+    assertEquals(List.of("id", "age"), List.copyOf(preview.get(0).keySet()));
+  }
+
+  @Test
+  void testWriteColumns(@TempDir Path tempDir) throws URISyntaxException, IOException {
+    Path path = Path.of(this.getClass().getClassLoader().getResource("patient.parquet").toURI());
+    Path projection = tempDir.resolve("projection.parquet");
+
+    assertTrue(
+        ParquetUtils.writeColumns(path, List.of("name", "age", "unknown"), projection, UNMAPPED));
+
+    assertEquals(List.of("age", "name"), ParquetUtils.getColumns(projection));
+    assertEquals("11", ParquetUtils.retrieveDimensions(projection).get("rows"));
+    assertEquals(
+        "Patient1", ParquetUtils.previewRecords(projection, 1, 10, UNMAPPED).get(0).get("name"));
+    String arrowSchema =
+        ParquetUtils.getFooter(projection)
+            .getFileMetaData()
+            .getKeyValueMetaData()
+            .get(ArrowSchema.KEY);
+    assertTrue(ArrowSchema.project(arrowSchema, List.of("age", "name")).isPresent());
+    assertFalse(ArrowSchema.project(arrowSchema, List.of("id", "age", "name")).isPresent());
+  }
+
+  @Test
+  void testWriteColumnsSkipsUselessProjections(@TempDir Path tempDir)
+      throws URISyntaxException, IOException {
+    Path path = Path.of(this.getClass().getClassLoader().getResource("patient.parquet").toURI());
+    Path projection = tempDir.resolve("projection.parquet");
+
+    assertFalse(
+        ParquetUtils.writeColumns(path, List.of("id", "age", "name"), projection, UNMAPPED));
+    assertFalse(ParquetUtils.writeColumns(path, List.of("unknown"), projection, UNMAPPED));
+    assertFalse(Files.exists(projection));
+  }
+
+  @Test
+  void testWriteRows(@TempDir Path tempDir) throws URISyntaxException, IOException {
+    Path path = Path.of(this.getClass().getClassLoader().getResource("patient.parquet").toURI());
+    Path filtered = tempDir.resolve("filtered.parquet");
+
+    ParquetUtils.writeRows(path, List.of("name"), RowFilter.parse("age >= 40"), filtered, UNMAPPED);
+
+    assertEquals(List.of("name"), ParquetUtils.getColumns(filtered));
+    assertEquals("6", ParquetUtils.retrieveDimensions(filtered).get("rows"));
+  }
+
+  @Test
+  void testWriteRowsMapped(@TempDir Path tempDir) throws URISyntaxException, IOException {
+    Path path = Path.of(this.getClass().getClassLoader().getResource("patient.parquet").toURI());
+    Path filtered = tempDir.resolve("filtered.parquet");
+
+    ParquetUtils.writeRows(
+        path,
+        List.of("name"),
+        RowFilter.parse("age >= 40"),
+        filtered,
+        InputFileFactory.mapping(1024 * 1024));
+
+    assertEquals("6", ParquetUtils.retrieveDimensions(filtered).get("rows"));
+  }
+
+  @Test
+  void testWriteRowsWithoutMatches(@TempDir Path tempDir) throws URISyntaxException, IOException {
+    Path path = Path.of(this.getClass().getClassLoader().getResource("patient.parquet").toURI());
+    Path filtered = tempDir.resolve("filtered.parquet");
+
+    ParquetUtils.writeRows(path, List.of(), RowFilter.parse("age > 100"), filtered, UNMAPPED);
+
+    assertEquals(List.of("id", "age", "name"), ParquetUtils.getColumns(filtered));
+    assertEquals("0", ParquetUtils.retrieveDimensions(filtered).get("rows"));
+  }
+
+  @Test
+  void testWriteRowsUnknownColumn(@TempDir Path tempDir) throws URISyntaxException {
+    Path path = Path.of(this.getClass().getClassLoader().getResource("patient.parquet").toURI());
+    Path filtered = tempDir.resolve("filtered.parquet");
+
+    assertThrows(
+        InvalidRowFilterException.class,
+        () ->
+            ParquetUtils.writeRows(
+                path, List.of(), RowFilter.parse("wave == 2"), filtered, UNMAPPED));
+    assertFalse(Files.exists(filtered));
+  }
+
+  @Test
+  void testWriteParts(@TempDir Path tempDir) throws URISyntaxException, IOException {
+    Path path = Path.of(this.getClass().getClassLoader().getResource("patient.parquet").toURI());
+    List<ParquetUtils.Part> parts = new ArrayList<>();
+    for (String wave : List.of("1", "2")) {
+      Path part = tempDir.resolve("table/wave=" + wave + "/part-0.parquet");
+      Files.createDirectories(part.getParent());
+      Files.copy(path, part);
+      parts.add(new ParquetUtils.Part(part, Map.of("wave", wave)));
+    }
+    Path table = tempDir.resolve("table.parquet");
+
+    ParquetUtils.writeParts(parts, List.of(), null, table, Runnable::run, UNMAPPED);
+
+    assertEquals(List.of("id", "age", "name", "wave"), ParquetUtils.getColumns(table));
+    assertEquals("22", ParquetUtils.retrieveDimensions(table).get("rows"));
+  }
+
+  @Test
+  void testWritePartsPrunesParts(@TempDir Path tempDir) throws URISyntaxException, IOException {
+    Path path = Path.of(this.getClass().getClassLoader().getResource("patient.parquet").toURI());
+    List<ParquetUtils.Part> parts =
+        List.of(
+            new ParquetUtils.Part(path, Map.of("wave", "1")),
+            new ParquetUtils.Part(tempDir.resolve("missing.parquet"), Map.of("wave", "2")));
+    Path table = tempDir.resolve("table.parquet");
+
+    ParquetUtils.writeParts(
+        parts,
+        List.of("name"),
+        RowFilter.parse("wave < 2 & age >= 40"),
+        table,
+        Runnable::run,
+        UNMAPPED);
+
+    assertEquals(List.of("name"), ParquetUtils.getColumns(table));
+    assertEquals("6", ParquetUtils.retrieveDimensions(table).get("rows"));
+  }
+
+  @Test
+  void testWritePartsMergesSchemas(@TempDir Path tempDir) throws IOException {
+    List<ParquetUtils.Part> parts =
+        List.of(
+            writePart(tempDir, "1", "id,age\n1,20\n2,30\n"),
+            writePart(tempDir, "2", "id,sex\n3,female\n"));
+    Path table = tempDir.resolve("table.parquet");
+    Path filtered = tempDir.resolve("filtered.parquet");
+
+    ParquetUtils.writeParts(parts, List.of(), null, table, Runnable::run, UNMAPPED);
+    ParquetUtils.writeParts(
+        parts, List.of(), RowFilter.parse("age >= 25"), filtered, Runnable::run, UNMAPPED);
+
+    assertEquals(List.of("id", "age", "sex", "wave"), ParquetUtils.getColumns(table));
+    assertEquals("3", ParquetUtils.retrieveDimensions(table).get("rows"));
+    List<ColumnStatistics> statistics = ParquetUtils.getColumnStatistics(table, UNMAPPED);
+    assertEquals(1L, statistics.get(1).nullCount());
+    assertEquals(2L, statistics.get(2).nullCount());
+    assertEquals("1", ParquetUtils.retrieveDimensions(filtered).get("rows"));
+  }
+
+  @Test
+  void testWritePartsRejectsMismatchedParts(@TempDir Path tempDir) throws IOException {
+    List<ParquetUtils.Part> parts =
+        List.of(
+            writePart(tempDir, "1", "id,age\n1,20\n"),
+            writePart(tempDir, "2", "id,age\n2,old\n"));
+    Path table = tempDir.resolve("table.parquet");
+
+    IOException exception =
+        assertThrows(
+            IOException.class,
+            () -> ParquetUtils.writeParts(parts, List.of(), null, table, Runnable::run, UNMAPPED));
+
+    assertTrue(exception.getMessage().contains("wave=2"));
+    assertFalse(Files.exists(table));
+  }
+
+  private static ParquetUtils.Part writePart(Path tempDir, String wave, String csv)
+      throws IOException {
+    Path path = tempDir.resolve("table/wave=" + wave + "/part-0.parquet");
+    Files.createDirectories(path.getParent());
+    try (LocalOutputFile outputFile = new LocalOutputFile(path)) {
+      CsvConverter.convert(
+          new ByteArrayInputStream(csv.getBytes(UTF_8)), ',', Map.of(), outputFile);
+    }
+    return new ParquetUtils.Part(path, Map.of("wave", wave));
+  }
+
+  @Test
+  void testGetColumnStatistics() throws URISyntaxException, IOException {
+    Path path = Path.of(this.getClass().getClassLoader().getResource("patient.parquet").toURI());
+
+    List<ColumnStatistics> statistics = ParquetUtils.getColumnStatistics(path, UNMAPPED);
+
+    assertEquals(
+        List.of("id", "age", "name"), statistics.stream().map(ColumnStatistics::name).toList());
+    assertEquals(new ColumnStatistics("age", "integer", 0L, "13", "93", 9L), statistics.get(1));
+    assertSame(statistics, ParquetUtils.getColumnStatistics(path, UNMAPPED));
+  }
+
+  @Test
+  void testGetColumnStatisticsWithMissingValues(@TempDir Path tempDir) throws IOException {
+    Path path = tempDir.resolve("table.parquet");
+    String csv = "id,sex\n1,female\n2,NA\n3,male\n4,female\n";
+    try (LocalOutputFile outputFile = new LocalOutputFile(path)) {
+      CsvConverter.convert(
+          new ByteArrayInputStream(csv.getBytes(UTF_8)), ',', Map.of(), outputFile);
+    }
+
+    List<ColumnStatistics> statistics = ParquetUtils.getColumnStatistics(path, UNMAPPED);
+
+    assertEquals(
+        new ColumnStatistics("sex", "character", 1L, "female", "male", 2L), statistics.get(1));
+  }
 }
@@ -0,0 +1,123 @@
+package org.molgenis.armadillo.storage;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.MessageTypeParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.molgenis.armadillo.exceptions.InvalidRowFilterException;
+
+class RowFilterTest {
+
+  private static final MessageType SCHEMA =
+      MessageTypeParser.parseMessageType(
+          "message table { optional int32 wave; optional double bmi; "
+              + "optional binary sex (STRING); optional boolean smoker; }");
+
+  @Test
+  void testParse() {
+    RowFilter filter = RowFilter.parse("wave != 2 && bmi >= 18.5");
+
+    assertEquals(Set.of("wave", "bmi"), filter.getColumns());
+    assertEquals(
+        "and(and(noteq(wave, 2), noteq(wave, null)), gteq(bmi, 18.5))",
+        filter.toPredicate(SCHEMA).toString());
+  }
+
+  @Test
+  void testParseString() {
+    RowFilter filter = RowFilter.parse("sex == 'female' & smoker == FALSE");
+
+    assertEquals(Set.of("sex", "smoker"), filter.getColumns());
+    assertDoesNotThrow(() -> filter.toPredicate(SCHEMA));
+  }
+
+  @Test
+  void testAnd() {
+    RowFilter filter = RowFilter.parse("wave == 2").and(RowFilter.parse("smoker == TRUE"));
+
+    assertEquals("(wave == 2) & (smoker == TRUE)", filter.toString());
+    assertEquals("and(eq(wave, 2), eq(smoker, true))", filter.toPredicate(SCHEMA).toString());
+  }
+
+  @Test
+  void testMayMatch() {
+    RowFilter filter = RowFilter.parse("wave >= 2 & cohort == 'a' & bmi > 18.5");
+
+    assertTrue(filter.mayMatch(Map.of("wave", "10", "cohort", "a")));
+    assertFalse(filter.mayMatch(Map.of("wave", "1", "cohort", "a")));
+    assertFalse(filter.mayMatch(Map.of("cohort", "b")));
+    assertFalse(filter.mayMatch(Collections.singletonMap("wave", null)));
+    assertThrows(InvalidRowFilterException.class, () -> filter.mayMatch(Map.of("wave", "x")));
+  }
+
+  @Test
+  void testMayMatchNotANumber() {
+    RowFilter filter = RowFilter.parse("wave >= 2");
+
+    InvalidRowFilterException exception =
+        assertThrows(InvalidRowFilterException.class, () -> filter.mayMatch(Map.of("wave", "x")));
+    assertTrue(exception.getMessage().contains("partition value 'x' isn't a number"));
+  }
+
+  @ParameterizedTest
+  @CsvSource(
+      delimiter = ';',
+      value = {
+        "wave > 1.5; gt(wave, 1)",
+        "wave >= 1.5; gteq(wave, 2)",
+        "wave < 1.5; lt(wave, 2)",
+        "wave <= 1.5; lteq(wave, 1)",
+        "wave == 1.5; and(gt(wave, 1), lt(wave, 2))",
+        "wave != -1.5; or(lteq(wave, -2), gteq(wave, -1))",
+        "wave > 2.0; gt(wave, 2)"
+      })
+  void testToPredicateRoundsForIntegerColumns(String expression, String predicate) {
+    assertEquals(predicate, RowFilter.parse(expression).toPredicate(SCHEMA).toString());
+  }
+
+  @Test
+  void testWithout() {
+    RowFilter filter = RowFilter.parse("wave >= 2 & cohort == 'a' & bmi > 18.5");
+
+    assertEquals("cohort == \"a\" & bmi > 18.5", filter.without(Set.of("wave")).toString());
+    assertNull(filter.without(Set.of("wave", "cohort", "bmi")));
+  }
+
+  @ParameterizedTest
+  @ValueSource(
+      strings = {
+        "",
+        "wave",
+        "wave == ",
+        "wave = 2",
+        "wave == 2 | wave == 3",
+        "wave == other",
+        "system('ls') == 1",
+        "wave == 2 &"
+      })
+  void testParseInvalid(String expression) {
+    assertThrows(InvalidRowFilterException.class, () -> RowFilter.parse(expression));
+  }
+
+  @ParameterizedTest
+  @ValueSource(
+      strings = {
+        "unknown == 1", "wave == \"2\"", "wave > 1e10", "sex == 1", "smoker > FALSE"
+      })
+  void testToPredicateInvalid(String expression) {
+    RowFilter filter = RowFilter.parse(expression);
+    assertThrows(InvalidRowFilterException.class, () -> filter.toPredicate(SCHEMA));
+  }
+}
@@ -0,0 +1,103 @@
+package org.molgenis.armadillo.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class VariableIndexTest {
+
+  @TempDir Path rootDir;
+
+  private final VariableIndex index = new VariableIndex();
+  private Path bucketPath;
+
+  @BeforeEach
+  void beforeEach() throws IOException {
+    bucketPath = Files.createDirectories(rootDir.resolve("shared-lifecycle"));
+    Files.createDirectories(bucketPath.resolve("core"));
+    try (InputStream inputStream = getClass().getResourceAsStream("/patient.parquet")) {
+      Files.copy(inputStream, bucketPath.resolve("core/patient.parquet"));
+    }
+    Files.writeString(bucketPath.resolve("core/notes.txt"), "not a table");
+  }
+
+  @Test
+  void testSyncIndexesParquetObjects() throws IOException {
+    index.sync(bucketPath, "shared-lifecycle", listObjects(), Runnable::run);
+
+    assertEquals(
+        List.of("id", "age", "name"),
+        index.getColumnNames("shared-lifecycle", "core/patient.parquet"));
+    assertNull(index.getColumnNames("shared-lifecycle", "core/notes.txt"));
+  }
+
+  @Test
+  void testSearchByPrefix() throws IOException {
+    index.sync(bucketPath, "shared-lifecycle", listObjects(), Runnable::run);
+
+    assertEquals(
+        List.of(new IndexedColumn("shared-lifecycle", "core/patient.parquet", "age", "integer")),
+        index.search("AG", false));
+    assertTrue(index.search("ge", false).isEmpty());
+  }
+
+  @Test
+  void testSearchBySubstring() throws IOException {
+    index.sync(bucketPath, "shared-lifecycle", listObjects(), Runnable::run);
+
+    assertEquals(
+        List.of("age", "name"),
+        index.search("a", true).stream().map(IndexedColumn::name).toList());
+  }
+
+  @Test
+  void testSyncRemovesObjectsThatAreGone() throws IOException {
+    index.sync(bucketPath, "shared-lifecycle", listObjects(), Runnable::run);
+    Files.delete(bucketPath.resolve("core/patient.parquet"));
+
+    index.sync(bucketPath, "shared-lifecycle", listObjects(), Runnable::run);
+
+    assertTrue(index.search("age", false).isEmpty());
+  }
+
+  @Test
+  void testRemove() throws IOException {
+    index.sync(bucketPath, "shared-lifecycle", listObjects(), Runnable::run);
+
+    index.remove("shared-lifecycle", "core/patient.parquet");
+
+    assertNull(index.getColumnNames("shared-lifecycle", "core/patient.parquet"));
+    assertTrue(index.search("", true).isEmpty());
+  }
+
+  @Test
+  void testUnreadableObjectIsNotSearchable() throws IOException {
+    Path path = bucketPath.resolve("core/broken.parquet");
+    Files.writeString(path, "not parquet");
+    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+
+    index.update("shared-lifecycle", ObjectMetadata.of(bucketPath, path, attributes), path);
+
+    assertNull(index.getColumnNames("shared-lifecycle", "core/broken.parquet"));
+    assertTrue(index.search("", true).isEmpty());
+  }
+
+  private List<ObjectMetadata> listObjects() throws IOException {
+    try (var files = Files.walk(bucketPath)) {
+      return files
+          .filter(Files::isRegularFile)
+          .map(path -> ObjectMetadata.of(bucketPath, path))
+          .toList();
+    }
+  }
+}
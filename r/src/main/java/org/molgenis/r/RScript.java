@@ -0,0 +1,56 @@
+package org.molgenis.r;
+
+import static java.lang.String.format;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Combines several R statements into one script, so they are evaluated in a single round trip to
+ * the R server. Every step runs in its own tryCatch, so an error tells which step failed. The
+ * steps are evaluated in the environment that evaluates the script, and the result of the script
+ * is the result of the last step.
+ */
+public class RScript {
+
+  private record Step(String description, String statement) {}
+
+  private final List<Step> steps = new ArrayList<>();
+
+  /**
+   * @param description describes the step in error messages, e.g. "assign D"
+   * @param statement the R statement(s) of the step
+   */
+  public RScript add(String description, String statement) {
+    steps.add(new Step(description, statement));
+    return this;
+  }
+
+  public boolean isEmpty() {
+    return steps.isEmpty();
+  }
+
+  public int size() {
+    return steps.size();
+  }
+
+  public String getScript() {
+    StringBuilder script = new StringBuilder("{\n");
+    for (int i = 0; i < steps.size(); i++) {
+      Step step = steps.get(i);
+      String prefix = format("Step %d (%s) failed: ", i + 1, step.description());
+      script
+          .append("base::tryCatch({\n")
+          .append(step.statement())
+          .append("\n}, error = function(e) base::stop(base::paste0(")
+          .append(Formatter.quote(prefix))
+          .append(", base::conditionMessage(e)), call. = FALSE))\n");
+    }
+    return script.append("}").toString();
+  }
+
+  @Override
+  public String toString() {
+    return getScript();
+  }
+}
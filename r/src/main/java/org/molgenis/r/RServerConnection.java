@@ -26,6 +26,30 @@ public interface RServerConnection {
    */
   RServerResult eval(String expr, boolean serialized) throws RServerException;
 
+  /**
+   * Evaluate an expression and stream the serialized result into the input stream consumer. The
+   * stream is only valid while the consumer runs.
+   *
+   * @param expr
+   * @param inputStreamConsumer
+   * @throws RServerException
+   */
+  default void eval(String expr, Consumer<InputStream> inputStreamConsumer)
+      throws RServerException {
+    inputStreamConsumer.accept(eval(expr, true).asInputStream());
+  }
+
+  /**
+   * Evaluate the steps of a script in one go and return the result of the last step.
+   *
+   * @param script
+   * @return
+   * @throws RServerException
+   */
+  default RServerResult eval(RScript script) throws RServerException {
+    return eval(script.getScript(), false);
+  }
+
   /**
    * Write a file from the input stream.
    *
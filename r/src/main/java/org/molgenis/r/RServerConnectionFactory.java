@@ -3,17 +3,25 @@ package org.molgenis.r;
 import java.io.IOException;
 import java.net.*;
 import org.molgenis.r.config.EnvironmentConfigProps;
+import org.molgenis.r.config.RServerType;
 import org.molgenis.r.rock.RockConnectionFactory;
+import org.molgenis.r.rserve.RserveConnectionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 
-public class RServerConnectionFactory implements RConnectionFactory {
+public class RServerConnectionFactory implements RConnectionFactory, DisposableBean {
   private static final Logger logger = LoggerFactory.getLogger(RServerConnectionFactory.class);
 
   private final EnvironmentConfigProps environment;
+  private final RConnectionVendorFactory vendorFactory;
 
   public RServerConnectionFactory(EnvironmentConfigProps environment) {
     this.environment = environment;
+    this.vendorFactory =
+        environment.getType() == RServerType.RSERVE
+            ? new RserveConnectionFactory(environment)
+            : new RockConnectionFactory(environment);
   }
 
   RockStatusCode doHead(String uri) {
@@ -48,6 +56,10 @@ public class RServerConnectionFactory implements RConnectionFactory {
 
   @Override
   public RServerConnection tryCreateConnection() {
+    if (environment.getType() == RServerType.RSERVE) {
+      // Rserve doesn't speak HTTP, so there is no status to check
+      return vendorFactory.tryCreateConnection();
+    }
     String url = "http://" + environment.getHost() + ":" + environment.getPort();
     RockStatusCode rockStatus = doHead(url);
     if (rockStatus == RockStatusCode.SERVER_DOWN) {
@@ -63,7 +75,14 @@ public class RServerConnectionFactory implements RConnectionFactory {
     } else if (rockStatus == RockStatusCode.UNEXPECTED_URL) {
       logger.warn("MalformedURLException on " + url);
     }
-    return new RockConnectionFactory(environment).tryCreateConnection();
+    return vendorFactory.tryCreateConnection();
+  }
+
+  @Override
+  public void destroy() {
+    if (vendorFactory instanceof RockConnectionFactory rockConnectionFactory) {
+      rockConnectionFactory.closeIdleConnections();
+    }
   }
 }
 
@@ -1,5 +1,7 @@
 package org.molgenis.r;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.List;
 
 public interface RServerResult {
@@ -18,6 +20,16 @@ public interface RServerResult {
    */
   byte[] asBytes();
 
+  /**
+   * Get the evaluation result as a stream of bytes, which doesn't need all bytes in memory at once.
+   *
+   * @return
+   */
+  default InputStream asInputStream() {
+    byte[] bytes = asBytes();
+    return bytes == null ? null : new ByteArrayInputStream(bytes);
+  }
+
   /**
    * Check if the evaluation result is an array of doubles.
    *
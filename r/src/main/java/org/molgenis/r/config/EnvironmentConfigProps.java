@@ -1,13 +1,32 @@
 package org.molgenis.r.config;
 
 import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import java.time.Duration;
 
 public class EnvironmentConfigProps {
   @NotEmpty private String name;
   @NotEmpty private String host = "localhost";
   @Positive private int port = 6311;
 
+  /** The protocol to talk to the R server with */
+  @NotNull private RServerType type = RServerType.ROCK;
+
+  /** Maximum number of concurrent HTTP connections to the R server */
+  @Positive private int maxConnections = 50;
+
+  @NotNull private Duration connectTimeout = Duration.ofSeconds(10);
+
+  /** Maximum time to wait for data from the R server, zero waits forever (e.g. for long evals) */
+  @NotNull private Duration readTimeout = Duration.ZERO;
+
+  /** Maximum time to wait for a free connection when all connections are in use */
+  @NotNull private Duration connectionRequestTimeout = Duration.ofMinutes(3);
+
+  /** Serialized results larger than this many bytes are kept in a temporary file, not in memory */
+  @Positive private int spillThreshold = 4 * 1024 * 1024;
+
   public String getHost() {
     return host;
   }
@@ -31,4 +50,52 @@ public class EnvironmentConfigProps {
   public void setName(String name) {
     this.name = name;
   }
+
+  public RServerType getType() {
+    return type;
+  }
+
+  public void setType(RServerType type) {
+    this.type = type;
+  }
+
+  public int getMaxConnections() {
+    return maxConnections;
+  }
+
+  public void setMaxConnections(int maxConnections) {
+    this.maxConnections = maxConnections;
+  }
+
+  public Duration getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  public void setConnectTimeout(Duration connectTimeout) {
+    this.connectTimeout = connectTimeout;
+  }
+
+  public Duration getReadTimeout() {
+    return readTimeout;
+  }
+
+  public void setReadTimeout(Duration readTimeout) {
+    this.readTimeout = readTimeout;
+  }
+
+  public Duration getConnectionRequestTimeout() {
+    return connectionRequestTimeout;
+  }
+
+  public void setConnectionRequestTimeout(Duration connectionRequestTimeout) {
+    this.connectionRequestTimeout = connectionRequestTimeout;
+  }
+
+  public int getSpillThreshold() {
+    return spillThreshold;
+  }
+
+  public void setSpillThreshold(int spillThreshold) {
+    this.spillThreshold = spillThreshold;
+  }
 }
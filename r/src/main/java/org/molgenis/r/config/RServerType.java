@@ -0,0 +1,9 @@
+package org.molgenis.r.config;
+
+/** The protocol that is used to talk to the R server of an environment. */
+public enum RServerType {
+  /** Rock's HTTP API, results are transferred as JSON */
+  ROCK,
+  /** Rserve's binary QAP1 protocol, results are transferred as R expressions */
+  RSERVE
+}
@@ -1,5 +1,7 @@
 package org.molgenis.r.rock;
 
+import org.springframework.web.client.RestTemplate;
+
 public class RockApplication {
 
   private final String url;
@@ -8,10 +10,17 @@ public class RockApplication {
 
   private final String password;
 
-  public RockApplication(String url, String user, String password) {
+  private final RestTemplate restTemplate;
+
+  /**
+   * @param restTemplate shared by all connections to the application, so that they can reuse the
+   *     pooled HTTP connections. Must add the credentials to the requests.
+   */
+  public RockApplication(String url, String user, String password, RestTemplate restTemplate) {
     this.url = url;
     this.user = user;
     this.password = password;
+    this.restTemplate = restTemplate;
   }
 
   public String getUrl() {
@@ -25,4 +34,8 @@ public class RockApplication {
   public String getPassword() {
     return password;
   }
+
+  public RestTemplate getRestTemplate() {
+    return restTemplate;
+  }
 }
@@ -3,8 +3,6 @@ package org.molgenis.r.rock;
 import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
-import java.util.Base64;
 import java.util.Collections;
 import java.util.function.Consumer;
 import org.molgenis.r.RServerConnection;
@@ -29,14 +27,21 @@ public class RockConnection implements RServerConnection {
 
   private final RockApplication application;
 
-  public RockConnection(RockApplication application) throws RServerException {
+  private final int spillThreshold;
+
+  /**
+   * @param spillThreshold the size in bytes above which serialized results are kept in a temporary
+   *     file instead of in memory
+   */
+  public RockConnection(RockApplication application, int spillThreshold) throws RServerException {
     this.application = application;
+    this.spillThreshold = spillThreshold;
     openSession();
   }
 
   @Override
   public RServerResult eval(String expr, boolean serialized) throws RServerException {
-    RestTemplate restTemplate = new RestTemplate();
+    RestTemplate restTemplate = application.getRestTemplate();
     HttpHeaders headers = createHeaders();
     headers.setContentType(MediaType.valueOf("application/x-rscript"));
 
@@ -45,17 +50,45 @@ public class RockConnection implements RServerConnection {
       // accept application/octet-stream
       headers.setAccept(
           Lists.newArrayList(MediaType.APPLICATION_OCTET_STREAM, MediaType.APPLICATION_JSON));
-      ResponseEntity<byte[]> response =
-          restTemplate.exchange(
-              serverUrl, HttpMethod.POST, new HttpEntity<>(expr, headers), byte[].class);
-      return new RockResult(response.getBody());
+      // large results go to a temporary file while they stream in, instead of into the heap
+      return restTemplate.execute(
+          serverUrl,
+          HttpMethod.POST,
+          restTemplate.httpEntityCallback(new HttpEntity<>(expr, headers), byte[].class),
+          response -> RockRawReader.read(response.getBody(), spillThreshold));
     } else {
       headers.setAccept(Lists.newArrayList(MediaType.APPLICATION_JSON));
-      ResponseEntity<String> response =
-          restTemplate.exchange(
-              serverUrl, HttpMethod.POST, new HttpEntity<>(expr, headers), String.class);
-      String jsonSource = response.getBody();
-      return new RockResult(jsonSource);
+      // read the result while it streams in, instead of buffering the JSON as a string
+      return restTemplate.execute(
+          serverUrl,
+          HttpMethod.POST,
+          restTemplate.httpEntityCallback(new HttpEntity<>(expr, headers), RServerResult.class),
+          response -> RockJsonReader.read(response.getBody()));
+    }
+  }
+
+  /** Streams the serialized result while it comes in from Rock, without buffering it. */
+  @Override
+  public void eval(String expr, Consumer<InputStream> inputStreamConsumer)
+      throws RServerException {
+    try {
+      HttpHeaders headers = createHeaders();
+      headers.setContentType(MediaType.valueOf("application/x-rscript"));
+      headers.setAccept(
+          Lists.newArrayList(MediaType.APPLICATION_OCTET_STREAM, MediaType.APPLICATION_JSON));
+
+      RestTemplate restTemplate = application.getRestTemplate();
+      restTemplate.execute(
+          getRSessionResourceUrl("/_eval"),
+          HttpMethod.POST,
+          restTemplate.httpEntityCallback(new HttpEntity<>(expr, headers)),
+          (ResponseExtractor<Void>)
+              response -> {
+                inputStreamConsumer.accept(response.getBody());
+                return null;
+              });
+    } catch (RestClientException e) {
+      throw new RockServerException("Evaluation failed", e);
     }
   }
 
@@ -74,7 +107,7 @@ public class RockConnection implements RServerConnection {
               .queryParam("path", fileName)
               .queryParam("overwrite", true);
 
-      RestTemplate restTemplate = new RestTemplate();
+      RestTemplate restTemplate = application.getRestTemplate();
       ResponseEntity<String> response =
           restTemplate.postForEntity(builder.toUriString(), requestEntity, String.class);
       if (!response.getStatusCode().is2xxSuccessful()) {
@@ -97,7 +130,7 @@ public class RockConnection implements RServerConnection {
       UriComponentsBuilder builder =
           UriComponentsBuilder.fromHttpUrl(serverUrl).queryParam("path", fileName);
 
-      RestTemplate restTemplate = new RestTemplate();
+      RestTemplate restTemplate = application.getRestTemplate();
       restTemplate.execute(
           builder.build().toUri(),
           HttpMethod.GET,
@@ -123,7 +156,7 @@ public class RockConnection implements RServerConnection {
     if (Strings.isNullOrEmpty(rockSessionId)) return true;
 
     try {
-      RestTemplate restTemplate = new RestTemplate();
+      RestTemplate restTemplate = application.getRestTemplate();
       restTemplate.exchange(
           getRSessionResourceUrl(""),
           HttpMethod.DELETE,
@@ -141,7 +174,7 @@ public class RockConnection implements RServerConnection {
 
   private void openSession() throws RServerException {
     try {
-      RestTemplate restTemplate = new RestTemplate();
+      RestTemplate restTemplate = application.getRestTemplate();
       ResponseEntity<RockSessionInfo> response =
           restTemplate.exchange(
               getRSessionsResourceUrl(),
@@ -163,15 +196,9 @@ public class RockConnection implements RServerConnection {
     return String.format("%s/r/session/%s%s", application.getUrl(), rockSessionId, path);
   }
 
+  /** Credentials are added by the rest template of the application. */
   private HttpHeaders createHeaders() {
-    return new HttpHeaders() {
-      {
-        String auth = application.getUser() + ":" + application.getPassword();
-        byte[] encodedAuth = Base64.getEncoder().encode(auth.getBytes(StandardCharsets.UTF_8));
-        String authHeader = "Basic " + new String(encodedAuth);
-        add("Authorization", authHeader);
-      }
-    };
+    return new HttpHeaders();
   }
 
   private static class MultiPartInputStreamResource extends InputStreamResource {
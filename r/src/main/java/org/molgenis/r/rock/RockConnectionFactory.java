@@ -1,7 +1,19 @@
 package org.molgenis.r.rock;
 
 import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.springframework.http.HttpHeaders.AUTHORIZATION;
 
+import java.util.List;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.message.BasicHeader;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.molgenis.r.RConnectionVendorFactory;
 import org.molgenis.r.RServerConnection;
 import org.molgenis.r.RServerException;
@@ -9,14 +21,35 @@ import org.molgenis.r.config.EnvironmentConfigProps;
 import org.molgenis.r.exceptions.ConnectionCreationFailedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
 
+/**
+ * Creates connections to a Rock R server. All connections share one pool of keep-alive HTTP
+ * connections, sized by {@link EnvironmentConfigProps#getMaxConnections()}.
+ */
 public class RockConnectionFactory implements RConnectionVendorFactory {
 
   private static final Logger logger = LoggerFactory.getLogger(RockConnectionFactory.class);
+  private static final TimeValue VALIDATE_AFTER_INACTIVITY = TimeValue.ofSeconds(2);
+
   private final EnvironmentConfigProps environment;
+  private final PoolingHttpClientConnectionManager connectionManager;
+  private final RockApplication application;
 
   public RockConnectionFactory(EnvironmentConfigProps environment) {
     this.environment = environment;
+    this.connectionManager = createConnectionManager(environment);
+    // TODO make rock credentials configurable
+    String user = "administrator";
+    String password = "password";
+    this.application =
+        new RockApplication(
+            format("http://%s:%s", environment.getHost(), environment.getPort()),
+            user,
+            password,
+            createRestTemplate(connectionManager, environment, user, password));
   }
 
   @Override
@@ -27,16 +60,55 @@ public class RockConnectionFactory implements RConnectionVendorFactory {
               "Trying to connect to instance: [ %s ] on [ %s ]",
               environment.getHost(), environment.getPort()));
     }
-    // TODO make rock credentials configurable
-    RockApplication application =
-        new RockApplication(
-            format("http://%s:%s", environment.getHost(), environment.getPort()),
-            "administrator",
-            "password");
     try {
-      return new RockConnection(application);
+      return new RockConnection(application, environment.getSpillThreshold());
     } catch (RServerException e) {
       throw new ConnectionCreationFailedException(e);
     }
   }
+
+  /**
+   * Closes the pooled connections that are idle. Connections of open R sessions stay usable, the
+   * pool itself is released once those sessions are gone.
+   */
+  public void closeIdleConnections() {
+    connectionManager.closeIdle(TimeValue.ZERO_MILLISECONDS);
+  }
+
+  private static PoolingHttpClientConnectionManager createConnectionManager(
+      EnvironmentConfigProps environment) {
+    return PoolingHttpClientConnectionManagerBuilder.create()
+        .setMaxConnPerRoute(environment.getMaxConnections())
+        .setMaxConnTotal(environment.getMaxConnections())
+        .setDefaultConnectionConfig(
+            ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.of(environment.getConnectTimeout()))
+                .setSocketTimeout(Timeout.of(environment.getReadTimeout()))
+                .setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY)
+                .build())
+        .build();
+  }
+
+  private static RestTemplate createRestTemplate(
+      PoolingHttpClientConnectionManager connectionManager,
+      EnvironmentConfigProps environment,
+      String user,
+      String password) {
+    // a default header instead of a rest template interceptor, which would buffer request bodies
+    String credentials = HttpHeaders.encodeBasicAuth(user, password, UTF_8);
+    CloseableHttpClient httpClient =
+        HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .setDefaultHeaders(List.of(new BasicHeader(AUTHORIZATION, "Basic " + credentials)))
+            .setDefaultRequestConfig(
+                RequestConfig.custom()
+                    .setConnectionRequestTimeout(
+                        Timeout.of(environment.getConnectionRequestTimeout()))
+                    .build())
+            .build();
+    var requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+    // stream uploads instead of buffering whole files in memory
+    requestFactory.setBufferRequestBody(false);
+    return new RestTemplate(requestFactory);
+  }
 }
@@ -0,0 +1,156 @@
+package org.molgenis.r.rock;
+
+import static com.fasterxml.jackson.core.JsonToken.END_ARRAY;
+import static com.fasterxml.jackson.core.JsonToken.FIELD_NAME;
+import static com.fasterxml.jackson.core.JsonToken.START_ARRAY;
+import static com.fasterxml.jackson.core.JsonToken.START_OBJECT;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.molgenis.r.RServerResult;
+
+/**
+ * Reads the JSON that Rock returns for an evaluation into results, streaming instead of building
+ * a JSON tree first:
+ *
+ * <ul>
+ *   <li>arrays of values become a {@link RockVector}
+ *   <li>arrays of objects are the rows of a data frame, and become a named list of column vectors
+ *   <li>objects become a named list
+ *   <li>other arrays become a list
+ * </ul>
+ */
+public final class RockJsonReader {
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private RockJsonReader() {}
+
+  public static RServerResult read(String json) throws IOException {
+    if (json == null) {
+      return new RockResult((Object) null);
+    }
+    try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+      return read(parser);
+    }
+  }
+
+  public static RServerResult read(InputStream json) throws IOException {
+    try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+      return read(parser);
+    }
+  }
+
+  private static RServerResult read(JsonParser parser) throws IOException {
+    JsonToken token = parser.nextToken();
+    if (token == null) {
+      return new RockResult((Object) null);
+    }
+    RServerResult result = readValue(parser, token);
+    if (result.isNamedList() && result.asNamedList().isEmpty()) {
+      // Rock returns {} for NULL
+      return new RockResult((Object) null);
+    }
+    return result;
+  }
+
+  private static RServerResult readValue(JsonParser parser, JsonToken token) throws IOException {
+    if (token == START_OBJECT) {
+      return readObject(parser);
+    } else if (token == START_ARRAY) {
+      return readArray(parser);
+    } else {
+      RockVector.Builder vector = new RockVector.Builder();
+      addScalar(vector, parser, token);
+      return vector.build();
+    }
+  }
+
+  private static RServerResult readObject(JsonParser parser) throws IOException {
+    Map<String, RServerResult> values = new LinkedHashMap<>();
+    while (parser.nextToken() == FIELD_NAME) {
+      String name = parser.getCurrentName();
+      values.put(name, readValue(parser, parser.nextToken()));
+    }
+    return new RockResult(new RockNamedList(values));
+  }
+
+  private static RServerResult readArray(JsonParser parser) throws IOException {
+    JsonToken token = parser.nextToken();
+    if (token == START_OBJECT) {
+      return readRows(parser);
+    }
+    RockVector.Builder vector = new RockVector.Builder();
+    for (; token != END_ARRAY; token = parser.nextToken()) {
+      if (token.isScalarValue()) {
+        addScalar(vector, parser, token);
+      } else {
+        vector.addResult(readValue(parser, token));
+      }
+    }
+    return vector.build();
+  }
+
+  /** Reads an array of objects, which is how jsonlite writes data frames, into columns. */
+  private static RServerResult readRows(JsonParser parser) throws IOException {
+    Map<String, RockVector.Builder> columns = new LinkedHashMap<>();
+    int numRows = 0;
+    JsonToken token = START_OBJECT;
+    for (; token == START_OBJECT; token = parser.nextToken()) {
+      while ((token = parser.nextToken()) == FIELD_NAME) {
+        RockVector.Builder column =
+            columns.computeIfAbsent(parser.getCurrentName(), name -> new RockVector.Builder());
+        // a missing value is left out of the row
+        column.padTo(numRows);
+        JsonToken value = parser.nextToken();
+        if (value.isScalarValue()) {
+          addScalar(column, parser, value);
+        } else {
+          column.addResult(readValue(parser, value));
+        }
+      }
+      numRows++;
+    }
+    Map<String, RServerResult> values = new LinkedHashMap<>();
+    for (var column : columns.entrySet()) {
+      column.getValue().padTo(numRows);
+      values.put(column.getKey(), column.getValue().build());
+    }
+    RockNamedList dataFrame = new RockNamedList(values);
+    if (token == END_ARRAY) {
+      return new RockResult(dataFrame);
+    }
+    // not a data frame after all, continue as a list of rows
+    List<RServerResult> rows = new ArrayList<>(dataFrame.toRows(numRows));
+    for (; token != END_ARRAY; token = parser.nextToken()) {
+      rows.add(readValue(parser, token));
+    }
+    return new RockResult(rows);
+  }
+
+  private static void addScalar(RockVector.Builder vector, JsonParser parser, JsonToken token)
+      throws IOException {
+    switch (token) {
+      case VALUE_NULL -> vector.addNA();
+      case VALUE_TRUE -> vector.addBoolean(true);
+      case VALUE_FALSE -> vector.addBoolean(false);
+      case VALUE_NUMBER_INT -> {
+        if (parser.getNumberType() == JsonParser.NumberType.INT) {
+          vector.addInteger(parser.getIntValue());
+        } else {
+          vector.addDouble(parser.getDoubleValue());
+        }
+      }
+      case VALUE_NUMBER_FLOAT -> vector.addDouble(parser.getDoubleValue());
+      case VALUE_STRING -> vector.addString(parser.getText());
+      default -> throw new IOException("Unexpected " + token + " in Rock result");
+    }
+  }
+}
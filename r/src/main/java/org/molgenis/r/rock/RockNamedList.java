@@ -3,6 +3,7 @@ package org.molgenis.r.rock;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import java.util.*;
+import java.util.function.IntFunction;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.molgenis.r.RNamedList;
@@ -27,6 +28,10 @@ public class RockNamedList implements RNamedList<RServerResult> {
     }
   }
 
+  public RockNamedList(Map<String, RServerResult> values) {
+    map.putAll(values);
+  }
+
   public RockNamedList(List<RServerResult> results) {
     // turn rows into columns
     Map<String, List<RServerResult>> mapTmp = Maps.newLinkedHashMap();
@@ -57,14 +62,35 @@ public class RockNamedList implements RNamedList<RServerResult> {
     if (map.isEmpty()) return rows;
 
     List<String> names = getNames();
+    List<IntFunction<Object>> columns = new ArrayList<>(names.size());
+    for (String name : names) {
+      columns.add(getColumn(map.get(name)));
+    }
     var numRows = map.get(names.get(0)).length();
     for (int rowNum = 0; rowNum < numRows; rowNum++) {
       Map<String, Object> converted = new LinkedHashMap<>();
       rows.add(converted);
-      for (String name : names) {
-        RServerResult values = map.get(name);
-        getValueAtIndex(values, rowNum).ifPresent(value -> converted.put(name, value));
+      for (int col = 0; col < names.size(); col++) {
+        Object value = columns.get(col).apply(rowNum);
+        if (value != null) {
+          converted.put(names.get(col), value);
+        }
+      }
+    }
+    return rows;
+  }
+
+  /** Turns columns back into a list of rows, each a named list with values of length one. */
+  List<RServerResult> toRows(int numRows) {
+    Map<String, List<RServerResult>> elements = Maps.newLinkedHashMap();
+    map.forEach((name, values) -> elements.put(name, values.asList()));
+    List<RServerResult> rows = new ArrayList<>(numRows);
+    for (int rowNum = 0; rowNum < numRows; rowNum++) {
+      Map<String, RServerResult> row = Maps.newLinkedHashMap();
+      for (var column : elements.entrySet()) {
+        row.put(column.getKey(), column.getValue().get(rowNum));
       }
+      rows.add(new RockResult(new RockNamedList(row)));
     }
     return rows;
   }
@@ -109,20 +135,29 @@ public class RockNamedList implements RNamedList<RServerResult> {
     return map.entrySet();
   }
 
-  private Optional<Object> getValueAtIndex(RServerResult values, int rowNum) {
-    if (values.isNA()[rowNum]) {
-      return Optional.empty();
+  /**
+   * Returns a function that gets the value of a column at a row index, or null if it is NA. The
+   * values are converted once per column instead of once per cell.
+   */
+  private static IntFunction<Object> getColumn(RServerResult values) {
+    if (values instanceof RockVector vector) {
+      return vector::getValue;
     }
+    boolean[] na = values.isNA();
     if (values.isInteger()) {
-      return Optional.of(values.asIntegers()[rowNum]);
+      int[] integers = values.asIntegers();
+      return rowNum -> na[rowNum] ? null : integers[rowNum];
     } else if (values.isLogical()) {
-      return Optional.of(values.asIntegers()[rowNum]).map(it -> Integer.valueOf(1).equals(it));
+      int[] integers = values.asIntegers();
+      return rowNum -> na[rowNum] ? null : integers[rowNum] == 1;
     } else if (values.isNumeric()) {
-      return Optional.of(values.asDoubles()[rowNum]);
+      double[] doubles = values.asDoubles();
+      return rowNum -> na[rowNum] ? null : doubles[rowNum];
     } else if (values.isString()) {
-      return Optional.ofNullable(values.asStrings()[rowNum]);
+      String[] strings = values.asStrings();
+      return rowNum -> na[rowNum] ? null : strings[rowNum];
     } else {
-      return Optional.empty();
+      return rowNum -> null;
     }
   }
 }
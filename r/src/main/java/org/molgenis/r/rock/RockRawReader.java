@@ -0,0 +1,51 @@
+package org.molgenis.r.rock;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.molgenis.r.RServerResult;
+
+/**
+ * Reads a serialized result while it streams in from Rock. Results up to the threshold are kept in
+ * memory, larger ones are written to a temporary file as they arrive, so they never have to fit
+ * in the heap.
+ */
+public final class RockRawReader {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private RockRawReader() {}
+
+  public static RServerResult read(InputStream body, int threshold) throws IOException {
+    if (body == null) {
+      return new RockResult(new byte[0]);
+    }
+    ByteArrayOutputStream memory = new ByteArrayOutputStream(Math.min(threshold, BUFFER_SIZE));
+    byte[] buffer = new byte[BUFFER_SIZE];
+    int read;
+    while ((read = body.read(buffer)) != -1) {
+      if (memory.size() + read > threshold) {
+        return spill(memory, buffer, read, body);
+      }
+      memory.write(buffer, 0, read);
+    }
+    return new RockResult(memory.toByteArray());
+  }
+
+  private static RServerResult spill(
+      ByteArrayOutputStream memory, byte[] buffer, int read, InputStream body) throws IOException {
+    Path file = Files.createTempFile("armadillo-result-", ".rds");
+    try (OutputStream out = Files.newOutputStream(file)) {
+      memory.writeTo(out);
+      out.write(buffer, 0, read);
+      long size = memory.size() + read + body.transferTo(out);
+      return new SpilledResult(file, size);
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(file);
+      throw e;
+    }
+  }
+}
@@ -46,6 +46,10 @@ public class RockResult implements RServerResult {
     this.jsonResult = object.toString();
   }
 
+  public RockResult(RockNamedList namedList) {
+    this.namedListResult = namedList;
+  }
+
   public RockResult(List<RServerResult> results) {
     this.listResult = results;
   }
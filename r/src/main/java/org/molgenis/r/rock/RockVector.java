@@ -0,0 +1,358 @@
+package org.molgenis.r.rock;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.molgenis.r.RNamedList;
+import org.molgenis.r.RServerResult;
+
+/**
+ * An atomic R vector returned by Rock, stored as one primitive array with a bitmap of the NA
+ * values instead of a result object per element.
+ */
+public class RockVector implements RServerResult {
+
+  enum Type {
+    LOGICAL,
+    INTEGER,
+    DOUBLE,
+    STRING
+  }
+
+  private final Type type;
+  private final int length;
+  private final int[] integers; // INTEGER, and LOGICAL as 1 or 0
+  private final double[] doubles; // DOUBLE
+  private final String[] strings; // STRING
+  private final BitSet na;
+
+  private RockVector(
+      Type type, int length, int[] integers, double[] doubles, String[] strings, BitSet na) {
+    this.type = type;
+    this.length = length;
+    this.integers = integers;
+    this.doubles = doubles;
+    this.strings = strings;
+    this.na = na;
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public byte[] asBytes() {
+    if (type == Type.STRING && length == 1 && !na.get(0)) {
+      return strings[0].getBytes(UTF_8);
+    }
+    return null;
+  }
+
+  @Override
+  public boolean isNumeric() {
+    return type == Type.INTEGER || type == Type.DOUBLE;
+  }
+
+  @Override
+  public double[] asDoubles() {
+    return switch (type) {
+      case DOUBLE -> doubles;
+      case INTEGER, LOGICAL -> {
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+          values[i] = na.get(i) ? Double.NaN : integers[i];
+        }
+        yield values;
+      }
+      case STRING -> null;
+    };
+  }
+
+  @Override
+  public boolean isInteger() {
+    return type == Type.INTEGER;
+  }
+
+  @Override
+  public int[] asIntegers() {
+    return switch (type) {
+      case INTEGER, LOGICAL -> integers;
+      case DOUBLE -> {
+        int[] values = new int[length];
+        for (int i = 0; i < length; i++) {
+          values[i] = (int) doubles[i];
+        }
+        yield values;
+      }
+      case STRING -> null;
+    };
+  }
+
+  @Override
+  public int asInteger() {
+    int[] values = asIntegers();
+    return values != null && values.length > 0 ? values[0] : 0;
+  }
+
+  @Override
+  public boolean isLogical() {
+    return type == Type.LOGICAL;
+  }
+
+  @Override
+  public boolean asLogical() {
+    if (length == 0 || na.get(0)) {
+      return false;
+    }
+    return switch (type) {
+      case LOGICAL, INTEGER -> integers[0] != 0;
+      case DOUBLE -> doubles[0] != 0;
+      case STRING -> Boolean.parseBoolean(strings[0]);
+    };
+  }
+
+  @Override
+  public boolean isNull() {
+    return length == 0 || (length == 1 && na.get(0));
+  }
+
+  @Override
+  public boolean isString() {
+    return type == Type.STRING;
+  }
+
+  @Override
+  public String[] asStrings() {
+    if (type == Type.STRING) {
+      return strings;
+    }
+    String[] values = new String[length];
+    for (int i = 0; i < length; i++) {
+      Object value = getValue(i);
+      values[i] = value != null ? value.toString() : null;
+    }
+    return values;
+  }
+
+  @Override
+  public boolean isList() {
+    return false;
+  }
+
+  /** Splits the vector into vectors of one element, only use this for short vectors. */
+  @Override
+  public List<RServerResult> asList() {
+    List<RServerResult> elements = new ArrayList<>(length);
+    for (int i = 0; i < length; i++) {
+      elements.add(getElement(i));
+    }
+    return elements;
+  }
+
+  @Override
+  public boolean isNamedList() {
+    return false;
+  }
+
+  @Override
+  public RNamedList<RServerResult> asNamedList() {
+    return null;
+  }
+
+  @Override
+  public boolean[] isNA() {
+    boolean[] values = new boolean[length];
+    for (int i = na.nextSetBit(0); i >= 0 && i < length; i = na.nextSetBit(i + 1)) {
+      values[i] = true;
+    }
+    return values;
+  }
+
+  @Override
+  public Object asNativeJavaObject() {
+    List<Object> values = new ArrayList<>(length);
+    for (int i = 0; i < length; i++) {
+      values.add(getValue(i));
+    }
+    return values;
+  }
+
+  /** Returns the value at the given index, or null if it is NA. */
+  Object getValue(int index) {
+    if (na.get(index)) {
+      return null;
+    }
+    return switch (type) {
+      case LOGICAL -> integers[index] == 1;
+      case INTEGER -> integers[index];
+      case DOUBLE -> doubles[index];
+      case STRING -> strings[index];
+    };
+  }
+
+  private RockVector getElement(int index) {
+    BitSet elementNa = new BitSet(1);
+    elementNa.set(0, na.get(index));
+    return new RockVector(
+        type,
+        1,
+        integers != null ? new int[] {integers[index]} : null,
+        doubles != null ? new double[] {doubles[index]} : null,
+        strings != null ? new String[] {strings[index]} : null,
+        elementNa);
+  }
+
+  /**
+   * Collects the elements of a JSON array. The type of the vector is widened while values are
+   * added, in the order logical, integer, double, string. Values that aren't atomic (e.g. nested
+   * lists) turn the result into a list.
+   */
+  static final class Builder {
+    private Type type; // null as long as only NAs were added
+    private double[] numbers = new double[8];
+    private String[] strings;
+    private final BitSet na = new BitSet();
+    // the text of "NaN" and "Inf" values, for when the vector turns out to hold strings
+    private final Map<Integer, String> specialNumbers = new HashMap<>();
+    private int size;
+    private List<RServerResult> elements;
+
+    void addNA() {
+      if (elements != null) {
+        elements.add(new Builder().withNA().build());
+        return;
+      }
+      grow();
+      na.set(size++);
+    }
+
+    void addBoolean(boolean value) {
+      add(Type.LOGICAL, value ? 1 : 0, null);
+    }
+
+    void addInteger(int value) {
+      add(Type.INTEGER, value, null);
+    }
+
+    void addDouble(double value) {
+      add(Type.DOUBLE, value, null);
+    }
+
+    /**
+     * Adds a string, where "NA" is a missing value and "NaN" and "Inf" are numbers if the vector
+     * is numeric so far.
+     */
+    void addString(String value) {
+      if (value == null || value.equals("NA")) {
+        addNA();
+      } else if (isNumeric() && isSpecialNumber(value)) {
+        if (elements == null) {
+          specialNumbers.put(size, value);
+        }
+        addDouble(Double.parseDouble(value.replace("Inf", "Infinity")));
+      } else {
+        add(Type.STRING, 0, value);
+      }
+    }
+
+    void addResult(RServerResult value) {
+      if (elements == null) {
+        elements = new ArrayList<>(build().asList());
+      }
+      elements.add(value);
+    }
+
+    /** Adds NAs until the vector has the given size, e.g. for a row that lacks a column. */
+    void padTo(int newSize) {
+      while (size() < newSize) {
+        addNA();
+      }
+    }
+
+    int size() {
+      return elements != null ? elements.size() : size;
+    }
+
+    RServerResult build() {
+      if (elements != null) {
+        return new RockResult(elements);
+      }
+      Type vectorType = type != null ? type : Type.LOGICAL;
+      BitSet vectorNa = (BitSet) na.clone();
+      return switch (vectorType) {
+        case LOGICAL, INTEGER -> {
+          int[] values = new int[size];
+          for (int i = 0; i < size; i++) {
+            values[i] = (int) numbers[i];
+          }
+          yield new RockVector(vectorType, size, values, null, null, vectorNa);
+        }
+        case DOUBLE ->
+            new RockVector(vectorType, size, null, Arrays.copyOf(numbers, size), null, vectorNa);
+        case STRING ->
+            new RockVector(vectorType, size, null, null, Arrays.copyOf(strings, size), vectorNa);
+      };
+    }
+
+    private Builder withNA() {
+      addNA();
+      return this;
+    }
+
+    private void add(Type valueType, double number, String string) {
+      if (elements != null) {
+        Builder element = new Builder();
+        element.add(valueType, number, string);
+        elements.add(element.build());
+        return;
+      }
+      grow();
+      Type newType = type == null || valueType.compareTo(type) > 0 ? valueType : type;
+      if (newType == Type.STRING && type != Type.STRING) {
+        strings = new String[numbers.length];
+        for (int i = 0; i < size; i++) {
+          strings[i] = na.get(i) ? null : specialNumbers.getOrDefault(i, format(type, numbers[i]));
+        }
+        specialNumbers.clear();
+      }
+      type = newType;
+      if (type == Type.STRING) {
+        strings[size] = string != null ? string : format(valueType, number);
+      } else {
+        numbers[size] = number;
+      }
+      size++;
+    }
+
+    private void grow() {
+      if (size == numbers.length) {
+        numbers = Arrays.copyOf(numbers, size * 2);
+        if (strings != null) {
+          strings = Arrays.copyOf(strings, size * 2);
+        }
+      }
+    }
+
+    private boolean isNumeric() {
+      return type == null || type == Type.INTEGER || type == Type.DOUBLE;
+    }
+
+    private static boolean isSpecialNumber(String value) {
+      return value.equals("NaN") || value.equals("Inf") || value.equals("-Inf");
+    }
+
+    private static String format(Type valueType, double number) {
+      return switch (valueType) {
+        case LOGICAL -> number != 0 ? "TRUE" : "FALSE";
+        case INTEGER -> Integer.toString((int) number);
+        default -> Double.toString(number);
+      };
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package org.molgenis.r.rock;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.molgenis.r.RNamedList;
+import org.molgenis.r.RServerResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A raw result that was too large to keep in memory, stored in a temporary file. The result can be
+ * streamed with {@link #asInputStream()} as often as needed, the file is deleted when it is
+ * closed.
+ */
+public class SpilledResult implements RServerResult, Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(SpilledResult.class);
+
+  private final Path file;
+  private final long size;
+
+  SpilledResult(Path file, long size) {
+    this.file = file;
+    this.size = size;
+  }
+
+  public long size() {
+    return size;
+  }
+
+  Path getFile() {
+    return file;
+  }
+
+  @Override
+  public int length() {
+    return size > Integer.MAX_VALUE ? -1 : (int) size;
+  }
+
+  /** Reads the whole result into memory, prefer {@link #asInputStream()}. */
+  @Override
+  public byte[] asBytes() {
+    try {
+      return Files.readAllBytes(file);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Streams the result from its file.
+   *
+   * @throws UncheckedIOException with a {@link java.nio.file.NoSuchFileException} if the result
+   *     was closed
+   */
+  @Override
+  public InputStream asInputStream() {
+    try {
+      return Files.newInputStream(file);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public boolean isNumeric() {
+    return false;
+  }
+
+  @Override
+  public double[] asDoubles() {
+    return null;
+  }
+
+  @Override
+  public boolean isInteger() {
+    return false;
+  }
+
+  @Override
+  public int[] asIntegers() {
+    return null;
+  }
+
+  @Override
+  public int asInteger() {
+    return 0;
+  }
+
+  @Override
+  public boolean isLogical() {
+    return false;
+  }
+
+  @Override
+  public boolean asLogical() {
+    return false;
+  }
+
+  @Override
+  public boolean isNull() {
+    return false;
+  }
+
+  @Override
+  public boolean isString() {
+    return false;
+  }
+
+  @Override
+  public String[] asStrings() {
+    return null;
+  }
+
+  @Override
+  public boolean isList() {
+    return false;
+  }
+
+  @Override
+  public List<RServerResult> asList() {
+    return null;
+  }
+
+  @Override
+  public boolean isNamedList() {
+    return false;
+  }
+
+  @Override
+  public RNamedList<RServerResult> asNamedList() {
+    return null;
+  }
+
+  @Override
+  public boolean[] isNA() {
+    return new boolean[] {false};
+  }
+
+  @Override
+  public Object asNativeJavaObject() {
+    return asBytes();
+  }
+
+  /** Deletes the file, a stream that is still open can be read to the end. */
+  @Override
+  public void close() {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      logger.warn("Unable to delete spilled result {}", file, e);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "SpilledResult[" + size + " bytes]";
+  }
+}
@@ -0,0 +1,65 @@
+package org.molgenis.r.rserve;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Consumer;
+import org.molgenis.r.RServerConnection;
+import org.molgenis.r.RServerException;
+import org.molgenis.r.RServerResult;
+import org.rosuda.REngine.REXP;
+import org.rosuda.REngine.REXPMismatchException;
+import org.rosuda.REngine.Rserve.RConnection;
+import org.rosuda.REngine.Rserve.RserveException;
+
+/**
+ * A session on an Rserve server. Every connection to Rserve gets its own forked R process, which
+ * ends when the connection is closed.
+ */
+public class RserveConnection implements RServerConnection {
+
+  private final RConnection connection;
+
+  public RserveConnection(RConnection connection) {
+    this.connection = connection;
+  }
+
+  @Override
+  public RServerResult eval(String expr, boolean serialized) throws RServerException {
+    String body = serialized ? "base::serialize({\n" + expr + "\n}, NULL)" : expr;
+    try {
+      // Rserve only reports an error code, try() gives us the message
+      REXP result = connection.eval("base::try({\n" + body + "\n}, silent = TRUE)");
+      if (result != null && result.inherits("try-error")) {
+        throw new RserveServerException(result.asString().trim());
+      }
+      return new RserveResult(result);
+    } catch (RserveException | REXPMismatchException e) {
+      throw new RserveServerException("Evaluation failed", e);
+    }
+  }
+
+  @Override
+  public void writeFile(String fileName, InputStream in) throws RServerException {
+    try (OutputStream out = connection.createFile(fileName)) {
+      in.transferTo(out);
+    } catch (IOException e) {
+      throw new RserveServerException("File upload failed", e);
+    }
+  }
+
+  @Override
+  public void readFile(String fileName, Consumer<InputStream> inputStreamConsumer)
+      throws RServerException {
+    try (InputStream in = connection.openFile(fileName)) {
+      inputStreamConsumer.accept(in);
+    } catch (IOException e) {
+      throw new RserveServerException("File download failed", e);
+    }
+  }
+
+  @Override
+  public boolean close() {
+    return connection.close();
+  }
+}
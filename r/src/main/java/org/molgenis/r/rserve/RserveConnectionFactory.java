@@ -0,0 +1,39 @@
+package org.molgenis.r.rserve;
+
+import static java.lang.String.format;
+
+import org.molgenis.r.RConnectionVendorFactory;
+import org.molgenis.r.RServerConnection;
+import org.molgenis.r.config.EnvironmentConfigProps;
+import org.molgenis.r.exceptions.ConnectionCreationFailedException;
+import org.rosuda.REngine.Rserve.RConnection;
+import org.rosuda.REngine.Rserve.RserveException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Creates connections to an Rserve R server, using its binary QAP1 protocol. */
+public class RserveConnectionFactory implements RConnectionVendorFactory {
+
+  private static final Logger logger = LoggerFactory.getLogger(RserveConnectionFactory.class);
+
+  private final EnvironmentConfigProps environment;
+
+  public RserveConnectionFactory(EnvironmentConfigProps environment) {
+    this.environment = environment;
+  }
+
+  @Override
+  public RServerConnection tryCreateConnection() {
+    if (logger.isDebugEnabled()) {
+      logger.debug(
+          format(
+              "Trying to connect to instance: [ %s ] on [ %s ]",
+              environment.getHost(), environment.getPort()));
+    }
+    try {
+      return new RserveConnection(new RConnection(environment.getHost(), environment.getPort()));
+    } catch (RserveException e) {
+      throw new ConnectionCreationFailedException(e);
+    }
+  }
+}
@@ -0,0 +1,137 @@
+package org.molgenis.r.rserve;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+import org.molgenis.r.RNamedList;
+import org.molgenis.r.RServerResult;
+import org.molgenis.r.exceptions.RExecutionException;
+import org.rosuda.REngine.REXP;
+import org.rosuda.REngine.REXPMismatchException;
+import org.rosuda.REngine.REXPVector;
+import org.rosuda.REngine.RList;
+
+/** A named list, e.g. a data frame, returned by Rserve. */
+public class RserveNamedList implements RNamedList<RServerResult> {
+
+  private final Map<String, RServerResult> map = Maps.newLinkedHashMap();
+
+  public RserveNamedList(RList list) {
+    for (int i = 0; i < list.size(); i++) {
+      String name = list.isNamed() ? list.keyAt(i) : null;
+      map.put(name != null ? name : String.valueOf(i + 1), new RserveResult(list.at(i)));
+    }
+  }
+
+  @Override
+  public List<String> getNames() {
+    return Lists.newArrayList(map.keySet());
+  }
+
+  /** Converts the columns once each, instead of looking up every value separately. */
+  @Override
+  public List<Map<String, Object>> asRows() {
+    List<Map<String, Object>> rows = new ArrayList<>();
+    if (map.isEmpty()) return rows;
+
+    List<String> names = getNames();
+    List<Object[]> columns = new ArrayList<>(names.size());
+    for (String name : names) {
+      columns.add(toColumn(((RserveResult) map.get(name)).getREXP()));
+    }
+    int numRows = columns.get(0).length;
+    for (int rowNum = 0; rowNum < numRows; rowNum++) {
+      Map<String, Object> converted = new LinkedHashMap<>();
+      rows.add(converted);
+      for (int col = 0; col < names.size(); col++) {
+        Object[] column = columns.get(col);
+        if (rowNum < column.length && column[rowNum] != null) {
+          converted.put(names.get(col), column[rowNum]);
+        }
+      }
+    }
+    return rows;
+  }
+
+  @Override
+  public int size() {
+    return map.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return map.isEmpty();
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return map.containsKey(key);
+  }
+
+  @Override
+  public boolean containsValue(Object value) {
+    return map.containsValue(value);
+  }
+
+  @Override
+  public RServerResult get(Object key) {
+    return map.get(key);
+  }
+
+  @Override
+  public Set<String> keySet() {
+    return map.keySet();
+  }
+
+  @Override
+  public Collection<RServerResult> values() {
+    return map.values();
+  }
+
+  @Override
+  public Set<Entry<String, RServerResult>> entrySet() {
+    return map.entrySet();
+  }
+
+  /** Returns the values of a column, with null for NA and for values of unsupported types. */
+  private static Object[] toColumn(REXP values) {
+    if (!(values instanceof REXPVector vector)) {
+      return new Object[0];
+    }
+    try {
+      boolean[] na = vector.isNA();
+      Object[] column = new Object[na.length];
+      if (values.isFactor()) {
+        String[] strings = values.asStrings();
+        fill(column, na, i -> strings[i]);
+      } else if (values.isLogical()) {
+        int[] integers = values.asIntegers();
+        fill(column, na, i -> integers[i] == 1);
+      } else if (values.isInteger()) {
+        int[] integers = values.asIntegers();
+        fill(column, na, i -> integers[i]);
+      } else if (values.isNumeric()) {
+        double[] doubles = values.asDoubles();
+        fill(column, na, i -> doubles[i]);
+      } else if (values.isString()) {
+        String[] strings = values.asStrings();
+        fill(column, na, i -> strings[i]);
+      }
+      return column;
+    } catch (REXPMismatchException e) {
+      throw new RExecutionException(e);
+    }
+  }
+
+  private static void fill(Object[] column, boolean[] na, IntFunction<?> value) {
+    for (int i = 0; i < column.length; i++) {
+      column[i] = na[i] ? null : value.apply(i);
+    }
+  }
+}
@@ -0,0 +1,154 @@
+package org.molgenis.r.rserve;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.molgenis.r.RNamedList;
+import org.molgenis.r.RServerResult;
+import org.molgenis.r.exceptions.RExecutionException;
+import org.rosuda.REngine.REXP;
+import org.rosuda.REngine.REXPLogical;
+import org.rosuda.REngine.REXPMismatchException;
+import org.rosuda.REngine.REXPNull;
+import org.rosuda.REngine.REXPVector;
+import org.rosuda.REngine.RList;
+
+/** An evaluation result of Rserve, which is the R expression itself rather than its JSON. */
+public class RserveResult implements RServerResult {
+
+  private final REXP result;
+
+  public RserveResult(REXP result) {
+    this.result = result != null ? result : new REXPNull();
+  }
+
+  @Override
+  public int length() {
+    try {
+      return result.length();
+    } catch (REXPMismatchException e) {
+      return -1;
+    }
+  }
+
+  @Override
+  public byte[] asBytes() {
+    if (!result.isRaw()) {
+      return null;
+    }
+    return convert(result::asBytes);
+  }
+
+  @Override
+  public boolean isNumeric() {
+    return result.isNumeric();
+  }
+
+  @Override
+  public double[] asDoubles() {
+    return convert(result::asDoubles);
+  }
+
+  @Override
+  public boolean isInteger() {
+    return result.isInteger();
+  }
+
+  @Override
+  public int[] asIntegers() {
+    return convert(result::asIntegers);
+  }
+
+  @Override
+  public int asInteger() {
+    return convert(result::asInteger);
+  }
+
+  @Override
+  public boolean isLogical() {
+    return result.isLogical();
+  }
+
+  @Override
+  public boolean asLogical() {
+    if (result instanceof REXPLogical logical) {
+      boolean[] values = logical.isTRUE();
+      return values.length > 0 && values[0];
+    }
+    return length() > 0 && asInteger() == 1;
+  }
+
+  @Override
+  public boolean isNull() {
+    return result.isNull();
+  }
+
+  @Override
+  public boolean isString() {
+    return result.isString();
+  }
+
+  @Override
+  public String[] asStrings() {
+    return convert(result::asStrings);
+  }
+
+  @Override
+  public boolean isList() {
+    return result.isList();
+  }
+
+  @Override
+  public List<RServerResult> asList() {
+    if (!isList()) {
+      return null;
+    }
+    RList list = convert(result::asList);
+    List<RServerResult> results = new ArrayList<>(list.size());
+    for (int i = 0; i < list.size(); i++) {
+      results.add(new RserveResult(list.at(i)));
+    }
+    return results;
+  }
+
+  @Override
+  public boolean isNamedList() {
+    return isList() && convert(result::asList).isNamed();
+  }
+
+  @Override
+  public RNamedList<RServerResult> asNamedList() {
+    if (!isList()) {
+      return null;
+    }
+    return new RserveNamedList(convert(result::asList));
+  }
+
+  @Override
+  public boolean[] isNA() {
+    if (result instanceof REXPVector vector) {
+      return vector.isNA();
+    }
+    return new boolean[] {result.isNull()};
+  }
+
+  @Override
+  public Object asNativeJavaObject() {
+    return convert(result::asNativeJavaObject);
+  }
+
+  REXP getREXP() {
+    return result;
+  }
+
+  private interface Conversion<T> {
+    T apply() throws REXPMismatchException;
+  }
+
+  private static <T> T convert(Conversion<T> conversion) {
+    try {
+      return conversion.apply();
+    } catch (REXPMismatchException e) {
+      throw new RExecutionException(e);
+    }
+  }
+}
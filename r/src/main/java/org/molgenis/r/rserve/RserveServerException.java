@@ -0,0 +1,14 @@
+package org.molgenis.r.rserve;
+
+import org.molgenis.r.RServerException;
+
+public class RserveServerException extends RServerException {
+
+  public RserveServerException(String message) {
+    super(message);
+  }
+
+  public RserveServerException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -58,13 +58,13 @@ public class ProcessServiceImpl implements ProcessService {
 
   @Override
   public int countRserveProcesses(RServerConnection connection) {
-    try {
-      return ((RServerResult)
-              rExecutorService.execute(COUNT_RSERVE_PROCESSES_COMMAND, connection).asList().get(0))
-          .asInteger();
-    } catch (ClassCastException e) {
-      throw new RExecutionException(e);
+    RNamedList<RServerResult> result =
+        rExecutorService.execute(COUNT_RSERVE_PROCESSES_COMMAND, connection).asNamedList();
+    RServerResult count = result == null ? null : result.get("n");
+    if (count == null) {
+      throw new RExecutionException("Unable to count the Rserve processes");
     }
+    return count.asInteger();
   }
 
   @Override
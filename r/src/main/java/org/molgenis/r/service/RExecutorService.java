@@ -4,6 +4,7 @@ import java.io.InputStream;
 import java.security.Principal;
 import java.util.List;
 import java.util.function.Consumer;
+import org.molgenis.r.RScript;
 import org.molgenis.r.RServerConnection;
 import org.molgenis.r.RServerResult;
 import org.springframework.core.io.Resource;
@@ -15,6 +16,15 @@ public interface RExecutorService {
 
   RServerResult execute(String cmd, boolean serialized, RServerConnection connection);
 
+  /** Executes the command and streams its serialized result into the input stream consumer. */
+  void execute(
+      String cmd, RServerConnection connection, Consumer<InputStream> inputStreamConsumer);
+
+  /** Executes the steps of the script in a single evaluation. */
+  default RServerResult execute(RScript script, RServerConnection connection) {
+    return execute(script.getScript(), connection);
+  }
+
   void saveWorkspace(RServerConnection connection, Consumer<InputStream> inputStreamConsumer);
 
   void loadWorkspace(RServerConnection connection, Resource resource, String environment);
@@ -26,6 +36,14 @@ public interface RExecutorService {
       String symbol,
       List<String> variables);
 
+  /**
+   * Loads a table from a file that the R server can read, e.g. on a mount of the storage.
+   *
+   * @return false if the file doesn't exist on the R server, nothing is loaded then
+   */
+  boolean loadTable(
+      RServerConnection connection, String path, String symbol, List<String> variables);
+
   void loadResource(
       Principal principal,
       RServerConnection connection,
@@ -33,5 +51,13 @@ public interface RExecutorService {
       String filename,
       String symbol);
 
+  /**
+   * Loads a resource from a file that the R server can read, e.g. on a mount of the storage.
+   *
+   * @return false if the file doesn't exist on the R server, nothing is loaded then
+   */
+  boolean loadResource(
+      Principal principal, RServerConnection connection, String path, String symbol);
+
   void installPackage(RServerConnection connection, Resource packageResource, String name);
 }
@@ -8,6 +8,7 @@ import java.security.Principal;
 import java.util.List;
 import java.util.function.Consumer;
 import org.molgenis.r.Formatter;
+import org.molgenis.r.RScript;
 import org.molgenis.r.RServerConnection;
 import org.molgenis.r.RServerException;
 import org.molgenis.r.RServerResult;
@@ -40,6 +41,18 @@ public class RExecutorServiceImpl implements RExecutorService {
     }
   }
 
+  @Override
+  public void execute(
+      String cmd, RServerConnection connection, Consumer<InputStream> inputStreamConsumer) {
+    try {
+      LOGGER.debug("Evaluate {}", cmd);
+      connection.eval(cmd, inputStreamConsumer);
+    } catch (RServerException e) {
+      LOGGER.warn("RServerException", e);
+      throw new RExecutionException(e);
+    }
+  }
+
   @Override
   public void saveWorkspace(
       RServerConnection connection, Consumer<InputStream> inputStreamConsumer) {
@@ -58,8 +71,10 @@ public class RExecutorServiceImpl implements RExecutorService {
     LOGGER.debug("Load workspace into {}", environment);
     try {
       copyFile(resource, ".RData", connection);
-      connection.eval(format("base::load(file='.RData', envir=%s)", environment));
-      connection.eval("base::unlink('.RData')");
+      connection.eval(
+          new RScript()
+              .add("load workspace", format("base::load(file='.RData', envir=%s)", environment))
+              .add("unlink .RData", "base::unlink('.RData')"));
     } catch (IOException | RServerException e) {
       throw new RExecutionException(e);
     }
@@ -76,29 +91,26 @@ public class RExecutorServiceImpl implements RExecutorService {
     String rFileName = filename.replace("/", "_");
     try {
       copyFile(resource, rFileName, connection);
-      if (variables.isEmpty()) {
-        execute(
-            format(
-                "is.null(base::assign('%s', value={data.frame(arrow::read_parquet('%s', as_data_frame = FALSE))}))",
-                symbol, rFileName),
-            connection);
-      } else {
-        String colSelect =
-            "tidyselect::any_of("
-                + Formatter.stringVector(variables.toArray(new String[] {}))
-                + ")";
-        execute(
-            format(
-                "is.null(base::assign('%s', value={data.frame(arrow::read_parquet('%s', as_data_frame = FALSE, col_select = %s))}))",
-                symbol, rFileName, colSelect),
-            connection);
-      }
-      execute(format("base::unlink('%s')", rFileName), connection);
+      execute(
+          new RScript()
+              .add("assign " + symbol, assignTable(symbol, rFileName, variables))
+              .add("unlink " + rFileName, format("base::unlink('%s')", rFileName)),
+          connection);
     } catch (IOException | RServerException e) {
       throw new RExecutionException(e);
     }
   }
 
+  @Override
+  public boolean loadTable(
+      RServerConnection connection, String path, String symbol, List<String> variables) {
+    LOGGER.debug("Load table from path {} into {}", path, symbol);
+    return loadIfExists(
+        path,
+        new RScript().add("assign " + symbol, assignTable(symbol, path, variables)),
+        connection);
+  }
+
   @Override
   public void loadResource(
       Principal principal,
@@ -109,29 +121,76 @@ public class RExecutorServiceImpl implements RExecutorService {
     LOGGER.debug("Load resource from file {} into {}", filename, symbol);
     String rFileName = filename.replace("/", "_");
     try {
+      RScript script = new RScript();
       if (principal instanceof JwtAuthenticationToken token) {
-        String tokenValue = token.getToken().getTokenValue();
         copyFile(resource, rFileName, connection);
-        execute(format("is.null(base::assign('rds',base::readRDS('%s')))", rFileName), connection);
-        execute(format("base::unlink('%s')", rFileName), connection);
-        execute(
-            format(
-                """
+        script
+            .add("read " + rFileName, readResource(rFileName))
+            .add("unlink " + rFileName, format("base::unlink('%s')", rFileName))
+            .add("create resource", createResource(token));
+      }
+      script.add("assign " + symbol, assignResourceClient(symbol));
+      execute(script, connection);
+    } catch (Exception e) {
+      throw new RExecutionException(e);
+    }
+  }
+
+  @Override
+  public boolean loadResource(
+      Principal principal, RServerConnection connection, String path, String symbol) {
+    LOGGER.debug("Load resource from path {} into {}", path, symbol);
+    RScript script = new RScript();
+    if (principal instanceof JwtAuthenticationToken token) {
+      script.add("read " + path, readResource(path)).add("create resource", createResource(token));
+    }
+    script.add("assign " + symbol, assignResourceClient(symbol));
+    return loadIfExists(path, script, connection);
+  }
+
+  /** Evaluates the script if the file exists on the R server, in one round trip. */
+  private boolean loadIfExists(String path, RScript script, RServerConnection connection) {
+    script.add("done", "TRUE");
+    String statement =
+        format("if (base::file.exists('%s')) %s else FALSE", path, script.getScript());
+    return execute(statement, connection).asLogical();
+  }
+
+  private static String assignTable(String symbol, String file, List<String> variables) {
+    String readParquet;
+    if (variables.isEmpty()) {
+      readParquet = format("arrow::read_parquet('%s', as_data_frame = FALSE)", file);
+    } else {
+      String colSelect =
+          "tidyselect::any_of("
+              + Formatter.stringVector(variables.toArray(new String[] {}))
+              + ")";
+      readParquet =
+          format(
+              "arrow::read_parquet('%s', as_data_frame = FALSE, col_select = %s)",
+              file, colSelect);
+    }
+    return format("is.null(base::assign('%s', value={data.frame(%s)}))", symbol, readParquet);
+  }
+
+  private static String readResource(String file) {
+    return format("is.null(base::assign('rds',base::readRDS('%s')))", file);
+  }
+
+  private static String createResource(JwtAuthenticationToken token) {
+    return format(
+        """
                                   is.null(base::assign('R', value={resourcer::newResource(
                                           name = rds$name,
                                           url = rds$url,
                                           format = rds$format,
                                           secret = "%s"
                                   )}))""",
-                tokenValue),
-            connection);
-      }
-      execute(
-          format("is.null(base::assign('%s', value={resourcer::newResourceClient(R)}))", symbol),
-          connection);
-    } catch (Exception e) {
-      throw new RExecutionException(e);
-    }
+        token.getToken().getTokenValue());
+  }
+
+  private static String assignResourceClient(String symbol) {
+    return format("is.null(base::assign('%s', value={resourcer::newResourceClient(R)}))", symbol);
   }
 
   @Override
@@ -0,0 +1,45 @@
+package org.molgenis.r;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class RScriptTest {
+
+  @Test
+  void testGetScript() {
+    RScript script =
+        new RScript().add("assign D", "base::assign('D', 1)").add("unlink x", "base::unlink('x')");
+
+    assertEquals(
+        """
+        {
+        base::tryCatch({
+        base::assign('D', 1)
+        }, error = function(e) base::stop(base::paste0("Step 1 (assign D) failed: ", \
+        base::conditionMessage(e)), call. = FALSE))
+        base::tryCatch({
+        base::unlink('x')
+        }, error = function(e) base::stop(base::paste0("Step 2 (unlink x) failed: ", \
+        base::conditionMessage(e)), call. = FALSE))
+        }""",
+        script.getScript());
+    assertEquals(2, script.size());
+  }
+
+  @Test
+  void testDescriptionIsEscaped() {
+    RScript script = new RScript().add("assign \"D\"", "1");
+
+    assertTrue(script.getScript().contains("\"Step 1 (assign \\\"D\\\") failed: \""));
+  }
+
+  @Test
+  void testEmpty() {
+    RScript script = new RScript();
+
+    assertTrue(script.isEmpty());
+    assertEquals("{\n}", script.getScript());
+  }
+}
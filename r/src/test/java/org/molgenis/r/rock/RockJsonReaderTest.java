@@ -0,0 +1,139 @@
+package org.molgenis.r.rock;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.molgenis.r.RServerResult;
+
+class RockJsonReaderTest {
+
+  @Test
+  void testIntegers() throws IOException {
+    RServerResult result = RockJsonReader.read("[1, 2, \"NA\", 4]");
+
+    assertInstanceOf(RockVector.class, result);
+    assertTrue(result.isInteger());
+    assertTrue(result.isNumeric());
+    assertEquals(4, result.length());
+    assertArrayEquals(new boolean[] {false, false, true, false}, result.isNA());
+    assertEquals(1, result.asIntegers()[0]);
+    assertEquals(4, result.asIntegers()[3]);
+  }
+
+  @Test
+  void testDoublesWidenIntegers() throws IOException {
+    RServerResult result = RockJsonReader.read("[1, 2.5, \"Inf\", null]");
+
+    assertFalse(result.isInteger());
+    assertTrue(result.isNumeric());
+    double[] doubles = result.asDoubles();
+    assertEquals(1.0, doubles[0]);
+    assertEquals(2.5, doubles[1]);
+    assertEquals(Double.POSITIVE_INFINITY, doubles[2]);
+    assertArrayEquals(new boolean[] {false, false, false, true}, result.isNA());
+  }
+
+  @Test
+  void testStrings() throws IOException {
+    RServerResult result = RockJsonReader.read("[\"a\", null, \"b\"]");
+
+    assertTrue(result.isString());
+    assertArrayEquals(new String[] {"a", null, "b"}, result.asStrings());
+  }
+
+  @Test
+  void testMixedBecomesStrings() throws IOException {
+    RServerResult result = RockJsonReader.read("[1, true, \"a\"]");
+
+    assertTrue(result.isString());
+    assertArrayEquals(new String[] {"1", "TRUE", "a"}, result.asStrings());
+  }
+
+  @Test
+  void testSpecialNumbersInStrings() throws IOException {
+    assertArrayEquals(
+        new String[] {"Inf", "a", "NaN"},
+        RockJsonReader.read("[\"Inf\", \"a\", \"NaN\"]").asStrings());
+    assertArrayEquals(
+        new String[] {"TRUE", "-Inf"}, RockJsonReader.read("[true, \"-Inf\"]").asStrings());
+  }
+
+  @Test
+  void testLogical() throws IOException {
+    RServerResult result = RockJsonReader.read("[true]");
+
+    assertTrue(result.isLogical());
+    assertTrue(result.asLogical());
+  }
+
+  @Test
+  void testEmptyObjectIsNull() throws IOException {
+    assertTrue(RockJsonReader.read("{}").isNull());
+  }
+
+  @Test
+  void testDataFrameRows() throws IOException {
+    RServerResult result =
+        RockJsonReader.read(
+            "[{\"pid\": 1, \"name\": \"Rserve\", \"user\": 0.5},"
+                + " {\"pid\": 2, \"user\": 1},"
+                + " {\"pid\": 3, \"name\": \"R\", \"user\": 1.5, \"extra\": true}]");
+
+    assertTrue(result.isNamedList());
+    var dataFrame = result.asNamedList();
+    assertEquals(List.of("pid", "name", "user", "extra"), dataFrame.getNames());
+    assertArrayEquals(new int[] {1, 2, 3}, dataFrame.get("pid").asIntegers());
+    assertArrayEquals(new boolean[] {true, true, false}, dataFrame.get("extra").isNA());
+    assertEquals(
+        List.of(
+            Map.of("pid", 1, "name", "Rserve", "user", 0.5),
+            Map.of("pid", 2, "user", 1.0),
+            Map.of("pid", 3, "name", "R", "user", 1.5, "extra", true)),
+        dataFrame.asRows());
+  }
+
+  @Test
+  void testNamedList() throws IOException {
+    RServerResult result = RockJsonReader.read("{\"a\": [1, 2], \"b\": {\"c\": [\"x\"]}}");
+
+    assertTrue(result.isNamedList());
+    assertArrayEquals(new int[] {1, 2}, result.asNamedList().get("a").asIntegers());
+    assertArrayEquals(
+        new String[] {"x"}, result.asNamedList().get("b").asNamedList().get("c").asStrings());
+  }
+
+  @Test
+  void testNestedArraysBecomeList() throws IOException {
+    RServerResult result = RockJsonReader.read("[1, [2, 3]]");
+
+    assertTrue(result.isList());
+    List<RServerResult> elements = result.asList();
+    assertEquals(2, elements.size());
+    assertEquals(1, elements.get(0).asInteger());
+    assertArrayEquals(new int[] {2, 3}, elements.get(1).asIntegers());
+  }
+
+  @Test
+  void testObjectsAndValuesBecomeList() throws IOException {
+    RServerResult result = RockJsonReader.read("[{\"a\": 1}, 2]");
+
+    assertTrue(result.isList());
+    List<RServerResult> elements = result.asList();
+    assertEquals(1, elements.get(0).asNamedList().get("a").asInteger());
+    assertEquals(2, elements.get(1).asInteger());
+  }
+
+  @Test
+  void testNativeJavaObject() throws IOException {
+    assertEquals(
+        Arrays.asList(1.5, null), RockJsonReader.read("[1.5, \"NA\"]").asNativeJavaObject());
+  }
+}
@@ -0,0 +1,71 @@
+package org.molgenis.r.rock;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.molgenis.r.RServerResult;
+
+class RockRawReaderTest {
+
+  private final byte[] bytes = randomBytes(100_000);
+
+  @Test
+  void testReadKeepsSmallResultInMemory() throws IOException {
+    RServerResult result = RockRawReader.read(new ByteArrayInputStream(bytes), bytes.length);
+
+    assertInstanceOf(RockResult.class, result);
+    assertArrayEquals(bytes, result.asBytes());
+  }
+
+  @Test
+  void testReadSpillsLargeResult() throws IOException {
+    RServerResult result = RockRawReader.read(new ByteArrayInputStream(bytes), 1000);
+
+    SpilledResult spilled = assertInstanceOf(SpilledResult.class, result);
+    assertEquals(bytes.length, spilled.size());
+    Path file = spilled.getFile();
+    assertTrue(Files.exists(file));
+    try (InputStream inputStream = spilled.asInputStream()) {
+      assertArrayEquals(bytes, inputStream.readAllBytes());
+    }
+    assertTrue(Files.exists(file));
+    try (InputStream inputStream = spilled.asInputStream()) {
+      assertArrayEquals(bytes, inputStream.readAllBytes());
+    }
+    spilled.close();
+    assertFalse(Files.exists(file));
+  }
+
+  @Test
+  void testCloseDeletesSpilledResult() throws IOException {
+    SpilledResult spilled =
+        (SpilledResult) RockRawReader.read(new ByteArrayInputStream(bytes), 1000);
+    Path file = spilled.getFile();
+
+    assertArrayEquals(bytes, spilled.asBytes());
+    spilled.close();
+
+    assertFalse(Files.exists(file));
+  }
+
+  @Test
+  void testReadEmptyBody() throws IOException {
+    assertArrayEquals(new byte[0], RockRawReader.read(null, 1000).asBytes());
+  }
+
+  private static byte[] randomBytes(int size) {
+    byte[] result = new byte[size];
+    new Random(42).nextBytes(result);
+    return result;
+  }
+}
@@ -0,0 +1,194 @@
+package org.molgenis.r.rserve;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import org.rosuda.REngine.REXP;
+import org.rosuda.REngine.REXPMismatchException;
+import org.rosuda.REngine.Rserve.protocol.REXPFactory;
+
+/**
+ * Speaks just enough of the Rserve QAP1 protocol to test {@link RserveConnection} without R.
+ * Expressions are answered by the given evaluator and files are kept in memory.
+ */
+class FakeRserveServer implements Closeable {
+
+  private static final int CMD_VOID_EVAL = 0x002;
+  private static final int CMD_EVAL = 0x003;
+  private static final int CMD_OPEN_FILE = 0x010;
+  private static final int CMD_CREATE_FILE = 0x011;
+  private static final int CMD_CLOSE_FILE = 0x012;
+  private static final int CMD_READ_FILE = 0x013;
+  private static final int CMD_WRITE_FILE = 0x014;
+  private static final int RESP_OK = 0x10001;
+  private static final int RESP_ERR = 0x10002;
+  private static final int ERR_IO_ERROR = 0x42;
+  private static final int DT_SEXP = 10;
+
+  private final ServerSocket serverSocket;
+  private final Function<String, REXP> evaluator;
+  private final List<String> expressions = new CopyOnWriteArrayList<>();
+  private final Map<String, byte[]> files = new ConcurrentHashMap<>();
+
+  FakeRserveServer(Function<String, REXP> evaluator) throws IOException {
+    this.evaluator = evaluator;
+    this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    Thread acceptor = new Thread(this::accept, "fake-rserve");
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  String getHost() {
+    return serverSocket.getInetAddress().getHostAddress();
+  }
+
+  int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  List<String> getExpressions() {
+    return expressions;
+  }
+
+  Map<String, byte[]> getFiles() {
+    return files;
+  }
+
+  @Override
+  public void close() throws IOException {
+    serverSocket.close();
+  }
+
+  private void accept() {
+    try {
+      while (true) {
+        Socket socket = serverSocket.accept();
+        Thread session = new Thread(() -> serve(socket), "fake-rserve-session");
+        session.setDaemon(true);
+        session.start();
+      }
+    } catch (IOException e) {
+      // closed
+    }
+  }
+
+  private void serve(Socket socket) {
+    try (socket) {
+      DataInputStream in = new DataInputStream(socket.getInputStream());
+      OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+      out.write("Rsrv0103QAP1\r\n\r\n--------------\r\n".getBytes(US_ASCII));
+      out.flush();
+
+      String fileName = null;
+      ByteArrayOutputStream writing = null;
+      InputStream reading = null;
+      while (true) {
+        byte[] header = new byte[16];
+        try {
+          in.readFully(header);
+        } catch (EOFException e) {
+          return;
+        }
+        ByteBuffer headerBuffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+        int command = headerBuffer.getInt(0);
+        byte[] payload = new byte[headerBuffer.getInt(4)];
+        in.readFully(payload);
+
+        switch (command) {
+          case CMD_EVAL -> respond(out, RESP_OK, encode(evaluate(readString(payload))));
+          case CMD_VOID_EVAL -> {
+            evaluate(readString(payload));
+            respond(out, RESP_OK, new byte[0]);
+          }
+          case CMD_CREATE_FILE -> {
+            fileName = readString(payload);
+            writing = new ByteArrayOutputStream();
+            respond(out, RESP_OK, new byte[0]);
+          }
+          case CMD_WRITE_FILE -> {
+            writing.write(payload, 4, parameterLength(payload));
+            respond(out, RESP_OK, new byte[0]);
+          }
+          case CMD_OPEN_FILE -> {
+            byte[] content = files.get(readString(payload));
+            if (content == null) {
+              respond(out, RESP_ERR | ERR_IO_ERROR << 24, new byte[0]);
+            } else {
+              reading = new ByteArrayInputStream(content);
+              respond(out, RESP_OK, new byte[0]);
+            }
+          }
+          case CMD_READ_FILE -> {
+            int size = ByteBuffer.wrap(payload).order(ByteOrder.LITTLE_ENDIAN).getInt(4);
+            respond(out, RESP_OK, reading.readNBytes(size));
+          }
+          case CMD_CLOSE_FILE -> {
+            if (writing != null) {
+              files.put(fileName, writing.toByteArray());
+            }
+            fileName = null;
+            writing = null;
+            reading = null;
+            respond(out, RESP_OK, new byte[0]);
+          }
+          default -> respond(out, RESP_ERR, new byte[0]);
+        }
+      }
+    } catch (IOException | REXPMismatchException e) {
+      // the client went away or asked for something the evaluator can't answer
+    }
+  }
+
+  private REXP evaluate(String expression) {
+    expressions.add(expression.trim());
+    return evaluator.apply(expression.trim());
+  }
+
+  private static String readString(byte[] payload) {
+    int end = 4;
+    while (end < payload.length && payload[end] != 0) {
+      end++;
+    }
+    return new String(payload, 4, end - 4, UTF_8);
+  }
+
+  private static int parameterLength(byte[] payload) {
+    return ByteBuffer.wrap(payload).order(ByteOrder.LITTLE_ENDIAN).getInt(0) >>> 8;
+  }
+
+  private static byte[] encode(REXP rexp) throws REXPMismatchException {
+    REXPFactory factory = new REXPFactory(rexp);
+    int length = factory.getBinaryLength();
+    byte[] content = new byte[length + 4];
+    ByteBuffer.wrap(content).order(ByteOrder.LITTLE_ENDIAN).putInt(0, DT_SEXP | length << 8);
+    factory.getBinaryRepresentation(content, 4);
+    return content;
+  }
+
+  private static void respond(OutputStream out, int response, byte[] content) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+    header.putInt(response).putInt(content.length).putInt(0).putInt(0);
+    out.write(header.array());
+    out.write(content);
+    out.flush();
+  }
+}
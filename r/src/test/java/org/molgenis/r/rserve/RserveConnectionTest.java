@@ -0,0 +1,168 @@
+package org.molgenis.r.rserve;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.molgenis.r.RServerConnection;
+import org.molgenis.r.RServerException;
+import org.molgenis.r.RServerResult;
+import org.molgenis.r.config.EnvironmentConfigProps;
+import org.molgenis.r.config.RServerType;
+import org.rosuda.REngine.REXP;
+import org.rosuda.REngine.REXPDouble;
+import org.rosuda.REngine.REXPFactor;
+import org.rosuda.REngine.REXPGenericVector;
+import org.rosuda.REngine.REXPInteger;
+import org.rosuda.REngine.REXPList;
+import org.rosuda.REngine.REXPLogical;
+import org.rosuda.REngine.REXPRaw;
+import org.rosuda.REngine.REXPString;
+import org.rosuda.REngine.RList;
+
+class RserveConnectionTest {
+
+  private FakeRserveServer server;
+  private RServerConnection connection;
+
+  @AfterEach
+  void afterEach() throws IOException {
+    if (connection != null) {
+      connection.close();
+    }
+    if (server != null) {
+      server.close();
+    }
+  }
+
+  @Test
+  void testEvalReturnsVectorsNatively() throws RServerException {
+    connect(expression -> new REXPDouble(new double[] {1.5, 2.5}));
+
+    RServerResult result = connection.eval("c(1.5, 2.5)");
+
+    assertTrue(result.isNumeric());
+    assertEquals(2, result.length());
+    assertArrayEquals(new double[] {1.5, 2.5}, result.asDoubles());
+    assertEquals(
+        List.of("base::try({\nc(1.5, 2.5)\n}, silent = TRUE)"), server.getExpressions());
+  }
+
+  @Test
+  void testEvalSerialized() throws RServerException {
+    connect(expression -> new REXPRaw(new byte[] {1, 2, 3}));
+
+    RServerResult result = connection.eval("x", true);
+
+    assertArrayEquals(new byte[] {1, 2, 3}, result.asBytes());
+    assertTrue(server.getExpressions().get(0).contains("base::serialize({\nx\n}, NULL)"));
+  }
+
+  @Test
+  void testEvalLogical() throws RServerException {
+    connect(expression -> new REXPLogical(true));
+
+    assertTrue(connection.eval("require('dsBase')").asLogical());
+  }
+
+  @Test
+  void testEvalError() {
+    RList attributes = new RList(new REXP[] {new REXPString("try-error")}, new String[] {"class"});
+    REXP error =
+        new REXPString(
+            new String[] {"Error in eval(expr) : object 'x' not found\n"},
+            new REXPList(attributes));
+    connect(expression -> error);
+
+    var exception = assertThrows(RserveServerException.class, () -> connection.eval("x"));
+
+    assertEquals("Error in eval(expr) : object 'x' not found", exception.getMessage());
+  }
+
+  @Test
+  void testDataFrameAsRows() throws RServerException {
+    REXP dataFrame =
+        new REXPGenericVector(
+            new RList(
+                new REXP[] {
+                  new REXPInteger(new int[] {1, REXPInteger.NA}),
+                  new REXPDouble(new double[] {0.5, 1.5}),
+                  new REXPString(new String[] {"a", null}),
+                  new REXPLogical(new byte[] {REXPLogical.TRUE, REXPLogical.NA}),
+                  new REXPFactor(new int[] {2, 1}, new String[] {"low", "high"})
+                },
+                new String[] {"int", "num", "str", "lgl", "fct"}));
+    connect(expression -> dataFrame);
+
+    RServerResult result = connection.eval("df");
+
+    assertTrue(result.isNamedList());
+    assertEquals(
+        List.of(
+            Map.of("int", 1, "num", 0.5, "str", "a", "lgl", true, "fct", "high"),
+            Map.of("num", 1.5, "fct", "low")),
+        result.asNamedList().asRows());
+  }
+
+  @Test
+  void testWriteAndReadFile() throws RServerException {
+    connect(expression -> new REXPLogical(true));
+    byte[] content = "some content".getBytes(UTF_8);
+
+    connection.writeFile("file.txt", new ByteArrayInputStream(content));
+    AtomicReference<byte[]> read = new AtomicReference<>();
+    connection.readFile(
+        "file.txt",
+        in -> {
+          try {
+            read.set(in.readAllBytes());
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+
+    assertArrayEquals(content, server.getFiles().get("file.txt"));
+    assertArrayEquals(content, read.get());
+  }
+
+  @Test
+  void testReadMissingFile() {
+    connect(expression -> new REXPLogical(true));
+
+    assertThrows(RserveServerException.class, () -> connection.readFile("missing", in -> {}));
+  }
+
+  @Test
+  void testClose() {
+    connect(expression -> new REXPLogical(true));
+
+    assertTrue(connection.close());
+    assertThrows(RserveServerException.class, () -> connection.eval("1"));
+    connection = null;
+  }
+
+  private void connect(Function<String, REXP> evaluator) {
+    try {
+      server = new FakeRserveServer(evaluator);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    var environment = new EnvironmentConfigProps();
+    environment.setName("default");
+    environment.setHost(server.getHost());
+    environment.setPort(server.getPort());
+    environment.setType(RServerType.RSERVE);
+    connection = new RserveConnectionFactory(environment).tryCreateConnection();
+  }
+}
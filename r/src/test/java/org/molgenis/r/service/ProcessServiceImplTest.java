@@ -3,16 +3,16 @@ package org.molgenis.r.service;
 import static java.lang.String.format;
 import static java.util.Map.entry;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.molgenis.r.service.ProcessServiceImpl.*;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
-import org.json.JSONArray;
 import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
@@ -21,11 +21,11 @@ import org.molgenis.r.RNamedList;
 import org.molgenis.r.RServerConnection;
 import org.molgenis.r.RServerException;
 import org.molgenis.r.RServerResult;
+import org.molgenis.r.exceptions.RExecutionException;
 import org.molgenis.r.model.RProcess;
 import org.molgenis.r.model.RProcess.Status;
-import org.molgenis.r.rock.RockResult;
+import org.molgenis.r.rock.RockJsonReader;
 import org.rosuda.REngine.REXPMismatchException;
-import org.skyscreamer.jsonassert.JSONParser;
 
 @ExtendWith(MockitoExtension.class)
 class ProcessServiceImplTest {
@@ -57,22 +57,19 @@ class ProcessServiceImplTest {
   }
 
   @Test
-  @Disabled
-  void testCountRserveProcesses() throws REXPMismatchException, RServerException {
-    // we need [{"n":3}] from RockResult which has no String parser containing a list
-    JSONArray result = (JSONArray) JSONParser.parseJSON("[{\"n\":3}]");
-
-    /*
-     * FIXME this gives:
-     * org.mockito.exceptions.misusing.WrongTypeOfReturnValue:
-     * RockResult cannot be returned by toString()
-     * oString() should return String
-     */
+  void testCountRserveProcesses() throws IOException {
     when(rExecutorService.execute(COUNT_RSERVE_PROCESSES_COMMAND, rConnection))
-        .thenReturn(new RockResult(result));
+        .thenReturn(RockJsonReader.read("[{\"n\":3}]"));
     assertEquals(3, processService.countRserveProcesses(rConnection));
   }
 
+  @Test
+  void testCountRserveProcessesNoList() {
+    when(rExecutorService.execute(COUNT_RSERVE_PROCESSES_COMMAND, rConnection)).thenReturn(rexp);
+    assertThrows(
+        RExecutionException.class, () -> processService.countRserveProcesses(rConnection));
+  }
+
   @Test
   void testGetRserveProcesses() {
     when(rExecutorService.execute(GET_RSERVE_PROCESSES_COMMAND, rConnection)).thenReturn(rexp);
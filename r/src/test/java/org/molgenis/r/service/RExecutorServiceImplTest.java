@@ -14,6 +14,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.molgenis.r.RScript;
 import org.molgenis.r.RServerConnection;
 import org.molgenis.r.RServerException;
 import org.molgenis.r.RServerResult;
@@ -92,56 +93,121 @@ class RExecutorServiceImplTest {
     assertTrue(rExecutionException.getMessage().contains("Eval returned null"));
   }
 
+  @Test
+  void executeStreaming() throws RServerException {
+    Consumer<InputStream> inputStreamConsumer = inputStream -> {};
+
+    executorService.execute("mean(age)", rConnection, inputStreamConsumer);
+
+    verify(rConnection).eval("mean(age)", inputStreamConsumer);
+  }
+
+  @Test
+  void executeStreamingFails() throws RServerException {
+    doThrow(new RockServerException("Evaluation failed"))
+        .when(rConnection)
+        .eval(eq("mean(ages)"), any(Consumer.class));
+
+    assertThrows(
+        RExecutionException.class,
+        () -> executorService.execute("mean(ages)", rConnection, inputStream -> {}));
+  }
+
   @Test
   void testLoadWorkspace() throws IOException, RServerException {
     Resource resource = new InMemoryResource("Hello");
 
     executorService.loadWorkspace(rConnection, resource, ".TibbleEnv");
 
-    verify(rConnection).eval("base::load(file='.RData', envir=.TibbleEnv)");
-    verify(rConnection).eval("base::unlink('.RData')");
+    verify(rConnection)
+        .eval(
+            argThat(
+                (RScript script) ->
+                    script.getScript().contains("base::load(file='.RData', envir=.TibbleEnv)")
+                        && script.getScript().contains("base::unlink('.RData')")));
   }
 
   @Test
   void testLoadTableWithVariables() throws IOException, RServerException {
     Resource resource = new InMemoryResource("Hello");
-
-    when(rConnection.eval(
-            "is.null(base::assign('D', value={data.frame(arrow::read_parquet('project_folder_table.parquet', as_data_frame = FALSE, col_select = tidyselect::any_of(c(\"col1\",\"col2\"))))}))",
-            false))
-        .thenReturn(new RockResult(new REXPLogical(true)));
-    when(rConnection.eval("base::unlink('project_folder_table.parquet')", false))
-        .thenReturn(new RockResult(new REXPNull()));
+    String script =
+        new RScript()
+            .add(
+                "assign D",
+                "is.null(base::assign('D', value={data.frame(arrow::read_parquet('project_folder_table.parquet', as_data_frame = FALSE, col_select = tidyselect::any_of(c(\"col1\",\"col2\"))))}))")
+            .add(
+                "unlink project_folder_table.parquet", "base::unlink('project_folder_table.parquet')")
+            .getScript();
+    when(rConnection.eval(script, false)).thenReturn(new RockResult(new REXPNull()));
 
     executorService.loadTable(
         rConnection, resource, "project/folder/table.parquet", "D", List.of("col1", "col2"));
 
-    verify(rConnection)
-        .eval(
-            "is.null(base::assign('D', value={data.frame(arrow::read_parquet('project_folder_table.parquet', as_data_frame = FALSE, col_select = tidyselect::any_of(c(\"col1\",\"col2\"))))}))",
-            false);
-    verify(rConnection).eval("base::unlink('project_folder_table.parquet')", false);
+    verify(rConnection).writeFile(eq("project_folder_table.parquet"), any(InputStream.class));
+    verify(rConnection).eval(script, false);
   }
 
   @Test
   void testLoadTableNoVariables() throws IOException, RServerException {
     Resource resource = new InMemoryResource("Hello");
-
-    when(rConnection.eval(
-            "is.null(base::assign('D', value={data.frame(arrow::read_parquet('project_folder_table.parquet', as_data_frame = FALSE))}))",
-            false))
-        .thenReturn(new RockResult(new REXPLogical(true)));
-    when(rConnection.eval("base::unlink('project_folder_table.parquet')", false))
-        .thenReturn(new RockResult(new REXPNull()));
+    String script =
+        new RScript()
+            .add(
+                "assign D",
+                "is.null(base::assign('D', value={data.frame(arrow::read_parquet('project_folder_table.parquet', as_data_frame = FALSE))}))")
+            .add(
+                "unlink project_folder_table.parquet", "base::unlink('project_folder_table.parquet')")
+            .getScript();
+    when(rConnection.eval(script, false)).thenReturn(new RockResult(new REXPNull()));
 
     executorService.loadTable(
         rConnection, resource, "project/folder/table.parquet", "D", List.of());
 
+    verify(rConnection).eval(script, false);
+  }
+
+  @Test
+  void testLoadTableReportsFailingStep() throws RServerException {
+    Resource resource = new InMemoryResource("Hello");
+    when(rConnection.eval(anyString(), eq(false)))
+        .thenThrow(new RockServerException("Step 1 (assign D) failed: cannot open file"));
+
+    RExecutionException exception =
+        assertThrows(
+            RExecutionException.class,
+            () ->
+                executorService.loadTable(
+                    rConnection, resource, "project/folder/table.parquet", "D", List.of()));
+    assertTrue(exception.getMessage().contains("Step 1 (assign D) failed"));
+  }
+
+  @Test
+  void testLoadTableFromPath() throws RServerException {
+    when(rConnection.eval(anyString(), eq(false)))
+        .thenReturn(new RockResult(new REXPLogical(true)));
+
+    assertTrue(
+        executorService.loadTable(
+            rConnection, "/storage/shared-project/folder/table.parquet", "D", List.of()));
+
+    verify(rConnection, never()).writeFile(anyString(), any(InputStream.class));
     verify(rConnection)
         .eval(
-            "is.null(base::assign('D', value={data.frame(arrow::read_parquet('project_folder_table.parquet', as_data_frame = FALSE))}))",
-            false);
-    verify(rConnection).eval("base::unlink('project_folder_table.parquet')", false);
+            argThat(
+                (String script) ->
+                    script.startsWith("if (base::file.exists('/storage/shared-project/")
+                        && script.endsWith("else FALSE")),
+            eq(false));
+  }
+
+  @Test
+  void testLoadTableFromMissingPath() throws RServerException {
+    when(rConnection.eval(anyString(), eq(false)))
+        .thenReturn(new RockResult(new REXPLogical(false)));
+
+    assertFalse(
+        executorService.loadTable(
+            rConnection, "/storage/shared-project/folder/table.parquet", "D", List.of()));
   }
 
   @Test
@@ -151,49 +217,30 @@ class RExecutorServiceImplTest {
     Resource resource = new InMemoryResource("Hello");
     when(token.getTokenValue()).thenReturn("token");
     when(principal.getToken()).thenReturn(token);
-    lenient()
-        .doNothing()
-        .when(rConnection)
-        .writeFile(eq("project_folder_resource.rds"), any(InputStream.class));
-    lenient()
-        .doReturn(new RockResult(new REXPLogical(true)))
-        .when(rConnection)
-        .eval("is.null(base::assign('rds',base::readRDS('project_folder_resource.rds')))", false);
-    lenient()
-        .doReturn(new RockResult(new REXPNull()))
-        .when(rConnection)
-        .eval("base::unlink('project_folder_resource.rds')", false);
-    lenient()
-        .doReturn(new RockResult(new REXPLogical(true)))
-        .when(rConnection)
-        .eval(
-            "is.null(base::assign('R', value={resourcer::newResource(\n"
-                + "        name = rds$name,\n"
-                + "        url = rds$url,\n"
-                + "        format = rds$format,\n"
-                + "        secret = \"token\"\n"
-                + ")}))",
-            false);
-    lenient()
-        .doReturn(new RockResult(new REXPLogical(true)))
-        .when(rConnection)
-        .eval("is.null(base::assign('D', value={resourcer::newResourceClient(R)}))", false);
+    String script =
+        new RScript()
+            .add(
+                "read project_folder_resource.rds",
+                "is.null(base::assign('rds',base::readRDS('project_folder_resource.rds')))")
+            .add(
+                "unlink project_folder_resource.rds", "base::unlink('project_folder_resource.rds')")
+            .add(
+                "create resource",
+                "is.null(base::assign('R', value={resourcer::newResource(\n"
+                    + "        name = rds$name,\n"
+                    + "        url = rds$url,\n"
+                    + "        format = rds$format,\n"
+                    + "        secret = \"token\"\n"
+                    + ")}))")
+            .add("assign D", "is.null(base::assign('D', value={resourcer::newResourceClient(R)}))")
+            .getScript();
+    when(rConnection.eval(script, false)).thenReturn(new RockResult(new REXPLogical(true)));
+
     executorService.loadResource(
         principal, rConnection, resource, "project/folder/resource.rds", "D");
-    verify(rConnection)
-        .eval("is.null(base::assign('rds',base::readRDS('project_folder_resource.rds')))", false);
-    verify(rConnection).eval("base::unlink('project_folder_resource.rds')", false);
-    verify(rConnection)
-        .eval(
-            "is.null(base::assign('R', value={resourcer::newResource(\n"
-                + "        name = rds$name,\n"
-                + "        url = rds$url,\n"
-                + "        format = rds$format,\n"
-                + "        secret = \"token\"\n"
-                + ")}))",
-            false);
-    verify(rConnection)
-        .eval("is.null(base::assign('D', value={resourcer::newResourceClient(R)}))", false);
+
+    verify(rConnection).writeFile(eq("project_folder_resource.rds"), any(InputStream.class));
+    verify(rConnection).eval(script, false);
   }
 
   @Test